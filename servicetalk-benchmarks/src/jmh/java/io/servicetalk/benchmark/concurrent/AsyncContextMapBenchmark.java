@@ -22,6 +22,7 @@ import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -29,6 +30,7 @@ import org.openjdk.jmh.annotations.Warmup;
 
 import java.util.AbstractList;
 import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +54,17 @@ public class AsyncContextMapBenchmark {
     private static final Key<String> K6 = newKey("k6");
     private static final Key<String> K7 = newKey("k7");
     private static final Key<String> K8 = newKey("k8");
+    private static final List<Key<String>> SIXTEEN_KEYS = newKeys(16);
+
+    @Param({"copyOnWrite", "persistent"})
+    private String contextMap;
+
+    @Setup(Level.Trial)
+    public final void setupContextMap() {
+        if ("persistent".equals(contextMap)) {
+            AsyncContext.enablePersistentContextMap();
+        }
+    }
 
     @Setup(Level.Invocation)
     public final void setup() {
@@ -102,12 +115,40 @@ public class AsyncContextMapBenchmark {
         AsyncContext.get(K8);
     }
 
+    @Benchmark
+    public void putGetSixteen() {
+        for (Key<String> key : SIXTEEN_KEYS) {
+            AsyncContext.put(key, "v");
+        }
+        for (Key<String> key : SIXTEEN_KEYS) {
+            AsyncContext.get(key);
+        }
+    }
+
+    @Benchmark
+    public void putOverwriteSixteen() {
+        for (Key<String> key : SIXTEEN_KEYS) {
+            AsyncContext.put(key, "v");
+        }
+        for (Key<String> key : SIXTEEN_KEYS) {
+            AsyncContext.put(key, "v2");
+        }
+    }
+
     @Benchmark
     public void putGetMultiFour() {
         AsyncContext.putAll(FourMap.INSTANCE);
         AsyncContext.removeAll(FourList.INSTANCE);
     }
 
+    private static List<Key<String>> newKeys(final int count) {
+        final List<Key<String>> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            keys.add(newKey("key" + i));
+        }
+        return keys;
+    }
+
     private static final class FourList extends AbstractList<Key<?>> {
         static final List<Key<?>> INSTANCE = new FourList();
 
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.concurrent;
+
+import io.servicetalk.concurrent.api.AsyncContext;
+import io.servicetalk.concurrent.api.AsyncContextMap.Key;
+import io.servicetalk.concurrent.api.DefaultThreadFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+import static io.servicetalk.concurrent.api.AsyncContextMap.Key.newKey;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+
+/**
+ * Compares the cost of accessing the {@link AsyncContext} from threads which carry the context in a field, as created
+ * by {@link DefaultThreadFactory}, with threads which fall back to a {@link ThreadLocal}.
+ * <p>
+ * JMH runs benchmarks on threads which carry the context in a field (see {@link AsyncContextFriendlyExecutor}), so
+ * each invocation hands a batch of operations off to a dedicated thread of the configured type. The cost of the hand
+ * off is amortized over {@link #OPERATIONS} operations.
+ */
+@Fork(2)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AsyncContextStorageBenchmark {
+    private static final int OPERATIONS = 1024;
+    private static final Key<String> KEY = newKey("key");
+
+    @Param({"field", "threadLocal"})
+    private String storage;
+
+    private ExecutorService executor;
+    private Callable<Integer> wrappedRunnables;
+    private Callable<Integer> gets;
+    private Callable<Integer> putsAndGets;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final ThreadFactory threadFactory;
+        if ("field".equals(storage)) {
+            threadFactory = new DefaultThreadFactory("async-context-field");
+        } else if ("threadLocal".equals(storage)) {
+            threadFactory = r -> {
+                Thread t = new Thread(r, "async-context-thread-local");
+                t.setDaemon(true);
+                return t;
+            };
+        } else {
+            throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+        executor = newSingleThreadExecutor(threadFactory);
+
+        AsyncContext.put(KEY, "value");
+        final Runnable wrapped = AsyncContext.wrapRunnable(() -> { });
+        AsyncContext.clear();
+        wrappedRunnables = () -> {
+            for (int i = 0; i < OPERATIONS; ++i) {
+                wrapped.run();
+            }
+            return OPERATIONS;
+        };
+        gets = () -> {
+            int found = 0;
+            for (int i = 0; i < OPERATIONS; ++i) {
+                if (AsyncContext.get(KEY) != null) {
+                    ++found;
+                }
+            }
+            return found;
+        };
+        putsAndGets = () -> {
+            int found = 0;
+            for (int i = 0; i < OPERATIONS; ++i) {
+                AsyncContext.put(KEY, "value");
+                if (AsyncContext.get(KEY) != null) {
+                    ++found;
+                }
+                AsyncContext.remove(KEY);
+            }
+            return found;
+        };
+        try {
+            // Initialize the context of the executor thread with an entry for the "get" benchmark.
+            executor.submit(() -> AsyncContext.put(KEY, "value")).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int wrappedRunnable() throws Exception {
+        return executor.submit(wrappedRunnables).get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int get() throws Exception {
+        return executor.submit(gets).get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS)
+    public int putGetRemove() throws Exception {
+        return executor.submit(putsAndGets).get();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.concurrent;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Executors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import static io.servicetalk.concurrent.api.Executors.newCachedThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Compares the cost of scheduling and cancelling a timeout, as done for every request with a timeout, on the default
+ * {@link Executor} scheduler and on {@link Executors#withHashedWheelTimer(Executor) a hashed wheel timer}.
+ * <p>
+ * A configurable number of long running timeouts are outstanding during the benchmark to model a large number of
+ * in-flight requests.
+ */
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExecutorScheduleBenchmark {
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"default", "hashedWheel"})
+    private String scheduler;
+
+    @Param({"50000"})
+    private int outstandingTimeouts;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("default".equals(scheduler)) {
+            executor = newCachedThreadExecutor();
+        } else if ("hashedWheel".equals(scheduler)) {
+            executor = Executors.withHashedWheelTimer(newCachedThreadExecutor());
+        } else {
+            throw new IllegalArgumentException("Unknown scheduler: " + scheduler);
+        }
+        for (int i = 0; i < outstandingTimeouts; i++) {
+            executor.schedule(NOOP, 1000 + i % 1000, SECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Benchmark
+    public Cancellable scheduleAndCancel() {
+        Cancellable cancellable = executor.schedule(NOOP, 30, SECONDS);
+        cancellable.cancel();
+        return cancellable;
+    }
+}
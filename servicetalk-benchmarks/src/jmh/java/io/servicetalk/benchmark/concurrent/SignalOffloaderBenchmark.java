@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.benchmark.concurrent;
+
+import io.servicetalk.concurrent.PublisherSource.Subscriber;
+import io.servicetalk.concurrent.PublisherSource.Subscription;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.internal.SignalOffloader;
+import io.servicetalk.concurrent.internal.SignalOffloaders;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Executors.newWorkStealingExecutor;
+import static io.servicetalk.concurrent.internal.EmptySubscription.EMPTY_SUBSCRIPTION;
+
+/**
+ * Compares the throughput and the latency distribution of {@link Subscriber} signals offloaded by the different
+ * {@link SignalOffloader}s.
+ * <p>
+ * Each operation offloads a stream of {@link #ITEMS} items and waits for the offloaded {@link Subscriber} to
+ * terminate, so the sampled time is the latency of a whole stream. More benchmark threads than {@link Executor}
+ * threads are used to model a busy {@link Executor}.
+ */
+@Fork(2)
+@Threads(4)
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+public class SignalOffloaderBenchmark {
+    private static final int ITEMS = 1024;
+    private static final Integer ITEM = 1;
+
+    @Param({"task", "taskYield64", "thread"})
+    private String offloader;
+
+    private Executor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = newWorkStealingExecutor(2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Benchmark
+    public void offloadPublisherSignals() throws InterruptedException {
+        final CountDownLatch terminated = new CountDownLatch(1);
+        final Subscriber<? super Integer> subscriber = newOffloader().offloadSubscriber(
+                new TerminationAwaitingSubscriber(terminated));
+        subscriber.onSubscribe(EMPTY_SUBSCRIPTION);
+        for (int i = 0; i < ITEMS; i++) {
+            subscriber.onNext(ITEM);
+        }
+        subscriber.onComplete();
+        terminated.await();
+    }
+
+    private SignalOffloader newOffloader() {
+        switch (offloader) {
+            case "task":
+                return SignalOffloaders.newTaskBasedOffloader(executor);
+            case "taskYield64":
+                return SignalOffloaders.newTaskBasedOffloader(executor, 64);
+            case "thread":
+                return SignalOffloaders.newThreadBasedOffloader(executor);
+            default:
+                throw new IllegalArgumentException("Unknown offloader: " + offloader);
+        }
+    }
+
+    private static final class TerminationAwaitingSubscriber implements Subscriber<Integer> {
+        private final CountDownLatch terminated;
+        private int sum;
+
+        TerminationAwaitingSubscriber(final CountDownLatch terminated) {
+            this.terminated = terminated;
+        }
+
+        @Override
+        public void onSubscribe(final Subscription subscription) {
+        }
+
+        @Override
+        public void onNext(@Nullable final Integer integer) {
+            assert integer != null;
+            sum += integer;
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            if (sum != ITEMS) {
+                throw new IllegalStateException("Unexpected sum: " + sum);
+            }
+            terminated.countDown();
+        }
+    }
+}
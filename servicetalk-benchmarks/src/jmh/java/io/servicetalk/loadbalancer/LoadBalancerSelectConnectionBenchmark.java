@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.CompletableSource.Processor;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Processors.newCompletableProcessor;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+
+/*
+ * This benchmark drives LoadBalancer#selectConnection(Predicate) from multiple threads, with a selector which reserves
+ * the connection using a CAS operation and releases it once selected, like the reservation of a connection for a
+ * request does. It is used to evaluate the connection search heuristics of AbstractLoadBalancer (MIN_SEARCH_SPACE,
+ * SEARCH_FACTOR) and to compare host selection strategies:
+ *
+ * - hosts:              number of hosts returned by service discovery.
+ * - connectionsPerHost: number of connections opened to every host before measuring.
+ * - saturation:         ratio of connections which are permanently reserved and reject every selection.
+ * - churn:              probability that a selected connection is closed after use, to be replaced by a new one.
+ *
+ * Besides the throughput, the "casFailures" and "newConnections" secondary results report the number of rejected
+ * reservation attempts and the number of connections created during a measurement iteration. Allocations can be
+ * measured by running the benchmark with the GC profiler, e.g. "-prof gc".
+ */
+@Fork(value = 1)
+@State(Scope.Benchmark)
+@Threads(8)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+public class LoadBalancerSelectConnectionBenchmark {
+
+    @Param({"roundRobin", "p2c"})
+    private String loadBalancer;
+
+    @Param({"1", "10", "100"})
+    private int hosts;
+
+    @Param({"1", "16", "128"})
+    private int connectionsPerHost;
+
+    @Param({"0", "0.5", "0.9"})
+    private double saturation;
+
+    @Param({"0", "0.001"})
+    private double churn;
+
+    @Nullable
+    private LoadBalancer<TestConnection> lb;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final List<ServiceDiscovererEvent<String>> events = new ArrayList<>(hosts);
+        for (int i = 0; i < hosts; i++) {
+            events.add(new DefaultServiceDiscovererEvent<>("address-" + i, true));
+        }
+        // Never complete service discovery, the load balancer would log an error.
+        final Publisher<ServiceDiscovererEvent<String>> sd = Publisher.fromIterable(events).concat(Publisher.never());
+        final ConnectionFactory<String, TestConnection> factory = new TestConnectionFactory();
+        switch (loadBalancer) {
+            case "roundRobin":
+                lb = new RoundRobinLoadBalancer<>(sd, factory, String::compareTo);
+                break;
+            case "p2c":
+                lb = new PowerOfTwoChoicesLoadBalancer<>(sd, factory, String::compareTo);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown loadBalancer: " + loadBalancer);
+        }
+
+        // Reject every existing connection until the expected number of connections is open, hosts are selected
+        // evenly by all load balancers when there are no requests in flight.
+        final Set<TestConnection> connections = new HashSet<>();
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        final Predicate<TestConnection> newOnly = connections::add;
+        while (connections.size() < hosts * connectionsPerHost) {
+            final TestConnection connection = lb.selectConnection(newOnly).toFuture().get();
+            connection.markSelected();
+            if (rnd.nextDouble() < saturation) {
+                connection.tryReserve();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (lb != null) {
+            lb.closeAsync().toFuture().get();
+        }
+    }
+
+    @Benchmark
+    public TestConnection selectConnection(final SelectionCounters counters) {
+        assert lb != null;
+        counters.selector.connection = null;
+        toSource(lb.selectConnection(counters.selector)).subscribe(counters.selector);
+        final TestConnection connection = counters.selector.connection;
+        if (connection != null) {
+            if (connection.markSelected()) {
+                counters.newConnections++;
+            }
+            connection.release();
+            if (churn > 0 && ThreadLocalRandom.current().nextDouble() < churn) {
+                connection.closeAsync().subscribe();
+            }
+        }
+        return connection;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SelectionCounters {
+        public long casFailures;
+        public long newConnections;
+
+        final ReservingSelector selector = new ReservingSelector(this);
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            casFailures = 0;
+            newConnections = 0;
+        }
+    }
+
+    private static final class ReservingSelector implements Predicate<TestConnection>,
+                                                            SingleSource.Subscriber<TestConnection> {
+        private final SelectionCounters counters;
+        @Nullable
+        TestConnection connection;
+
+        ReservingSelector(final SelectionCounters counters) {
+            this.counters = counters;
+        }
+
+        @Override
+        public boolean test(final TestConnection connection) {
+            if (connection.tryReserve()) {
+                return true;
+            }
+            counters.casFailures++;
+            return false;
+        }
+
+        @Override
+        public void onSubscribe(final Cancellable cancellable) {
+        }
+
+        @Override
+        public void onSuccess(@Nullable final TestConnection result) {
+            connection = result;
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            // Selection may fail when a connection closes concurrently, the next selection will retry.
+        }
+    }
+
+    public static final class TestConnection implements LoadBalancedConnection {
+        private static final AtomicIntegerFieldUpdater<TestConnection> reservedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(TestConnection.class, "reserved");
+        private static final AtomicIntegerFieldUpdater<TestConnection> selectedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(TestConnection.class, "selected");
+
+        private final Processor onClose = newCompletableProcessor();
+        private volatile int reserved;
+        private volatile int selected;
+
+        /**
+         * Marks this connection as selected at least once.
+         *
+         * @return {@code true} if this is the first selection of this connection, after it has been created.
+         */
+        boolean markSelected() {
+            return selected == 0 && selectedUpdater.getAndSet(this, 1) == 0;
+        }
+
+        boolean tryReserve() {
+            return reservedUpdater.compareAndSet(this, 0, 1);
+        }
+
+        void release() {
+            reserved = 0;
+        }
+
+        @Override
+        public float score() {
+            return 1;
+        }
+
+        @Override
+        public Completable onClose() {
+            return fromSource(onClose);
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.defer(() -> {
+                onClose.onComplete();
+                return onClose();
+            });
+        }
+    }
+
+    private static final class TestConnectionFactory implements ConnectionFactory<String, TestConnection> {
+        @Override
+        public Single<TestConnection> newConnection(final String address) {
+            return succeeded(new TestConnection());
+        }
+
+        @Override
+        public Completable onClose() {
+            return Completable.completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.completed();
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package io.servicetalk.client.api;
 
+import javax.annotation.Nullable;
+
 import static java.util.Objects.requireNonNull;
 
 /**
@@ -24,6 +26,9 @@ import static java.util.Objects.requireNonNull;
 public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscovererEvent<T> {
     private final T address;
     private final boolean available;
+    @Nullable
+    private final String zone;
+    private final int weight;
 
     /**
      * Create a new instance.
@@ -31,8 +36,24 @@ public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscoverer
      * @param available Value returned by {@link #available}.
      */
     public DefaultServiceDiscovererEvent(T address, boolean available) {
+        this(address, available, null, 1);
+    }
+
+    /**
+     * Create a new instance.
+     * @param address The address returned by {@link #address()}.
+     * @param available Value returned by {@link #available}.
+     * @param zone Value returned by {@link #zone()}.
+     * @param weight Value returned by {@link #weight()}.
+     */
+    public DefaultServiceDiscovererEvent(T address, boolean available, @Nullable String zone, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("weight: " + weight + " (expected >0)");
+        }
         this.address = requireNonNull(address);
         this.available = available;
+        this.zone = zone;
+        this.weight = weight;
     }
 
     @Override
@@ -45,11 +66,24 @@ public final class DefaultServiceDiscovererEvent<T> implements ServiceDiscoverer
         return available;
     }
 
+    @Nullable
+    @Override
+    public String zone() {
+        return zone;
+    }
+
+    @Override
+    public int weight() {
+        return weight;
+    }
+
     @Override
     public String toString() {
         return "DefaultServiceDiscovererEvent{" +
                 "address=" + address +
                 ", available=" + available +
+                ", zone=" + zone +
+                ", weight=" + weight +
                 '}';
     }
 }
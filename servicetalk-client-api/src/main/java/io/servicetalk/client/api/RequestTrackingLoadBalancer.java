@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.client.api;
+
+/**
+ * A {@link LoadBalancer} which is notified about the requests issued on the connections it selected. Clients that
+ * issue requests on connections selected by a {@link LoadBalancer} should notify it about the start and the end of
+ * each request if it implements this interface, which allows selection to take the load and the responsiveness of
+ * each host into account.
+ *
+ * @param <C> The type of connection.
+ */
+public interface RequestTrackingLoadBalancer<C extends LoadBalancedConnection> extends LoadBalancer<C> {
+
+    /**
+     * Notifies that a request has started on the passed {@code connection}.
+     *
+     * @param connection a connection previously selected by this {@link LoadBalancer}.
+     */
+    void requestStarted(C connection);
+
+    /**
+     * Notifies that a request which was previously notified to {@link #requestStarted(LoadBalancedConnection)} has
+     * finished.
+     *
+     * @param connection a connection previously selected by this {@link LoadBalancer}.
+     * @param durationNanos the duration of the request, in nanoseconds.
+     * @param failed {@code true} if the request failed.
+     */
+    void requestFinished(C connection, long durationNanos, boolean failed);
+}
@@ -15,6 +15,8 @@
  */
 package io.servicetalk.client.api;
 
+import javax.annotation.Nullable;
+
 /**
  * Notification from the Service Discovery system that availability for an address has changed.
  * @param <ResolvedAddress> the type of address after resolution.
@@ -32,4 +34,22 @@ public interface ServiceDiscovererEvent<ResolvedAddress> {
      * unavailable.
      */
     boolean isAvailable();
+
+    /**
+     * Get the zone, or more generally the locality, of {@link #address()}.
+     * @return the zone of {@link #address()}, or {@code null} if unknown.
+     */
+    @Nullable
+    default String zone() {
+        return null;
+    }
+
+    /**
+     * Get the relative weight of {@link #address()} compared to the other addresses of the same service, used to
+     * distribute more load to addresses with a higher capacity.
+     * @return the relative weight of {@link #address()}, always greater than {@code 0}.
+     */
+    default int weight() {
+        return 1;
+    }
 }
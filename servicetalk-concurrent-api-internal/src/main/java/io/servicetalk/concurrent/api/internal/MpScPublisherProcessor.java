@@ -0,0 +1,410 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api.internal;
+
+import io.servicetalk.concurrent.PublisherSource;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.internal.DuplicateSubscribeException;
+import io.servicetalk.concurrent.internal.FlowControlUtils;
+import io.servicetalk.concurrent.internal.QueueFullException;
+import io.servicetalk.concurrent.internal.TerminalNotification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.internal.SubscriberUtils.deliverTerminalFromSource;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.newExceptionForInvalidRequestN;
+import static io.servicetalk.utils.internal.PlatformDependent.newUnboundedMpscQueue;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Publisher} that allows for signals to be directly injected via {@link #sendOnNext(Object)},
+ * {@link #trySendOnNext(Object)}, {@link #sendOnComplete()}, and {@link #sendOnError(Throwable)}. The threading
+ * restrictions for this class are:
+ * <ul>
+ * <li><strong>M</strong>ultiple<strong>P</strong>roducer meaning any number of threads are allowed to concurrently
+ * interact with {@link #sendOnNext(Object)}, {@link #trySendOnNext(Object)},
+ * {@link #trySendOnNext(Object, Runnable)}, {@link #sendOnComplete()}, and
+ * {@link #sendOnError(Throwable)} methods without external synchronization. Signals from the same thread are
+ * delivered in the order they were sent, there is no ordering guarantee between signals sent from different threads.
+ * A terminal signal is delivered after all signals which were sent before it, so producers are expected to
+ * coordinate such that a terminal signal is only sent after all other producers are done.</li>
+ * <li><strong>S</strong>ingle<strong>C</strong>onsumer meaning only a single {@link PublisherSource.Subscriber} is
+ * supported. Other operators can be used to add support for multiple {@link PublisherSource.Subscriber}s if necessary.
+ * </li>
+ * </ul>
+ *
+ * @param <T> The type of {@link Publisher}.
+ * @see SpScPublisherProcessor
+ */
+public final class MpScPublisherProcessor<T> extends SubscribablePublisher<T> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MpScPublisherProcessor.class);
+    private static final AtomicLongFieldUpdater<MpScPublisherProcessor> requestedUpdater =
+            AtomicLongFieldUpdater.newUpdater(MpScPublisherProcessor.class, "requested");
+    private static final AtomicIntegerFieldUpdater<MpScPublisherProcessor> onNextQueueSizeUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(MpScPublisherProcessor.class, "onNextQueueSize");
+    private static final AtomicIntegerFieldUpdater<MpScPublisherProcessor> clearingQueueUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(MpScPublisherProcessor.class, "clearingQueue");
+    private static final AtomicReferenceFieldUpdater<MpScPublisherProcessor, Subscriber> subscriberUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(MpScPublisherProcessor.class, Subscriber.class,
+                    "subscriber");
+    private static final long CANCELLED = Long.MIN_VALUE;
+    private static final Object NULL_TOKEN = new Object();
+    private static final Subscriber<?> CALLING_ON_SUBSCRIBE = newErrorSubscriber();
+    private static final Subscriber<?> DRAINING_SUBSCRIBER = newErrorSubscriber();
+    private static final Subscriber<?> TERMINATING_SUBSCRIBER = newErrorSubscriber();
+    private static final Subscriber<?> TERMINATED_SUBSCRIBER = newErrorSubscriber();
+
+    @Nullable
+    private volatile Subscriber<? super T> subscriber;
+    private volatile int onNextQueueSize;
+    private volatile long requested;
+    private volatile int clearingQueue;
+    private final Queue<Object> signalQueue;
+    /**
+     * Callbacks of producers waiting for capacity in the {@link #signalQueue}. Both the thread delivering signals and
+     * producers consume from this queue, so it must support multiple consumers.
+     */
+    private final Queue<Runnable> capacityWaiters = new ConcurrentLinkedQueue<>();
+    private final int maxOnNextQueueSize;
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxOnNextQueueSize The maximum amount of {@link PublisherSource.Subscriber#onNext(Object)} signals that
+     * can be queued from {@link #sendOnNext(Object)}.
+     */
+    public MpScPublisherProcessor(int maxOnNextQueueSize) {
+        this(maxOnNextQueueSize, 16);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxOnNextQueueSize The maximum amount of {@link PublisherSource.Subscriber#onNext(Object)} signals that
+     * can be queued from {@link #sendOnNext(Object)}.
+     * @param initialQueueSize The initial size of the {@link Queue} to hold signals for the
+     * {@link #sendOnNext(Object)}, {@link #sendOnComplete()}, and {@link #sendOnError(Throwable)} methods.
+     */
+    private MpScPublisherProcessor(int maxOnNextQueueSize, int initialQueueSize) {
+        if (maxOnNextQueueSize <= 0) {
+            throw new IllegalArgumentException("maxOnNextQueueSize: " + maxOnNextQueueSize + " (expected >0)");
+        }
+        this.maxOnNextQueueSize = maxOnNextQueueSize;
+        signalQueue = newUnboundedMpscQueue(initialQueueSize);
+    }
+
+    @Override
+    protected void handleSubscribe(final Subscriber<? super T> s) {
+        for (;;) {
+            final Subscriber<? super T> subscriber = this.subscriber;
+            if (subscriber != null) {
+                deliverTerminalFromSource(s, new DuplicateSubscribeException(subscriber, s));
+                return;
+            } else if (subscriberUpdater.compareAndSet(this, null, CALLING_ON_SUBSCRIBE)) {
+                s.onSubscribe(new Subscription() {
+                    @Override
+                    public void request(final long n) {
+                        if (isRequestNValid(n)) {
+                            if (requestedUpdater.getAndAccumulate(MpScPublisherProcessor.this, n,
+                                    FlowControlUtils::addWithOverflowProtectionIfNotNegative) == 0) {
+                                drainQueue();
+                            }
+                        } else {
+                            for (;;) {
+                                final long requested = MpScPublisherProcessor.this.requested;
+                                if (requested < 0) {
+                                    break;
+                                } else if (requestedUpdater.compareAndSet(MpScPublisherProcessor.this,
+                                        requested, n == CANCELLED ? CANCELLED + 1 : n)) {
+                                    drainQueue();
+                                    break;
+                                }
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void cancel() {
+                        if (requestedUpdater.getAndSet(MpScPublisherProcessor.this, CANCELLED) !=
+                                CANCELLED) {
+                            drainQueue(); // just to clear the queue and make objects eligible for GC.
+                        }
+                    }
+                });
+
+                // We hold off all interactions with the Subscriber until control flow returns from onSubscribe to
+                // avoid concurrently invoking the Subscriber.
+                if (subscriberUpdater.compareAndSet(this, CALLING_ON_SUBSCRIBE, s)) {
+                    drainQueue();
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Send an {@link PublisherSource.Subscriber#onNext(Object)} signal to the subscriber of this {@link Publisher}.
+     * <p>
+     * If the queue of signals is full the subscriber is terminated with a {@link QueueFullException} after the
+     * already queued signals are delivered. Use {@link #trySendOnNext(Object)} if the producer is able to back off
+     * instead.
+     *
+     * @param t The signals for {@link PublisherSource.Subscriber#onNext(Object)}.
+     * @throws QueueFullException if the queue of signals would exceed the maximum size.
+     */
+    public void sendOnNext(@Nullable final T t) {
+        if (!trySendOnNext(t)) {
+            final QueueFullException e = new QueueFullException("signalQueue", maxOnNextQueueSize);
+            signalQueue.add(TerminalNotification.error(e));
+            drainQueue();
+            // The calling thread should be notified that the queue is full, and if this is in the context of another
+            // asynchronous source it will serve as a best effort to terminate that source.
+            throw e;
+        }
+    }
+
+    /**
+     * Try to send an {@link PublisherSource.Subscriber#onNext(Object)} signal to the subscriber of this
+     * {@link Publisher}.
+     * <p>
+     * Unlike {@link #sendOnNext(Object)} a full queue of signals does not terminate the subscriber, the caller is
+     * expected to retry later, after the subscriber has requested more data. Signals sent after the subscriber has
+     * terminated or cancelled are discarded.
+     * <p>
+     * This method does not signal when capacity becomes available, use
+     * {@link #trySendOnNext(Object, Runnable)} to avoid retrying in a busy loop.
+     *
+     * @param t The signals for {@link PublisherSource.Subscriber#onNext(Object)}.
+     * @return {@code true} if the signal has been queued or discarded, {@code false} if the queue of signals is full.
+     */
+    public boolean trySendOnNext(@Nullable final T t) {
+        if (subscriber == TERMINATED_SUBSCRIBER) {
+            return true;
+        }
+        // Multiple producers may race to reserve the last slot, so the size is only incremented if it stays within
+        // the bounds.
+        for (;;) {
+            final int size = onNextQueueSize;
+            if (size >= maxOnNextQueueSize) {
+                return false;
+            } else if (onNextQueueSizeUpdater.compareAndSet(this, size, size + 1)) {
+                break;
+            }
+        }
+        signalQueue.add(t == null ? NULL_TOKEN : t);
+        drainQueue();
+        return true;
+    }
+
+    /**
+     * Try to send an {@link PublisherSource.Subscriber#onNext(Object)} signal to the subscriber of this
+     * {@link Publisher}, and register a callback to retry if the queue of signals is full.
+     * <p>
+     * If this method returns {@code false}, {@code onCapacityAvailable} is invoked once after a queued signal has been
+     * delivered to the subscriber, or the subscriber has terminated. Other producers may take the freed capacity
+     * first, so a retry from {@code onCapacityAvailable} may return {@code false} again and register a new callback.
+     * {@code onCapacityAvailable} may be invoked from the thread delivering signals to the subscriber and must not
+     * block.
+     *
+     * @param t The signals for {@link PublisherSource.Subscriber#onNext(Object)}.
+     * @param onCapacityAvailable Invoked once when the signal may be sent again, if this method returns {@code false}.
+     * @return {@code true} if the signal has been queued or discarded, {@code false} if the queue of signals is full.
+     */
+    public boolean trySendOnNext(@Nullable final T t, final Runnable onCapacityAvailable) {
+        requireNonNull(onCapacityAvailable);
+        if (trySendOnNext(t)) {
+            return true;
+        }
+        capacityWaiters.add(onCapacityAvailable);
+        // Capacity may have been freed, or the subscriber terminated, before the callback was added.
+        if (onNextQueueSize < maxOnNextQueueSize || subscriber == TERMINATED_SUBSCRIBER) {
+            notifyCapacityWaiter();
+        }
+        return false;
+    }
+
+    /**
+     * Send an {@link PublisherSource.Subscriber#onError(Throwable)} signal to the subscriber of this {@link Publisher}.
+     *
+     * @param t The signals for {@link PublisherSource.Subscriber#onError(Throwable)}.
+     */
+    public void sendOnError(final Throwable t) {
+        signalQueue.add(TerminalNotification.error(t));
+        drainQueue();
+    }
+
+    /**
+     * Send an {@link PublisherSource.Subscriber#onComplete()} signal to the subscriber of this {@link Publisher}.
+     */
+    public void sendOnComplete() {
+        signalQueue.add(TerminalNotification.complete());
+        drainQueue();
+    }
+
+    private void drainQueue() {
+        for (;;) {
+            final Subscriber<? super T> subscriber = this.subscriber;
+            if (subscriber == null || subscriber == CALLING_ON_SUBSCRIBE || subscriber == DRAINING_SUBSCRIBER) {
+                if (subscriberUpdater.compareAndSet(this, subscriber, subscriber)) {
+                    break;
+                }
+            } else if (subscriber == TERMINATING_SUBSCRIBER) {
+                // forcing the state to TERMINATED_SUBSCRIBER either signals to the consumer thread that it needs to
+                // drain again, or we will take ownership of the consumer and drain if already terminated.
+                if (subscriberUpdater.getAndSet(this, TERMINATED_SUBSCRIBER) == TERMINATED_SUBSCRIBER) {
+                    clearQueue();
+                }
+                break;
+            } else if (subscriber == TERMINATED_SUBSCRIBER) {
+                clearQueue();
+                break;
+            } else {
+                for (;;) {
+                    if (!subscriberUpdater.compareAndSet(this, subscriber, DRAINING_SUBSCRIBER)) {
+                        return;
+                    }
+                    Object signal;
+                    long previousRequested;
+                    // getAndAccumulate because we want to know if before the decrement, the value was positive.
+                    while ((previousRequested = requestedUpdater.getAndAccumulate(this, 1,
+                            FlowControlUtils::subtractIfPositive)) > 0) {
+                        signal = signalQueue.poll();
+                        if (signal == null) {
+                            previousRequested = requestedUpdater.accumulateAndGet(this, 1,
+                                    FlowControlUtils::addWithOverflowProtectionIfNotNegative);
+                            break;
+                        } else if (signal instanceof TerminalNotification) {
+                            clearQueueAndTerminate();
+                            ((TerminalNotification) signal).terminate(subscriber);
+                            return;
+                        } else {
+                            onNextQueueSizeUpdater.decrementAndGet(this);
+                            notifyCapacityWaiter();
+                            try {
+                                @SuppressWarnings("unchecked")
+                                final T tSignal = signal == NULL_TOKEN ? null : (T) signal;
+                                subscriber.onNext(tSignal);
+                            } catch (Throwable cause) {
+                                clearQueueAndTerminate();
+                                subscriber.onError(cause);
+                                return;
+                            }
+                        }
+                    }
+                    if (previousRequested < 0) {
+                        clearQueueAndTerminate();
+                        if (previousRequested != CANCELLED) {
+                            subscriber.onError(newExceptionForInvalidRequestN(previousRequested));
+                        }
+                        return;
+                    } else if ((signal = signalQueue.peek()) instanceof TerminalNotification) {
+                        clearQueueAndTerminate();
+                        ((TerminalNotification) signal).terminate(subscriber);
+                        return;
+                    }
+
+                    // "unlock" the subscriber.
+                    this.subscriber = subscriber;
+
+                    final boolean empty = signalQueue.isEmpty();
+                    previousRequested = requested;
+                    if (!empty && previousRequested == 0 || empty && previousRequested >= 0) {
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+    }
+
+    private void clearQueueAndTerminate() {
+        do {
+            subscriber = terminatingSubscriber();
+            clearQueue();
+        } while (!subscriberUpdater.compareAndSet(this, TERMINATING_SUBSCRIBER, TERMINATED_SUBSCRIBER));
+        // Producers waiting for capacity retry and observe that their signals are discarded.
+        Runnable waiter;
+        while ((waiter = capacityWaiters.poll()) != null) {
+            runCapacityWaiter(waiter);
+        }
+    }
+
+    private void clearQueue() {
+        // Once the subscriber is terminating, the thread delivering signals and producers which observe the terminal
+        // state may clear the queue concurrently, but only a single thread is allowed to consume from the queue.
+        // If the guard is held by another thread, signals added meanwhile are picked up by the owner re-checking.
+        while (clearingQueueUpdater.compareAndSet(this, 0, 1)) {
+            signalQueue.clear();
+            clearingQueue = 0;
+            if (signalQueue.isEmpty()) {
+                break;
+            }
+        }
+    }
+
+    private void notifyCapacityWaiter() {
+        final Runnable waiter = capacityWaiters.poll();
+        if (waiter != null) {
+            runCapacityWaiter(waiter);
+        }
+    }
+
+    private static void runCapacityWaiter(final Runnable waiter) {
+        try {
+            waiter.run();
+        } catch (Throwable cause) {
+            LOGGER.warn("Unexpected exception from capacity callback {}", waiter, cause);
+        }
+    }
+
+    private static <T> Subscriber<T> newErrorSubscriber() {
+        return new Subscriber<T>() {
+            @Override
+            public void onSubscribe(final Subscription subscription) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void onNext(@Nullable final T o) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void onComplete() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Subscriber<T> terminatingSubscriber() {
+        return (Subscriber<T>) TERMINATING_SUBSCRIBER;
+    }
+}
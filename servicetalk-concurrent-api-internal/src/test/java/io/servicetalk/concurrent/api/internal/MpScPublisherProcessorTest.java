@@ -0,0 +1,375 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api.internal;
+
+import io.servicetalk.concurrent.PublisherSource.Subscriber;
+import io.servicetalk.concurrent.PublisherSource.Subscription;
+import io.servicetalk.concurrent.api.TestPublisherSubscriber;
+import io.servicetalk.concurrent.internal.QueueFullException;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.concurrent.internal.TerminalNotification;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.concurrent.internal.TerminalNotification.complete;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MpScPublisherProcessorTest {
+    private static final int PRODUCERS = 4;
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+    private final TestPublisherSubscriber<Integer> subscriber = new TestPublisherSubscriber<>();
+    private MpScPublisherProcessor<Integer> publisher = new MpScPublisherProcessor<>(4);
+    private final ExecutorService executor = newFixedThreadPool(PRODUCERS);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void signalsDeliveredSynchronouslyIfSufficientDemand() {
+        publisher = new MpScPublisherProcessor<>(4);
+        publisher.subscribe(subscriber);
+        subscriber.request(4);
+        publisher.sendOnNext(1);
+        assertEquals(singletonList(1), subscriber.takeItems());
+        publisher.sendOnNext(2);
+        assertEquals(singletonList(2), subscriber.takeItems());
+        publisher.sendOnNext(3);
+        assertEquals(singletonList(3), subscriber.takeItems());
+        publisher.sendOnNext(4);
+        assertEquals(singletonList(4), subscriber.takeItems());
+        publisher.sendOnComplete();
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void onNextQueueCanHoldMaxSignals() {
+        publisher = new MpScPublisherProcessor<>(4);
+        publisher.subscribe(subscriber);
+        publisher.sendOnNext(1);
+        publisher.sendOnNext(2);
+        publisher.sendOnNext(3);
+        publisher.sendOnNext(4);
+        publisher.sendOnComplete();
+        assertThat(subscriber.takeItems(), is(empty()));
+        subscriber.request(4);
+        assertEquals(asList(1, 2, 3, 4), subscriber.takeItems());
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void completeDeliveredWithExcessDemand() {
+        publisher = new MpScPublisherProcessor<>(4);
+        publisher.subscribe(subscriber);
+        subscriber.request(4);
+        publisher.sendOnNext(1);
+        publisher.sendOnComplete();
+        assertEquals(singletonList(1), subscriber.takeItems());
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void errorDeliveredWithExcessDemand() {
+        publisher = new MpScPublisherProcessor<>(4);
+        publisher.subscribe(subscriber);
+        subscriber.request(4);
+        publisher.sendOnNext(1);
+        publisher.sendOnError(DELIBERATE_EXCEPTION);
+        assertEquals(singletonList(1), subscriber.takeItems());
+        assertThat(subscriber.takeError(), sameInstance(DELIBERATE_EXCEPTION));
+    }
+
+    @Test
+    public void onNextQueueOverflowTerminatesAndThrows() {
+        publisher = new MpScPublisherProcessor<>(1);
+        publisher.subscribe(subscriber);
+        publisher.sendOnNext(1);
+        assertThat(subscriber.takeItems(), is(empty()));
+        QueueFullException expectedException = null;
+        try {
+            publisher.sendOnNext(2);
+            fail();
+        } catch (QueueFullException e) {
+            expectedException = e;
+        }
+
+        assertThat(subscriber.takeItems(), is(empty()));
+        subscriber.request(1);
+        assertEquals(singletonList(1), subscriber.takeItems());
+        assertThat(subscriber.takeError(), sameInstance(expectedException));
+    }
+
+    @Test
+    public void onNextThrows() {
+        toSource(publisher.whenOnNext(i -> {
+            throw DELIBERATE_EXCEPTION;
+        })).subscribe(subscriber);
+        subscriber.request(1);
+        publisher.sendOnNext(1);
+        publisher.sendOnNext(2);
+        publisher.sendOnComplete();
+
+        assertEquals(singletonList(1), subscriber.takeItems());
+        assertThat(subscriber.takeError(), sameInstance(DELIBERATE_EXCEPTION));
+    }
+
+    @Test
+    public void invalidRequestN() {
+        publisher.subscribe(subscriber);
+        subscriber.request(-1);
+        assertThat(subscriber.takeItems(), is(empty()));
+        assertThat(subscriber.takeError(), instanceOf(IllegalArgumentException.class));
+    }
+
+    @Test
+    public void cancelStopsOnNextDelivery() {
+        publisher.subscribe(subscriber);
+        subscriber.request(4);
+        publisher.sendOnNext(1);
+        publisher.sendOnNext(2);
+        subscriber.cancel();
+        publisher.sendOnNext(3);
+        publisher.sendOnComplete();
+        assertEquals(asList(1, 2), subscriber.takeItems());
+        assertFalse(subscriber.isTerminated());
+    }
+
+    @Test
+    public void trySendOnNextFullQueueDoesNotTerminate() {
+        publisher = new MpScPublisherProcessor<>(1);
+        publisher.subscribe(subscriber);
+        assertTrue(publisher.trySendOnNext(1));
+        assertFalse(publisher.trySendOnNext(2));
+        subscriber.request(1);
+        assertEquals(singletonList(1), subscriber.takeItems());
+        assertTrue(publisher.trySendOnNext(3));
+        subscriber.request(1);
+        assertEquals(singletonList(3), subscriber.takeItems());
+        publisher.sendOnComplete();
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void trySendOnNextAfterCancelDiscards() {
+        publisher = new MpScPublisherProcessor<>(1);
+        publisher.subscribe(subscriber);
+        assertTrue(publisher.trySendOnNext(1));
+        subscriber.cancel();
+        assertTrue(publisher.trySendOnNext(2));
+        assertThat(subscriber.takeItems(), is(empty()));
+        assertFalse(subscriber.isTerminated());
+    }
+
+    @Test
+    public void trySendOnNextNotifiesWhenCapacityAvailable() {
+        publisher = new MpScPublisherProcessor<>(1);
+        publisher.subscribe(subscriber);
+        assertTrue(publisher.trySendOnNext(1));
+        final AtomicInteger notified = new AtomicInteger();
+        assertFalse(publisher.trySendOnNext(2, notified::incrementAndGet));
+        assertThat(notified.get(), is(0));
+        subscriber.request(1);
+        assertEquals(singletonList(1), subscriber.takeItems());
+        assertThat(notified.get(), is(1));
+        assertTrue(publisher.trySendOnNext(2, notified::incrementAndGet));
+        subscriber.request(1);
+        assertEquals(singletonList(2), subscriber.takeItems());
+        assertThat(notified.get(), is(1));
+    }
+
+    @Test
+    public void trySendOnNextNotifiesOnTermination() {
+        publisher = new MpScPublisherProcessor<>(1);
+        publisher.subscribe(subscriber);
+        assertTrue(publisher.trySendOnNext(1));
+        final AtomicInteger notified = new AtomicInteger();
+        assertFalse(publisher.trySendOnNext(2, notified::incrementAndGet));
+        subscriber.cancel();
+        assertThat(notified.get(), is(1));
+        assertTrue(publisher.trySendOnNext(2, notified::incrementAndGet));
+        assertThat(notified.get(), is(1));
+    }
+
+    @Test
+    public void concurrentProducersRetryOnCapacityAvailable() throws Exception {
+        final int itemsPerProducer = 10_000;
+        publisher = new MpScPublisherProcessor<>(8);
+        final BlockingQueue<Integer> items = new LinkedBlockingQueue<>();
+        publisher.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(final Subscription s) {
+                s.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(final Integer integer) {
+                items.add(integer);
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        final List<Future<?>> futures = new ArrayList<>(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; ++p) {
+            final int producer = p;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < itemsPerProducer; ++i) {
+                    final int item = producer * itemsPerProducer + i;
+                    for (;;) {
+                        final CountDownLatch capacityAvailable = new CountDownLatch(1);
+                        if (publisher.trySendOnNext(item, capacityAvailable::countDown)) {
+                            break;
+                        }
+                        capacityAvailable.await();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertThat(items.size(), is(PRODUCERS * itemsPerProducer));
+    }
+
+    @Test
+    public void concurrentProducersAndCancel() throws Exception {
+        publisher = new MpScPublisherProcessor<>(16);
+        publisher.subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; ++p) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10_000; ++i) {
+                    publisher.trySendOnNext(i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        subscriber.cancel();
+        // Producers and the cancelling thread clear the queue concurrently, which must not corrupt the queue.
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        publisher.sendOnComplete();
+        assertFalse(subscriber.isTerminated());
+    }
+
+    @Test
+    public void concurrentProducers() throws Exception {
+        final int itemsPerProducer = 10_000;
+        publisher = new MpScPublisherProcessor<>(64);
+        // TestPublisherSubscriber#takeItems() may lose items which are delivered concurrently, so items are collected
+        // in a BlockingQueue instead.
+        final BlockingQueue<Integer> items = new LinkedBlockingQueue<>();
+        final BlockingQueue<TerminalNotification> terminal = new LinkedBlockingQueue<>();
+        final Subscription[] subscription = new Subscription[1];
+        publisher.subscribe(new Subscriber<Integer>() {
+            @Override
+            public void onSubscribe(final Subscription s) {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(final Integer integer) {
+                items.add(integer);
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                terminal.add(TerminalNotification.error(t));
+            }
+
+            @Override
+            public void onComplete() {
+                terminal.add(complete());
+            }
+        });
+        subscription[0].request(16);
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>(PRODUCERS);
+        for (int p = 0; p < PRODUCERS; ++p) {
+            final int producer = p;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < itemsPerProducer; ++i) {
+                    final int item = producer * itemsPerProducer + i;
+                    while (!publisher.trySendOnNext(item)) {
+                        Thread.yield();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        final int[] lastSeen = new int[PRODUCERS];
+        Arrays.fill(lastSeen, -1);
+        for (int received = 0; received < PRODUCERS * itemsPerProducer; ++received) {
+            final int item = items.take();
+            final int producer = item / itemsPerProducer;
+            assertTrue("Out of order item " + item + " for producer " + producer,
+                    item % itemsPerProducer > lastSeen[producer]);
+            lastSeen[producer] = item % itemsPerProducer;
+            subscription[0].request(1);
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        publisher.sendOnComplete();
+        assertThat(terminal.take(), is(complete()));
+        assertThat(items, is(empty()));
+    }
+}
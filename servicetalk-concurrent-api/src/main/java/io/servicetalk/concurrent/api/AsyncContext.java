@@ -279,6 +279,17 @@ public final class AsyncContext {
         }
     }
 
+    /**
+     * Use an {@link AsyncContextMap} backed by a persistent hash array mapped trie for contexts created after this
+     * call. Modifications of such a context are O(log n) and share structure with previous versions instead of copying
+     * all entries, which reduces allocations when contexts routinely hold more than a handful of entries. It is assumed
+     * the application will call this once at start up before any {@link AsyncContext} is used. External
+     * synchronization should be used to ensure this change is visible to other threads.
+     */
+    public static void enablePersistentContextMap() {
+        AsyncContextMapThreadLocal.contextMapFactory = PersistentAsyncContextMap::new;
+    }
+
     /**
      * This method is currently internal only! If it is exposed publicly, and {@link #STATE_DISABLED} is no longer a
      * terminal state the racy {@link #ENABLED_STATE} should be re-evaluated. We currently don't try to account for an
@@ -15,14 +15,21 @@
  */
 package io.servicetalk.concurrent.api;
 
+import java.util.function.Supplier;
+
 import static java.lang.ThreadLocal.withInitial;
 
 final class AsyncContextMapThreadLocal {
     static final ThreadLocal<AsyncContextMap> contextThreadLocal =
             withInitial(AsyncContextMapThreadLocal::newContextMap);
+    /**
+     * This is not volatile for the same reasons as the provider in {@link AsyncContext}, it is expected to be set once
+     * at start up.
+     */
+    static Supplier<AsyncContextMap> contextMapFactory = CopyOnWriteAsyncContextMap::new;
 
     private static AsyncContextMap newContextMap() {
-        return new CopyOnWriteAsyncContextMap();
+        return contextMapFactory.get();
     }
 
     AsyncContextMap get() {
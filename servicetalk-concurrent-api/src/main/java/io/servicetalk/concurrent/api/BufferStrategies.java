@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.api.BufferStrategy.Accumulator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A set of {@link BufferStrategy}s to use with {@link Publisher#buffer(BufferStrategy)}.
+ */
+public final class BufferStrategies {
+
+    private BufferStrategies() {
+        // No instances.
+    }
+
+    /**
+     * Creates a new {@link BufferStrategy} which emits {@link List}s of items when either {@code count} items have
+     * been accumulated or {@code duration} has elapsed since the first item was added to the current {@link List}.
+     *
+     * @param count maximum number of items in a {@link List}.
+     * @param duration maximum {@link Duration} between adding the first item to a {@link List} and emitting it.
+     * @param timerExecutor {@link Executor} to be used to schedule timers for {@code duration}.
+     * @param <T> Type of items buffered.
+     * @return a new {@link BufferStrategy}.
+     */
+    public static <T> BufferStrategy<T, List<T>> forCountOrTime(final int count, final Duration duration,
+                                                                 final Executor timerExecutor) {
+        return forCountOrTime(count, duration, timerExecutor, () -> new ListAccumulator<>(count));
+    }
+
+    /**
+     * Creates a new {@link BufferStrategy} which emits buffers produced by {@link Accumulator}s from the passed
+     * {@link Supplier} when either {@code count} items have been accumulated or {@code duration} has elapsed since the
+     * first item was added to the current {@link Accumulator}.
+     *
+     * @param count maximum number of items added to an {@link Accumulator}.
+     * @param duration maximum {@link Duration} between adding the first item to an {@link Accumulator} and emitting
+     * it.
+     * @param timerExecutor {@link Executor} to be used to schedule timers for {@code duration}.
+     * @param accumulatorSupplier {@link Supplier} of a new {@link Accumulator} for each buffer.
+     * @param <T> Type of items buffered.
+     * @param <B> Type of the buffers emitted.
+     * @return a new {@link BufferStrategy}.
+     */
+    public static <T, B> BufferStrategy<T, B> forCountOrTime(
+            final int count, final Duration duration, final Executor timerExecutor,
+            final Supplier<? extends Accumulator<T, B>> accumulatorSupplier) {
+        return new CountOrTimeBufferStrategy<>(count, duration, timerExecutor, accumulatorSupplier);
+    }
+
+    private static final class CountOrTimeBufferStrategy<T, B> implements BufferStrategy<T, B> {
+        private final int count;
+        private final Duration duration;
+        private final Executor timerExecutor;
+        private final Supplier<? extends Accumulator<T, B>> accumulatorSupplier;
+
+        CountOrTimeBufferStrategy(final int count, final Duration duration, final Executor timerExecutor,
+                                  final Supplier<? extends Accumulator<T, B>> accumulatorSupplier) {
+            if (count <= 0) {
+                throw new IllegalArgumentException("count: " + count + " (expected > 0)");
+            }
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("duration: " + duration + " (expected > 0)");
+            }
+            this.count = count;
+            this.duration = duration;
+            this.timerExecutor = requireNonNull(timerExecutor);
+            this.accumulatorSupplier = requireNonNull(accumulatorSupplier);
+        }
+
+        @Override
+        public Accumulator<T, B> newAccumulator() {
+            return accumulatorSupplier.get();
+        }
+
+        @Override
+        public int maxBufferSize() {
+            return count;
+        }
+
+        @Override
+        public Duration maxBufferDuration() {
+            return duration;
+        }
+
+        @Override
+        public Executor timerExecutor() {
+            return timerExecutor;
+        }
+    }
+
+    private static final class ListAccumulator<T> implements Accumulator<T, List<T>> {
+        private final List<T> list;
+
+        ListAccumulator(final int count) {
+            // Cap the initial capacity, a large count may never be reached before the timer fires.
+            list = new ArrayList<>(min(count, 64));
+        }
+
+        @Override
+        public void accumulate(@Nullable final T item) {
+            list.add(item);
+        }
+
+        @Override
+        public List<T> finish() {
+            return list;
+        }
+    }
+}
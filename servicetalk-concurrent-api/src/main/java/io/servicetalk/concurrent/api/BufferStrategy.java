@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.time.Duration;
+import javax.annotation.Nullable;
+
+/**
+ * A strategy for {@link Publisher#buffer(BufferStrategy) buffering} items emitted by a {@link Publisher}.
+ * <p>
+ * Items are added to an {@link Accumulator} which is emitted as a buffer when either {@link #maxBufferSize()} items
+ * have been accumulated, or {@link #maxBufferDuration()} has elapsed since the first item was added to it, whichever
+ * comes first.
+ *
+ * @param <T> Type of items emitted by the buffered {@link Publisher}.
+ * @param <B> Type of the buffers emitted by the returned {@link Publisher}.
+ * @see BufferStrategies
+ */
+public interface BufferStrategy<T, B> {
+
+    /**
+     * Creates a new {@link Accumulator} for the next buffer.
+     *
+     * @return a new {@link Accumulator}.
+     */
+    Accumulator<T, B> newAccumulator();
+
+    /**
+     * Returns the maximum number of items added to an {@link Accumulator} before it is emitted.
+     *
+     * @return the maximum number of items added to an {@link Accumulator} before it is emitted.
+     */
+    int maxBufferSize();
+
+    /**
+     * Returns the maximum {@link Duration} between adding the first item to an {@link Accumulator} and emitting it.
+     *
+     * @return the maximum {@link Duration} between adding the first item to an {@link Accumulator} and emitting it.
+     */
+    Duration maxBufferDuration();
+
+    /**
+     * Returns the {@link Executor} used to schedule timers for {@link #maxBufferDuration()}.
+     *
+     * @return the {@link Executor} used to schedule timers for {@link #maxBufferDuration()}.
+     */
+    Executor timerExecutor();
+
+    /**
+     * An accumulator of items which produces a buffer.
+     * <p>
+     * An {@link Accumulator} is never accessed concurrently and is not reused after {@link #finish()} is called.
+     *
+     * @param <T> Type of items accumulated.
+     * @param <B> Type of the buffer produced.
+     */
+    interface Accumulator<T, B> {
+
+        /**
+         * Adds an item to this {@link Accumulator}.
+         *
+         * @param item the item to add.
+         */
+        void accumulate(@Nullable T item);
+
+        /**
+         * Finishes the accumulation and returns the buffer to emit.
+         *
+         * @return the buffer to emit.
+         */
+        B finish();
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.internal.SignalOffloader;
+import io.servicetalk.concurrent.internal.SignalOffloaderFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.DefaultExecutor.GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR;
+import static io.servicetalk.concurrent.internal.SignalOffloaders.defaultOffloaderFactory;
+import static java.lang.Thread.currentThread;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.locks.LockSupport.park;
+import static java.util.concurrent.locks.LockSupport.unpark;
+
+/**
+ * An {@link Executor} which is partitioned into single threaded workers and runs a task on the worker associated with
+ * the thread which submitted the task.
+ * <p>
+ * Each submitting thread is consistently associated with the same partition, so work offloaded from an IO thread
+ * keeps running on the same worker thread and benefits from warm caches instead of being handed off to an arbitrary
+ * thread of a pool. IO threads which implement {@link IndexedThread} are mapped to the partition matching their index,
+ * so that there is one worker per IO thread when there are as many partitions as IO threads. Tasks submitted from a
+ * worker thread stay on the same worker. A worker which is idle steals tasks from a partition when its worker is busy
+ * and more than a threshold of tasks are waiting, so that long running tasks do not delay the tasks queued behind them
+ * indefinitely.
+ * <p>
+ * A worker which blocks, for example on the result of a task it submitted itself, would never run the tasks queued
+ * behind it. Workers are therefore checked periodically, and the tasks waiting for a blocked worker are stolen by idle
+ * workers regardless of the threshold. <strong>This can not prevent a deadlock when there is a single partition or
+ * when every worker is blocked waiting for tasks queued behind it, blocking tasks must not wait for tasks submitted to
+ * the same {@link CallerAffinityExecutor} in these cases.</strong>
+ */
+final class CallerAffinityExecutor extends AbstractOffloaderAwareExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CallerAffinityExecutor.class);
+    private static final AtomicInteger factoryCount = new AtomicInteger();
+    private static final long BLOCKED_WORKERS_CHECK_INTERVAL_MILLIS = 10;
+
+    private final Partition[] partitions;
+    private final int stealThreshold;
+    private final SignalOffloaderFactory offloaderFactory;
+    @Nullable
+    private final ScheduledFuture<?> blockedWorkersCheck;
+    private volatile boolean closed;
+
+    CallerAffinityExecutor(final int partitions, final int stealThreshold, final String threadNamePrefix) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("partitions: " + partitions + " (expected > 0)");
+        }
+        if (stealThreshold < 0) {
+            throw new IllegalArgumentException("stealThreshold: " + stealThreshold + " (expected >= 0)");
+        }
+        this.stealThreshold = stealThreshold;
+        offloaderFactory = defaultOffloaderFactory();
+        final String namePrefix = requireNonNull(threadNamePrefix) + '-' + factoryCount.incrementAndGet() + '-';
+        this.partitions = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new Partition(this, i, namePrefix + (i + 1));
+        }
+        for (Partition partition : this.partitions) {
+            partition.worker.start();
+        }
+        // A single worker has nobody to spill the tasks waiting behind a blocking task to.
+        blockedWorkersCheck = partitions == 1 ? null :
+                GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR.scheduleWithFixedDelay(this::wakeUpIdleWorkersIfBlocked,
+                        BLOCKED_WORKERS_CHECK_INTERVAL_MILLIS, BLOCKED_WORKERS_CHECK_INTERVAL_MILLIS, MILLISECONDS);
+    }
+
+    @Override
+    public Cancellable execute(final Runnable task) throws RejectedExecutionException {
+        return partitionForCurrentThread().execute(task);
+    }
+
+    @Override
+    public Cancellable schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        // Capture the partition now, the global scheduler thread which generates the tick has no affinity.
+        final Partition partition = partitionForCurrentThread();
+        final ScheduledFuture<?> future = GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR.schedule(
+                () -> partition.execute(task), delay, unit);
+        return () -> future.cancel(true);
+    }
+
+    @Override
+    void doClose() {
+        closed = true;
+        if (blockedWorkersCheck != null) {
+            blockedWorkersCheck.cancel(false);
+        }
+        for (Partition partition : partitions) {
+            unpark(partition.worker);
+        }
+    }
+
+    @Override
+    public SignalOffloader newSignalOffloader(final io.servicetalk.concurrent.Executor executor) {
+        return offloaderFactory.newSignalOffloader(executor);
+    }
+
+    @Override
+    public boolean hasThreadAffinity() {
+        return offloaderFactory.hasThreadAffinity();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{partitions=" + partitions.length +
+                ", stealThreshold=" + stealThreshold +
+                '}';
+    }
+
+    private Partition partitionForCurrentThread() {
+        final Thread thread = currentThread();
+        if (thread instanceof Worker && ((Worker) thread).partition.executor == this) {
+            return ((Worker) thread).partition;
+        }
+        if (thread instanceof IndexedThread) {
+            return partitions[((IndexedThread) thread).threadIndex() % partitions.length];
+        }
+        // Thread ids are stable, which at least keeps other threads on the same partition.
+        return partitions[(int) (thread.getId() % partitions.length)];
+    }
+
+    private void wakeUpIdleWorkersIfBlocked() {
+        for (Partition partition : partitions) {
+            if (partition.queued > 0 && partition.isWorkerBlocked()) {
+                wakeUpIdleWorker(partition);
+            }
+        }
+    }
+
+    /**
+     * Wakes up an idle worker, if any, to steal from the passed saturated {@link Partition}.
+     */
+    private void wakeUpIdleWorker(final Partition saturated) {
+        for (int i = 1; i < partitions.length; i++) {
+            final Partition partition = partitions[(saturated.index + i) % partitions.length];
+            if (partition.parked) {
+                unpark(partition.worker);
+                return;
+            }
+        }
+    }
+
+    @Nullable
+    private AffinityTask steal(final Partition thief) {
+        for (int i = 1; i < partitions.length; i++) {
+            final Partition partition = partitions[(thief.index + i) % partitions.length];
+            if (partition.isSaturated()) {
+                final AffinityTask task = partition.poll();
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Partition {
+        private static final AtomicIntegerFieldUpdater<Partition> queuedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Partition.class, "queued");
+
+        final CallerAffinityExecutor executor;
+        final int index;
+        final Worker worker;
+        private final Queue<AffinityTask> tasks = new ConcurrentLinkedQueue<>();
+        private volatile int queued;
+        volatile boolean parked;
+
+        Partition(final CallerAffinityExecutor executor, final int index, final String threadName) {
+            this.executor = executor;
+            this.index = index;
+            worker = new Worker(this, threadName);
+        }
+
+        Cancellable execute(final Runnable task) {
+            if (executor.closed) {
+                throw new RejectedExecutionException("Executor closed: " + executor);
+            }
+            final AffinityTask affinityTask = new AffinityTask(requireNonNull(task));
+            queuedUpdater.incrementAndGet(this);
+            tasks.offer(affinityTask);
+            if (executor.closed && tasks.remove(affinityTask)) {
+                // The worker may have already drained the queue and terminated.
+                queuedUpdater.decrementAndGet(this);
+                throw new RejectedExecutionException("Executor closed: " + executor);
+            }
+            if (parked) {
+                unpark(worker);
+            } else if (queued > executor.stealThreshold) {
+                executor.wakeUpIdleWorker(this);
+            }
+            return affinityTask;
+        }
+
+        @Nullable
+        AffinityTask poll() {
+            final AffinityTask task = tasks.poll();
+            if (task != null) {
+                queuedUpdater.decrementAndGet(this);
+            }
+            return task;
+        }
+
+        boolean isSaturated() {
+            if (parked) {
+                return false;
+            }
+            final int queued = this.queued;
+            return queued > executor.stealThreshold || (queued > 0 && isWorkerBlocked());
+        }
+
+        /**
+         * Returns {@code true} if the worker is busy running a task which is blocked, as opposed to idle.
+         *
+         * @return {@code true} if the worker is busy running a task which is blocked.
+         */
+        boolean isWorkerBlocked() {
+            if (parked) {
+                return false;
+            }
+            final Thread.State state = worker.getState();
+            return state == Thread.State.BLOCKED || state == Thread.State.WAITING ||
+                    state == Thread.State.TIMED_WAITING;
+        }
+    }
+
+    private static final class Worker extends Thread implements AsyncContextMapHolder {
+        final Partition partition;
+        @Nullable
+        private AsyncContextMap asyncContextMap;
+
+        Worker(final Partition partition, final String name) {
+            super(name);
+            this.partition = partition;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            final CallerAffinityExecutor executor = partition.executor;
+            for (;;) {
+                AffinityTask task = nextTask(executor);
+                if (task == null) {
+                    if (executor.closed) {
+                        // Tasks already queued have been executed, tasks submitted concurrently are rejected.
+                        return;
+                    }
+                    partition.parked = true;
+                    // Re-check after publishing parked, submitters unpark this worker if they observe it parked.
+                    task = nextTask(executor);
+                    if (task == null && !executor.closed) {
+                        park(this);
+                    }
+                    partition.parked = false;
+                }
+                if (task != null) {
+                    if (partition.queued > executor.stealThreshold) {
+                        // This worker is about to be busy while tasks are still waiting, let an idle worker steal
+                        // them. Submitters only do this if they observe this worker busy.
+                        executor.wakeUpIdleWorker(partition);
+                    }
+                    task.run();
+                }
+            }
+        }
+
+        @Nullable
+        private AffinityTask nextTask(final CallerAffinityExecutor executor) {
+            final AffinityTask task = partition.poll();
+            return task != null ? task : executor.steal(partition);
+        }
+
+        @Override
+        public void asyncContextMap(@Nullable final AsyncContextMap asyncContextMap) {
+            this.asyncContextMap = asyncContextMap;
+        }
+
+        @Nullable
+        @Override
+        public AsyncContextMap asyncContextMap() {
+            return asyncContextMap;
+        }
+    }
+
+    private static final class AffinityTask implements Runnable, Cancellable {
+        private static final AtomicIntegerFieldUpdater<AffinityTask> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(AffinityTask.class, "state");
+        private static final int STATE_QUEUED = 0;
+        private static final int STATE_STARTED = 1;
+        private static final int STATE_CANCELLED = 2;
+
+        private final Runnable delegate;
+        private volatile int state;
+
+        AffinityTask(final Runnable delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            if (!stateUpdater.compareAndSet(this, STATE_QUEUED, STATE_STARTED)) {
+                return;
+            }
+            try {
+                delegate.run();
+            } catch (Throwable cause) {
+                LOGGER.error("Unexpected exception from task {}.", delegate, cause);
+            }
+        }
+
+        @Override
+        public void cancel() {
+            stateUpdater.compareAndSet(this, STATE_QUEUED, STATE_CANCELLED);
+        }
+    }
+}
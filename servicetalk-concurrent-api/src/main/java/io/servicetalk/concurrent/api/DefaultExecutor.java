@@ -51,7 +51,7 @@ final class DefaultExecutor extends AbstractOffloaderAwareExecutor implements Co
      * scheduler thread is usually ok. In cases, when it is not, one can always override the executor with a custom
      * scheduler.
      */
-    private static final ScheduledExecutorService GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR =
+    static final ScheduledExecutorService GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR =
             newSingleThreadScheduledExecutor(new DefaultThreadFactory("servicetalk-global-scheduler",
                     true, NORM_PRIORITY));
     private static final RejectedExecutionHandler DEFAULT_REJECTION_HANDLER = new AbortPolicy();
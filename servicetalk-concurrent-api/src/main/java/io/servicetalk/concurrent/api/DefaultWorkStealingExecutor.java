@@ -0,0 +1,348 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.internal.SignalOffloader;
+import io.servicetalk.concurrent.internal.SignalOffloaderFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.Cancellable.IGNORE_CANCEL;
+import static io.servicetalk.concurrent.api.DefaultExecutor.GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR;
+import static io.servicetalk.concurrent.api.WorkStealingExecutor.RejectionPolicy.CALLER_RUNS;
+import static io.servicetalk.concurrent.internal.SignalOffloaders.defaultOffloaderFactory;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link WorkStealingExecutor} backed by a {@link ForkJoinPool} in asynchronous mode, which processes the tasks
+ * submitted to each thread in FIFO order and lets idle threads steal tasks from the queues of busy threads.
+ */
+final class DefaultWorkStealingExecutor extends AbstractOffloaderAwareExecutor implements WorkStealingExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultWorkStealingExecutor.class);
+
+    private static final AtomicIntegerFieldUpdater<DefaultWorkStealingExecutor> queuedTasksUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(DefaultWorkStealingExecutor.class, "queuedTasks");
+    private static final AtomicLongFieldUpdater<DefaultWorkStealingExecutor> rejectedTasksUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultWorkStealingExecutor.class, "rejectedTasks");
+    private static final AtomicLongFieldUpdater<DefaultWorkStealingExecutor> startedTasksUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultWorkStealingExecutor.class, "startedTasks");
+    private static final AtomicLongFieldUpdater<DefaultWorkStealingExecutor> totalTaskLatencyNanosUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultWorkStealingExecutor.class, "totalTaskLatencyNanos");
+
+    private final ForkJoinPool pool;
+    private final int maxQueuedTasks;
+    private final RejectionPolicy rejectionPolicy;
+    private final SignalOffloaderFactory offloaderFactory;
+
+    private volatile int queuedTasks;
+    private volatile long rejectedTasks;
+    private volatile long startedTasks;
+    private volatile long totalTaskLatencyNanos;
+
+    DefaultWorkStealingExecutor(final int parallelism, final int maxQueuedTasks,
+                                final RejectionPolicy rejectionPolicy, final String threadNamePrefix) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism: " + parallelism + " (expected > 0)");
+        }
+        if (maxQueuedTasks <= 0) {
+            throw new IllegalArgumentException("maxQueuedTasks: " + maxQueuedTasks + " (expected > 0)");
+        }
+        this.maxQueuedTasks = maxQueuedTasks;
+        this.rejectionPolicy = requireNonNull(rejectionPolicy);
+        pool = new ForkJoinPool(parallelism, new WorkerThreadFactory(requireNonNull(threadNamePrefix)), null, true);
+        offloaderFactory = defaultOffloaderFactory();
+    }
+
+    @Override
+    public Cancellable execute(final Runnable task) throws RejectedExecutionException {
+        if (!tryReserveQueueSlot()) {
+            rejectedTasksUpdater.incrementAndGet(this);
+            if (rejectionPolicy == CALLER_RUNS && !pool.isShutdown()) {
+                task.run();
+                return IGNORE_CANCEL;
+            }
+            throw new RejectedExecutionException("Maximum number of queued tasks (" + maxQueuedTasks +
+                    ") reached for " + this);
+        }
+        final WorkStealingTask workStealingTask = new WorkStealingTask(this, task, nanoTime());
+        try {
+            pool.execute(workStealingTask);
+        } catch (Throwable cause) {
+            queuedTasksUpdater.decrementAndGet(this);
+            rejectedTasksUpdater.incrementAndGet(this);
+            throw cause;
+        }
+        return workStealingTask;
+    }
+
+    @Override
+    public Cancellable schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        // The global scheduler only generates the tick, the task is offloaded to this Executor since user code
+        // executed on the timer tick can block.
+        ScheduledFuture<?> future = GLOBAL_SINGLE_THREADED_SCHEDULED_EXECUTOR.schedule(() -> execute(task),
+                delay, unit);
+        return () -> future.cancel(true);
+    }
+
+    @Override
+    public int queuedTasks() {
+        return queuedTasks;
+    }
+
+    @Override
+    public long stealCount() {
+        return pool.getStealCount();
+    }
+
+    @Override
+    public long rejectedTasks() {
+        return rejectedTasks;
+    }
+
+    @Override
+    public long startedTasks() {
+        return startedTasks;
+    }
+
+    @Override
+    public long totalTaskLatencyNanos() {
+        return totalTaskLatencyNanos;
+    }
+
+    @Override
+    void doClose() {
+        pool.shutdown();
+    }
+
+    @Override
+    public SignalOffloader newSignalOffloader(final io.servicetalk.concurrent.Executor executor) {
+        return offloaderFactory.newSignalOffloader(executor);
+    }
+
+    @Override
+    public boolean hasThreadAffinity() {
+        return offloaderFactory.hasThreadAffinity();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{parallelism=" + pool.getParallelism() +
+                ", maxQueuedTasks=" + maxQueuedTasks +
+                ", rejectionPolicy=" + rejectionPolicy +
+                '}';
+    }
+
+    /**
+     * Wraps the passed {@link DefaultWorkStealingExecutor} using the passed {@link ExecutorPlugin} while preserving
+     * access to its metrics.
+     *
+     * @param executor the {@link DefaultWorkStealingExecutor} to wrap.
+     * @param plugin the {@link ExecutorPlugin} to apply.
+     * @return the wrapped {@link WorkStealingExecutor}.
+     */
+    static WorkStealingExecutor wrap(final DefaultWorkStealingExecutor executor, final ExecutorPlugin plugin) {
+        final Executor wrapped = plugin.wrapExecutor(executor);
+        return wrapped == executor ? executor : new PluginWrappedWorkStealingExecutor(wrapped, executor);
+    }
+
+    private boolean tryReserveQueueSlot() {
+        for (;;) {
+            final int current = queuedTasks;
+            if (current >= maxQueuedTasks) {
+                return false;
+            }
+            if (queuedTasksUpdater.compareAndSet(this, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void taskStarted(final long submitTimeNanos) {
+        queuedTasksUpdater.decrementAndGet(this);
+        startedTasksUpdater.incrementAndGet(this);
+        totalTaskLatencyNanosUpdater.addAndGet(this, nanoTime() - submitTimeNanos);
+    }
+
+    private void taskCancelled() {
+        queuedTasksUpdater.decrementAndGet(this);
+    }
+
+    private static final class WorkStealingTask implements Runnable, Cancellable {
+        private static final AtomicIntegerFieldUpdater<WorkStealingTask> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(WorkStealingTask.class, "state");
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int INTERRUPTING = 2;
+        private static final int DONE = 3;
+        private static final int CANCELLED = 4;
+
+        private final DefaultWorkStealingExecutor executor;
+        private final Runnable delegate;
+        private final long submitTimeNanos;
+        @Nullable
+        private Thread runner;
+        private volatile int state;
+
+        WorkStealingTask(final DefaultWorkStealingExecutor executor, final Runnable delegate,
+                         final long submitTimeNanos) {
+            this.executor = executor;
+            this.delegate = delegate;
+            this.submitTimeNanos = submitTimeNanos;
+        }
+
+        @Override
+        public void run() {
+            // runner is published to cancel() by the write to state.
+            runner = Thread.currentThread();
+            if (!stateUpdater.compareAndSet(this, QUEUED, RUNNING)) {
+                runner = null;
+                return;
+            }
+            executor.taskStarted(submitTimeNanos);
+            try {
+                delegate.run();
+            } catch (Throwable cause) {
+                LOGGER.error("Unexpected exception from task {} executed by {}.", delegate, executor, cause);
+            } finally {
+                if (!stateUpdater.compareAndSet(this, RUNNING, DONE)) {
+                    // cancel() is interrupting this thread, wait for it to finish and clear the interrupt status so
+                    // that it does not leak to the next task executed by this thread.
+                    while (state == INTERRUPTING) {
+                        Thread.yield();
+                    }
+                    Thread.interrupted();
+                }
+                runner = null;
+            }
+        }
+
+        @Override
+        public void cancel() {
+            for (;;) {
+                final int current = state;
+                if (current == QUEUED) {
+                    if (stateUpdater.compareAndSet(this, QUEUED, CANCELLED)) {
+                        // The task stays in the queue of the ForkJoinPool but will be skipped when run.
+                        executor.taskCancelled();
+                        return;
+                    }
+                } else if (current == RUNNING) {
+                    if (stateUpdater.compareAndSet(this, RUNNING, INTERRUPTING)) {
+                        try {
+                            final Thread runner = this.runner;
+                            assert runner != null;
+                            runner.interrupt();
+                        } finally {
+                            state = CANCELLED;
+                        }
+                        return;
+                    }
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+        private static final AtomicInteger factoryCount = new AtomicInteger();
+
+        private final String namePrefix;
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        WorkerThreadFactory(final String namePrefix) {
+            this.namePrefix = namePrefix + '-' + factoryCount.incrementAndGet() + '-';
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+            final ForkJoinWorkerThread thread = new WorkerThread(pool);
+            thread.setName(namePrefix + threadCount.incrementAndGet());
+            return thread;
+        }
+    }
+
+    private static final class WorkerThread extends ForkJoinWorkerThread implements AsyncContextMapHolder {
+        @Nullable
+        private AsyncContextMap asyncContextMap;
+
+        WorkerThread(final ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        public void asyncContextMap(@Nullable final AsyncContextMap asyncContextMap) {
+            this.asyncContextMap = asyncContextMap;
+        }
+
+        @Nullable
+        @Override
+        public AsyncContextMap asyncContextMap() {
+            return asyncContextMap;
+        }
+    }
+
+    private static final class PluginWrappedWorkStealingExecutor extends DelegatingExecutor
+            implements WorkStealingExecutor {
+        private final WorkStealingExecutor metrics;
+
+        PluginWrappedWorkStealingExecutor(final Executor delegate, final WorkStealingExecutor metrics) {
+            super(delegate);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int queuedTasks() {
+            return metrics.queuedTasks();
+        }
+
+        @Override
+        public long stealCount() {
+            return metrics.stealCount();
+        }
+
+        @Override
+        public long rejectedTasks() {
+            return metrics.rejectedTasks();
+        }
+
+        @Override
+        public long startedTasks() {
+            return metrics.startedTasks();
+        }
+
+        @Override
+        public long totalTaskLatencyNanos() {
+            return metrics.totalTaskLatencyNanos();
+        }
+    }
+}
@@ -21,6 +21,8 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import static io.servicetalk.concurrent.api.ImmediateExecutor.IMMEDIATE_EXECUTOR;
+import static io.servicetalk.concurrent.api.WorkStealingExecutor.RejectionPolicy.ABORT;
+import static java.util.Objects.requireNonNull;
 
 /**
  * Utility methods to create various {@link Executor}s.
@@ -88,6 +90,171 @@ public final class Executors {
         return EXECUTOR_PLUGINS.wrapExecutor(new DefaultExecutor(1, Integer.MAX_VALUE, threadFactory));
     }
 
+    /**
+     * Creates a new {@link WorkStealingExecutor} that uses as many threads as there are available processors and
+     * queues an unbounded number of tasks.
+     *
+     * @return A new {@link WorkStealingExecutor}.
+     */
+    public static WorkStealingExecutor newWorkStealingExecutor() {
+        return newWorkStealingExecutor(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new {@link WorkStealingExecutor} that uses {@code parallelism} threads and queues an unbounded number
+     * of tasks.
+     *
+     * @param parallelism Number of threads used by the newly created {@link WorkStealingExecutor}.
+     * @return A new {@link WorkStealingExecutor}.
+     */
+    public static WorkStealingExecutor newWorkStealingExecutor(int parallelism) {
+        return newWorkStealingExecutor(parallelism, Integer.MAX_VALUE, ABORT, "servicetalk-work-stealing-executor");
+    }
+
+    /**
+     * Creates a new {@link WorkStealingExecutor}.
+     *
+     * @param parallelism Number of threads used by the newly created {@link WorkStealingExecutor}.
+     * @param maxQueuedTasks Maximum number of tasks which have been submitted but not yet started, before new tasks
+     * are handled according to the {@code rejectionPolicy}.
+     * @param rejectionPolicy {@link WorkStealingExecutor.RejectionPolicy} to apply to a task submitted when
+     * {@code maxQueuedTasks} is reached.
+     * @param threadNamePrefix the name prefix used for the created threads.
+     * @return A new {@link WorkStealingExecutor}.
+     */
+    public static WorkStealingExecutor newWorkStealingExecutor(int parallelism, int maxQueuedTasks,
+                                                               WorkStealingExecutor.RejectionPolicy rejectionPolicy,
+                                                               String threadNamePrefix) {
+        return DefaultWorkStealingExecutor.wrap(new DefaultWorkStealingExecutor(parallelism, maxQueuedTasks,
+                rejectionPolicy, threadNamePrefix), EXECUTOR_PLUGINS);
+    }
+
+    /**
+     * Creates a new {@link Executor} that is partitioned into as many single threaded workers as there are available
+     * processors, and runs tasks on the worker associated with the submitting thread.
+     *
+     * @return A new {@link Executor}.
+     * @see #newCallerAffinityExecutor(int, int, String)
+     */
+    public static Executor newCallerAffinityExecutor() {
+        return newCallerAffinityExecutor(Runtime.getRuntime().availableProcessors(), 0,
+                "servicetalk-affinity-executor");
+    }
+
+    /**
+     * Creates a new {@link Executor} that is partitioned into {@code partitions} single threaded workers, and runs
+     * tasks on the worker associated with the submitting thread.
+     * <p>
+     * Each submitting thread, for example an IO thread, is consistently associated with the same partition. Offloaded
+     * work therefore keeps running on the same worker thread, which preserves cache locality compared to handing it
+     * off to an arbitrary thread of a pool. IO threads which implement {@link IndexedThread} are associated with the
+     * partition matching their index, so using as many partitions as IO threads associates each IO thread with its
+     * own worker. Tasks submitted from a worker thread, and tasks scheduled via
+     * {@link Executor#schedule(Runnable, long, TimeUnit)}, run on the partition of the submitting thread.
+     * <p>
+     * An idle worker steals tasks from another partition if that partition's worker is busy and more than
+     * {@code stealThreshold} tasks are waiting for it, or if that partition's worker is blocked. This prevents long
+     * running or blocking tasks from delaying the tasks queued behind them. Affinity is best effort: a task submitted
+     * while its worker is finishing a task may be stolen, in particular with a low {@code stealThreshold}. The workers
+     * are not pinned to CPU cores, affinity relies on the operating system scheduling a thread on the same cores where
+     * it previously ran.
+     * <p>
+     * <strong>Blocking on the result of a task submitted to the returned {@link Executor}, for example with a blocking
+     * API over an asynchronous one, deadlocks if {@code partitions} is {@code 1} or if every worker is blocked this
+     * way, since there is no idle worker left to run the awaited tasks.</strong>
+     *
+     * @param partitions Number of partitions, each with its own worker thread.
+     * @param stealThreshold Number of tasks waiting for a busy worker above which idle workers steal them. {@code 0}
+     * lets idle workers steal any task waiting for a busy worker.
+     * @param threadNamePrefix the name prefix used for the created threads.
+     * @return A new {@link Executor}.
+     */
+    public static Executor newCallerAffinityExecutor(int partitions, int stealThreshold, String threadNamePrefix) {
+        return EXECUTOR_PLUGINS.wrapExecutor(new CallerAffinityExecutor(partitions, stealThreshold,
+                threadNamePrefix));
+    }
+
+    /**
+     * Creates a new {@link Executor} that executes tasks on the passed {@code executor} but uses a hashed wheel timer,
+     * with a tick of {@code 10} milliseconds and {@code 512} ticks per wheel, for
+     * {@link Executor#schedule(Runnable, long, TimeUnit)}.
+     * <p>
+     * Scheduling and cancelling a task on a hashed wheel timer are O(1) operations which do not require a lock, at the
+     * cost of expiring tasks with the precision of a tick. This makes it suitable for workloads which schedule and
+     * cancel a large number of timeouts. Expired tasks are executed on the passed {@code executor}. Closing the
+     * returned {@link Executor} stops the timer and closes the passed {@code executor}.
+     *
+     * @param executor {@link Executor} to execute tasks and expired scheduled tasks.
+     * @return A new {@link Executor} that uses a hashed wheel timer to schedule tasks.
+     */
+    public static Executor withHashedWheelTimer(Executor executor) {
+        return withHashedWheelTimer(executor, 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Creates a new {@link Executor} that executes tasks on the passed {@code executor} but uses a hashed wheel timer
+     * for {@link Executor#schedule(Runnable, long, TimeUnit)}.
+     * <p>
+     * Scheduling and cancelling a task on a hashed wheel timer are O(1) operations which do not require a lock, at the
+     * cost of expiring tasks with the precision of a tick. This makes it suitable for workloads which schedule and
+     * cancel a large number of timeouts. Expired tasks are executed on the passed {@code executor}. Closing the
+     * returned {@link Executor} stops the timer and closes the passed {@code executor}.
+     *
+     * @param executor {@link Executor} to execute tasks and expired scheduled tasks.
+     * @param tickDuration Duration of a tick of the timer, which is the precision of scheduled tasks.
+     * @param unit {@link TimeUnit} of {@code tickDuration}.
+     * @param ticksPerWheel Number of ticks per rotation of the wheel, rounded up to a power of two. Tasks scheduled
+     * more than {@code tickDuration * ticksPerWheel} in the future are visited once per rotation until they expire.
+     * @return A new {@link Executor} that uses a hashed wheel timer to schedule tasks.
+     */
+    public static Executor withHashedWheelTimer(Executor executor, long tickDuration, TimeUnit unit,
+                                                int ticksPerWheel) {
+        return EXECUTOR_PLUGINS.wrapExecutor(new HashedWheelTimerExecutor(executor, tickDuration, unit,
+                ticksPerWheel));
+    }
+
+    /**
+     * Returns {@code true} if the running JVM supports virtual threads, which are required by
+     * {@link #newVirtualThreadExecutor()}.
+     *
+     * @return {@code true} if the running JVM supports virtual threads.
+     */
+    public static boolean isVirtualThreadExecutorSupported() {
+        return VirtualThreads.isAvailable();
+    }
+
+    /**
+     * Creates a new {@link Executor} that runs each task on a new virtual thread.
+     * <p>
+     * Virtual threads are cheap to create and to block, which makes this {@link Executor} suitable to run large
+     * numbers of concurrent blocking tasks. {@link Executor#schedule(Runnable, long, TimeUnit)} will use a global
+     * scheduler and run the scheduled tasks on a new virtual thread.
+     *
+     * @return A new {@link Executor} that runs each task on a new virtual thread.
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads.
+     * @see #isVirtualThreadExecutorSupported()
+     */
+    public static Executor newVirtualThreadExecutor() {
+        return newVirtualThreadExecutor("servicetalk-virtual-executor");
+    }
+
+    /**
+     * Creates a new {@link Executor} that runs each task on a new virtual thread.
+     * <p>
+     * Virtual threads are cheap to create and to block, which makes this {@link Executor} suitable to run large
+     * numbers of concurrent blocking tasks. {@link Executor#schedule(Runnable, long, TimeUnit)} will use a global
+     * scheduler and run the scheduled tasks on a new virtual thread.
+     *
+     * @param threadNamePrefix the name prefix used for the created virtual threads.
+     * @return A new {@link Executor} that runs each task on a new virtual thread.
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads.
+     * @see #isVirtualThreadExecutorSupported()
+     */
+    public static Executor newVirtualThreadExecutor(String threadNamePrefix) {
+        return EXECUTOR_PLUGINS.wrapExecutor(new DefaultExecutor(VirtualThreads.newThreadPerTaskExecutor(
+                requireNonNull(threadNamePrefix))));
+    }
+
     /**
      * Creates a new {@link Executor} from the provided {@code jdkExecutor}. <p>
      * Delayed task execution will be delegated to a global scheduler, unless passed
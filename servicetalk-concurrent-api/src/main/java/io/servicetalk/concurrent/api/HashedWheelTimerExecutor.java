@@ -0,0 +1,318 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.utils.internal.PlatformDependent.newUnboundedMpscQueue;
+import static java.lang.Math.max;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * An {@link Executor} which schedules tasks on a hashed wheel timer and executes all tasks, including expired
+ * scheduled tasks, on a delegate {@link Executor}.
+ * <p>
+ * Scheduling and cancelling a task only enqueue it to a lock free queue and are O(1). A single timer thread moves new
+ * tasks into the buckets of the wheel and expires the tasks of one bucket every tick. As a consequence, tasks expire
+ * with the precision of a tick, which is suitable for timeouts but not for precise scheduling.
+ */
+final class HashedWheelTimerExecutor implements Executor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimerExecutor.class);
+
+    private static final AtomicIntegerFieldUpdater<HashedWheelTimerExecutor> stateUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(HashedWheelTimerExecutor.class, "state");
+    private static final int STATE_RUNNING = 0;
+    private static final int STATE_CLOSED = 1;
+    /**
+     * Limits the number of new timeouts moved into the wheel per tick, so a burst of scheduled tasks does not delay the
+     * expiration of the current bucket for too long.
+     */
+    private static final int MAX_TIMEOUTS_TRANSFERRED_PER_TICK = 100_000;
+
+    private final Executor delegate;
+    private final long tickDurationNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> newTimeouts = newUnboundedMpscQueue();
+    private final Queue<Timeout> cancelledTimeouts = newUnboundedMpscQueue();
+    private final long startTimeNanos;
+    private final Thread timerThread;
+    private volatile int state;
+
+    HashedWheelTimerExecutor(final Executor delegate, final long tickDuration, final TimeUnit unit,
+                             final int ticksPerWheel) {
+        this.delegate = requireNonNull(delegate);
+        tickDurationNanos = unit.toNanos(tickDuration);
+        if (tickDurationNanos <= 0) {
+            throw new IllegalArgumentException("tickDuration: " + tickDuration + ' ' + unit + " (expected > 0)");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel: " + ticksPerWheel + " (expected: 0 < ticksPerWheel <= " +
+                    (1 << 30) + ')');
+        }
+        final int wheelSize = ticksPerWheel == 1 ? 1 : Integer.highestOneBit(ticksPerWheel - 1) << 1;
+        wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = wheelSize - 1;
+        startTimeNanos = nanoTime();
+        timerThread = new DefaultThreadFactory("servicetalk-hashed-wheel-timer").newThread(new Worker());
+        timerThread.start();
+    }
+
+    @Override
+    public Cancellable execute(final Runnable task) throws RejectedExecutionException {
+        return delegate.execute(task);
+    }
+
+    @Override
+    public Cancellable schedule(final Runnable task, final long delay, final TimeUnit unit)
+            throws RejectedExecutionException {
+        if (state == STATE_CLOSED) {
+            throw new RejectedExecutionException("Executor closed: " + this);
+        }
+        long deadline = nanoTime() - startTimeNanos + unit.toNanos(delay);
+        if (delay > 0 && deadline < 0) {
+            // Guard against overflow of the deadline for very large delays.
+            deadline = Long.MAX_VALUE;
+        }
+        final Timeout timeout = new Timeout(this, requireNonNull(task), deadline);
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public Completable onClose() {
+        return delegate.onClose();
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return Completable.defer(() -> {
+            if (stateUpdater.compareAndSet(this, STATE_RUNNING, STATE_CLOSED)) {
+                timerThread.interrupt();
+            }
+            return delegate.closeAsync();
+        });
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return Completable.defer(() -> {
+            if (stateUpdater.compareAndSet(this, STATE_RUNNING, STATE_CLOSED)) {
+                timerThread.interrupt();
+            }
+            return delegate.closeAsyncGracefully();
+        });
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{tickDurationNanos=" + tickDurationNanos +
+                ", ticksPerWheel=" + wheel.length +
+                ", delegate=" + delegate +
+                '}';
+    }
+
+    private final class Worker implements Runnable {
+        private long tick;
+
+        @Override
+        public void run() {
+            while (state == STATE_RUNNING) {
+                if (!waitForNextTick()) {
+                    break;
+                }
+                removeCancelledTimeouts();
+                transferNewTimeouts();
+                wheel[(int) (tick & mask)].expireTimeouts();
+                ++tick;
+            }
+            // Remaining timeouts are dropped, they can not be executed anymore as the delegate Executor is closing.
+            newTimeouts.clear();
+            cancelledTimeouts.clear();
+        }
+
+        /**
+         * Waits until the end of the current tick.
+         *
+         * @return {@code false} if the timer was closed while waiting.
+         */
+        private boolean waitForNextTick() {
+            final long deadline = (tick + 1) * tickDurationNanos;
+            for (;;) {
+                final long sleepNanos = deadline - (nanoTime() - startTimeNanos);
+                if (sleepNanos <= 0) {
+                    return true;
+                }
+                try {
+                    NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (state == STATE_CLOSED) {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        private void transferNewTimeouts() {
+            for (int i = 0; i < MAX_TIMEOUTS_TRANSFERRED_PER_TICK; ++i) {
+                final Timeout timeout = newTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state != Timeout.STATE_INIT) {
+                    continue;
+                }
+                final long expirationTick = timeout.deadlineNanos / tickDurationNanos;
+                timeout.remainingRounds = (expirationTick - tick) / wheel.length;
+                // Timeouts already in the past are expired with the current tick.
+                final long bucketTick = max(expirationTick, tick);
+                wheel[(int) (bucketTick & mask)].add(timeout);
+            }
+        }
+
+        private void removeCancelledTimeouts() {
+            for (;;) {
+                final Timeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                final Bucket bucket = timeout.bucket;
+                if (bucket != null) {
+                    bucket.remove(timeout);
+                }
+            }
+        }
+    }
+
+    /**
+     * A doubly linked list of {@link Timeout}s, only accessed from the timer thread.
+     */
+    private final class Bucket {
+        @Nullable
+        private Timeout head;
+        @Nullable
+        private Timeout tail;
+
+        void add(final Timeout timeout) {
+            timeout.bucket = this;
+            if (tail == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        @Nullable
+        Timeout remove(final Timeout timeout) {
+            final Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                if (timeout.remainingRounds <= 0) {
+                    final Timeout next = remove(timeout);
+                    timeout.expire();
+                    timeout = next;
+                } else {
+                    --timeout.remainingRounds;
+                    timeout = timeout.next;
+                }
+            }
+        }
+    }
+
+    private static final class Timeout implements Cancellable {
+        private static final AtomicIntegerFieldUpdater<Timeout> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+        static final int STATE_INIT = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private final HashedWheelTimerExecutor timer;
+        private final Runnable task;
+        final long deadlineNanos;
+        volatile int state;
+
+        // Only accessed from the timer thread.
+        long remainingRounds;
+        @Nullable
+        HashedWheelTimerExecutor.Bucket bucket;
+        @Nullable
+        Timeout prev;
+        @Nullable
+        Timeout next;
+
+        Timeout(final HashedWheelTimerExecutor timer, final Runnable task, final long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        @Override
+        public void cancel() {
+            if (stateUpdater.compareAndSet(this, STATE_INIT, STATE_CANCELLED)) {
+                // Removal from the bucket is done by the timer thread so that cancelling is O(1) and lock free.
+                timer.cancelledTimeouts.add(this);
+            }
+        }
+
+        void expire() {
+            if (!stateUpdater.compareAndSet(this, STATE_INIT, STATE_EXPIRED)) {
+                return;
+            }
+            try {
+                timer.delegate.execute(task);
+            } catch (Throwable cause) {
+                LOGGER.error("Failed to execute expired task {} on {}.", task, timer.delegate, cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link Thread} which knows its index among the threads created by the same {@link ThreadFactory}, for example
+ * among the threads of an IO thread pool.
+ */
+public interface IndexedThread {
+    /**
+     * Get the index of this thread among the threads created by the same {@link ThreadFactory}.
+     * @return the zero based index of this thread among the threads created by the same {@link ThreadFactory}.
+     */
+    int threadIndex();
+}
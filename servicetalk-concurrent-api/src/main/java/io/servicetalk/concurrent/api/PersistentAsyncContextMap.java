@@ -0,0 +1,448 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.AsyncContextMapUtils.contextMapToString;
+import static java.lang.Integer.bitCount;
+import static java.lang.System.arraycopy;
+import static java.lang.System.identityHashCode;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An {@link AsyncContextMap} backed by a persistent hash array mapped trie.
+ * <p>
+ * Modifications copy only the path from the root of the trie to the modified entry, and share the rest of the trie
+ * with previous versions. This makes {@link #put(Key, Object)} and {@link #remove(Key)} O(log n) and {@link #copy()}
+ * O(1), which is preferable over {@link CopyOnWriteAsyncContextMap} when contexts routinely hold more than a handful of
+ * entries.
+ */
+final class PersistentAsyncContextMap implements AsyncContextMap {
+    private static final AtomicReferenceFieldUpdater<PersistentAsyncContextMap, Node> rootUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(PersistentAsyncContextMap.class, Node.class, "root");
+    /**
+     * Used to differentiate absent entries from entries with {@code null} values.
+     */
+    private static final Object NOT_FOUND = new Object();
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+
+    private volatile Node root;
+
+    PersistentAsyncContextMap() {
+        this(BitmapNode.EMPTY);
+    }
+
+    private PersistentAsyncContextMap(final Node root) {
+        this.root = root;
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(final Key<T> key) {
+        final Object value = root.find(0, hash(key), key);
+        return value == NOT_FOUND ? null : (T) value;
+    }
+
+    @Override
+    public boolean containsKey(final Key<?> key) {
+        return root.find(0, hash(key), key) != NOT_FOUND;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return root == BitmapNode.EMPTY;
+    }
+
+    @Override
+    public int size() {
+        // The size is not tracked to avoid allocating a holder for it on each modification, it is rarely needed.
+        return root.size();
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T put(final Key<T> key, @Nullable final T value) {
+        final int hash = hash(requireNonNull(key));
+        for (;;) {
+            final Node current = root;
+            final Object previous = current.find(0, hash, key);
+            if (previous == value ||
+                    rootUpdater.compareAndSet(this, current, current.put(0, hash, key, value))) {
+                return previous == NOT_FOUND ? null : (T) previous;
+            }
+        }
+    }
+
+    @Override
+    public void putAll(final Map<Key<?>, Object> map) {
+        final PutAllBuilder builder = new PutAllBuilder();
+        for (;;) {
+            final Node current = root;
+            builder.root = current;
+            map.forEach(builder);
+            if (builder.root == current || rootUpdater.compareAndSet(this, current, builder.root)) {
+                return;
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T remove(final Key<T> key) {
+        final int hash = hash(key);
+        for (;;) {
+            final Node current = root;
+            final Object previous = current.find(0, hash, key);
+            if (previous == NOT_FOUND) {
+                return null;
+            }
+            if (rootUpdater.compareAndSet(this, current, current.remove(0, hash, key))) {
+                return (T) previous;
+            }
+        }
+    }
+
+    @Override
+    public boolean removeAll(final Iterable<Key<?>> entries) {
+        for (;;) {
+            final Node current = root;
+            Node newRoot = current;
+            for (Key<?> key : entries) {
+                newRoot = newRoot.remove(0, hash(key), key);
+            }
+            if (newRoot == current) {
+                return false;
+            }
+            if (rootUpdater.compareAndSet(this, current, newRoot)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        root = BitmapNode.EMPTY;
+    }
+
+    @Nullable
+    @Override
+    public Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+        return root.forEach(consumer);
+    }
+
+    @Override
+    public AsyncContextMap copy() {
+        return new PersistentAsyncContextMap(root);
+    }
+
+    @Override
+    public String toString() {
+        return contextMapToString(this);
+    }
+
+    private static int hash(final Key<?> key) {
+        // Keys are compared by identity.
+        return identityHashCode(key);
+    }
+
+    private static int bitPosition(final int hash, final int shift) {
+        return 1 << ((hash >>> shift) & LEVEL_MASK);
+    }
+
+    /**
+     * An immutable node of the trie. Modifications return a new node, or the same node if nothing changed.
+     */
+    private interface Node {
+        @Nullable
+        Object find(int shift, int hash, Key<?> key);
+
+        Node put(int shift, int hash, Key<?> key, @Nullable Object value);
+
+        /**
+         * Removes an entry.
+         *
+         * @return the new node, the same node if the entry is not present, or {@link BitmapNode#EMPTY} if the last
+         * entry has been removed.
+         */
+        Node remove(int shift, int hash, Key<?> key);
+
+        @Nullable
+        Key<?> forEach(BiPredicate<Key<?>, Object> consumer);
+
+        int size();
+    }
+
+    /**
+     * A node which maps {@link #BITS_PER_LEVEL} bits of the hash at its level to either an entry or a child node.
+     * <p>
+     * The {@link #array} holds a pair of elements for each bit set in the {@link #bitmap}, in the order of the bits:
+     * either a {@link Key} and its value, or {@code null} and a child {@link Node}.
+     */
+    private static final class BitmapNode implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        BitmapNode(final int bitmap, final Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(final int bit) {
+            return bitCount(bitmap & (bit - 1)) << 1;
+        }
+
+        @Nullable
+        @Override
+        public Object find(final int shift, final int hash, final Key<?> key) {
+            final int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            final int i = index(bit);
+            final Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).find(shift + BITS_PER_LEVEL, hash, key);
+            }
+            return k == key ? array[i + 1] : NOT_FOUND;
+        }
+
+        @Override
+        public Node put(final int shift, final int hash, final Key<?> key, @Nullable final Object value) {
+            final int bit = bitPosition(hash, shift);
+            final int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                final Object[] newArray = new Object[array.length + 2];
+                arraycopy(array, 0, newArray, 0, i);
+                newArray[i] = key;
+                newArray[i + 1] = value;
+                arraycopy(array, i, newArray, i + 2, array.length - i);
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            final Object k = array[i];
+            final Object v = array[i + 1];
+            if (k == null) {
+                final Node child = (Node) v;
+                final Node newChild = child.put(shift + BITS_PER_LEVEL, hash, key, value);
+                return newChild == child ? this : with(i, null, newChild);
+            }
+            if (k == key) {
+                return v == value ? this : with(i, key, value);
+            }
+            return with(i, null, newChild(shift + BITS_PER_LEVEL, (Key<?>) k, v, hash, key, value));
+        }
+
+        @Override
+        public Node remove(final int shift, final int hash, final Key<?> key) {
+            final int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            final int i = index(bit);
+            final Object k = array[i];
+            if (k == null) {
+                final Node child = (Node) array[i + 1];
+                final Node newChild = child.remove(shift + BITS_PER_LEVEL, hash, key);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild == EMPTY) {
+                    return without(i, bit);
+                }
+                if (newChild instanceof BitmapNode) {
+                    // Pull a single remaining entry up to keep the trie as shallow as possible.
+                    final BitmapNode bitmapChild = (BitmapNode) newChild;
+                    if (bitmapChild.array.length == 2 && bitmapChild.array[0] != null) {
+                        return with(i, bitmapChild.array[0], bitmapChild.array[1]);
+                    }
+                }
+                return with(i, null, newChild);
+            }
+            if (k != key) {
+                return this;
+            }
+            return without(i, bit);
+        }
+
+        @Nullable
+        @Override
+        public Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                final Object k = array[i];
+                if (k == null) {
+                    final Key<?> stoppedAt = ((Node) array[i + 1]).forEach(consumer);
+                    if (stoppedAt != null) {
+                        return stoppedAt;
+                    }
+                } else if (!consumer.test((Key<?>) k, array[i + 1])) {
+                    return (Key<?>) k;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int i = 0; i < array.length; i += 2) {
+                size += array[i] == null ? ((Node) array[i + 1]).size() : 1;
+            }
+            return size;
+        }
+
+        private BitmapNode with(final int i, @Nullable final Object key, @Nullable final Object value) {
+            final Object[] newArray = array.clone();
+            newArray[i] = key;
+            newArray[i + 1] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private BitmapNode without(final int i, final int bit) {
+            if (bitmap == bit) {
+                return EMPTY;
+            }
+            final Object[] newArray = new Object[array.length - 2];
+            arraycopy(array, 0, newArray, 0, i);
+            arraycopy(array, i + 2, newArray, i, newArray.length - i);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        private static Node newChild(final int shift, final Key<?> key1, @Nullable final Object value1,
+                                     final int hash2, final Key<?> key2, @Nullable final Object value2) {
+            final int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            return EMPTY.put(shift, hash1, key1, value1).put(shift, hash2, key2, value2);
+        }
+    }
+
+    /**
+     * A node for {@link Key}s with the same hash, holding pairs of {@link Key}s and values.
+     */
+    private static final class CollisionNode implements Node {
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(final int hash, final Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int index(final Key<?> key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Nullable
+        @Override
+        public Object find(final int shift, final int hash, final Key<?> key) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+            final int i = index(key);
+            return i < 0 ? NOT_FOUND : array[i + 1];
+        }
+
+        @Override
+        public Node put(final int shift, final int hash, final Key<?> key, @Nullable final Object value) {
+            if (hash != this.hash) {
+                // Nest this node in a bitmap node of this level, which will then also hold the new entry.
+                return new BitmapNode(bitPosition(this.hash, shift), new Object[] {null, this})
+                        .put(shift, hash, key, value);
+            }
+            final int i = index(key);
+            final Object[] newArray;
+            if (i < 0) {
+                newArray = new Object[array.length + 2];
+                arraycopy(array, 0, newArray, 0, array.length);
+                newArray[array.length] = key;
+                newArray[array.length + 1] = value;
+            } else {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                newArray = array.clone();
+                newArray[i + 1] = value;
+            }
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        public Node remove(final int shift, final int hash, final Key<?> key) {
+            if (hash != this.hash) {
+                return this;
+            }
+            final int i = index(key);
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 4) {
+                // A single entry remains, which is held by a bitmap node so it can be pulled up by the parent.
+                final int remaining = i == 0 ? 2 : 0;
+                return new BitmapNode(bitPosition(hash, shift), new Object[] {array[remaining], array[remaining + 1]});
+            }
+            final Object[] newArray = new Object[array.length - 2];
+            arraycopy(array, 0, newArray, 0, i);
+            arraycopy(array, i + 2, newArray, i, newArray.length - i);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Nullable
+        @Override
+        public Key<?> forEach(final BiPredicate<Key<?>, Object> consumer) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (!consumer.test((Key<?>) array[i], array[i + 1])) {
+                    return (Key<?>) array[i];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return array.length >>> 1;
+        }
+    }
+
+    /**
+     * Applies all entries of a {@link Map} to a version of the trie.
+     */
+    private static final class PutAllBuilder implements BiConsumer<Key<?>, Object> {
+        @Nullable
+        Node root;
+
+        @Override
+        public void accept(final Key<?> key, final Object value) {
+            assert root != null;
+            root = root.put(0, hash(requireNonNull(key)), key, value);
+        }
+    }
+}
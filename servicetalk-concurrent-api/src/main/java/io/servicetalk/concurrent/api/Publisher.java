@@ -364,6 +364,131 @@ public abstract class Publisher<T> {
         return new PublisherFlatMapSingle<>(this, mapper, maxConcurrency, true, executor);
     }
 
+    /**
+     * Turns every item emitted by this {@link Publisher} into a {@link Publisher} and emits the items emitted by each
+     * of those {@link Publisher}s, which are subscribed to concurrently.
+     * <p>
+     * To control the amount of concurrent processing done by this operator see
+     * {@link #flatMapMerge(Function, int)}.
+     * <p>
+     * This method is similar to {@link #map(Function)} but the result is an asynchronous stream, and provides a data
+     * transformation in sequential programming similar to:
+     * <pre>{@code
+     *     ExecutorService e = ...;
+     *     List<Future<List<R>>> futures = ...; // assume this is thread safe
+     *     for (T t : resultOfThisPublisher()) {
+     *         // Note that flatMap process results in parallel.
+     *         futures.add(e.submit(() -> {
+     *             return mapper.apply(t); // Asynchronous result is flatten into a stream of values by this operator.
+     *         }));
+     *     }
+     *     List<R> results = new ArrayList<>();
+     *     // This is an approximation, this operator does not provide any ordering guarantees for the results.
+     *     for (Future<List<R>> future : futures) {
+     *         List<R> rList = future.get(); // Throws if the processing for this item failed.
+     *         results.addAll(rList);
+     *     }
+     *     return results;
+     * }</pre>
+     *
+     * @param mapper Function to convert each item emitted by this {@link Publisher} into a {@link Publisher}.
+     * @param <R> Type of items emitted by the returned {@link Publisher}.
+     * @return A new {@link Publisher} that emits all items emitted by each {@link Publisher} produced by
+     * {@code mapper}.
+     *
+     * @see <a href="http://reactivex.io/documentation/operators/flatmap.html">ReactiveX flatMap operator.</a>
+     * @see #flatMapMerge(Function, int)
+     */
+    public final <R> Publisher<R> flatMapMerge(Function<? super T, ? extends Publisher<? extends R>> mapper) {
+        return flatMapMerge(mapper, 16);
+    }
+
+    /**
+     * Turns every item emitted by this {@link Publisher} into a {@link Publisher} and emits the items emitted by each
+     * of those {@link Publisher}s, which are subscribed to concurrently.
+     * <p>
+     * Each active {@link Publisher} produced by {@code mapper} is requested a bounded number of items ahead of the
+     * demand of the {@link Subscriber} of the returned {@link Publisher}, independently of the others. Items received
+     * beyond that demand are queued until the {@link Subscriber} requests them.
+     * <p>
+     * This method is similar to {@link #map(Function)} but the result is an asynchronous stream, and provides a data
+     * transformation in sequential programming similar to:
+     * <pre>{@code
+     *     ExecutorService e = ...;
+     *     List<Future<List<R>>> futures = ...; // assume this is thread safe
+     *     for (T t : resultOfThisPublisher()) {
+     *         // Note that flatMap process results in parallel.
+     *         futures.add(e.submit(() -> {
+     *             return mapper.apply(t); // Asynchronous result is flatten into a stream of values by this operator.
+     *         }));
+     *     }
+     *     List<R> results = new ArrayList<>();
+     *     // This is an approximation, this operator does not provide any ordering guarantees for the results.
+     *     for (Future<List<R>> future : futures) {
+     *         List<R> rList = future.get(); // Throws if the processing for this item failed.
+     *         results.addAll(rList);
+     *     }
+     *     return results;
+     * }</pre>
+     *
+     * @param mapper Function to convert each item emitted by this {@link Publisher} into a {@link Publisher}.
+     * @param maxConcurrency Maximum active {@link Publisher}s at any time.
+     * @param <R> Type of items emitted by the returned {@link Publisher}.
+     * @return A new {@link Publisher} that emits all items emitted by each {@link Publisher} produced by
+     * {@code mapper}.
+     *
+     * @see <a href="http://reactivex.io/documentation/operators/flatmap.html">ReactiveX flatMap operator.</a>
+     */
+    public final <R> Publisher<R> flatMapMerge(Function<? super T, ? extends Publisher<? extends R>> mapper,
+                                               int maxConcurrency) {
+        return new PublisherFlatMapMerge<>(this, mapper, maxConcurrency, false, executor);
+    }
+
+    /**
+     * Turns every item emitted by this {@link Publisher} into a {@link Publisher} and emits the items emitted by each
+     * of those {@link Publisher}s. This is the same as {@link #flatMapMerge(Function, int)} just that if any
+     * {@link Publisher} returned by {@code mapper}, terminates with an error, the returned {@link Publisher} will not
+     * immediately terminate. Instead, it will wait for this {@link Publisher} and all mapped {@link Publisher}s to
+     * terminate and then terminate the returned {@link Publisher} with all errors emitted by the {@link Publisher}s
+     * produced by the {@code mapper}.
+     * <p>
+     * To control the amount of concurrent processing done by this operator see
+     * {@link #flatMapMergeDelayError(Function, int)}.
+     *
+     * @param mapper Function to convert each item emitted by this {@link Publisher} into a {@link Publisher}.
+     * @param <R> Type of items emitted by the returned {@link Publisher}.
+     * @return A new {@link Publisher} that emits all items emitted by each {@link Publisher} produced by
+     * {@code mapper}.
+     *
+     * @see <a href="http://reactivex.io/documentation/operators/merge.html">ReactiveX merge operator.</a>
+     * @see #flatMapMergeDelayError(Function, int)
+     */
+    public final <R> Publisher<R> flatMapMergeDelayError(
+            Function<? super T, ? extends Publisher<? extends R>> mapper) {
+        return flatMapMergeDelayError(mapper, 16);
+    }
+
+    /**
+     * Turns every item emitted by this {@link Publisher} into a {@link Publisher} and emits the items emitted by each
+     * of those {@link Publisher}s. This is the same as {@link #flatMapMerge(Function, int)} just that if any
+     * {@link Publisher} returned by {@code mapper}, terminates with an error, the returned {@link Publisher} will not
+     * immediately terminate. Instead, it will wait for this {@link Publisher} and all mapped {@link Publisher}s to
+     * terminate and then terminate the returned {@link Publisher} with all errors emitted by the {@link Publisher}s
+     * produced by the {@code mapper}.
+     *
+     * @param mapper Function to convert each item emitted by this {@link Publisher} into a {@link Publisher}.
+     * @param maxConcurrency Maximum active {@link Publisher}s at any time.
+     * @param <R> Type of items emitted by the returned {@link Publisher}.
+     * @return A new {@link Publisher} that emits all items emitted by each {@link Publisher} produced by
+     * {@code mapper}.
+     *
+     * @see <a href="http://reactivex.io/documentation/operators/merge.html">ReactiveX merge operator.</a>
+     */
+    public final <R> Publisher<R> flatMapMergeDelayError(
+            Function<? super T, ? extends Publisher<? extends R>> mapper, int maxConcurrency) {
+        return new PublisherFlatMapMerge<>(this, mapper, maxConcurrency, true, executor);
+    }
+
     /**
      * Turns every item emitted by this {@link Publisher} into a {@link Completable} and terminate the returned
      * {@link Completable} when all the intermediate {@link Completable}s have terminated successfully or any one of
@@ -1297,6 +1422,46 @@ public abstract class Publisher<T> {
         return new PublisherGroupToMany<>(this, keySelector, groupMaxQueueSize, expectedGroupCountHint, executor);
     }
 
+    /**
+     * Groups items emitted by this {@link Publisher} into buffers as defined by the passed {@link BufferStrategy}.
+     * <p>
+     * A buffer is emitted when either {@link BufferStrategy#maxBufferSize()} items have been accumulated, or
+     * {@link BufferStrategy#maxBufferDuration()} has elapsed since the first item of the buffer was received from this
+     * {@link Publisher}, whichever comes first. Empty buffers are never emitted. When this {@link Publisher} completes,
+     * the items accumulated so far are emitted as a last buffer. When this {@link Publisher} fails, the items
+     * accumulated so far are discarded.
+     * <p>
+     * Items are requested from this {@link Publisher} one buffer at a time, and only while the {@link Subscriber} of
+     * the returned {@link Publisher} has requested buffers via {@link Subscription#request(long)}.
+     * <p>
+     * In sequential programming this is similar to the following:
+     * <pre>{@code
+     *     List<Object> buffers = new ArrayList<>();
+     *     Accumulator<T, B> accumulator = bufferStrategy.newAccumulator();
+     *     int accumulated = 0;
+     *     for (T t : resultOfThisPublisher()) {
+     *         accumulator.accumulate(t);
+     *         if (++accumulated == bufferStrategy.maxBufferSize() || maxBufferDurationElapsed()) {
+     *             buffers.add(accumulator.finish());
+     *             accumulator = bufferStrategy.newAccumulator();
+     *             accumulated = 0;
+     *         }
+     *     }
+     *     if (accumulated > 0) {
+     *         buffers.add(accumulator.finish());
+     *     }
+     *     return buffers;
+     * }</pre>
+     *
+     * @param bufferStrategy {@link BufferStrategy} which defines how and when items are buffered.
+     * @param <B> Type of the buffers emitted by the returned {@link Publisher}.
+     * @return A {@link Publisher} that emits buffers of items emitted by this {@link Publisher}.
+     * @see BufferStrategies
+     */
+    public final <B> Publisher<B> buffer(BufferStrategy<T, B> bufferStrategy) {
+        return new PublisherBuffer<>(this, bufferStrategy, executor);
+    }
+
     /**
      * Create a {@link Publisher} that multicasts all the signals to exactly {@code expectedSubscribers}.
      * <p>
@@ -0,0 +1,312 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.api.BufferStrategy.Accumulator;
+import io.servicetalk.concurrent.internal.ConcurrentSubscription;
+import io.servicetalk.concurrent.internal.FlowControlUtils;
+import io.servicetalk.concurrent.internal.TerminalNotification;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.SubscriberApiUtils.NULL_TOKEN;
+import static io.servicetalk.concurrent.internal.ConcurrentUtils.executeExclusive;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
+import static io.servicetalk.concurrent.internal.TerminalNotification.complete;
+import static io.servicetalk.concurrent.internal.TerminalNotification.error;
+import static io.servicetalk.utils.internal.PlatformDependent.newUnboundedMpscQueue;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Groups items emitted by the original {@link Publisher} into buffers as defined by a {@link BufferStrategy}.
+ * <p>
+ * At most one buffer is requested from the original {@link Publisher} at a time, and only while there is demand for
+ * buffers from downstream. This keeps the number of items held by this operator bounded by
+ * {@link BufferStrategy#maxBufferSize()}.
+ *
+ * @param <T> Type of items emitted by the original {@link Publisher}.
+ * @param <B> Type of buffers emitted by this {@link Publisher}.
+ */
+final class PublisherBuffer<T, B> extends AbstractAsynchronousPublisherOperator<T, B> {
+
+    private final BufferStrategy<T, B> bufferStrategy;
+
+    PublisherBuffer(final Publisher<T> original, final BufferStrategy<T, B> bufferStrategy, final Executor executor) {
+        super(original, executor);
+        this.bufferStrategy = requireNonNull(bufferStrategy);
+    }
+
+    @Override
+    public Subscriber<? super T> apply(final Subscriber<? super B> subscriber) {
+        return new BufferSubscriber<>(subscriber, bufferStrategy);
+    }
+
+    private static final class BufferSubscriber<T, B> implements Subscriber<T>, Subscription {
+        private static final Object CANCELLED = new Object();
+        private static final AtomicIntegerFieldUpdater<BufferSubscriber> drainingUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(BufferSubscriber.class, "draining");
+        private static final AtomicLongFieldUpdater<BufferSubscriber> requestedUpdater =
+                AtomicLongFieldUpdater.newUpdater(BufferSubscriber.class, "requested");
+
+        private final Subscriber<? super B> target;
+        private final BufferStrategy<T, B> bufferStrategy;
+        private final int maxBufferSize;
+        private final long maxBufferDurationNs;
+        /**
+         * Items, timer expirations and terminal signals, processed in order by {@link #drain0()}.
+         */
+        private final Queue<Object> signals = newUnboundedMpscQueue(4);
+        private final Runnable drainer = this::drain0;
+        @SuppressWarnings("unused")
+        private volatile int draining;
+        private volatile long requested;
+        @Nullable
+        private Subscription subscription;
+
+        // The following state is only accessed from drain0(), which is executed exclusively.
+        @Nullable
+        private Accumulator<T, B> accumulator;
+        private int accumulated;
+        private int outstanding;
+        private boolean bufferFull;
+        private boolean timerExpired;
+        private int timerGeneration;
+        @Nullable
+        private Cancellable timer;
+        @Nullable
+        private TerminalNotification terminal;
+        private boolean done;
+
+        BufferSubscriber(final Subscriber<? super B> target, final BufferStrategy<T, B> bufferStrategy) {
+            this.target = target;
+            this.bufferStrategy = bufferStrategy;
+            maxBufferSize = bufferStrategy.maxBufferSize();
+            if (maxBufferSize <= 0) {
+                throw new IllegalArgumentException("maxBufferSize: " + maxBufferSize + " (expected > 0)");
+            }
+            maxBufferDurationNs = bufferStrategy.maxBufferDuration().toNanos();
+        }
+
+        @Override
+        public void onSubscribe(final Subscription s) {
+            subscription = ConcurrentSubscription.wrap(s);
+            target.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(@Nullable final T t) {
+            signals.offer(t == null ? NULL_TOKEN : t);
+            drain();
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            signals.offer(error(t));
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            signals.offer(complete());
+            drain();
+        }
+
+        @Override
+        public void request(final long n) {
+            assert subscription != null;
+            if (!isRequestNValid(n)) {
+                // Let the original Subscription deliver the error for invalid demand.
+                subscription.request(n);
+                return;
+            }
+            requestedUpdater.accumulateAndGet(this, n, FlowControlUtils::addWithOverflowProtection);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            assert subscription != null;
+            try {
+                subscription.cancel();
+            } finally {
+                signals.offer(CANCELLED);
+                drain();
+            }
+        }
+
+        private void drain() {
+            executeExclusive(drainer, drainingUpdater, this);
+        }
+
+        private void drain0() {
+            if (done) {
+                signals.clear();
+                return;
+            }
+            try {
+                Object signal;
+                while ((signal = signals.poll()) != null) {
+                    if (signal instanceof TimerExpiration) {
+                        onTimerExpired((TimerExpiration) signal);
+                    } else if (signal instanceof TerminalNotification) {
+                        onTerminal((TerminalNotification) signal);
+                    } else if (signal == CANCELLED) {
+                        cancelTimer();
+                        done = true;
+                        signals.clear();
+                        return;
+                    } else {
+                        onItem(signal);
+                    }
+                }
+                if (!emitBuffers()) {
+                    requestItems();
+                }
+            } catch (Throwable cause) {
+                terminateWithError(cause);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void onItem(final Object item) {
+            if (terminal != null) {
+                return;
+            }
+            --outstanding;
+            if (accumulator == null) {
+                accumulator = bufferStrategy.newAccumulator();
+            }
+            accumulator.accumulate(item == NULL_TOKEN ? null : (T) item);
+            if (++accumulated == 1) {
+                startTimer();
+            }
+            if (accumulated >= maxBufferSize) {
+                bufferFull = true;
+                cancelTimer();
+            }
+        }
+
+        private void onTimerExpired(final TimerExpiration expiration) {
+            if (expiration.generation == timerGeneration) {
+                timer = null;
+                timerExpired = true;
+            }
+        }
+
+        private void onTerminal(final TerminalNotification notification) {
+            if (terminal != null) {
+                return;
+            }
+            terminal = notification;
+            cancelTimer();
+            if (notification.cause() != null) {
+                // Partially accumulated items are discarded on error.
+                accumulator = null;
+                accumulated = 0;
+            }
+        }
+
+        /**
+         * Emits the current buffer, if it is ready and there is demand, and delivers the terminal signal once all
+         * buffers have been emitted.
+         *
+         * @return {@code true} if this {@link Subscriber} has terminated.
+         */
+        private boolean emitBuffers() {
+            if (accumulated > 0 && (bufferFull || timerExpired || terminal != null) && requested > 0) {
+                assert accumulator != null;
+                final Accumulator<T, B> current = accumulator;
+                accumulator = null;
+                accumulated = 0;
+                bufferFull = false;
+                timerExpired = false;
+                if (requested != Long.MAX_VALUE) {
+                    requestedUpdater.decrementAndGet(this);
+                }
+                target.onNext(current.finish());
+            }
+            if (terminal != null && accumulated == 0 && !done) {
+                done = true;
+                terminal.terminate(target);
+                return true;
+            }
+            return done;
+        }
+
+        private void requestItems() {
+            if (terminal == null && !bufferFull && requested > 0) {
+                final int n = maxBufferSize - accumulated - outstanding;
+                if (n > 0) {
+                    outstanding += n;
+                    assert subscription != null;
+                    subscription.request(n);
+                }
+            }
+        }
+
+        private void startTimer() {
+            final Cancellable newTimer = bufferStrategy.timerExecutor().schedule(
+                    new TimerExpiration(this, timerGeneration), maxBufferDurationNs, NANOSECONDS);
+            timer = requireNonNull(newTimer);
+        }
+
+        private void cancelTimer() {
+            ++timerGeneration;
+            final Cancellable timer = this.timer;
+            if (timer != null) {
+                this.timer = null;
+                timer.cancel();
+            }
+        }
+
+        private void terminateWithError(final Throwable cause) {
+            if (done) {
+                return;
+            }
+            done = true;
+            accumulator = null;
+            signals.clear();
+            try {
+                cancelTimer();
+                assert subscription != null;
+                subscription.cancel();
+            } finally {
+                target.onError(cause);
+            }
+        }
+    }
+
+    private static final class TimerExpiration implements Runnable {
+        private final BufferSubscriber<?, ?> subscriber;
+        private final int generation;
+
+        TimerExpiration(final BufferSubscriber<?, ?> subscriber, final int generation) {
+            this.subscriber = subscriber;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            subscriber.signals.offer(this);
+            subscriber.drain();
+        }
+    }
+}
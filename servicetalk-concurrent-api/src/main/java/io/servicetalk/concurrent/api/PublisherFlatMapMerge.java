@@ -0,0 +1,492 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.internal.ConcurrentSubscription;
+import io.servicetalk.concurrent.internal.FlowControlUtils;
+import io.servicetalk.concurrent.internal.TerminalNotification;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.SubscriberApiUtils.NULL_TOKEN;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.checkDuplicateSubscription;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.isRequestNValid;
+import static io.servicetalk.concurrent.internal.SubscriberUtils.trySetTerminal;
+import static io.servicetalk.concurrent.internal.TerminalNotification.complete;
+import static io.servicetalk.utils.internal.PlatformDependent.newUnboundedMpscQueue;
+import static java.lang.Math.min;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater;
+
+/**
+ * As returned by {@link Publisher#flatMapMerge(Function, int)} and its variants.
+ * <p>
+ * Each mapped {@link Publisher} is requested up to {@link #PREFETCH} items ahead of the demand of the
+ * {@link Subscriber}, independently of the other mapped {@link Publisher}s, so that a mapped {@link Publisher} which
+ * is slow or never emits can not starve the others. Items are emitted directly when there is demand and nothing is
+ * queued, otherwise they are queued until the {@link Subscriber} requests them. A mapped {@link Publisher} is only
+ * replaced by the next one from the source once its queued items are delivered, which bounds the queued items to
+ * {@code maxConcurrency * PREFETCH}.
+ *
+ * @param <R> Type of items emitted by this {@link Publisher}
+ * @param <T> Type of items emitted by source {@link Publisher}
+ */
+final class PublisherFlatMapMerge<T, R> extends AbstractAsynchronousPublisherOperator<T, R> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PublisherFlatMapMerge.class);
+    /**
+     * Maximum number of items requested from a mapped {@link Publisher} and not yet delivered to the
+     * {@link Subscriber}.
+     */
+    private static final int PREFETCH = 16;
+    /**
+     * Number of delivered items of a mapped {@link Publisher} after which they are requested again.
+     */
+    private static final int REFILL = PREFETCH / 2;
+
+    private final Function<? super T, ? extends Publisher<? extends R>> mapper;
+    private final int maxConcurrency;
+    private final boolean delayError;
+
+    PublisherFlatMapMerge(Publisher<T> original, Function<? super T, ? extends Publisher<? extends R>> mapper,
+                          int maxConcurrency, boolean delayError, Executor executor) {
+        super(original, executor);
+        this.mapper = requireNonNull(mapper);
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency: " + maxConcurrency + " (expected > 0)");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.delayError = delayError;
+    }
+
+    @Override
+    public Subscriber<? super T> apply(Subscriber<? super R> subscriber) {
+        return new FlatMapSubscriber<>(this, subscriber);
+    }
+
+    private static final class FlatMapSubscriber<T, R> implements Subscriber<T>, Subscription {
+        private static final AtomicReferenceFieldUpdater<FlatMapSubscriber, CompositeException> delayedErrorUpdater =
+                newUpdater(FlatMapSubscriber.class, CompositeException.class, "delayedError");
+        private static final AtomicIntegerFieldUpdater<FlatMapSubscriber> emittingUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(FlatMapSubscriber.class, "emitting");
+        private static final AtomicLongFieldUpdater<FlatMapSubscriber> pendingDemandUpdater =
+                AtomicLongFieldUpdater.newUpdater(FlatMapSubscriber.class, "pendingDemand");
+        private static final AtomicIntegerFieldUpdater<FlatMapSubscriber> sourceRequestedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(FlatMapSubscriber.class, "sourceRequested");
+        private static final AtomicIntegerFieldUpdater<FlatMapSubscriber> activeUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(FlatMapSubscriber.class, "active");
+        private static final AtomicReferenceFieldUpdater<FlatMapSubscriber, TerminalNotification>
+                terminalNotificationUpdater = newUpdater(FlatMapSubscriber.class, TerminalNotification.class,
+                "terminalNotification");
+        private static final AtomicIntegerFieldUpdater<FlatMapSubscriber.FlatMapPublisherSubscriber> queuedUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(FlatMapSubscriber.FlatMapPublisherSubscriber.class, "queued");
+
+        @SuppressWarnings("unused")
+        @Nullable
+        private volatile CompositeException delayedError;
+        /**
+         * Number of times {@link #pending} needs to be drained, the thread which increments it from {@code 0} drains
+         * it until it goes back to {@code 0}.
+         */
+        @SuppressWarnings("unused")
+        private volatile int emitting;
+        /**
+         * Demand of the target which is not yet satisfied.
+         */
+        @SuppressWarnings("unused")
+        private volatile long pendingDemand;
+        @SuppressWarnings("unused")
+        private volatile int sourceRequested;
+        @SuppressWarnings("unused")
+        private volatile int active; // Number of currently active Publishers.
+        @SuppressWarnings("unused")
+        @Nullable
+        private volatile Subscription subscription;
+        @SuppressWarnings("unused")
+        @Nullable
+        private volatile TerminalNotification terminalNotification;
+        /**
+         * This variable is only accessed while draining, so we rely upon {@link #emitting} to provide visibility to
+         * other threads.
+         */
+        private boolean targetTerminated;
+
+        /**
+         * Items of the mapped {@link Publisher}s, as {@link QueuedItem}s, and terminal notifications waiting to be
+         * delivered to the target. Only consumed while draining.
+         */
+        private final Queue<Object> pending;
+        private final DynamicCompositeCancellable cancellable = new MapDynamicCompositeCancellable();
+        private final PublisherFlatMapMerge<T, R> source;
+        private final Subscriber<? super R> target;
+
+        FlatMapSubscriber(PublisherFlatMapMerge<T, R> source, Subscriber<? super R> target) {
+            this.source = source;
+            this.target = target;
+            // Start with a small capacity as maxConcurrency can be large.
+            pending = newUnboundedMpscQueue(min(2, source.maxConcurrency));
+        }
+
+        @Override
+        public void request(long n) {
+            final Subscription s = subscription;
+            assert s != null;
+            if (!isRequestNValid(n)) {
+                s.request(n);
+                return;
+            }
+
+            pendingDemandUpdater.accumulateAndGet(this, n, FlowControlUtils::addWithOverflowProtection);
+            if (sourceRequestedUpdater.compareAndSet(this, 0, 1)) {
+                // Mapped Publishers are requested a bounded number of items ahead of the demand of the target, so
+                // there is no need to wait for more demand before subscribing to up to maxConcurrency of them.
+                s.request(source.maxConcurrency);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            doCancel(true);
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            // Subscription is volatile, but there will be no access to the subscription until we call onSubscribe below
+            // so we don't have to worry about atomic operations here.
+            if (!checkDuplicateSubscription(subscription, s)) {
+                return;
+            }
+            // We assume that FlatMapSubscriber#cancel() will never be called before this method, and therefore we
+            // don't have to worry about being cancelled before the onSubscribe method is called.
+            subscription = ConcurrentSubscription.wrap(s);
+            target.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T t) {
+            final Publisher<? extends R> next = requireNonNull(source.mapper.apply(t));
+            activeUpdater.incrementAndGet(this);
+            next.subscribeInternal(new FlatMapPublisherSubscriber());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (!onError0(t, false, false)) {
+                LOGGER.debug("Already terminated/cancelled, ignoring error notification.", t);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            // active must be checked after setting the terminal event, because they are accessed in the reverse way in
+            // FlatMapPublisherSubscriber and if it were reversed here the FlatMapPublisherSubscriber would be racy and
+            // may not detect the terminal event.
+            if (trySetTerminal(complete(), false, terminalNotificationUpdater, this) && active == 0) {
+                // Since onComplete and onNext can not be concurrent and onNext must not be invoked post onComplete,
+                // if we see active == 0 here, active must not change after this.
+                enqueueAndDrain(complete());
+            }
+        }
+
+        private boolean onError0(Throwable throwable, boolean overrideComplete,
+                                 boolean cancelSubscriberIfNecessary) {
+            final TerminalNotification notification = TerminalNotification.error(throwable);
+            if (trySetTerminal(notification, overrideComplete, terminalNotificationUpdater, this)) {
+                try {
+                    doCancel(cancelSubscriberIfNecessary);
+                } finally {
+                    enqueueAndDrain(notification);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Emits an item of a mapped {@link Publisher}, directly if there is demand and nothing is queued.
+         */
+        private void emit(FlatMapPublisherSubscriber publisherSubscriber, Object item) {
+            if (emittingUpdater.compareAndSet(this, 0, 1)) {
+                // Items previously queued must be emitted first, so only emit directly if the queue is empty.
+                if (pending.isEmpty() && tryConsumeDemand()) {
+                    sendToTarget(item);
+                    publisherSubscriber.onItemDelivered();
+                } else {
+                    publisherSubscriber.enqueue(item);
+                }
+                // Items and demand may have been added while we were emitting.
+                drainLoop(1);
+            } else {
+                publisherSubscriber.enqueue(item);
+                drain();
+            }
+        }
+
+        private void enqueueAndDrain(Object item) {
+            // The queue is unbounded, offer never fails.
+            pending.offer(item);
+            drain();
+        }
+
+        private void drain() {
+            if (emittingUpdater.getAndIncrement(this) == 0) {
+                drainLoop(1);
+            }
+        }
+
+        private void drainLoop(int missed) {
+            for (;;) {
+                drainPending();
+                missed = emittingUpdater.addAndGet(this, -missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void drainPending() {
+            Object next;
+            while ((next = pending.peek()) != null) {
+                if (next instanceof QueuedItem) {
+                    final boolean hasDemand = tryConsumeDemand();
+                    if (!hasDemand && !failedWithoutDelay()) {
+                        return;
+                    }
+                    pending.poll();
+                    final QueuedItem queuedItem = (QueuedItem) next;
+                    if (hasDemand) {
+                        sendToTarget(queuedItem.item);
+                    }
+                    // Otherwise the item is dropped, a non delayed error is delivered without waiting for demand.
+                    queuedItem.publisherSubscriber.onQueuedItemDelivered();
+                } else {
+                    pending.poll();
+                    sendToTarget(next);
+                }
+            }
+        }
+
+        private boolean failedWithoutDelay() {
+            final TerminalNotification terminalNotification = this.terminalNotification;
+            return terminalNotification != null && terminalNotification.cause() != null &&
+                    terminalNotification.cause() != delayedError;
+        }
+
+        private boolean tryConsumeDemand() {
+            for (;;) {
+                final long demand = pendingDemand;
+                if (demand <= 0) {
+                    return false;
+                }
+                if (demand == Long.MAX_VALUE) {
+                    // Unbounded demand, no need to account for it.
+                    return true;
+                }
+                if (pendingDemandUpdater.compareAndSet(this, demand, demand - 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void requestNextPublisher() {
+            final Subscription s = subscription;
+            assert s != null;
+            s.request(1);
+        }
+
+        /**
+         * Cancel and cleanup.
+         * @param cancelSubscription enforces the
+         * <a href="https://github.com/reactive-streams/reactive-streams-jvm/blob/v1.0.1/README.md#2.3">
+         *     reactive streams rule 2.3</a>.
+         */
+        private void doCancel(boolean cancelSubscription) {
+            cancellable.cancel();
+            if (cancelSubscription) {
+                Subscription subscription = this.subscription;
+                assert subscription != null;
+                subscription.cancel();
+            }
+        }
+
+        private void sendToTarget(Object item) {
+            if (targetTerminated) {
+                // No notifications past terminal/cancelled
+                return;
+            }
+            if (item instanceof TerminalNotification) {
+                targetTerminated = true;
+                // Load the terminal notification in case an error happened after an onComplete and we override the
+                // terminal value.
+                TerminalNotification terminalNotification = this.terminalNotification;
+                assert terminalNotification != null;
+                CompositeException de = this.delayedError;
+                if (de != null) {
+                    de.addAllPendingSuppressed();
+                    if (terminalNotification.cause() == de) {
+                        terminalNotification.terminate(target);
+                    } else {
+                        terminalNotification.terminate(target, de);
+                    }
+                } else {
+                    terminalNotification.terminate(target);
+                }
+            } else if (item == NULL_TOKEN) {
+                target.onNext(null);
+            } else {
+                @SuppressWarnings("unchecked")
+                final R rItem = (R) item;
+                target.onNext(rItem);
+            }
+        }
+
+        /**
+         * An item of a mapped {@link Publisher} waiting for demand of the target.
+         */
+        private static final class QueuedItem {
+            final FlatMapSubscriber<?, ?>.FlatMapPublisherSubscriber publisherSubscriber;
+            final Object item;
+
+            QueuedItem(final FlatMapSubscriber<?, ?>.FlatMapPublisherSubscriber publisherSubscriber,
+                       final Object item) {
+                this.publisherSubscriber = publisherSubscriber;
+                this.item = item;
+            }
+        }
+
+        private final class FlatMapPublisherSubscriber implements Subscriber<R> {
+            private static final int TERMINATED = Integer.MIN_VALUE;
+
+            /**
+             * Number of items of this {@link Publisher} in {@link #pending}, combined with {@link #TERMINATED} once
+             * this {@link Publisher} terminated.
+             */
+            @SuppressWarnings("unused")
+            volatile int queued;
+            /**
+             * Number of delivered items which are not yet requested again, only accessed while draining.
+             */
+            private int delivered;
+            private boolean unboundedDemand;
+            @Nullable
+            private Subscription innerSubscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                // It is possible we have been cancelled at this point, and cancellable will take care of propagating
+                // the cancel to this Subscription.
+                innerSubscription = ConcurrentSubscription.wrap(s);
+                cancellable.add(innerSubscription);
+                if (pendingDemand == Long.MAX_VALUE) {
+                    // Items never have to wait for demand, request them all.
+                    unboundedDemand = true;
+                    innerSubscription.request(Long.MAX_VALUE);
+                } else {
+                    innerSubscription.request(PREFETCH);
+                }
+            }
+
+            @Override
+            public void onNext(@Nullable R r) {
+                emit(this, r == null ? NULL_TOKEN : r);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!source.delayError) {
+                    onError0(t, true, true);
+                } else {
+                    CompositeException de = FlatMapSubscriber.this.delayedError;
+                    if (de == null) {
+                        de = new CompositeException(t);
+                        if (!delayedErrorUpdater.compareAndSet(FlatMapSubscriber.this, null, de)) {
+                            de = FlatMapSubscriber.this.delayedError;
+                            assert de != null;
+                            de.add(t);
+                        }
+                    } else {
+                        de.add(t);
+                    }
+                    if (onInnerTerminated() && trySetTerminal(TerminalNotification.error(de), true,
+                            terminalNotificationUpdater, FlatMapSubscriber.this)) {
+                        // Since we have already added error to delayedError, we use complete() TerminalNotification
+                        // as a dummy signal to start draining and termination.
+                        enqueueAndDrain(complete());
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (onInnerTerminated()) {
+                    enqueueAndDrain(complete());
+                }
+            }
+
+            void enqueue(Object item) {
+                queuedUpdater.incrementAndGet(this);
+                pending.offer(new QueuedItem(this, item));
+            }
+
+            /**
+             * Invoked while draining when an item which was emitted directly has been delivered.
+             */
+            void onItemDelivered() {
+                if (!unboundedDemand && ++delivered == REFILL) {
+                    delivered = 0;
+                    assert innerSubscription != null;
+                    innerSubscription.request(REFILL);
+                }
+            }
+
+            /**
+             * Invoked while draining when a queued item has been delivered or dropped.
+             */
+            void onQueuedItemDelivered() {
+                if (queuedUpdater.decrementAndGet(this) == TERMINATED) {
+                    // This Publisher terminated and all its items are delivered, it can now be replaced.
+                    requestNextPublisher();
+                } else {
+                    onItemDelivered();
+                }
+            }
+
+            private boolean onInnerTerminated() {
+                final int queued = queuedUpdater.getAndAdd(this, TERMINATED);
+                assert innerSubscription != null;
+                cancellable.remove(innerSubscription);
+                // The ordering of events is important here. If this changes then onComplete must also change otherwise
+                // there is a race condition.
+                final boolean terminated = activeUpdater.decrementAndGet(FlatMapSubscriber.this) == 0 &&
+                        terminalNotification != null;
+                if (!terminated && queued == 0) {
+                    // Replace this Publisher with the next one from the source. If items of this Publisher are still
+                    // queued, it is replaced once they are delivered so that the queued items stay bounded.
+                    requestNextPublisher();
+                }
+                return terminated;
+            }
+        }
+    }
+}
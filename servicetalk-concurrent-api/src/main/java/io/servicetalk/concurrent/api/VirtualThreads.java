@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+
+/**
+ * Creates virtual threads, if supported by the running JVM.
+ * <p>
+ * ServiceTalk is compiled for Java 8 so the virtual thread APIs, available since Java 21, are accessed reflectively.
+ */
+final class VirtualThreads {
+    private static final AtomicInteger factoryCount = new AtomicInteger();
+    @Nullable
+    private static final Method OF_VIRTUAL;
+    @Nullable
+    private static final Method BUILDER_NAME;
+    @Nullable
+    private static final Method BUILDER_FACTORY;
+    @Nullable
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+    @Nullable
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTaskExecutor = null;
+        Throwable cause = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTaskExecutor = java.util.concurrent.Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            // Virtual threads are a preview feature on some JVM versions, make sure they can actually be created.
+            builderFactory.invoke(ofVirtual.invoke(null));
+        } catch (Throwable t) {
+            cause = t instanceof InvocationTargetException ? t.getCause() : t;
+        }
+        if (cause == null) {
+            OF_VIRTUAL = ofVirtual;
+            BUILDER_NAME = builderName;
+            BUILDER_FACTORY = builderFactory;
+            NEW_THREAD_PER_TASK_EXECUTOR = newThreadPerTaskExecutor;
+            UNAVAILABILITY_CAUSE = null;
+        } else {
+            OF_VIRTUAL = null;
+            BUILDER_NAME = null;
+            BUILDER_FACTORY = null;
+            NEW_THREAD_PER_TASK_EXECUTOR = null;
+            UNAVAILABILITY_CAUSE = cause;
+        }
+    }
+
+    private VirtualThreads() {
+        // no instances
+    }
+
+    static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Creates a new {@link ExecutorService} which starts a new virtual thread for each task.
+     *
+     * @param threadNamePrefix the name prefix used for the created {@link Thread}s.
+     * @return a new {@link ExecutorService} which starts a new virtual thread for each task.
+     * @throws UnsupportedOperationException if virtual threads are not supported by the running JVM.
+     */
+    static ExecutorService newThreadPerTaskExecutor(final String threadNamePrefix) {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM",
+                    UNAVAILABILITY_CAUSE);
+        }
+        assert OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null &&
+                NEW_THREAD_PER_TASK_EXECUTOR != null;
+        try {
+            final Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null),
+                    threadNamePrefix + '-' + factoryCount.incrementAndGet() + '-', 1L);
+            final ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An {@link Executor} that distributes tasks over a fixed number of threads which steal work from each other when
+ * idle, and exposes metrics about its queue.
+ * <p>
+ * Tasks which can not be executed immediately are queued, up to a configurable maximum. Once this maximum is
+ * reached, new tasks are handled according to the configured {@link RejectionPolicy}. This allows bursts of tasks to
+ * be absorbed by the queue instead of creating new threads or failing with a {@link RejectedExecutionException}.
+ */
+public interface WorkStealingExecutor extends Executor {
+
+    /**
+     * Returns the number of tasks which have been submitted but not yet started.
+     *
+     * @return the number of tasks which have been submitted but not yet started.
+     */
+    int queuedTasks();
+
+    /**
+     * Returns an estimate of the number of tasks which have been stolen by a thread from the queue of another thread.
+     *
+     * @return an estimate of the number of tasks which have been stolen by a thread from the queue of another thread.
+     */
+    long stealCount();
+
+    /**
+     * Returns the number of tasks which have been rejected because the maximum number of queued tasks was reached or
+     * this {@link Executor} was closed. This includes tasks run on the calling thread due to
+     * {@link RejectionPolicy#CALLER_RUNS}.
+     *
+     * @return the number of tasks which have been rejected.
+     */
+    long rejectedTasks();
+
+    /**
+     * Returns the number of tasks which have been started.
+     *
+     * @return the number of tasks which have been started.
+     */
+    long startedTasks();
+
+    /**
+     * Returns the total time, in nanoseconds, that the {@link #startedTasks() started tasks} have spent queued before
+     * being started.
+     * <p>
+     * The average task latency over an interval is the difference of this value divided by the difference of
+     * {@link #startedTasks()} between the start and the end of the interval.
+     *
+     * @return the total time, in nanoseconds, that the started tasks have spent queued before being started.
+     */
+    long totalTaskLatencyNanos();
+
+    /**
+     * Policy to apply to a task submitted when the maximum number of queued tasks is reached.
+     */
+    enum RejectionPolicy {
+        /**
+         * Reject the task by throwing a {@link RejectedExecutionException}.
+         */
+        ABORT,
+        /**
+         * Run the task on the calling thread. This slows down the submitter but must only be used if the submitting
+         * threads are allowed to block, which is typically not the case for IO threads.
+         */
+        CALLER_RUNS
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.servicetalk.concurrent.api.Executors.newCallerAffinityExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CallerAffinityExecutorTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private volatile boolean spinning = true;
+    // Stealing is best effort, a high threshold avoids racy steals in tests which verify affinity.
+    private Executor executor = newCallerAffinityExecutor(2, 1000, "test-affinity");
+
+    @After
+    public void tearDown() throws Exception {
+        unblock.countDown();
+        spinning = false;
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Test
+    public void sameCallerRunsOnSameWorker() throws Exception {
+        Thread worker = executor.submit(Thread::currentThread).toFuture().get();
+        for (int i = 0; i < 100; i++) {
+            assertThat(executor.submit(Thread::currentThread).toFuture().get(), is(sameInstance(worker)));
+        }
+    }
+
+    @Test
+    public void tasksSubmittedFromWorkerStayOnWorker() throws Exception {
+        AtomicReference<Thread> nested = new AtomicReference<>();
+        CountDownLatch nestedDone = new CountDownLatch(1);
+        Thread worker = executor.submit(() -> {
+            executor.execute(() -> {
+                nested.set(Thread.currentThread());
+                nestedDone.countDown();
+            });
+            return Thread.currentThread();
+        }).toFuture().get();
+        nestedDone.await();
+        assertThat(nested.get(), is(sameInstance(worker)));
+    }
+
+    @Test
+    public void scheduledTasksKeepAffinity() throws Exception {
+        Thread worker = executor.submit(Thread::currentThread).toFuture().get();
+        AtomicReference<Thread> scheduled = new AtomicReference<>();
+        CountDownLatch scheduledDone = new CountDownLatch(1);
+        executor.schedule(() -> {
+            scheduled.set(Thread.currentThread());
+            scheduledDone.countDown();
+        }, 1, MILLISECONDS);
+        scheduledDone.await();
+        assertThat(scheduled.get(), is(sameInstance(worker)));
+    }
+
+    @Test
+    public void idleWorkerStealsFromBusyWorker() throws Exception {
+        executor.closeAsync().toFuture().get();
+        executor = newCallerAffinityExecutor(2, 0, "test-affinity");
+        Thread busyWorker = blockWorker();
+        // Runs on the other worker while the home worker is blocked.
+        assertThat(executor.submit(Thread::currentThread).toFuture().get(), is(not(sameInstance(busyWorker))));
+    }
+
+    @Test
+    public void idleWorkerStealsFromBlockedWorkerRegardlessOfThreshold() throws Exception {
+        Thread blockedWorker = blockWorker();
+        assertThat(executor.submit(Thread::currentThread).toFuture().get(), is(not(sameInstance(blockedWorker))));
+    }
+
+    @Test
+    public void blockingOnTaskSubmittedFromWorkerDoesNotDeadlock() throws Exception {
+        assertThat(executor.submit(() -> executor.submit(() -> 42).toFuture().get()).toFuture().get(), is(42));
+    }
+
+    @Test
+    public void indexedThreadsRunOnPartitionOfTheirIndex() throws Exception {
+        Thread first = submitFromIndexedThread(0);
+        Thread second = submitFromIndexedThread(1);
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(submitFromIndexedThread(2), is(sameInstance(first)));
+    }
+
+    @Test
+    public void noStealingUpToThreshold() throws Exception {
+        executor.closeAsync().toFuture().get();
+        executor = newCallerAffinityExecutor(2, 1, "test-affinity");
+        // A blocked worker would be stolen from regardless of the threshold, keep the worker busy instead.
+        Thread busyWorker = spinWorker();
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(() -> {
+            runner.set(Thread.currentThread());
+            done.countDown();
+        });
+        assertThat("Task stolen below threshold.", done.await(50, MILLISECONDS), is(false));
+        assertThat(runner.get(), is(nullValue()));
+        spinning = false;
+        done.await();
+        assertThat(runner.get(), is(sameInstance(busyWorker)));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectAfterClose() throws Exception {
+        executor.closeAsync().toFuture().get();
+        executor.execute(() -> { });
+    }
+
+    private Thread submitFromIndexedThread(final int index) throws Exception {
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        Thread thread = new IndexedTestThread(index, () -> {
+            try {
+                worker.set(executor.submit(Thread::currentThread).toFuture().get());
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        return worker.get();
+    }
+
+    private Thread spinWorker() throws InterruptedException {
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            worker.set(Thread.currentThread());
+            started.countDown();
+            while (spinning) {
+                Thread.yield();
+            }
+        });
+        started.await();
+        return worker.get();
+    }
+
+    private Thread blockWorker() throws InterruptedException {
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            worker.set(Thread.currentThread());
+            started.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        return worker.get();
+    }
+
+    private static final class IndexedTestThread extends Thread implements IndexedThread {
+        private final int index;
+
+        IndexedTestThread(final int index, final Runnable target) {
+            super(target);
+            this.index = index;
+        }
+
+        @Override
+        public int threadIndex() {
+            return index;
+        }
+    }
+}
@@ -50,7 +50,10 @@ import javax.annotation.Nullable;
 
 import static io.servicetalk.concurrent.api.BlockingTestUtils.awaitIndefinitelyNonNull;
 import static io.servicetalk.concurrent.api.Executors.from;
+import static io.servicetalk.concurrent.api.Executors.newCallerAffinityExecutor;
 import static io.servicetalk.concurrent.api.Executors.newFixedSizeExecutor;
+import static io.servicetalk.concurrent.api.Executors.newWorkStealingExecutor;
+import static io.servicetalk.concurrent.api.Executors.withHashedWheelTimer;
 import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
 import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
 import static io.servicetalk.concurrent.internal.TerminalNotification.complete;
@@ -106,6 +109,16 @@ public final class DefaultExecutorTest {
                 UNBOUNDED /*Size defines core size, else is unbounded*/));
         nameAndExecutorPairs.add(newParams(() -> from(new ThreadPoolExecutor(2, 2, 60, SECONDS,
                 new SynchronousQueue<>()), newScheduledThreadPool(2)), "different-executors", true, 2));
+        nameAndExecutorPairs.add(newParams(() -> newWorkStealingExecutor(2), "work-stealing-2", true,
+                UNBOUNDED /*Tasks are queued*/));
+        nameAndExecutorPairs.add(newParams(() -> withHashedWheelTimer(newFixedSizeExecutor(2), 1, MILLISECONDS, 8),
+                "hashed-wheel-timer", true, 2));
+        nameAndExecutorPairs.add(newParams(() -> newCallerAffinityExecutor(2, 0, "caller-affinity"),
+                "caller-affinity", false, UNBOUNDED));
+        if (io.servicetalk.concurrent.api.Executors.isVirtualThreadExecutorSupported()) {
+            nameAndExecutorPairs.add(newParams(io.servicetalk.concurrent.api.Executors::newVirtualThreadExecutor,
+                    "virtual", true, UNBOUNDED));
+        }
         return nameAndExecutorPairs;
     }
 
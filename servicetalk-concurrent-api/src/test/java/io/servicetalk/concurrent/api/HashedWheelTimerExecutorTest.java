@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.servicetalk.concurrent.api.Executors.newCachedThreadExecutor;
+import static io.servicetalk.concurrent.api.Executors.withHashedWheelTimer;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.DAYS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+public class HashedWheelTimerExecutorTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    // Small wheel so that scheduled tasks span multiple rotations.
+    private final Executor executor = withHashedWheelTimer(newCachedThreadExecutor(), 1, MILLISECONDS, 4);
+
+    @After
+    public void tearDown() throws Exception {
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Test
+    public void scheduledTaskRunsAfterDelay() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        long startNanos = nanoTime();
+        executor.schedule(latch::countDown, 20, MILLISECONDS);
+        latch.await();
+        assertThat(NANOSECONDS.toMillis(nanoTime() - startNanos), greaterThanOrEqualTo(20L));
+    }
+
+    @Test
+    public void expiredTaskRunsOnDelegate() throws Exception {
+        assertThat(executor.timer(1, MILLISECONDS).toSingle().map(__ -> Thread.currentThread().getName())
+                .toFuture().get(), startsWith("servicetalk-executor-"));
+    }
+
+    @Test
+    public void tasksExpireInDeadlineOrder() throws Exception {
+        ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+        CountDownLatch latch = new CountDownLatch(3);
+        executor.schedule(() -> {
+            order.add(30);
+            latch.countDown();
+        }, 30, MILLISECONDS);
+        executor.schedule(() -> {
+            order.add(5);
+            latch.countDown();
+        }, 5, MILLISECONDS);
+        executor.schedule(() -> {
+            order.add(15);
+            latch.countDown();
+        }, 15, MILLISECONDS);
+        latch.await();
+        assertThat(order, contains(5, 15, 30));
+    }
+
+    @Test
+    public void cancelledTasksDoNotRun() throws Exception {
+        AtomicInteger cancelledRuns = new AtomicInteger();
+        List<Cancellable> cancellables = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            cancellables.add(executor.schedule(cancelledRuns::incrementAndGet, 50 + i % 20, MILLISECONDS));
+        }
+        cancellables.forEach(Cancellable::cancel);
+        // Runs after all cancelled tasks would have expired.
+        executor.timer(100, MILLISECONDS).toFuture().get();
+        assertThat(cancelledRuns.get(), is(0));
+    }
+
+    @Test
+    public void nonPositiveDelayRunsOnNextTick() throws Exception {
+        CountDownLatch latch = new CountDownLatch(2);
+        executor.schedule(latch::countDown, 0, MILLISECONDS);
+        executor.schedule(latch::countDown, -1, MILLISECONDS);
+        latch.await();
+    }
+
+    @Test
+    public void veryLargeDelayDoesNotOverflow() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        executor.schedule(runs::incrementAndGet, Long.MAX_VALUE, DAYS);
+        executor.timer(10, MILLISECONDS).toFuture().get();
+        assertThat(runs.get(), is(0));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void scheduleAfterCloseRejected() throws Exception {
+        executor.closeAsync().toFuture().get();
+        executor.schedule(() -> { }, 1, MILLISECONDS);
+    }
+}
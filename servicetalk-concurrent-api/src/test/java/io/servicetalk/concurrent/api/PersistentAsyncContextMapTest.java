@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.api.AsyncContextMap.Key;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static io.servicetalk.concurrent.api.AsyncContextMap.Key.newKey;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PersistentAsyncContextMapTest {
+    private static final Key<String> K1 = newKey("k1");
+    private static final Key<String> K2 = newKey("k2");
+    private static final Key<String> K3 = newKey("k3");
+
+    private final PersistentAsyncContextMap map = new PersistentAsyncContextMap();
+
+    @Test
+    public void putGetRemove() {
+        assertTrue(map.isEmpty());
+        assertThat(map.put(K1, "v1"), is(nullValue()));
+        assertThat(map.put(K1, "v1-1"), is("v1"));
+        assertThat(map.put(K2, null), is(nullValue()));
+        assertThat(map.get(K1), is("v1-1"));
+        assertThat(map.get(K2), is(nullValue()));
+        assertTrue(map.containsKey(K2));
+        assertFalse(map.containsKey(K3));
+        assertThat(map.size(), is(2));
+
+        assertThat(map.remove(K1), is("v1-1"));
+        assertThat(map.remove(K1), is(nullValue()));
+        assertFalse(map.containsKey(K1));
+        assertThat(map.size(), is(1));
+        map.clear();
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void putSameValueReturnsPrevious() {
+        map.put(K1, "v1");
+        assertThat(map.put(K1, "v1"), is("v1"));
+        assertThat(map.size(), is(1));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        map.put(K1, "v1");
+        map.put(K2, "v2");
+        AsyncContextMap copy = map.copy();
+        copy.put(K1, "v1-copy");
+        copy.put(K3, "v3");
+        map.remove(K2);
+
+        assertThat(map.get(K1), is("v1"));
+        assertFalse(map.containsKey(K2));
+        assertFalse(map.containsKey(K3));
+        assertThat(map.size(), is(1));
+
+        assertThat(copy.get(K1), is("v1-copy"));
+        assertThat(copy.get(K2), is("v2"));
+        assertThat(copy.get(K3), is("v3"));
+        assertThat(copy.size(), is(3));
+    }
+
+    @Test
+    public void putAllAndRemoveAll() {
+        map.put(K1, "v1");
+        Map<Key<?>, Object> entries = new HashMap<>();
+        entries.put(K1, "v1-1");
+        entries.put(K2, "v2");
+        entries.put(K3, "v3");
+        map.putAll(entries);
+        assertThat(map.size(), is(3));
+        assertThat(map.get(K1), is("v1-1"));
+        assertThat(map.get(K2), is("v2"));
+        assertThat(map.get(K3), is("v3"));
+
+        assertTrue(map.removeAll(asList(K1, K3)));
+        assertFalse(map.removeAll(asList(K1, K3)));
+        assertThat(map.size(), is(1));
+        assertThat(map.get(K2), is("v2"));
+    }
+
+    @Test
+    public void forEachStops() {
+        map.put(K1, "v1");
+        map.put(K2, "v2");
+        map.put(K3, "v3");
+        List<Key<?>> visited = new ArrayList<>();
+        Key<?> stoppedAt = map.forEach((key, value) -> {
+            visited.add(key);
+            return visited.size() < 2;
+        });
+        assertThat(visited.size(), is(2));
+        assertThat(stoppedAt, sameInstance(visited.get(1)));
+        assertThat(map.forEach((key, value) -> true), is(nullValue()));
+    }
+
+    @Test
+    public void largeContext() {
+        final List<Key<Integer>> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i) {
+            Key<Integer> key = newKey("k" + i);
+            keys.add(key);
+            map.put(key, i);
+        }
+        assertThat(map.size(), is(keys.size()));
+        final AsyncContextMap copy = map.copy();
+        for (int i = 0; i < keys.size(); i += 2) {
+            assertThat(map.remove(keys.get(i)), is(i));
+        }
+        assertThat(map.size(), is(keys.size() / 2));
+        for (int i = 0; i < keys.size(); ++i) {
+            assertThat(map.get(keys.get(i)), is(i % 2 == 0 ? null : i));
+            assertThat(copy.get(keys.get(i)), is(i));
+        }
+        Map<Key<?>, Object> visited = new IdentityHashMap<>();
+        map.forEach((key, value) -> visited.put(key, value) == null);
+        assertThat(visited.size(), is(map.size()));
+    }
+
+    @Test
+    public void randomOperationsMatchIdentityHashMap() {
+        final Random random = new Random(42);
+        final List<Key<Integer>> keys = new ArrayList<>();
+        for (int i = 0; i < 64; ++i) {
+            keys.add(newKey("k" + i));
+        }
+        final Map<Key<?>, Object> expected = new IdentityHashMap<>();
+        for (int i = 0; i < 20000; ++i) {
+            final Key<Integer> key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                assertThat(map.put(key, i), is(expected.put(key, i)));
+            }
+            assertThat(map.size(), is(expected.size()));
+        }
+        for (Key<Integer> key : keys) {
+            assertThat(map.containsKey(key), is(expected.containsKey(key)));
+            assertThat(map.get(key), is(expected.get(key)));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.internal.DeliberateException;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static io.servicetalk.concurrent.api.Publisher.from;
+import static io.servicetalk.concurrent.api.Publisher.fromIterable;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.concurrent.internal.TerminalNotification.complete;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.IntStream.range;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+
+public class PublisherFlatMapMergeTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout(30, SECONDS);
+
+    private final TestPublisherSubscriber<Integer> subscriber = new TestPublisherSubscriber<>();
+    private final TestPublisher<Integer> source = new TestPublisher<>();
+    private final TestSubscription subscription = new TestSubscription();
+    private final List<TestPublisher<Integer>> mapped = new ArrayList<>();
+    private final List<TestSubscription> mappedSubscriptions = new ArrayList<>();
+    private static ExecutorService executorService;
+    private static Executor executor;
+
+    @BeforeClass
+    public static void beforeClass() {
+        executorService = Executors.newFixedThreadPool(10);
+        executor = io.servicetalk.concurrent.api.Executors.from(executorService);
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Test
+    public void concurrentPublishersAndSourceTermination() throws Exception {
+        final Single<List<Integer>> single = fromIterable(() -> range(0, 100).iterator())
+                .flatMapMerge(x -> fromIterable(() -> range(0, 100).iterator()).map(y -> x * 100 + y)
+                        .subscribeOn(executor).publishOn(executor), 8)
+                .collect(ArrayList::new, (ints, i) -> {
+                    ints.add(i);
+                    return ints;
+                });
+        for (int i = 0; i < 10; i++) {
+            final List<Integer> list = single.toFuture().get();
+            assertThat("Unexpected items received", list, hasSize(10_000));
+            assertThat("Unexpected items received", list,
+                    containsInAnyOrder(range(0, 10_000).boxed().toArray(Integer[]::new)));
+        }
+    }
+
+    @Test
+    public void concurrentPublisherErrorsAreDelayed() throws Exception {
+        final Queue<Integer> received = new ConcurrentLinkedQueue<>();
+        try {
+            fromIterable(() -> range(0, 100).iterator())
+                    .flatMapMergeDelayError(x -> (x % 2 == 0 ? from(x) : Publisher.<Integer>failed(
+                            new DeliberateException())).subscribeOn(executor).publishOn(executor), 8)
+                    .beforeOnNext(received::add).ignoreElements().toFuture().get();
+            fail("Expected the returned Publisher to fail.");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            assertThat("Unexpected exception.", cause, instanceOf(CompositeException.class));
+            assertThat("Unexpected exception.", cause.getCause(), instanceOf(DeliberateException.class));
+            assertThat("Unexpected exception.", cause.getSuppressed().length, equalTo(49));
+        }
+        assertThat("Unexpected items received", received, hasSize(50));
+    }
+
+    @Test
+    public void syncPublishers() {
+        toSource(from(1, 2, 3).flatMapMerge(x -> from(x, x * 10), 2)).subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+        assertThat(subscriber.takeItems(), contains(1, 10, 2, 20, 3, 30));
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void nullItems() {
+        toSource(from(1).flatMapMerge(x -> from((Integer) null), 2)).subscribe(subscriber);
+        subscriber.request(1);
+        assertThat(subscriber.takeItems(), contains(nullValue()));
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void sourceRequestedUpToMaxConcurrency() {
+        subscribeWithTestPublishers(2);
+        subscriber.request(10);
+        assertThat(subscription.requested(), is(2L));
+
+        sourceOnNext(1, 2);
+        mapped.get(0).onComplete();
+        assertThat(subscription.requested(), is(3L));
+    }
+
+    @Test
+    public void publishersAreRequestedIndependently() {
+        subscribeWithTestPublishers(2);
+        subscriber.request(1);
+        sourceOnNext(1, 2);
+        assertThat(mappedSubscriptions.get(0).requested(), is(16L));
+        assertThat(mappedSubscriptions.get(1).requested(), is(16L));
+    }
+
+    @Test
+    public void publisherWhichNeverEmitsDoesNotStarveOthers() {
+        toSource(from(1, 2).flatMapMerge(x -> x == 1 ? Publisher.<Integer>never() : from(x), 2))
+                .subscribe(subscriber);
+        subscriber.request(1);
+        assertThat(subscriber.takeItems(), contains(2));
+        assertThat(subscriber.isTerminated(), is(false));
+    }
+
+    @Test
+    public void itemsBeyondDemandAreQueued() {
+        subscribeWithTestPublishers(2);
+        subscriber.request(1);
+        sourceOnNext(1, 2);
+        mapped.get(0).onNext(1, 2);
+        mapped.get(1).onNext(3);
+        assertThat(subscriber.takeItems(), contains(1));
+
+        subscriber.request(2);
+        assertThat(subscriber.takeItems(), contains(2, 3));
+    }
+
+    @Test
+    public void publisherIsReplacedOnceItsQueuedItemsAreDelivered() {
+        subscribeWithTestPublishers(1);
+        subscriber.request(1);
+        assertThat(subscription.requested(), is(1L));
+        sourceOnNext(1);
+        mapped.get(0).onNext(1, 2);
+        mapped.get(0).onComplete();
+        assertThat(subscriber.takeItems(), contains(1));
+        assertThat(subscription.requested(), is(1L));
+
+        subscriber.request(1);
+        assertThat(subscriber.takeItems(), contains(2));
+        assertThat(subscription.requested(), is(2L));
+    }
+
+    @Test
+    public void deliveredItemsAreRequestedAgain() {
+        subscribeWithTestPublishers(1);
+        subscriber.request(Long.MAX_VALUE - 1);
+        sourceOnNext(1);
+        assertThat(mappedSubscriptions.get(0).requested(), is(16L));
+        for (int i = 0; i < 8; i++) {
+            mapped.get(0).onNext(i);
+        }
+        assertThat(subscriber.takeItems(), hasSize(8));
+        assertThat(mappedSubscriptions.get(0).requested(), is(24L));
+    }
+
+    @Test
+    public void errorCancelsOtherPublishers() {
+        subscribeWithTestPublishers(2);
+        subscriber.request(2);
+        sourceOnNext(1, 2);
+        mapped.get(0).onError(DELIBERATE_EXCEPTION);
+        assertThat(subscriber.takeError(), is(sameInstance(DELIBERATE_EXCEPTION)));
+        assertThat(mappedSubscriptions.get(1).isCancelled(), is(true));
+        assertThat(subscription.isCancelled(), is(true));
+    }
+
+    @Test
+    public void delayErrorWaitsForOtherPublishers() {
+        toSource(source.flatMapMergeDelayError(this::newMappedPublisher, 2)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+        subscriber.request(2);
+        sourceOnNext(1, 2);
+        mapped.get(0).onError(DELIBERATE_EXCEPTION);
+        assertThat(subscriber.isTerminated(), is(false));
+        mapped.get(1).onNext(2);
+        mapped.get(1).onComplete();
+        source.onComplete();
+        assertThat(subscriber.takeItems(), contains(2));
+        assertThat(subscriber.takeError(), instanceOf(CompositeException.class));
+    }
+
+    @Test
+    public void cancelCancelsPublishers() {
+        subscribeWithTestPublishers(2);
+        subscriber.request(2);
+        sourceOnNext(1, 2);
+        subscriber.cancel();
+        assertThat(mappedSubscriptions.get(0).isCancelled(), is(true));
+        assertThat(mappedSubscriptions.get(1).isCancelled(), is(true));
+        assertThat(subscription.isCancelled(), is(true));
+        assertThat(subscriber.takeItems(), is(empty()));
+    }
+
+    private void subscribeWithTestPublishers(final int maxConcurrency) {
+        toSource(source.flatMapMerge(this::newMappedPublisher, maxConcurrency)).subscribe(subscriber);
+        source.onSubscribe(subscription);
+    }
+
+    private Publisher<Integer> newMappedPublisher(final Integer ignored) {
+        final TestPublisher<Integer> publisher = new TestPublisher<>();
+        mapped.add(publisher);
+        return publisher;
+    }
+
+    private void sourceOnNext(final Integer... items) {
+        source.onNext(items);
+        for (int i = mappedSubscriptions.size(); i < mapped.size(); i++) {
+            final TestSubscription mappedSubscription = new TestSubscription();
+            mappedSubscriptions.add(mappedSubscription);
+            mapped.get(i).onSubscribe(mappedSubscription);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.lang.reflect.Method;
+
+import static io.servicetalk.concurrent.api.Executors.isVirtualThreadExecutorSupported;
+import static io.servicetalk.concurrent.api.Executors.newVirtualThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadExecutorTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    @Test
+    public void tasksRunOnVirtualThreads() throws Exception {
+        assumeTrue("Virtual threads are not supported", isVirtualThreadExecutorSupported());
+        final Method isVirtual = Thread.class.getMethod("isVirtual");
+        final Executor executor = newVirtualThreadExecutor("test-virtual");
+        try {
+            Thread thread = executor.submit(Thread::currentThread).toFuture().get();
+            assertThat(isVirtual.invoke(thread), is(true));
+            assertThat(thread.getName(), startsWith("test-virtual-"));
+            thread = executor.timer(1, MILLISECONDS)
+                    .toSingle().map(__ -> Thread.currentThread()).toFuture().get();
+            assertThat("Timer not offloaded to a virtual thread.", isVirtual.invoke(thread), is(true));
+        } finally {
+            executor.closeAsync().toFuture().get();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupportedJvm() {
+        assumeFalse("Virtual threads are supported", isVirtualThreadExecutorSupported());
+        newVirtualThreadExecutor();
+    }
+}
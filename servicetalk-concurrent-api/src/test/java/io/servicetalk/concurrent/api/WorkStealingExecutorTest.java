@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.servicetalk.concurrent.api.Executors.newWorkStealingExecutor;
+import static io.servicetalk.concurrent.api.WorkStealingExecutor.RejectionPolicy.ABORT;
+import static io.servicetalk.concurrent.api.WorkStealingExecutor.RejectionPolicy.CALLER_RUNS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.fail;
+
+public class WorkStealingExecutorTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+    private WorkStealingExecutor executor = newWorkStealingExecutor(1, 2, ABORT, "test-work-stealing");
+
+    @After
+    public void tearDown() throws Exception {
+        unblock.countDown();
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Test
+    public void threadName() throws Exception {
+        assertThat(executor.submit(() -> Thread.currentThread().getName()).toFuture().get(),
+                startsWith("test-work-stealing-"));
+    }
+
+    @Test
+    public void queuedTasksAreBounded() throws Exception {
+        blockWorker().await();
+        CountDownLatch queuedDone = new CountDownLatch(2);
+        executor.execute(queuedDone::countDown);
+        executor.execute(queuedDone::countDown);
+        assertThat(executor.queuedTasks(), is(2));
+        try {
+            executor.execute(() -> { });
+            fail("Expected task to be rejected.");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        assertThat(executor.rejectedTasks(), is(1L));
+        unblock.countDown();
+        queuedDone.await();
+        assertThat(executor.queuedTasks(), is(0));
+        assertThat(executor.startedTasks(), is(3L));
+        assertThat(executor.totalTaskLatencyNanos(), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    public void callerRuns() throws Exception {
+        executor.closeAsync().toFuture().get();
+        executor = newWorkStealingExecutor(1, 1, CALLER_RUNS, "test-work-stealing");
+        blockWorker().await();
+        executor.execute(() -> { });
+        AtomicReference<Thread> runner = new AtomicReference<>();
+        executor.execute(() -> runner.set(Thread.currentThread()));
+        assertThat(runner.get(), is(Thread.currentThread()));
+        assertThat(executor.rejectedTasks(), is(1L));
+    }
+
+    @Test
+    public void cancelQueuedTaskReleasesQueueSlot() throws Exception {
+        blockWorker().await();
+        AtomicBoolean executed = new AtomicBoolean();
+        Cancellable cancellable = executor.execute(() -> executed.set(true));
+        assertThat(executor.queuedTasks(), is(1));
+        cancellable.cancel();
+        assertThat(executor.queuedTasks(), is(0));
+        unblock.countDown();
+        executor.submit(() -> { }).toFuture().get();
+        assertThat("Cancelled task executed.", executed.get(), is(false));
+    }
+
+    @Test
+    public void interruptStatusDoesNotLeakToNextTask() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Cancellable cancellable = executor.execute(() -> {
+            started.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        cancellable.cancel();
+        assertThat(executor.submit(() -> Thread.currentThread().isInterrupted()).toFuture().get(), is(false));
+    }
+
+    @Test
+    public void rejectAfterClose() throws Exception {
+        executor.closeAsync().toFuture().get();
+        try {
+            executor.execute(() -> { });
+            fail("Expected task to be rejected.");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        assertThat(executor.queuedTasks(), is(0));
+        assertThat(executor.rejectedTasks(), is(1L));
+    }
+
+    @Test
+    public void workIsStolen() throws Exception {
+        executor.closeAsync().toFuture().get();
+        executor = newWorkStealingExecutor(2);
+        // Tasks forked from a worker thread go to its local queue, the other worker has to steal them.
+        CountDownLatch done = new CountDownLatch(2);
+        executor.execute(() -> {
+            executor.execute(() -> {
+                try {
+                    unblock.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+            executor.execute(() -> {
+                unblock.countDown();
+                done.countDown();
+            });
+        });
+        done.await();
+        assertThat(executor.stealCount(), greaterThanOrEqualTo(1L));
+    }
+
+    private CountDownLatch blockWorker() {
+        CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return started;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.concurrent.api.publisher;
+
+import io.servicetalk.concurrent.api.BufferStrategy;
+import io.servicetalk.concurrent.api.BufferStrategy.Accumulator;
+import io.servicetalk.concurrent.api.ExecutorRule;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestPublisherSubscriber;
+import io.servicetalk.concurrent.api.TestSubscription;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.BufferStrategies.forCountOrTime;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.concurrent.internal.TerminalNotification.complete;
+import static java.time.Duration.ofMillis;
+import static java.time.Duration.ofSeconds;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PublisherBufferTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+    @Rule
+    public final ExecutorRule<TestExecutor> executorRule = ExecutorRule.withTestExecutor();
+
+    private final TestPublisher<Integer> publisher = new TestPublisher<>();
+    private final TestSubscription subscription = new TestSubscription();
+    private TestExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = executorRule.executor();
+    }
+
+    @Test
+    public void emitsWhenSizeReached() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        subscriber.request(2);
+        assertThat(subscription.requested(), is(3L));
+        publisher.onNext(1, 2, 3);
+        assertThat(subscriber.takeItems(), contains(asList(1, 2, 3)));
+        assertThat(subscription.requested(), is(6L));
+        publisher.onNext(4, 5, 6);
+        assertThat(subscriber.takeItems(), contains(asList(4, 5, 6)));
+        assertThat("Unexpected demand without buffer demand.", subscription.requested(), is(6L));
+        assertThat("Timer not cancelled.", executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    public void emitsWhenTimerFires() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        subscriber.request(2);
+        assertThat("Timer started without items.", executor.scheduledTasksPending(), is(0));
+        publisher.onNext(1, 2);
+        executor.advanceTimeBy(999, MILLISECONDS);
+        assertThat(subscriber.takeItems(), is(empty()));
+        executor.advanceTimeBy(1, MILLISECONDS);
+        assertThat(subscriber.takeItems(), contains(asList(1, 2)));
+        assertThat(subscription.requested(), is(5L));
+        publisher.onNext(3, 4, 5);
+        assertThat(subscriber.takeItems(), contains(asList(3, 4, 5)));
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    public void timerStartsWithFirstItemOfBuffer() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        subscriber.request(2);
+        executor.advanceTimeBy(5, MILLISECONDS);
+        publisher.onNext(1);
+        executor.advanceTimeBy(995, MILLISECONDS);
+        assertThat(subscriber.takeItems(), is(empty()));
+        executor.advanceTimeBy(5, MILLISECONDS);
+        assertThat(subscriber.takeItems(), contains(singletonList(1)));
+    }
+
+    @Test
+    public void timerExpirationWaitsForDemand() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofMillis(10), executor));
+        subscriber.request(1);
+        publisher.onNext(1);
+        executor.advanceTimeBy(10, MILLISECONDS);
+        assertThat(subscriber.takeItems(), contains(singletonList(1)));
+        publisher.onNext(2);
+        executor.advanceTimeBy(10, MILLISECONDS);
+        assertThat(subscriber.takeItems(), is(empty()));
+        subscriber.request(1);
+        assertThat(subscriber.takeItems(), contains(singletonList(2)));
+        assertThat("Unexpected demand without buffer demand.", subscription.requested(), is(3L));
+        subscriber.request(1);
+        assertThat(subscription.requested(), is(5L));
+    }
+
+    @Test
+    public void completeEmitsPartialBuffer() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        subscriber.request(1);
+        publisher.onNext(1, 2);
+        publisher.onComplete();
+        assertThat(subscriber.takeItems(), contains(asList(1, 2)));
+        assertThat(subscriber.takeTerminal(), is(complete()));
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    public void completeWaitsForDemand() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofMillis(10), executor));
+        subscriber.request(1);
+        publisher.onNext(1);
+        executor.advanceTimeBy(10, MILLISECONDS);
+        assertThat(subscriber.takeItems(), contains(singletonList(1)));
+        publisher.onNext(2);
+        publisher.onComplete();
+        assertThat(subscriber.takeTerminal(), nullValue());
+        subscriber.request(1);
+        assertThat(subscriber.takeItems(), contains(singletonList(2)));
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void completeWithoutItemsDoesNotEmitEmptyBuffer() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        publisher.onComplete();
+        assertThat(subscriber.takeItems(), is(empty()));
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void errorDiscardsPartialBuffer() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        subscriber.request(1);
+        publisher.onNext(1, 2);
+        publisher.onError(DELIBERATE_EXCEPTION);
+        assertThat(subscriber.takeItems(), is(empty()));
+        assertThat(subscriber.takeError(), sameInstance(DELIBERATE_EXCEPTION));
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test
+    public void nullItems() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(2, ofSeconds(1), executor));
+        subscriber.request(1);
+        publisher.onNext(null, null);
+        assertThat(subscriber.takeItems(), is(singletonList(asList(null, null))));
+    }
+
+    @Test
+    public void customAccumulator() {
+        TestPublisherSubscriber<Integer> subscriber = new TestPublisherSubscriber<>();
+        toSource(publisher.buffer(forCountOrTime(2, ofSeconds(1), executor, SumAccumulator::new)))
+                .subscribe(subscriber);
+        publisher.onSubscribe(subscription);
+        subscriber.request(2);
+        publisher.onNext(1, 2, 3);
+        publisher.onComplete();
+        assertThat(subscriber.takeItems(), contains(3, 3));
+        assertThat(subscriber.takeTerminal(), is(complete()));
+    }
+
+    @Test
+    public void accumulatorThrows() {
+        TestPublisherSubscriber<Integer> subscriber = new TestPublisherSubscriber<>();
+        toSource(publisher.buffer(forCountOrTime(2, ofSeconds(1), executor, () -> new SumAccumulator() {
+            @Override
+            public void accumulate(@Nullable final Integer item) {
+                throw DELIBERATE_EXCEPTION;
+            }
+        }))).subscribe(subscriber);
+        publisher.onSubscribe(subscription);
+        subscriber.request(1);
+        publisher.onNext(1);
+        assertThat(subscriber.takeError(), sameInstance(DELIBERATE_EXCEPTION));
+        assertTrue(subscription.isCancelled());
+    }
+
+    @Test
+    public void cancelStopsTimer() {
+        TestPublisherSubscriber<List<Integer>> subscriber = subscribe(forCountOrTime(3, ofSeconds(1), executor));
+        subscriber.request(1);
+        publisher.onNext(1);
+        assertThat(executor.scheduledTasksPending(), is(1));
+        subscriber.cancel();
+        assertTrue(subscription.isCancelled());
+        assertThat(executor.scheduledTasksPending(), is(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCount() {
+        forCountOrTime(0, ofSeconds(1), executor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidDuration() {
+        forCountOrTime(1, ofSeconds(0), executor);
+    }
+
+    private TestPublisherSubscriber<List<Integer>> subscribe(BufferStrategy<Integer, List<Integer>> strategy) {
+        TestPublisherSubscriber<List<Integer>> subscriber = new TestPublisherSubscriber<>();
+        toSource(publisher.buffer(strategy)).subscribe(subscriber);
+        publisher.onSubscribe(subscription);
+        return subscriber;
+    }
+
+    private static class SumAccumulator implements Accumulator<Integer, Integer> {
+        private int sum;
+
+        @Override
+        public void accumulate(@Nullable final Integer item) {
+            if (item != null) {
+                sum += item;
+            }
+        }
+
+        @Override
+        public Integer finish() {
+            return sum;
+        }
+    }
+}
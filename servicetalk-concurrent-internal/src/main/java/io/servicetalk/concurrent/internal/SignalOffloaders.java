@@ -16,6 +16,7 @@
 package io.servicetalk.concurrent.internal;
 
 import io.servicetalk.concurrent.Executor;
+import io.servicetalk.concurrent.PublisherSource;
 
 /**
  * A factory for creating different {@link SignalOffloader}s.
@@ -79,6 +80,31 @@ public final class SignalOffloaders {
         return TASK_BASED_OFFLOADER_FACTORY;
     }
 
+    /**
+     * Return a {@link SignalOffloaderFactory} that uses granular tasks for sending signals and yields the thread after
+     * delivering {@code maxSignalsPerRun} signals to a {@link PublisherSource.Subscriber} from a single task.
+     *
+     * @param maxSignalsPerRun Maximum number of signals delivered to a {@link PublisherSource.Subscriber} by a single
+     * task before the task yields the thread by re-submitting itself to the {@link Executor}.
+     * @return A {@link SignalOffloaderFactory} that uses granular tasks for sending signals.
+     */
+    public static SignalOffloaderFactory taskBasedOffloaderFactory(final int maxSignalsPerRun) {
+        if (maxSignalsPerRun <= 0) {
+            throw new IllegalArgumentException("maxSignalsPerRun: " + maxSignalsPerRun + " (expected > 0)");
+        }
+        return new SignalOffloaderFactory() {
+            @Override
+            public SignalOffloader newSignalOffloader(final Executor executor) {
+                return newTaskBasedOffloader(executor, maxSignalsPerRun);
+            }
+
+            @Override
+            public boolean hasThreadAffinity() {
+                return false;
+            }
+        };
+    }
+
     /**
      * Create a new instance of {@link SignalOffloader} using the passed {@code executor}.
      *
@@ -102,6 +128,24 @@ public final class SignalOffloaders {
         return new TaskBasedSignalOffloader(executor);
     }
 
+    /**
+     * Create a new instance of {@link SignalOffloader} using the passed {@code executor} that uses granular tasks for
+     * sending signals and yields the thread after delivering {@code maxSignalsPerRun} signals to a
+     * {@link PublisherSource.Subscriber} from a single task.
+     * <p>
+     * Yielding lets other tasks of a busy {@link Executor} make progress while a {@link PublisherSource.Subscriber}
+     * receives a large number of signals, at the cost of an additional task submission every
+     * {@code maxSignalsPerRun} signals.
+     *
+     * @param executor {@link Executor} to be used by the returned {@link SignalOffloader} to offload signals.
+     * @param maxSignalsPerRun Maximum number of signals delivered to a {@link PublisherSource.Subscriber} by a single
+     * task before the task yields the thread by re-submitting itself to the {@link Executor}.
+     * @return Newly created {@link SignalOffloader}.
+     */
+    public static SignalOffloader newTaskBasedOffloader(final Executor executor, final int maxSignalsPerRun) {
+        return new TaskBasedSignalOffloader(executor, 2, maxSignalsPerRun);
+    }
+
     /**
      * Create a new instance of {@link SignalOffloader} using the passed {@code executor} that captures a thread for
      * its lifetime.
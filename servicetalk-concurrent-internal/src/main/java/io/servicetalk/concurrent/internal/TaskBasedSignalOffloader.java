@@ -51,6 +51,7 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
 
     private final Executor executor;
     private final int publisherSignalQueueInitialCapacity;
+    private final int maxSignalsPerRun;
 
     TaskBasedSignalOffloader(final Executor executor) {
         this(executor, 2);
@@ -63,13 +64,30 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
      * @param publisherSignalQueueInitialCapacity Initial capacity for the queue of signals to a {@link Subscriber}.
      */
     TaskBasedSignalOffloader(final Executor executor, final int publisherSignalQueueInitialCapacity) {
+        this(executor, publisherSignalQueueInitialCapacity, Integer.MAX_VALUE);
+    }
+
+    /**
+     * New instance.
+     *
+     * @param executor A {@link Executor} to use for offloading signals.
+     * @param publisherSignalQueueInitialCapacity Initial capacity for the queue of signals to a {@link Subscriber}.
+     * @param maxSignalsPerRun Maximum number of signals delivered to a {@link Subscriber} by a single task before the
+     * task yields the thread by re-submitting itself to the {@link Executor}.
+     */
+    TaskBasedSignalOffloader(final Executor executor, final int publisherSignalQueueInitialCapacity,
+                             final int maxSignalsPerRun) {
+        if (maxSignalsPerRun <= 0) {
+            throw new IllegalArgumentException("maxSignalsPerRun: " + maxSignalsPerRun + " (expected > 0)");
+        }
         this.executor = requireNonNull(executor);
         this.publisherSignalQueueInitialCapacity = publisherSignalQueueInitialCapacity;
+        this.maxSignalsPerRun = maxSignalsPerRun;
     }
 
     @Override
     public <T> Subscriber<? super T> offloadSubscriber(final Subscriber<? super T> subscriber) {
-        return new OffloadedSubscriber<>(subscriber, executor, publisherSignalQueueInitialCapacity);
+        return new OffloadedSubscriber<>(subscriber, executor, publisherSignalQueueInitialCapacity, maxSignalsPerRun);
     }
 
     @Override
@@ -165,12 +183,16 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
 
         @Override
         public void request(final long n) {
-            if ((!isRequestNValid(n) &&
-                    requestedUpdater.getAndSet(this, n < TERMINATED ? n : Long.MIN_VALUE) >= 0) ||
-                    requestedUpdater.accumulateAndGet(this, n,
-                            FlowControlUtils::addWithOverflowProtectionIfNotNegative) > 0) {
+            if (!isRequestNValid(n)) {
+                if (requestedUpdater.getAndSet(this, n < TERMINATED ? n : Long.MIN_VALUE) >= 0) {
+                    enqueueTaskIfRequired(true);
+                }
+            } else if (requestedUpdater.getAndAccumulate(this, n,
+                    FlowControlUtils::addWithOverflowProtectionIfNotNegative) == 0) {
                 enqueueTaskIfRequired(true);
             }
+            // If demand was already pending, the request(n) which made it pending has enqueued, or is about to
+            // enqueue, the task which will deliver the coalesced demand. So we skip the state change and the task.
         }
 
         @Override
@@ -183,8 +205,8 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         }
 
         private void enqueueTaskIfRequired(boolean forRequestN) {
-            final int oldState = stateUpdater.getAndSet(this, STATE_ENQUEUED);
-            if (oldState == STATE_IDLE) {
+            // The task will re-read requested after transitioning from STATE_ENQUEUED, avoid contending on state.
+            if (state != STATE_ENQUEUED && stateUpdater.getAndSet(this, STATE_ENQUEUED) == STATE_IDLE) {
                 try {
                     executor.execute(this);
                 } catch (Throwable t) {
@@ -290,6 +312,7 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         private final Subscriber<? super T> target;
         private final Executor executor;
         private final Queue<Object> signals;
+        private final int maxSignalsPerRun;
         // Set in onSubscribe before we enqueue the task which provides memory visibility inside the task.
         // Since any further action happens after onSubscribe, we always guarantee visibility of this field inside
         // run()
@@ -297,9 +320,10 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         private Subscription subscription;
 
         OffloadedSubscriber(final Subscriber<? super T> target, final Executor executor,
-                                    final int publisherSignalQueueInitialCapacity) {
+                            final int publisherSignalQueueInitialCapacity, final int maxSignalsPerRun) {
             this.target = target;
             this.executor = executor;
+            this.maxSignalsPerRun = maxSignalsPerRun;
             // Queue is bounded by request-n
             signals = newUnboundedSpscQueue(publisherSignalQueueInitialCapacity);
         }
@@ -328,6 +352,7 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
         @Override
         public void run() {
             state = STATE_EXECUTING;
+            int signalsDelivered = 0;
             for (;;) {
                 Object signal;
                 while ((signal = signals.poll()) != null) {
@@ -373,6 +398,12 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
                             return; // We can't interact with the queue any more because we terminated, so bail.
                         }
                     }
+                    if (++signalsDelivered == maxSignalsPerRun) {
+                        signalsDelivered = 0;
+                        if (!signals.isEmpty() && yieldToExecutor()) {
+                            return;
+                        }
+                    }
                 }
                 for (;;) {
                     final int cState = state;
@@ -391,6 +422,27 @@ final class TaskBasedSignalOffloader implements SignalOffloader {
             }
         }
 
+        /**
+         * Re-submits this task to the {@link Executor} so that other tasks get a fair share of the thread.
+         *
+         * @return {@code true} if this task has been re-submitted and must return, {@code false} if it must continue
+         * to deliver signals on the current thread.
+         */
+        private boolean yieldToExecutor() {
+            // While executing, the state can only be changed from STATE_EXECUTING to STATE_ENQUEUED by producers, which
+            // do not submit a task for STATE_ENQUEUED. So the re-submitted task is the only one delivering signals.
+            state = STATE_ENQUEUED;
+            try {
+                executor.execute(this);
+                return true;
+            } catch (Throwable t) {
+                // The state remains STATE_ENQUEUED which makes the loop in run() re-check the queue before going idle.
+                LOGGER.debug("Failed to re-submit task to the executor {}, continuing to deliver signals in the " +
+                        "current thread. Subscriber {}.", executor, target, t);
+                return false;
+            }
+        }
+
         private void clearSignalsFromExecutorThread() {
             do {
                 state = STATE_TERMINATING;
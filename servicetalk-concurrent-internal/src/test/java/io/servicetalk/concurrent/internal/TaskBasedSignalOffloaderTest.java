@@ -35,6 +35,7 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentCaptor.forClass;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -288,6 +289,20 @@ public class TaskBasedSignalOffloaderTest extends AbstractSignalOffloaderTest<Ta
         verifyNoMoreInteractions(executor.mock);
     }
 
+    @Test
+    public void offloadSubscriptionRequestNCoalesced() {
+        Subscription offloaded = offloadSubscription();
+
+        offloaded.request(1);
+        offloaded.request(2);
+        verify(executor.mock).execute(any());
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+        verifyNoMoreInteractions(pubSub);
+        verify(subscription).request(3);
+        verifyNoMoreInteractions(subscription);
+        verifyNoMoreInteractions(executor.mock);
+    }
+
     @Test
     public void offloadSubscriptionCancel() {
         Subscription offloaded = offloadSubscription();
@@ -372,6 +387,46 @@ public class TaskBasedSignalOffloaderTest extends AbstractSignalOffloaderTest<Ta
         sendNonOverlappingSignals(offloader.offloadSubscriber(pubSub), error(DELIBERATE_EXCEPTION));
     }
 
+    @Test
+    public void offloadSubscriberYieldsAfterMaxSignalsPerRun() {
+        Subscriber<? super Integer> offloaded = new TaskBasedSignalOffloader(executor, 2, 2).offloadSubscriber(pubSub);
+        sendSubscriptionAndVerify(offloaded);
+        offloaded.onNext(1);
+        offloaded.onNext(2);
+        offloaded.onNext(3);
+        offloaded.onComplete();
+        verify(executor.mock, times(2)).execute(any());
+
+        executor.tasks.remove().run();
+        verify(pubSub).onNext(1);
+        verify(pubSub).onNext(2);
+        verifyNoMoreInteractions(pubSub);
+        verify(executor.mock, times(3)).execute(any());
+
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+        verify(pubSub).onNext(3);
+        verify(pubSub).onComplete();
+        verifyNoMoreInteractions(pubSub);
+        verifyNoMoreInteractions(executor.mock);
+    }
+
+    @Test
+    public void offloadSubscriberYieldRejectedContinuesDelivery() {
+        Subscriber<? super Integer> offloaded = new TaskBasedSignalOffloader(executor, 2, 1).offloadSubscriber(pubSub);
+        offloaded.onSubscribe(subscription);
+        offloaded.onNext(1);
+        offloaded.onComplete();
+        verify(executor.mock).execute(any());
+        doThrow(DELIBERATE_EXCEPTION).when(executor.mock).execute(any());
+
+        assertThat("Unexpected tasks executed.", executor.executeAllTasks(), is(1));
+        verify(pubSub).onSubscribe(subscription);
+        verify(pubSub).onNext(1);
+        verify(pubSub).onComplete();
+        verifyNoMoreInteractions(pubSub);
+        verifyZeroInteractions(subscription);
+    }
+
     private void sendNonOverlappingSignals(Subscriber<? super Integer> offloaded, Object... signals) {
         sendSubscriptionAndVerify(offloaded);
         for (int i = 0; i < signals.length; i++) {
@@ -25,15 +25,19 @@ import io.servicetalk.http.api.BlockingStreamingHttpResponse;
 import io.servicetalk.http.api.HttpClient;
 import io.servicetalk.http.api.HttpRequest;
 import io.servicetalk.http.api.HttpRequestFactory;
+import io.servicetalk.http.api.HttpRequestMetaData;
 import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.HttpSerializer;
 import io.servicetalk.http.api.StreamingHttpClient;
 import io.servicetalk.http.api.StreamingHttpRequest;
 
 import javax.annotation.Nullable;
 
 import static io.servicetalk.concurrent.internal.BlockingIterables.singletonBlockingIterable;
-import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
-import static io.servicetalk.grpc.api.GrpcUtils.initRequest;
+import static io.servicetalk.grpc.api.GrpcUtils.acceptedEncodings;
+import static io.servicetalk.grpc.api.GrpcUtils.negotiateMessageEncoding;
+import static io.servicetalk.grpc.api.GrpcUtils.readGrpcMessageEncoding;
+import static io.servicetalk.grpc.api.GrpcUtils.setAcceptedEncodings;
 import static io.servicetalk.grpc.api.GrpcUtils.uncheckedCast;
 import static io.servicetalk.grpc.api.GrpcUtils.validateResponseAndGetPayload;
 import static java.util.Objects.requireNonNull;
@@ -41,9 +45,12 @@ import static java.util.Objects.requireNonNull;
 final class DefaultGrpcClientCallFactory implements GrpcClientCallFactory {
     private final StreamingHttpClient streamingHttpClient;
     private final GrpcExecutionContext executionContext;
+    private final GrpcMessageEncodingConfig encodingConfig;
 
-    DefaultGrpcClientCallFactory(final StreamingHttpClient streamingHttpClient) {
+    DefaultGrpcClientCallFactory(final StreamingHttpClient streamingHttpClient,
+                                 final GrpcMessageEncodingConfig encodingConfig) {
         this.streamingHttpClient = requireNonNull(streamingHttpClient);
+        this.encodingConfig = requireNonNull(encodingConfig);
         executionContext = new DefaultGrpcExecutionContext(streamingHttpClient.executionContext());
     }
 
@@ -55,14 +62,15 @@ final class DefaultGrpcClientCallFactory implements GrpcClientCallFactory {
         requireNonNull(requestClass);
         requireNonNull(responseClass);
         HttpClient client = streamingHttpClient.asClient();
+        final RequestEncoding requestEncoding = new RequestEncoding(serializationProvider);
         return (metadata, request) -> {
             final HttpRequest httpRequest = newAggregatedRequest(metadata, request, client,
-                    serializationProvider, requestClass);
+                    serializationProvider, requestEncoding, requestClass);
             @Nullable
             final GrpcExecutionStrategy strategy = metadata.strategy();
             return (strategy == null ? client.request(httpRequest) : client.request(strategy, httpRequest))
                     .map(response -> validateResponseAndGetPayload(response,
-                            serializationProvider.deserializerFor(getMessageEncoding(metadata), responseClass)));
+                            serializationProvider.deserializerFor(readGrpcMessageEncoding(response), responseClass)));
         };
     }
 
@@ -73,17 +81,18 @@ final class DefaultGrpcClientCallFactory implements GrpcClientCallFactory {
         requireNonNull(serializationProvider);
         requireNonNull(requestClass);
         requireNonNull(responseClass);
+        final RequestEncoding requestEncoding = new RequestEncoding(serializationProvider);
         return (metadata, request) -> {
             final StreamingHttpRequest httpRequest = streamingHttpClient.post(metadata.path());
-            initRequest(httpRequest);
+            requestEncoding.initRequest(httpRequest);
             httpRequest.payloadBody(request.map(GrpcUtils::uncheckedCast),
-                    serializationProvider.serializerFor(metadata, requestClass));
+                    requestEncoding.serializerFor(metadata, requestClass));
             @Nullable
             final GrpcExecutionStrategy strategy = metadata.strategy();
             return (strategy == null ? streamingHttpClient.request(httpRequest) :
                     streamingHttpClient.request(strategy, httpRequest))
                     .flatMapPublisher(response -> validateResponseAndGetPayload(response,
-                            serializationProvider.deserializerFor(getMessageEncoding(metadata), responseClass)));
+                            serializationProvider.deserializerFor(readGrpcMessageEncoding(response), responseClass)));
         };
     }
 
@@ -113,15 +122,16 @@ final class DefaultGrpcClientCallFactory implements GrpcClientCallFactory {
         requireNonNull(requestClass);
         requireNonNull(responseClass);
         BlockingHttpClient client = streamingHttpClient.asBlockingClient();
+        final RequestEncoding requestEncoding = new RequestEncoding(serializationProvider);
         return (metadata, request) -> {
             final HttpRequest httpRequest = newAggregatedRequest(metadata, request, client,
-                    serializationProvider, requestClass);
+                    serializationProvider, requestEncoding, requestClass);
             @Nullable
             final GrpcExecutionStrategy strategy = metadata.strategy();
             final HttpResponse response = strategy == null ? client.request(httpRequest) :
                     client.request(strategy, httpRequest);
             return validateResponseAndGetPayload(response,
-                    serializationProvider.deserializerFor(getMessageEncoding(metadata), responseClass));
+                    serializationProvider.deserializerFor(readGrpcMessageEncoding(response), responseClass));
         };
     }
 
@@ -133,16 +143,17 @@ final class DefaultGrpcClientCallFactory implements GrpcClientCallFactory {
         requireNonNull(requestClass);
         requireNonNull(responseClass);
         BlockingStreamingHttpClient client = streamingHttpClient.asBlockingStreamingClient();
+        final RequestEncoding requestEncoding = new RequestEncoding(serializationProvider);
         return (metadata, request) -> {
             final BlockingStreamingHttpRequest httpRequest = client.post(metadata.path());
-            initRequest(httpRequest);
-            httpRequest.payloadBody(request, serializationProvider.serializerFor(metadata, requestClass));
+            requestEncoding.initRequest(httpRequest);
+            httpRequest.payloadBody(request, requestEncoding.serializerFor(metadata, requestClass));
             @Nullable
             final GrpcExecutionStrategy strategy = metadata.strategy();
             final BlockingStreamingHttpResponse response = strategy == null ? client.request(httpRequest) :
                     client.request(strategy, httpRequest);
             return validateResponseAndGetPayload(response.toStreamingResponse(),
-                    serializationProvider.deserializerFor(getMessageEncoding(metadata), responseClass))
+                    serializationProvider.deserializerFor(readGrpcMessageEncoding(response), responseClass))
                     .toIterable();
         };
     }
@@ -193,18 +204,41 @@ final class DefaultGrpcClientCallFactory implements GrpcClientCallFactory {
         return streamingHttpClient.onClose();
     }
 
-    private GrpcMessageEncoding getMessageEncoding(final GrpcClientMetadata metadata) {
-        // compression not yet supported.
-        return None;
+    private static <Req> HttpRequest newAggregatedRequest(final GrpcClientMetadata metadata, final Req rawReq,
+                                                          final HttpRequestFactory requestFactory,
+                                                          final GrpcSerializationProvider serializationProvider,
+                                                          final RequestEncoding requestEncoding,
+                                                          final Class<Req> requestClass) {
+        final HttpRequest httpRequest = requestFactory.post(metadata.path());
+        requestEncoding.initRequest(httpRequest);
+        return httpRequest.payloadBody(uncheckedCast(rawReq), requestEncoding.serializerFor(metadata, requestClass));
     }
 
-    private <Req> HttpRequest newAggregatedRequest(final GrpcClientMetadata metadata, final Req rawReq,
-                                                   final HttpRequestFactory requestFactory,
-                                                   final GrpcSerializationProvider serializationProvider,
-                                                   final Class<Req> requestClass) {
-        final HttpRequest httpRequest = requestFactory.post(metadata.path());
-        initRequest(httpRequest);
-        return httpRequest.payloadBody(uncheckedCast(rawReq),
-                serializationProvider.serializerFor(metadata, requestClass));
+    /**
+     * Message encoding for requests sent using a {@link GrpcSerializationProvider}, computed once per call type.
+     */
+    private final class RequestEncoding {
+        private final GrpcSerializationProvider serializationProvider;
+        private final GrpcMessageEncoding messageEncoding;
+        @Nullable
+        private final CharSequence acceptedEncodings;
+
+        RequestEncoding(final GrpcSerializationProvider serializationProvider) {
+            this.serializationProvider = serializationProvider;
+            // The server has not told us yet what it accepts, so we use our preferred encoding. A server which does
+            // not support it will respond with UNIMPLEMENTED.
+            messageEncoding = negotiateMessageEncoding(encodingConfig, serializationProvider, null);
+            acceptedEncodings = acceptedEncodings(encodingConfig, serializationProvider);
+        }
+
+        void initRequest(final HttpRequestMetaData request) {
+            GrpcUtils.initRequest(request);
+            setAcceptedEncodings(request.headers(), acceptedEncodings);
+        }
+
+        <Req> HttpSerializer<Req> serializerFor(final GrpcClientMetadata metadata, final Class<Req> requestClass) {
+            return GrpcUtils.serializerFor(serializationProvider, metadata, messageEncoding, encodingConfig,
+                    requestClass);
+        }
     }
 }
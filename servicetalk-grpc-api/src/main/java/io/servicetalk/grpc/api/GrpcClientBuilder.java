@@ -60,6 +60,18 @@ public abstract class GrpcClientBuilder<U, R>
     @Override
     public abstract GrpcClientBuilder<U, R> executionStrategy(GrpcExecutionStrategy strategy);
 
+    /**
+     * Sets the {@link GrpcMessageEncodingConfig} used to compress request messages. Requests are compressed using the
+     * first configured {@link GrpcMessageEncoding} and all configured encodings are advertised to the server in the
+     * {@code grpc-accept-encoding} header. Response messages are always decompressed if their encoding is supported.
+     * <p>
+     * Defaults to {@link GrpcMessageEncodingConfig#identity()}, which does not compress requests.
+     *
+     * @param encodingConfig {@link GrpcMessageEncodingConfig} to use.
+     * @return {@code this}.
+     */
+    public abstract GrpcClientBuilder<U, R> messageEncoding(GrpcMessageEncodingConfig encodingConfig);
+
     @Override
     public abstract <T> GrpcClientBuilder<U, R> socketOption(SocketOption<T> option, T value);
 
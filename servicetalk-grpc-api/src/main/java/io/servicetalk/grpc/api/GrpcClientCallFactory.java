@@ -156,7 +156,20 @@ public interface GrpcClientCallFactory extends ListenableAsyncCloseable {
      * @return A new {@link GrpcClientCallFactory}.
      */
     static GrpcClientCallFactory from(StreamingHttpClient httpClient) {
-        return new DefaultGrpcClientCallFactory(httpClient);
+        return from(httpClient, GrpcMessageEncodingConfig.identity());
+    }
+
+    /**
+     * Creates a new {@link GrpcClientCallFactory} using the passed {@link StreamingHttpClient}.
+     *
+     * @param httpClient {@link StreamingHttpClient} to use. The returned {@link GrpcClientCallFactory} will own the
+     * lifecycle of this {@link StreamingHttpClient}.
+     * @param encodingConfig {@link GrpcMessageEncodingConfig} to use for compressing request messages and to advertise
+     * the encodings accepted for response messages.
+     * @return A new {@link GrpcClientCallFactory}.
+     */
+    static GrpcClientCallFactory from(StreamingHttpClient httpClient, GrpcMessageEncodingConfig encodingConfig) {
+        return new DefaultGrpcClientCallFactory(httpClient, encodingConfig);
     }
 
     /**
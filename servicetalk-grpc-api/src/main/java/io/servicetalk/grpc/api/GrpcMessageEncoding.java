@@ -15,13 +15,19 @@
  */
 package io.servicetalk.grpc.api;
 
+import javax.annotation.Nullable;
+
+import static io.servicetalk.http.api.CharSequences.contentEqualsIgnoreCase;
+
 /**
  * Supported <a href="https://github.com/grpc/grpc/blob/master/doc/PROTOCOL-HTTP2.md#message-encoding">
  *     gRPC message encoding schemes</a>.
  */
 public enum GrpcMessageEncoding {
 
-    None("identity");
+    None("identity"),
+    Gzip("gzip"),
+    Deflate("deflate");
 
     private final String encoding;
 
@@ -37,4 +43,22 @@ public enum GrpcMessageEncoding {
     public String encoding() {
         return encoding;
     }
+
+    /**
+     * Returns the {@link GrpcMessageEncoding} for the passed string representation, as received in the
+     * {@code grpc-encoding} header.
+     *
+     * @param encoding string representation of the message encoding.
+     * @return {@link GrpcMessageEncoding} for the passed {@code encoding} or {@code null} if the encoding is not
+     * supported.
+     */
+    @Nullable
+    public static GrpcMessageEncoding fromEncoding(final CharSequence encoding) {
+        for (GrpcMessageEncoding messageEncoding : values()) {
+            if (contentEqualsIgnoreCase(messageEncoding.encoding, encoding)) {
+                return messageEncoding;
+            }
+        }
+        return null;
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.grpc.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Configuration for <a href="https://github.com/grpc/grpc/blob/master/doc/compression.md">gRPC message compression</a>.
+ * <p>
+ * The configured {@link GrpcMessageEncoding}s are ordered by preference. A client uses the first encoding to compress
+ * request messages and advertises all of them in the {@code grpc-accept-encoding} header. A server compresses response
+ * messages using the first encoding which is also accepted by the client.
+ */
+public final class GrpcMessageEncodingConfig {
+
+    private static final GrpcMessageEncodingConfig IDENTITY = new GrpcMessageEncodingConfig(singletonList(None), 0);
+
+    private final List<GrpcMessageEncoding> encodings;
+    private final int minCompressionSize;
+
+    private GrpcMessageEncodingConfig(final List<GrpcMessageEncoding> encodings, final int minCompressionSize) {
+        this.encodings = encodings;
+        this.minCompressionSize = minCompressionSize;
+    }
+
+    /**
+     * Returns a {@link GrpcMessageEncodingConfig} which does not compress any message.
+     *
+     * @return a {@link GrpcMessageEncodingConfig} which does not compress any message.
+     */
+    public static GrpcMessageEncodingConfig identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * Creates a new {@link GrpcMessageEncodingConfig}.
+     *
+     * @param minCompressionSize minimum serialized size of a message, in bytes, for it to be compressed. Messages
+     * smaller than this size are sent uncompressed.
+     * @param encodings {@link GrpcMessageEncoding}s in the order of preference. {@link GrpcMessageEncoding#None} is
+     * always implicitly supported.
+     * @return a new {@link GrpcMessageEncodingConfig}.
+     */
+    public static GrpcMessageEncodingConfig of(final int minCompressionSize, final GrpcMessageEncoding... encodings) {
+        if (minCompressionSize < 0) {
+            throw new IllegalArgumentException("minCompressionSize: " + minCompressionSize + " (expected >= 0)");
+        }
+        final List<GrpcMessageEncoding> list = new ArrayList<>(encodings.length + 1);
+        for (GrpcMessageEncoding encoding : encodings) {
+            if (!list.contains(encoding)) {
+                list.add(encoding);
+            }
+        }
+        if (!list.contains(None)) {
+            list.add(None);
+        }
+        return new GrpcMessageEncodingConfig(unmodifiableList(list), minCompressionSize);
+    }
+
+    /**
+     * Returns the {@link GrpcMessageEncoding}s in the order of preference.
+     *
+     * @return the {@link GrpcMessageEncoding}s in the order of preference.
+     */
+    public List<GrpcMessageEncoding> encodings() {
+        return encodings;
+    }
+
+    /**
+     * Returns the minimum serialized size of a message, in bytes, for it to be compressed.
+     *
+     * @return the minimum serialized size of a message, in bytes, for it to be compressed.
+     */
+    public int minCompressionSize() {
+        return minCompressionSize;
+    }
+
+    /**
+     * Returns the preferred {@link GrpcMessageEncoding}.
+     *
+     * @return the preferred {@link GrpcMessageEncoding}.
+     */
+    GrpcMessageEncoding preferredEncoding() {
+        return encodings.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{encodings=" + encodings +
+                ", minCompressionSize=" + minCompressionSize +
+                '}';
+    }
+}
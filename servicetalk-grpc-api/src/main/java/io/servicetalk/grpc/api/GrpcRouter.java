@@ -56,7 +56,7 @@ import io.servicetalk.transport.api.ServerContext;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
@@ -68,9 +68,11 @@ import static io.servicetalk.grpc.api.GrpcRouteConversions.toRoute;
 import static io.servicetalk.grpc.api.GrpcRouteConversions.toStreaming;
 import static io.servicetalk.grpc.api.GrpcStatus.fromCodeValue;
 import static io.servicetalk.grpc.api.GrpcStatusCode.UNIMPLEMENTED;
+import static io.servicetalk.grpc.api.GrpcUtils.negotiateMessageEncoding;
 import static io.servicetalk.grpc.api.GrpcUtils.newErrorResponse;
 import static io.servicetalk.grpc.api.GrpcUtils.newResponse;
 import static io.servicetalk.grpc.api.GrpcUtils.readGrpcMessageEncoding;
+import static io.servicetalk.grpc.api.GrpcUtils.serializerFor;
 import static io.servicetalk.grpc.api.GrpcUtils.setStatus;
 import static io.servicetalk.grpc.api.GrpcUtils.setStatusOk;
 import static io.servicetalk.http.api.HttpApiConversions.toStreamingHttpService;
@@ -109,13 +111,14 @@ final class GrpcRouter {
         this.blockingStreamingRoutes = unmodifiableMap(blockingStreamingRoutes);
     }
 
-    Single<ServerContext> bind(final ServerBinder binder, final ExecutionContext executionContext) {
+    Single<ServerContext> bind(final ServerBinder binder, final ExecutionContext executionContext,
+                               final GrpcMessageEncodingConfig encodingConfig) {
         final CompositeCloseable closeable = AsyncCloseables.newCompositeCloseable();
         final Map<String, StreamingHttpService> allRoutes = new HashMap<>();
-        populateRoutes(executionContext, allRoutes, routes, closeable);
-        populateRoutes(executionContext, allRoutes, streamingRoutes, closeable);
-        populateRoutes(executionContext, allRoutes, blockingRoutes, closeable);
-        populateRoutes(executionContext, allRoutes, blockingStreamingRoutes, closeable);
+        populateRoutes(executionContext, encodingConfig, allRoutes, routes, closeable);
+        populateRoutes(executionContext, encodingConfig, allRoutes, streamingRoutes, closeable);
+        populateRoutes(executionContext, encodingConfig, allRoutes, blockingRoutes, closeable);
+        populateRoutes(executionContext, encodingConfig, allRoutes, blockingStreamingRoutes, closeable);
 
         // TODO: Optimize to bind a specific programming model service based on routes
         return binder.bindStreaming(new StreamingHttpService() {
@@ -144,12 +147,13 @@ final class GrpcRouter {
     }
 
     private static void populateRoutes(final ExecutionContext executionContext,
+                                       final GrpcMessageEncodingConfig encodingConfig,
                                        final Map<String, StreamingHttpService> allRoutes,
                                        final Map<String, RouteProvider> routes,
                                        final CompositeCloseable closeable) {
         for (Map.Entry<String, RouteProvider> entry : routes.entrySet()) {
             final String path = entry.getKey();
-            final ServiceAdapterHolder adapterHolder = entry.getValue().buildRoute(executionContext);
+            final ServiceAdapterHolder adapterHolder = entry.getValue().buildRoute(executionContext, encodingConfig);
             final StreamingHttpService route = closeable.append(adapterHolder.adaptor());
             verifyNoOverrides(allRoutes.put(path, adapterHolder.serviceInvocationStrategy()
                     .offloadService(executionContext.executor(), route)), path, emptyMap());
@@ -222,8 +226,8 @@ final class GrpcRouter {
                 final String path, @Nullable final GrpcExecutionStrategy executionStrategy,
                 final Route<Req, Resp> route, final Class<Req> requestClass,
                 final Class<Resp> responseClass, final GrpcSerializationProvider serializationProvider) {
-            verifyNoOverrides(routes.put(path, new RouteProvider(executionContext -> toStreamingHttpService(
-                    new HttpService() {
+            verifyNoOverrides(routes.put(path, new RouteProvider((executionContext, encodingConfig) ->
+                    toStreamingHttpService(new HttpService() {
                         @Override
                         public Single<HttpResponse> handle(final HttpServiceContext ctx, final HttpRequest request,
                                                            final HttpResponseFactory responseFactory) {
@@ -233,12 +237,13 @@ final class GrpcRouter {
                                 final HttpDeserializer<Req> deserializer =
                                         serializationProvider.deserializerFor(readGrpcMessageEncoding(request),
                                                 requestClass);
+                                final HttpSerializer<Resp> serializer = serializerFor(serializationProvider,
+                                        serviceContext, negotiateMessageEncoding(encodingConfig,
+                                                serializationProvider, request), encodingConfig, responseClass);
                                 return route.handle(serviceContext, request.payloadBody(deserializer))
                                         .map(rawResp -> newResponse(responseFactory,
                                                 ctx.executionContext().bufferAllocator())
-                                                .payloadBody(rawResp,
-                                                        serializationProvider.serializerFor(serviceContext,
-                                                                responseClass)))
+                                                .payloadBody(rawResp, serializer))
                                         .recoverWith(cause -> succeeded(newErrorResponse(responseFactory, cause,
                                                 ctx.executionContext().bufferAllocator())));
                             } catch (Throwable t) {
@@ -270,7 +275,7 @@ final class GrpcRouter {
                 final String path, @Nullable final GrpcExecutionStrategy executionStrategy,
                 final StreamingRoute<Req, Resp> route, final Class<Req> requestClass,
                 final Class<Resp> responseClass, final GrpcSerializationProvider serializationProvider) {
-            verifyNoOverrides(streamingRoutes.put(path, new RouteProvider(executionContext -> {
+            verifyNoOverrides(streamingRoutes.put(path, new RouteProvider((executionContext, encodingConfig) -> {
                 final StreamingHttpService service = new StreamingHttpService() {
                     @Override
                     public Single<StreamingHttpResponse> handle(final HttpServiceContext ctx,
@@ -285,7 +290,9 @@ final class GrpcRouter {
                             final Publisher<Resp> response = route.handle(serviceContext,
                                     request.payloadBody(deserializer));
                             return succeeded(newResponse(responseFactory, response,
-                                    serializationProvider.serializerFor(serviceContext, responseClass),
+                                    serializerFor(serializationProvider, serviceContext,
+                                            negotiateMessageEncoding(encodingConfig, serializationProvider, request),
+                                            encodingConfig, responseClass),
                                     ctx.executionContext().bufferAllocator()));
                         } catch (Throwable t) {
                             return succeeded(newErrorResponse(responseFactory, t,
@@ -398,7 +405,7 @@ final class GrpcRouter {
                 final String path, @Nullable final GrpcExecutionStrategy executionStrategy,
                 final BlockingRoute<Req, Resp> route, final Class<Req> requestClass,
                 final Class<Resp> responseClass, final GrpcSerializationProvider serializationProvider) {
-            verifyNoOverrides(blockingRoutes.put(path, new RouteProvider(executionContext ->
+            verifyNoOverrides(blockingRoutes.put(path, new RouteProvider((executionContext, encodingConfig) ->
                     toStreamingHttpService(new BlockingHttpService() {
                         @Override
                         public HttpResponse handle(final HttpServiceContext ctx, final HttpRequest request,
@@ -411,8 +418,9 @@ final class GrpcRouter {
                                                 requestClass);
                                 final Resp response = route.handle(serviceContext, request.payloadBody(deserializer));
                                 return newResponse(responseFactory, ctx.executionContext().bufferAllocator())
-                                        .payloadBody(response,
-                                                serializationProvider.serializerFor(serviceContext, responseClass));
+                                        .payloadBody(response, serializerFor(serializationProvider, serviceContext,
+                                                negotiateMessageEncoding(encodingConfig, serializationProvider,
+                                                        request), encodingConfig, responseClass));
                             } catch (Throwable t) {
                                 return newErrorResponse(responseFactory, t, ctx.executionContext().bufferAllocator());
                             }
@@ -453,7 +461,7 @@ final class GrpcRouter {
                 final String path, @Nullable final GrpcExecutionStrategy executionStrategy,
                 final BlockingStreamingRoute<Req, Resp> route, final Class<Req> requestClass,
                 final Class<Resp> responseClass, final GrpcSerializationProvider serializationProvider) {
-            verifyNoOverrides(blockingStreamingRoutes.put(path, new RouteProvider(executionContext ->
+            verifyNoOverrides(blockingStreamingRoutes.put(path, new RouteProvider((executionContext, encodingConfig) ->
                     toStreamingHttpService(new BlockingStreamingHttpService() {
                         @Override
                         public void handle(final HttpServiceContext ctx, final BlockingStreamingHttpRequest request,
@@ -463,8 +471,9 @@ final class GrpcRouter {
                             final HttpDeserializer<Req> deserializer =
                                     serializationProvider.deserializerFor(readGrpcMessageEncoding(request),
                                             requestClass);
-                            final HttpSerializer<Resp> serializer =
-                                    serializationProvider.serializerFor(serviceContext, responseClass);
+                            final HttpSerializer<Resp> serializer = serializerFor(serializationProvider,
+                                    serviceContext, negotiateMessageEncoding(encodingConfig, serializationProvider,
+                                            request), encodingConfig, responseClass);
                             final DefaultGrpcPayloadWriter<Resp> grpcPayloadWriter =
                                     new DefaultGrpcPayloadWriter<>(response.sendMetaData(serializer));
                             try {
@@ -652,14 +661,15 @@ final class GrpcRouter {
 
     static final class RouteProvider implements AsyncCloseable {
 
-        private final Function<ExecutionContext, ServiceAdapterHolder> routeProvider;
+        private final BiFunction<ExecutionContext, GrpcMessageEncodingConfig, ServiceAdapterHolder> routeProvider;
         private final Supplier<StreamingRoute<?, ?>> toStreamingConverter;
         private final Supplier<RequestStreamingRoute<?, ?>> toRequestStreamingRouteConverter;
         private final Supplier<ResponseStreamingRoute<?, ?>> toResponseStreamingRouteConverter;
         private final Supplier<Route<?, ?>> toRouteConverter;
         private final AsyncCloseable closeable;
 
-        RouteProvider(final Function<ExecutionContext, ServiceAdapterHolder> routeProvider,
+        RouteProvider(final BiFunction<ExecutionContext, GrpcMessageEncodingConfig,
+                              ServiceAdapterHolder> routeProvider,
                       final Supplier<StreamingRoute<?, ?>> toStreamingConverter,
                       final Supplier<RequestStreamingRoute<?, ?>> toRequestStreamingRouteConverter,
                       final Supplier<ResponseStreamingRoute<?, ?>> toResponseStreamingRouteConverter,
@@ -673,7 +683,8 @@ final class GrpcRouter {
             this.closeable = closeable;
         }
 
-        RouteProvider(final Function<ExecutionContext, ServiceAdapterHolder> routeProvider,
+        RouteProvider(final BiFunction<ExecutionContext, GrpcMessageEncodingConfig,
+                              ServiceAdapterHolder> routeProvider,
                       final Supplier<StreamingRoute<?, ?>> toStreamingConverter,
                       final Supplier<RequestStreamingRoute<?, ?>> toRequestStreamingRouteConverter,
                       final Supplier<ResponseStreamingRoute<?, ?>> toResponseStreamingRouteConverter,
@@ -683,8 +694,9 @@ final class GrpcRouter {
                     toResponseStreamingRouteConverter, toRouteConverter, toAsyncCloseable(closeable));
         }
 
-        ServiceAdapterHolder buildRoute(ExecutionContext executionContext) {
-            return routeProvider.apply(executionContext);
+        ServiceAdapterHolder buildRoute(final ExecutionContext executionContext,
+                                        final GrpcMessageEncodingConfig encodingConfig) {
+            return routeProvider.apply(executionContext, encodingConfig);
         }
 
         <Req, Resp> RequestStreamingRoute<Req, Resp> asRequestStreamingRoute() {
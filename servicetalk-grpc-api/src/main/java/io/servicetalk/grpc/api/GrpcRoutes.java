@@ -83,14 +83,16 @@ public abstract class GrpcRoutes<Service extends GrpcService> {
      *
      * @param binder {@link ServerBinder} to bind <a href="https://www.grpc.io">gRPC</a> service to the server.
      * @param executionContext {@link ExecutionContext} to use for the service.
+     * @param encodingConfig {@link GrpcMessageEncodingConfig} to use for response messages.
      * @return A {@link Single} that completes when the server is successfully started or terminates with an error if
      * the server could not be started.
      */
-    final Single<ServerContext> bind(final ServerBinder binder, final ExecutionContext executionContext) {
+    final Single<ServerContext> bind(final ServerBinder binder, final ExecutionContext executionContext,
+                                     final GrpcMessageEncodingConfig encodingConfig) {
         if (!errors.isEmpty()) {
             throw new IllegalStateException("Invalid execution strategy configuration found:\n" + errors);
         }
-        return routeBuilder.build().bind(binder, executionContext);
+        return routeBuilder.build().bind(binder, executionContext, encodingConfig);
     }
 
     /**
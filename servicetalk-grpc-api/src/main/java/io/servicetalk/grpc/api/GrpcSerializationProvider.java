@@ -17,6 +17,12 @@ package io.servicetalk.grpc.api;
 
 import io.servicetalk.http.api.HttpDeserializer;
 import io.servicetalk.http.api.HttpSerializer;
+import io.servicetalk.serialization.api.SerializationException;
+
+import java.util.Set;
+
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
+import static java.util.Collections.singleton;
 
 /**
  * A provider for <a href="https://www.grpc.io">gRPC</a> serialization/deserialization.
@@ -33,6 +39,39 @@ public interface GrpcSerializationProvider {
      */
     <T> HttpSerializer<T> serializerFor(GrpcMetadata metadata, Class<T> type);
 
+    /**
+     * Get a {@link HttpSerializer} for a {@link Class} of type {@link T} which compresses serialized messages using
+     * the passed {@link GrpcMessageEncoding}.
+     * <p>
+     * The default implementation only supports {@link GrpcMessageEncoding#None} and delegates to
+     * {@link #serializerFor(GrpcMetadata, Class)}.
+     *
+     * @param metadata {@link GrpcMetadata} for the serializer.
+     * @param messageEncoding {@link GrpcMessageEncoding} to compress serialized messages with. Must be one of
+     * {@link #supportedMessageEncodings()}.
+     * @param minCompressionSize minimum serialized size of a message, in bytes, for it to be compressed. Messages
+     * smaller than this size are written uncompressed.
+     * @param type The {@link Class} type that the returned {@link HttpSerializer} can serialize.
+     * @param <T> The type of object to serialize.
+     * @return a {@link HttpSerializer} for a {@link Class} of type {@link T}.
+     */
+    default <T> HttpSerializer<T> serializerFor(GrpcMetadata metadata, GrpcMessageEncoding messageEncoding,
+                                                int minCompressionSize, Class<T> type) {
+        if (messageEncoding != None) {
+            throw new SerializationException("Compression " + messageEncoding.encoding() + " not supported");
+        }
+        return serializerFor(metadata, type);
+    }
+
+    /**
+     * Returns the {@link GrpcMessageEncoding}s supported by this provider for serialization and deserialization.
+     *
+     * @return the {@link GrpcMessageEncoding}s supported by this provider.
+     */
+    default Set<GrpcMessageEncoding> supportedMessageEncodings() {
+        return singleton(None);
+    }
+
     /**
      * Get a {@link HttpDeserializer} for a {@link Class} of type {@link T}.
      *
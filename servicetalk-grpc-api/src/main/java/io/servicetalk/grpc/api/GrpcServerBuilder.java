@@ -213,6 +213,18 @@ public abstract class GrpcServerBuilder {
      */
     public abstract GrpcServerBuilder executionStrategy(GrpcExecutionStrategy strategy);
 
+    /**
+     * Sets the {@link GrpcMessageEncodingConfig} used to compress response messages. A response is compressed using
+     * the first configured {@link GrpcMessageEncoding} which the client advertised in its {@code grpc-accept-encoding}
+     * header. Request messages are always decompressed if their encoding is supported.
+     * <p>
+     * Defaults to {@link GrpcMessageEncodingConfig#identity()}, which does not compress responses.
+     *
+     * @param encodingConfig {@link GrpcMessageEncodingConfig} to use.
+     * @return {@code this}.
+     */
+    public abstract GrpcServerBuilder messageEncoding(GrpcMessageEncodingConfig encodingConfig);
+
     /**
      * Starts this server and returns the {@link ServerContext} after the server has been successfully started.
      * <p>
@@ -77,11 +77,27 @@ public abstract class GrpcServiceFactory<Filter extends Service, Service extends
      * the server could not be started.
      */
     public final Single<ServerContext> bind(final ServerBinder binder, final ExecutionContext executionContext) {
+        return bind(binder, executionContext, GrpcMessageEncodingConfig.identity());
+    }
+
+    /**
+     * Use the passed {@link ServerBinder} to bind an appropriate
+     * <a href="https://www.grpc.io">gRPC</a> service for the server.
+     *
+     * @param binder {@link ServerBinder} to bind <a href="https://www.grpc.io">gRPC</a> service to the server.
+     * @param executionContext {@link ExecutionContext} to use for the service.
+     * @param encodingConfig {@link GrpcMessageEncodingConfig} to use for compressing response messages.
+     * @return A {@link Single} that completes when the server is successfully started or terminates with an error if
+     * the server could not be started.
+     */
+    public final Single<ServerContext> bind(final ServerBinder binder, final ExecutionContext executionContext,
+                                            final GrpcMessageEncodingConfig encodingConfig) {
+        requireNonNull(encodingConfig);
         if (filterFactory == null) {
-            return routes.bind(binder, executionContext);
+            return routes.bind(binder, executionContext, encodingConfig);
         }
         applyFilterToRoutes(filterFactory);
-        return routes.bind(binder, executionContext);
+        return routes.bind(binder, executionContext, encodingConfig);
     }
 
     /**
@@ -29,16 +29,17 @@ import io.servicetalk.http.api.HttpSerializer;
 import io.servicetalk.http.api.StatelessTrailersTransformer;
 import io.servicetalk.http.api.StreamingHttpResponse;
 import io.servicetalk.http.api.StreamingHttpResponseFactory;
-import io.servicetalk.serialization.api.SerializationException;
 
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.rpc.Status;
 
 import java.util.Base64;
+import java.util.Set;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 
 import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
+import static io.servicetalk.grpc.api.GrpcStatusCode.UNIMPLEMENTED;
 import static io.servicetalk.http.api.CharSequences.contentEqualsIgnoreCase;
 import static io.servicetalk.http.api.CharSequences.newAsciiString;
 import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
@@ -58,6 +59,7 @@ final class GrpcUtils {
     private static final CharSequence GRPC_USER_AGENT = newAsciiString("grpc-service-talk/");
     private static final CharSequence IDENTITY = newAsciiString(None.encoding());
     private static final CharSequence GRPC_MESSAGE_ENCODING_KEY = newAsciiString("grpc-encoding");
+    private static final CharSequence GRPC_MESSAGE_ACCEPT_ENCODING_KEY = newAsciiString("grpc-accept-encoding");
     private static final GrpcStatus STATUS_OK = GrpcStatus.fromCodeValue(GrpcStatusCode.OK.value());
 
     private GrpcUtils() {
@@ -187,12 +189,84 @@ final class GrpcUtils {
     static GrpcMessageEncoding readGrpcMessageEncoding(final HttpMetaData httpMetaData) {
         final CharSequence encoding = httpMetaData.headers().get(GRPC_MESSAGE_ENCODING_KEY);
         // identity is a special header for no compression
-        if (encoding != null && !contentEqualsIgnoreCase(encoding, IDENTITY)) {
-            final String lowercaseEncoding = encoding.toString().toLowerCase();
-            throw new SerializationException("Compression " + lowercaseEncoding + " not supported");
-        } else {
+        if (encoding == null || contentEqualsIgnoreCase(encoding, IDENTITY)) {
             return None;
         }
+        final GrpcMessageEncoding messageEncoding = GrpcMessageEncoding.fromEncoding(encoding);
+        if (messageEncoding == null) {
+            final String lowercaseEncoding = encoding.toString().toLowerCase();
+            throw new GrpcStatus(UNIMPLEMENTED, null, "Compression " + lowercaseEncoding + " not supported")
+                    .asException();
+        }
+        return messageEncoding;
+    }
+
+    static GrpcMessageEncoding negotiateMessageEncoding(final GrpcMessageEncodingConfig config,
+                                                        final GrpcSerializationProvider serializationProvider,
+                                                        @Nullable final HttpMetaData peerMetaData) {
+        final CharSequence acceptedByPeer = peerMetaData == null ? null :
+                peerMetaData.headers().get(GRPC_MESSAGE_ACCEPT_ENCODING_KEY);
+        final Set<GrpcMessageEncoding> supported = serializationProvider.supportedMessageEncodings();
+        // A null peer means we are sending the first message of the exchange and can not know what the peer accepts.
+        for (GrpcMessageEncoding encoding : config.encodings()) {
+            if (encoding == None) {
+                return None;
+            }
+            if (supported.contains(encoding) && (peerMetaData == null || acceptedByPeer != null &&
+                    containsEncoding(acceptedByPeer, encoding))) {
+                return encoding;
+            }
+        }
+        return None;
+    }
+
+    static <T> HttpSerializer<T> serializerFor(final GrpcSerializationProvider serializationProvider,
+                                               final GrpcMetadata metadata,
+                                               final GrpcMessageEncoding messageEncoding,
+                                               final GrpcMessageEncodingConfig config, final Class<T> type) {
+        return messageEncoding == None ? serializationProvider.serializerFor(metadata, type) :
+                serializationProvider.serializerFor(metadata, messageEncoding, config.minCompressionSize(), type);
+    }
+
+    static void setAcceptedEncodings(final HttpHeaders headers, @Nullable final CharSequence acceptedEncodings) {
+        if (acceptedEncodings != null) {
+            headers.set(GRPC_MESSAGE_ACCEPT_ENCODING_KEY, acceptedEncodings);
+        }
+    }
+
+    @Nullable
+    static CharSequence acceptedEncodings(final GrpcMessageEncodingConfig config,
+                                          final GrpcSerializationProvider serializationProvider) {
+        final Set<GrpcMessageEncoding> supported = serializationProvider.supportedMessageEncodings();
+        StringBuilder sb = null;
+        for (GrpcMessageEncoding encoding : config.encodings()) {
+            if (encoding != None && supported.contains(encoding)) {
+                if (sb == null) {
+                    sb = new StringBuilder();
+                } else {
+                    sb.append(',');
+                }
+                sb.append(encoding.encoding());
+            }
+        }
+        return sb == null ? null : newAsciiString(sb.toString());
+    }
+
+    private static boolean containsEncoding(final CharSequence acceptedEncodings,
+                                            final GrpcMessageEncoding encoding) {
+        final String accepted = acceptedEncodings.toString();
+        int start = 0;
+        while (start < accepted.length()) {
+            int end = accepted.indexOf(',', start);
+            if (end < 0) {
+                end = accepted.length();
+            }
+            if (accepted.substring(start, end).trim().equalsIgnoreCase(encoding.encoding())) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
     }
 
     private static void initResponse(final HttpResponseMetaData response) {
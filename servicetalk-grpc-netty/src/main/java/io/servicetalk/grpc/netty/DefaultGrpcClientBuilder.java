@@ -25,6 +25,7 @@ import io.servicetalk.grpc.api.GrpcClientBuilder;
 import io.servicetalk.grpc.api.GrpcClientCallFactory;
 import io.servicetalk.grpc.api.GrpcClientSecurityConfigurator;
 import io.servicetalk.grpc.api.GrpcExecutionStrategy;
+import io.servicetalk.grpc.api.GrpcMessageEncodingConfig;
 import io.servicetalk.http.api.FilterableStreamingHttpConnection;
 import io.servicetalk.http.api.FilterableStreamingHttpLoadBalancedConnection;
 import io.servicetalk.http.api.HttpProtocolConfig;
@@ -40,10 +41,12 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 import static io.servicetalk.http.netty.HttpProtocolConfigs.h2Default;
+import static java.util.Objects.requireNonNull;
 
 final class DefaultGrpcClientBuilder<U, R> extends GrpcClientBuilder<U, R> {
 
     private final SingleAddressHttpClientBuilder<U, R> httpClientBuilder;
+    private GrpcMessageEncodingConfig encodingConfig = GrpcMessageEncodingConfig.identity();
 
     DefaultGrpcClientBuilder(final SingleAddressHttpClientBuilder<U, R> httpClientBuilder) {
         this.httpClientBuilder = httpClientBuilder.protocols(h2Default());
@@ -67,6 +70,12 @@ final class DefaultGrpcClientBuilder<U, R> extends GrpcClientBuilder<U, R> {
         return this;
     }
 
+    @Override
+    public GrpcClientBuilder<U, R> messageEncoding(final GrpcMessageEncodingConfig encodingConfig) {
+        this.encodingConfig = requireNonNull(encodingConfig);
+        return this;
+    }
+
     @Override
     public <T> GrpcClientBuilder<U, R> socketOption(final SocketOption<T> option, final T value) {
         httpClientBuilder.socketOption(option, value);
@@ -137,7 +146,7 @@ final class DefaultGrpcClientBuilder<U, R> extends GrpcClientBuilder<U, R> {
 
     @Override
     protected GrpcClientCallFactory newGrpcClientCallFactory() {
-        return GrpcClientCallFactory.from(httpClientBuilder.buildStreaming());
+        return GrpcClientCallFactory.from(httpClientBuilder.buildStreaming(), encodingConfig);
     }
 
     @Override
@@ -18,6 +18,7 @@ package io.servicetalk.grpc.netty;
 import io.servicetalk.buffer.api.BufferAllocator;
 import io.servicetalk.concurrent.api.Single;
 import io.servicetalk.grpc.api.GrpcExecutionStrategy;
+import io.servicetalk.grpc.api.GrpcMessageEncodingConfig;
 import io.servicetalk.grpc.api.GrpcServerBuilder;
 import io.servicetalk.grpc.api.GrpcServerSecurityConfigurator;
 import io.servicetalk.grpc.api.GrpcServiceFactory;
@@ -41,6 +42,7 @@ import java.util.function.Predicate;
 
 import static io.servicetalk.grpc.api.GrpcExecutionStrategies.defaultStrategy;
 import static io.servicetalk.http.netty.HttpProtocolConfigs.h2Default;
+import static java.util.Objects.requireNonNull;
 
 final class DefaultGrpcServerBuilder extends GrpcServerBuilder implements ServerBinder {
 
@@ -49,6 +51,7 @@ final class DefaultGrpcServerBuilder extends GrpcServerBuilder implements Server
             // Make sure we always set a strategy so that ExecutionContextBuilder does not create a strategy which is
             // not compatible with gRPC.
             .executionStrategy(defaultStrategy());
+    private GrpcMessageEncodingConfig encodingConfig = GrpcMessageEncodingConfig.identity();
 
     DefaultGrpcServerBuilder(final HttpServerBuilder httpServerBuilder) {
         this.httpServerBuilder = httpServerBuilder.protocols(h2Default());
@@ -123,9 +126,15 @@ final class DefaultGrpcServerBuilder extends GrpcServerBuilder implements Server
         return this;
     }
 
+    @Override
+    public GrpcServerBuilder messageEncoding(final GrpcMessageEncodingConfig encodingConfig) {
+        this.encodingConfig = requireNonNull(encodingConfig);
+        return this;
+    }
+
     @Override
     protected Single<ServerContext> doListen(final GrpcServiceFactory<?, ?, ?> serviceFactory) {
-        return serviceFactory.bind(this, contextBuilder.build());
+        return serviceFactory.bind(this, contextBuilder.build(), encodingConfig);
     }
 
     @Override
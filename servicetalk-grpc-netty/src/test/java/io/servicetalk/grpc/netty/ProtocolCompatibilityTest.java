@@ -25,6 +25,7 @@ import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
 import io.servicetalk.grpc.api.GrpcClientBuilder;
 import io.servicetalk.grpc.api.GrpcExecutionContext;
 import io.servicetalk.grpc.api.GrpcExecutionStrategy;
+import io.servicetalk.grpc.api.GrpcMessageEncodingConfig;
 import io.servicetalk.grpc.api.GrpcPayloadWriter;
 import io.servicetalk.grpc.api.GrpcServerBuilder;
 import io.servicetalk.grpc.api.GrpcServiceContext;
@@ -64,7 +65,6 @@ import io.grpc.protobuf.StatusProto;
 import io.grpc.stub.StreamObserver;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
-import org.junit.Ignore;
 import org.junit.Rule;
 import org.junit.experimental.theories.DataPoints;
 import org.junit.experimental.theories.FromDataPoints;
@@ -90,6 +90,8 @@ import static io.servicetalk.concurrent.api.Single.succeeded;
 import static io.servicetalk.concurrent.internal.ServiceTalkTestTimeout.DEFAULT_TIMEOUT_SECONDS;
 import static io.servicetalk.grpc.api.GrpcExecutionStrategies.defaultStrategy;
 import static io.servicetalk.grpc.api.GrpcExecutionStrategies.noOffloadsStrategy;
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.Deflate;
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.Gzip;
 import static io.servicetalk.test.resources.DefaultTestCerts.loadServerKey;
 import static io.servicetalk.test.resources.DefaultTestCerts.loadServerPem;
 import static io.servicetalk.transport.api.SecurityConfigurator.SslProvider.OPENSSL;
@@ -188,7 +190,6 @@ public class ProtocolCompatibilityTest {
         testRequestResponse(client, server, streaming);
     }
 
-    @Ignore("gRPC compression not supported by ServiceTalk yet")
     @Theory
     public void grpcJavaToServiceTalkCompressedGzip(@FromDataPoints("ssl") final boolean ssl,
                                                     @FromDataPoints("streaming") final boolean streaming)
@@ -199,6 +200,27 @@ public class ProtocolCompatibilityTest {
         testRequestResponse(client, server, streaming);
     }
 
+    @Theory
+    public void serviceTalkCompressedGzipToGrpcJava(@FromDataPoints("ssl") final boolean ssl,
+                                                    @FromDataPoints("streaming") final boolean streaming)
+            throws Exception {
+        final TestServerContext server = grpcJavaServer(ErrorMode.NONE, ssl);
+        final CompatClient client = serviceTalkClient(server.listenAddress(), ssl,
+                GrpcMessageEncodingConfig.of(0, Gzip));
+        testRequestResponse(client, server, streaming);
+    }
+
+    @Theory
+    public void serviceTalkToServiceTalkCompressed(@FromDataPoints("ssl") final boolean ssl,
+                                                   @FromDataPoints("streaming") final boolean streaming)
+            throws Exception {
+        final TestServerContext server = serviceTalkServer(ErrorMode.NONE, ssl, defaultStrategy(),
+                GrpcMessageEncodingConfig.of(0, Deflate, Gzip));
+        final CompatClient client = serviceTalkClient(server.listenAddress(), ssl,
+                GrpcMessageEncodingConfig.of(0, Gzip, Deflate));
+        testRequestResponse(client, server, streaming);
+    }
+
     @Theory
     public void serviceTalkToServiceTalk(@FromDataPoints("ssl") final boolean ssl,
                                          @FromDataPoints("streaming") final boolean streaming) throws Exception {
@@ -683,8 +705,13 @@ public class ProtocolCompatibilityTest {
     }
 
     private static CompatClient serviceTalkClient(final SocketAddress serverAddress, final boolean ssl) {
+        return serviceTalkClient(serverAddress, ssl, GrpcMessageEncodingConfig.identity());
+    }
+
+    private static CompatClient serviceTalkClient(final SocketAddress serverAddress, final boolean ssl,
+                                                  final GrpcMessageEncodingConfig encodingConfig) {
         final GrpcClientBuilder<InetSocketAddress, InetSocketAddress> builder =
-                GrpcClients.forResolvedAddress((InetSocketAddress) serverAddress);
+                GrpcClients.forResolvedAddress((InetSocketAddress) serverAddress).messageEncoding(encodingConfig);
         if (ssl) {
             builder.secure().disableHostnameVerification().provider(OPENSSL)
                     .trustManager(DefaultTestCerts::loadServerPem).commit();
@@ -780,6 +807,13 @@ public class ProtocolCompatibilityTest {
 
     private static TestServerContext serviceTalkServer(final ErrorMode errorMode, final boolean ssl,
                                                        final GrpcExecutionStrategy strategy) throws Exception {
+        return serviceTalkServer(errorMode, ssl, strategy, GrpcMessageEncodingConfig.identity());
+    }
+
+    private static TestServerContext serviceTalkServer(final ErrorMode errorMode, final boolean ssl,
+                                                       final GrpcExecutionStrategy strategy,
+                                                       final GrpcMessageEncodingConfig encodingConfig)
+            throws Exception {
         final Compat.CompatService compatService = new Compat.CompatService() {
             @Override
             public Publisher<CompatResponse> bidirectionalStreamingCall(final GrpcServiceContext ctx,
@@ -866,6 +900,7 @@ public class ProtocolCompatibilityTest {
 
         final ServerContext serverContext = serviceTalkServerBuilder(errorMode, ssl)
                 .executionStrategy(strategy)
+                .messageEncoding(encodingConfig)
                 .listenAndAwait(serviceFactory);
         return TestServerContext.fromServiceTalkServerContext(serverContext);
     }
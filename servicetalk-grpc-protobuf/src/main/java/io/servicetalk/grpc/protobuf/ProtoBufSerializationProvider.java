@@ -29,12 +29,20 @@ import com.google.protobuf.MessageLite;
 import com.google.protobuf.Parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
 import javax.annotation.Nullable;
 
+import static io.servicetalk.buffer.api.Buffer.asInputStream;
+import static io.servicetalk.buffer.api.Buffer.asOutputStream;
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
 import static java.lang.Math.max;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
@@ -48,9 +56,14 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
 
     ProtoBufSerializationProvider(final Class<T> targetClass, final GrpcMessageEncoding messageEncoding,
                                   final Parser<T> parser) {
+        this(targetClass, messageEncoding, 0, parser);
+    }
+
+    ProtoBufSerializationProvider(final Class<T> targetClass, final GrpcMessageEncoding messageEncoding,
+                                  final int minCompressionSize, final Parser<T> parser) {
         this.targetClass = targetClass;
         this.messageEncoding = messageEncoding;
-        this.serializer = new ProtoSerializer(messageEncoding);
+        this.serializer = new ProtoSerializer(messageEncoding, minCompressionSize);
         this.parser = parser;
     }
 
@@ -94,8 +107,33 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
         throw new SerializationException("compression flag must be 0 or 1 but was: " + compressionFlag);
     }
 
+    private static OutputStream newCompressingStream(final GrpcMessageEncoding encoding,
+                                                     final OutputStream out) throws IOException {
+        switch (encoding) {
+            case Gzip:
+                return new GZIPOutputStream(out);
+            case Deflate:
+                return new DeflaterOutputStream(out);
+            default:
+                throw new SerializationException("Compression not supported for message encoding: " + encoding);
+        }
+    }
+
+    private static InputStream newDecompressingStream(final GrpcMessageEncoding encoding,
+                                                      final InputStream in) throws IOException {
+        switch (encoding) {
+            case Gzip:
+                return new GZIPInputStream(in);
+            case Deflate:
+                return new InflaterInputStream(in);
+            default:
+                throw new SerializationException("Compressed message received for message encoding: " + encoding);
+        }
+    }
+
     private static final class ProtoDeserializer<T> implements StreamingDeserializer<T> {
         private final Parser<T> parser;
+        private final GrpcMessageEncoding grpcMessageEncoding;
         private final CompositeBuffer accumulate;
         /**
          * <ul>
@@ -106,9 +144,9 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
         private int lengthOfData = -1;
         private boolean compressed;
 
-        ProtoDeserializer(final Parser<T> parser,
-                          @SuppressWarnings("unused") final GrpcMessageEncoding grpcMessageEncoding) {
+        ProtoDeserializer(final Parser<T> parser, final GrpcMessageEncoding grpcMessageEncoding) {
             this.parser = parser;
+            this.grpcMessageEncoding = grpcMessageEncoding;
             accumulate = DEFAULT_ALLOCATOR.newCompositeBuffer(Integer.MAX_VALUE);
         }
 
@@ -128,8 +166,10 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
                     }
 
                     compressed = isCompressed(toDeserialize);
-                    // TODO (nkant) : handle compression
-                    assert !compressed;
+                    if (compressed && grpcMessageEncoding == None) {
+                        throw new SerializationException(
+                                "Compressed message received without a grpc-encoding other than identity");
+                    }
 
                     // https://github.com/grpc/grpc/blob/master/doc/PROTOCOL-HTTP2.md specifies size as 4 bytes
                     // unsigned int However netty buffers only support up to Integer.MAX_VALUE, and even
@@ -145,10 +185,20 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
                     }
 
                     final T t;
-                    try {
-                        t = parser.parseFrom(toDeserialize.toNioBuffer(toDeserialize.readerIndex(), lengthOfData));
-                    } catch (InvalidProtocolBufferException e) {
-                        throw new SerializationException(e);
+                    if (compressed) {
+                        try (InputStream in = newDecompressingStream(grpcMessageEncoding,
+                                asInputStream(toDeserialize.slice(toDeserialize.readerIndex(), lengthOfData)))) {
+                            t = parser.parseFrom(in);
+                        } catch (IOException e) {
+                            throw new SerializationException(e);
+                        }
+                    } else {
+                        try {
+                            t = parser.parseFrom(toDeserialize.toNioBuffer(toDeserialize.readerIndex(),
+                                    lengthOfData));
+                        } catch (InvalidProtocolBufferException e) {
+                            throw new SerializationException(e);
+                        }
                     }
 
                     // The NIO buffer indexes are not connected to the Buffer indexes, so we need to update
@@ -216,8 +266,12 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
     }
 
     private static final class ProtoSerializer implements StreamingSerializer {
+        private final GrpcMessageEncoding encoding;
+        private final int minCompressionSize;
 
-        ProtoSerializer(@SuppressWarnings("unused") final GrpcMessageEncoding encoding) {
+        ProtoSerializer(final GrpcMessageEncoding encoding, final int minCompressionSize) {
+            this.encoding = encoding;
+            this.minCompressionSize = minCompressionSize;
         }
 
         @Override
@@ -228,14 +282,27 @@ final class ProtoBufSerializationProvider<T extends MessageLite> implements Seri
             }
             MessageLite msg = (MessageLite) toSerialize;
             int size = msg.getSerializedSize();
-            // TODO (nkant) : handle compression
-            destination.writeByte(0);
-            destination.writeInt(size);
-            try (OutputStream out = Buffer.asOutputStream(destination)) {
+            if (encoding == None || size < minCompressionSize) {
+                destination.writeByte(0);
+                destination.writeInt(size);
+                try (OutputStream out = asOutputStream(destination)) {
+                    msg.writeTo(out);
+                } catch (IOException e) {
+                    throw new SerializationException(e);
+                }
+                return;
+            }
+
+            destination.writeByte(1);
+            // The compressed size is only known after compression, so reserve space for it and update it later.
+            final int lengthIndex = destination.writerIndex();
+            destination.writeInt(0);
+            try (OutputStream out = newCompressingStream(encoding, asOutputStream(destination))) {
                 msg.writeTo(out);
             } catch (IOException e) {
                 throw new SerializationException(e);
             }
+            destination.setInt(lengthIndex, destination.writerIndex() - lengthIndex - Integer.BYTES);
         }
     }
 }
@@ -35,13 +35,18 @@ import com.google.protobuf.Parser;
 
 import java.io.IOException;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
 import static io.servicetalk.http.api.CharSequences.newAsciiString;
 import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
 import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
 
 /**
  * A builder for building a {@link GrpcSerializationProvider} that can serialize and deserialize
@@ -55,6 +60,7 @@ public final class ProtoBufSerializationProviderBuilder {
 
     private final Map<Class, EnumMap<GrpcMessageEncoding, HttpSerializer>> serializers = new HashMap<>();
     private final Map<Class, EnumMap<GrpcMessageEncoding, HttpDeserializer>> deserializers = new HashMap<>();
+    private final Map<Class, CompressingSerializerFactory> compressingSerializers = new HashMap<>();
 
     /**
      * Register the passed {@code messageType} with the provided {@link Parser}.
@@ -94,6 +100,9 @@ public final class ProtoBufSerializationProviderBuilder {
 
         serializers.put(messageType, serializersForType);
         deserializers.put(messageType, deserializersForType);
+        compressingSerializers.put(messageType, (encoding, minCompressionSize) -> new ProtoHttpSerializer<>(
+                new DefaultSerializer(new ProtoBufSerializationProvider<>(messageType, encoding, minCompressionSize,
+                        parser)), encoding, messageType));
         return this;
     }
 
@@ -104,17 +113,30 @@ public final class ProtoBufSerializationProviderBuilder {
      * registered to this builder.
      */
     public GrpcSerializationProvider build() {
-        return new ProtoSerializationProvider(serializers, deserializers);
+        return new ProtoSerializationProvider(serializers, deserializers, compressingSerializers);
+    }
+
+    @FunctionalInterface
+    private interface CompressingSerializerFactory {
+        HttpSerializer<?> newSerializer(GrpcMessageEncoding encoding, int minCompressionSize);
     }
 
     private static class ProtoSerializationProvider implements GrpcSerializationProvider {
+        private static final Set<GrpcMessageEncoding> SUPPORTED_ENCODINGS =
+                unmodifiableSet(EnumSet.allOf(GrpcMessageEncoding.class));
+
         private final Map<Class, EnumMap<GrpcMessageEncoding, HttpSerializer>> serializers;
         private final Map<Class, EnumMap<GrpcMessageEncoding, HttpDeserializer>> deserializers;
+        private final Map<Class, CompressingSerializerFactory> compressingSerializers;
+        private final ConcurrentMap<CompressingSerializerKey, HttpSerializer<?>> compressingSerializersCache =
+                new ConcurrentHashMap<>();
 
         ProtoSerializationProvider(final Map<Class, EnumMap<GrpcMessageEncoding, HttpSerializer>> serializers,
-                                   final Map<Class, EnumMap<GrpcMessageEncoding, HttpDeserializer>> deserializers) {
+                                   final Map<Class, EnumMap<GrpcMessageEncoding, HttpDeserializer>> deserializers,
+                                   final Map<Class, CompressingSerializerFactory> compressingSerializers) {
             this.serializers = unmodifiableMap(serializers);
             this.deserializers = unmodifiableMap(deserializers);
+            this.compressingSerializers = unmodifiableMap(compressingSerializers);
         }
 
         @Override
@@ -124,10 +146,44 @@ public final class ProtoBufSerializationProviderBuilder {
                 throw new SerializationException("Unknown class to serialize: " + type.getName());
             }
             @SuppressWarnings("unchecked")
-            HttpSerializer<T> httpSerializer = serializersForType.get(None); // compression not yet supported.
+            HttpSerializer<T> httpSerializer = serializersForType.get(None);
+            return httpSerializer;
+        }
+
+        @Override
+        public <T> HttpSerializer<T> serializerFor(final GrpcMetadata metadata,
+                                                   final GrpcMessageEncoding messageEncoding,
+                                                   final int minCompressionSize, final Class<T> type) {
+            if (minCompressionSize == 0) {
+                EnumMap<GrpcMessageEncoding, HttpSerializer> serializersForType = serializers.get(type);
+                if (serializersForType == null) {
+                    throw new SerializationException("Unknown class to serialize: " + type.getName());
+                }
+                @SuppressWarnings("unchecked")
+                HttpSerializer<T> httpSerializer = serializersForType.get(messageEncoding);
+                return httpSerializer;
+            }
+            final CompressingSerializerKey key = new CompressingSerializerKey(type, messageEncoding,
+                    minCompressionSize);
+            HttpSerializer<?> cached = compressingSerializersCache.get(key);
+            if (cached == null) {
+                CompressingSerializerFactory factory = compressingSerializers.get(type);
+                if (factory == null) {
+                    throw new SerializationException("Unknown class to serialize: " + type.getName());
+                }
+                cached = compressingSerializersCache.computeIfAbsent(key,
+                        k -> factory.newSerializer(messageEncoding, minCompressionSize));
+            }
+            @SuppressWarnings("unchecked")
+            HttpSerializer<T> httpSerializer = (HttpSerializer<T>) cached;
             return httpSerializer;
         }
 
+        @Override
+        public Set<GrpcMessageEncoding> supportedMessageEncodings() {
+            return SUPPORTED_ENCODINGS;
+        }
+
         @Override
         public <T> HttpDeserializer<T> deserializerFor(final GrpcMessageEncoding messageEncoding, final Class<T> type) {
             EnumMap<GrpcMessageEncoding, HttpDeserializer> deserializersForType = deserializers.get(type);
@@ -140,6 +196,38 @@ public final class ProtoBufSerializationProviderBuilder {
         }
     }
 
+    private static final class CompressingSerializerKey {
+        private final Class<?> type;
+        private final GrpcMessageEncoding encoding;
+        private final int minCompressionSize;
+
+        CompressingSerializerKey(final Class<?> type, final GrpcMessageEncoding encoding,
+                                 final int minCompressionSize) {
+            this.type = type;
+            this.encoding = encoding;
+            this.minCompressionSize = minCompressionSize;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CompressingSerializerKey)) {
+                return false;
+            }
+            final CompressingSerializerKey that = (CompressingSerializerKey) o;
+            return minCompressionSize == that.minCompressionSize && type == that.type && encoding == that.encoding;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + encoding.hashCode();
+            return 31 * result + minCompressionSize;
+        }
+    }
+
     private static final class ProtoHttpSerializer<T> implements HttpSerializer<T> {
         private final Serializer serializer;
         private final GrpcMessageEncoding grpcMessageEncoding;
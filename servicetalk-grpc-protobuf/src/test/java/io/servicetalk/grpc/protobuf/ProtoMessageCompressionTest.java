@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.grpc.protobuf;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.grpc.api.GrpcMessageEncoding;
+import io.servicetalk.grpc.api.GrpcSerializationProvider;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.HttpHeaders;
+import io.servicetalk.serialization.api.SerializationException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.util.Collection;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.Deflate;
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.Gzip;
+import static io.servicetalk.grpc.api.GrpcMessageEncoding.None;
+import static io.servicetalk.grpc.protobuf.test.TestProtos.DummyMessage;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+@RunWith(Parameterized.class)
+public class ProtoMessageCompressionTest {
+    private static final String LARGE_MESSAGE = new String(new char[4096]).replace('\0', 'a');
+
+    private final GrpcMessageEncoding encoding;
+    private final GrpcSerializationProvider serializationProvider = new ProtoBufSerializationProviderBuilder()
+            .registerMessageType(DummyMessage.class, DummyMessage.parser())
+            .build();
+
+    public ProtoMessageCompressionTest(final GrpcMessageEncoding encoding) {
+        this.encoding = encoding;
+    }
+
+    @Parameters(name = "encoding={0}")
+    public static Collection<GrpcMessageEncoding> data() {
+        return asList(Gzip, Deflate);
+    }
+
+    @Test
+    public void supportsEncoding() {
+        assertThat(serializationProvider.supportedMessageEncodings(), hasItem(encoding));
+    }
+
+    @Test
+    public void compressedRoundTrip() {
+        Buffer serialized = serialize(LARGE_MESSAGE, 0);
+        assertThat("Unexpected compressed flag.", serialized.getByte(serialized.readerIndex()), is((byte) 1));
+        assertThat("Message not compressed.", serialized.readableBytes(), lessThan(LARGE_MESSAGE.length()));
+        assertThat(deserialize(encoding, serialized), is(LARGE_MESSAGE));
+    }
+
+    @Test
+    public void belowMinCompressionSizeNotCompressed() {
+        Buffer serialized = serialize("Hello", 1024);
+        assertThat("Unexpected compressed flag.", serialized.getByte(serialized.readerIndex()), is((byte) 0));
+        assertThat(deserialize(encoding, serialized), is("Hello"));
+    }
+
+    @Test
+    public void aboveMinCompressionSizeCompressed() {
+        Buffer serialized = serialize(LARGE_MESSAGE, 1024);
+        assertThat("Unexpected compressed flag.", serialized.getByte(serialized.readerIndex()), is((byte) 1));
+        assertThat(deserialize(encoding, serialized), is(LARGE_MESSAGE));
+    }
+
+    @Test
+    public void serializerWithMinCompressionSizeIsCached() {
+        assertThat(serializationProvider.serializerFor(() -> "/test", encoding, 1024, DummyMessage.class),
+                sameInstance(serializationProvider.serializerFor(() -> "/test", encoding, 1024,
+                        DummyMessage.class)));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void compressedMessageWithIdentityEncodingFails() {
+        deserialize(None, serialize(LARGE_MESSAGE, 0));
+    }
+
+    private Buffer serialize(final String message, final int minCompressionSize) {
+        HttpHeaders headers = DefaultHttpHeadersFactory.INSTANCE.newHeaders();
+        Buffer serialized = serializationProvider.serializerFor(() -> "/test", encoding, minCompressionSize,
+                DummyMessage.class)
+                .serialize(headers, DummyMessage.newBuilder().setMessage(message).build(), DEFAULT_ALLOCATOR);
+        assertThat(headers.get("grpc-encoding").toString(), is(encoding.encoding()));
+        return serialized;
+    }
+
+    private String deserialize(final GrpcMessageEncoding encoding, final Buffer serialized) {
+        HttpHeaders headers = DefaultHttpHeadersFactory.INSTANCE.newHeaders();
+        return serializationProvider.deserializerFor(encoding, DummyMessage.class)
+                .deserialize(headers, serialized).getMessage();
+    }
+}
@@ -73,6 +73,12 @@ final class DefaultStreamingHttpResponse extends DefaultHttpResponseMetaData
         return this;
     }
 
+    @Override
+    public StreamingHttpResponse payloadBody(final HttpFileRegion fileRegion) {
+        payloadHolder.payloadBody(fileRegion);
+        return this;
+    }
+
     @Override
     public <T> StreamingHttpResponse transformPayloadBody(Function<Publisher<Buffer>, Publisher<T>> transformer,
                                                                HttpSerializer<T> serializer) {
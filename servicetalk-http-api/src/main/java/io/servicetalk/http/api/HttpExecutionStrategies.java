@@ -16,6 +16,7 @@
 package io.servicetalk.http.api;
 
 import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Executors;
 
 import javax.annotation.Nullable;
 
@@ -78,6 +79,25 @@ public final class HttpExecutionStrategies {
         return NO_OFFLOADS_NO_EXECUTOR;
     }
 
+    /**
+     * A {@link HttpExecutionStrategy} that offloads all paths to a shared {@link Executor} which runs each task on a
+     * new virtual thread, see {@link Executors#newVirtualThreadExecutor()}.
+     * <p>
+     * This strategy is suitable for blocking programming models that invoke blocking user code for each request, as a
+     * blocked virtual thread does not hold on to a platform thread. The shared {@link Executor} is never closed, it
+     * holds no platform threads of its own and schedules timers on a global scheduler.
+     *
+     * @return {@link HttpExecutionStrategy} that offloads all paths to virtual threads.
+     * @throws UnsupportedOperationException if the running JVM does not support virtual threads.
+     * @see Executors#isVirtualThreadExecutorSupported()
+     */
+    public static HttpExecutionStrategy virtualThreadStrategy() {
+        if (!Executors.isVirtualThreadExecutorSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+        }
+        return VirtualThreadStrategyHolder.STRATEGY;
+    }
+
     /**
      * A {@link HttpExecutionStrategy} that disables all offloads.
      *
@@ -150,6 +170,14 @@ public final class HttpExecutionStrategies {
         return !es.isMetadataReceiveOffloaded() && !es.isDataReceiveOffloaded() && !es.isSendOffloaded();
     }
 
+    private static final class VirtualThreadStrategyHolder {
+        static final HttpExecutionStrategy STRATEGY = defaultStrategy(Executors.newVirtualThreadExecutor());
+
+        private VirtualThreadStrategyHolder() {
+            // No instances.
+        }
+    }
+
     /**
      * A builder to build an {@link HttpExecutionStrategy}.
      */
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.concurrent.api.Publisher;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A region of a file which can be used as the payload body of a {@link StreamingHttpResponse}, see
+ * {@link StreamingHttpResponse#payloadBody(HttpFileRegion)}.
+ * <p>
+ * The transport writes the region without copying its content to the Java heap. On plaintext HTTP/1.x connections the
+ * content is transferred by the operating system (e.g. {@code sendfile}), otherwise the region is memory-mapped in
+ * chunks.
+ * <p>
+ * Ownership of the {@link FileChannel} is transferred to the transport when the region is written, and it is closed
+ * once the region has been written or the write has failed. A region can only be written once.
+ */
+public final class HttpFileRegion {
+    private final FileChannel fileChannel;
+    private final long position;
+    private final long count;
+
+    private HttpFileRegion(final FileChannel fileChannel, final long position, final long count) {
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.count = count;
+    }
+
+    /**
+     * Creates a new {@link HttpFileRegion} for a region of the passed {@link FileChannel}.
+     *
+     * @param fileChannel the {@link FileChannel} to read from.
+     * @param position the position in the file at which the region starts.
+     * @param count the number of bytes of the region.
+     * @return a new {@link HttpFileRegion}.
+     */
+    public static HttpFileRegion of(final FileChannel fileChannel, final long position, final long count) {
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected >= 0)");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count: " + count + " (expected >= 0)");
+        }
+        return new HttpFileRegion(requireNonNull(fileChannel), position, count);
+    }
+
+    /**
+     * Creates a new {@link HttpFileRegion} for the entire content of the file at the passed {@link Path}.
+     *
+     * @param path the {@link Path} of the file.
+     * @return a new {@link HttpFileRegion}.
+     * @throws IOException if the file can not be opened.
+     */
+    public static HttpFileRegion of(final Path path) throws IOException {
+        final FileChannel fileChannel = FileChannel.open(path, READ);
+        try {
+            return new HttpFileRegion(fileChannel, 0, fileChannel.size());
+        } catch (Throwable t) {
+            fileChannel.close();
+            throw t;
+        }
+    }
+
+    /**
+     * Returns the {@link FileChannel} to read from.
+     *
+     * @return the {@link FileChannel} to read from.
+     */
+    public FileChannel fileChannel() {
+        return fileChannel;
+    }
+
+    /**
+     * Returns the position in the file at which the region starts.
+     *
+     * @return the position in the file at which the region starts.
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Returns the number of bytes of the region.
+     *
+     * @return the number of bytes of the region.
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Discards the passed payload body and emits this region once it completes. The region is closed if the returned
+     * {@link Publisher} is cancelled or fails, once emitted the transport owns it and closes it after it is written.
+     *
+     * @param payloadBody the payload body to discard.
+     * @return a {@link Publisher} which emits this region once {@code payloadBody} completes.
+     */
+    Publisher<HttpFileRegion> replacePayloadBody(final Publisher<?> payloadBody) {
+        return payloadBody.ignoreElements().concat(Publisher.from(this))
+                .beforeOnError(cause -> closeQuietly())
+                .beforeCancel(this::closeQuietly);
+    }
+
+    private void closeQuietly() {
+        try {
+            fileChannel.close();
+        } catch (IOException ignored) {
+            // The region is discarded, nothing else can be done.
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{fileChannel=" + fileChannel +
+                ", position=" + position +
+                ", count=" + count +
+                '}';
+    }
+}
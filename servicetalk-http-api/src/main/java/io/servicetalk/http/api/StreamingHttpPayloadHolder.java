@@ -127,6 +127,12 @@ final class StreamingHttpPayloadHolder implements PayloadInfo {
         payloadBody = transformer.apply(emptyOrRawPayload());
     }
 
+    public void payloadBody(final HttpFileRegion fileRegion) {
+        transformRawPayloadBody(fileRegion::replacePayloadBody);
+        // The payload body no longer emits Buffers, payloadBody() must filter them instead of casting.
+        payloadInfo.setOnlyEmitsBuffer(false);
+    }
+
     public <T> void transform(final TrailersTransformer<T, Buffer> trailersTransformer) {
         transformWithTrailersUnchecked(false, trailersTransformer);
     }
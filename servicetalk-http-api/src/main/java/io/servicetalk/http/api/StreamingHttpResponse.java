@@ -79,6 +79,22 @@ public interface StreamingHttpResponse extends HttpResponseMetaData {
      */
     <T> StreamingHttpResponse payloadBody(Publisher<T> payloadBody, HttpSerializer<T> serializer);
 
+    /**
+     * Returns a {@link StreamingHttpResponse} with its underlying payload set to the content of a file region, which
+     * is written by the transport without copying it to the Java heap.
+     * <p>
+     * The existing {@link Publisher} payload body is drained and discarded. The payload body can only be consumed by
+     * the transport, other consumers of {@link #payloadBody()} will observe an error. The region is closed if the
+     * payload body is cancelled or fails before the region is handed to the transport. Set the
+     * {@link HttpHeaderNames#CONTENT_LENGTH content-length} header to {@link HttpFileRegion#count()} to avoid chunked
+     * transfer encoding for HTTP/1.1.
+     * @param fileRegion The {@link HttpFileRegion} to use as the new payload body.
+     * @return {@code this}
+     */
+    default StreamingHttpResponse payloadBody(HttpFileRegion fileRegion) {
+        return transformRawPayloadBody(fileRegion::replacePayloadBody);
+    }
+
     /**
      * Returns a {@link StreamingHttpResponse} with its underlying payload transformed to the result of serialization.
      * @param transformer A {@link Function} which take as a parameter the existing payload body {@link Publisher} and
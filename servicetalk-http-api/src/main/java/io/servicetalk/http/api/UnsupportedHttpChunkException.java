@@ -21,6 +21,8 @@ final class UnsupportedHttpChunkException extends IllegalArgumentException {
     private static final long serialVersionUID = -4336685587984151152L;
 
     UnsupportedHttpChunkException(@Nullable Object o) {
-        super("unsupported payload chunk type: " + o);
+        super(o instanceof HttpFileRegion ?
+                "a file region payload body can only be written by the transport: " + o :
+                "unsupported payload chunk type: " + o);
     }
 }
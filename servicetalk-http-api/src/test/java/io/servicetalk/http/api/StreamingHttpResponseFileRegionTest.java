@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.api;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.api.TestPublisherSubscriber;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.api.StreamingHttpResponses.newResponse;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class StreamingHttpResponseFileRegionTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final TestPublisher<Buffer> originalPayload = new TestPublisher<>();
+    private final TestPublisherSubscriber<Object> payloadSubscriber = new TestPublisherSubscriber<>();
+    private File file;
+    private HttpFileRegion region;
+    private StreamingHttpResponse response;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile(getClass().getSimpleName(), ".bin");
+        region = HttpFileRegion.of(file.toPath());
+        response = newResponse(OK, HTTP_1_1, DefaultHttpHeadersFactory.INSTANCE.newHeaders(), DEFAULT_ALLOCATOR,
+                DefaultHttpHeadersFactory.INSTANCE).payloadBody(originalPayload).payloadBody(region);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        region.fileChannel().close();
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void regionIsEmittedAfterOriginalPayload() {
+        toSource(response.payloadBodyAndTrailers()).subscribe(payloadSubscriber);
+        payloadSubscriber.request(1);
+        originalPayload.onComplete();
+        assertThat(payloadSubscriber.takeItems(), contains(sameInstance(region)));
+        assertThat(payloadSubscriber.isCompleted(), is(true));
+        // The transport owns the region once it is emitted.
+        assertThat(region.fileChannel().isOpen(), is(true));
+    }
+
+    @Test
+    public void cancelClosesRegion() {
+        toSource(response.payloadBodyAndTrailers()).subscribe(payloadSubscriber);
+        payloadSubscriber.cancel();
+        assertThat(region.fileChannel().isOpen(), is(false));
+    }
+
+    @Test
+    public void errorClosesRegion() {
+        toSource(response.payloadBodyAndTrailers()).subscribe(payloadSubscriber);
+        originalPayload.onError(DELIBERATE_EXCEPTION);
+        assertThat(payloadSubscriber.takeError(), is(sameInstance(DELIBERATE_EXCEPTION)));
+        assertThat(region.fileChannel().isOpen(), is(false));
+    }
+
+    @Test
+    public void bufferPayloadBodyFails() {
+        final TestPublisherSubscriber<Buffer> bufferSubscriber = new TestPublisherSubscriber<>();
+        toSource(response.payloadBody()).subscribe(bufferSubscriber);
+        bufferSubscriber.request(1);
+        originalPayload.onComplete();
+        assertThat(bufferSubscriber.takeError(), instanceOf(UnsupportedHttpChunkException.class));
+        assertThat(region.fileChannel().isOpen(), is(false));
+    }
+}
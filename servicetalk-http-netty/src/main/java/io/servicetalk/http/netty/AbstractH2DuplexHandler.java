@@ -16,6 +16,7 @@
 package io.servicetalk.http.netty;
 
 import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.http.api.HttpFileRegion;
 import io.servicetalk.http.api.HttpHeaders;
 import io.servicetalk.http.api.HttpHeadersFactory;
 import io.servicetalk.http.netty.H2ToStH1Utils.H2StreamRefusedException;
@@ -23,6 +24,7 @@ import io.servicetalk.http.netty.H2ToStH1Utils.H2StreamResetException;
 import io.servicetalk.transport.netty.internal.CloseHandler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
@@ -31,11 +33,17 @@ import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
 import io.netty.handler.codec.http2.Http2DataFrame;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.handler.stream.ChunkedInput;
+
+import javax.annotation.Nullable;
 
 import static io.netty.buffer.Unpooled.EMPTY_BUFFER;
 import static io.netty.handler.codec.http2.Http2Error.REFUSED_STREAM;
 import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.buffer.netty.BufferUtils.toByteBufNoThrow;
+import static io.servicetalk.http.netty.FileRegionUtils.closeQuietly;
+import static io.servicetalk.http.netty.FileRegionUtils.ensureChunkedWriteHandler;
+import static io.servicetalk.http.netty.FileRegionUtils.toMappedChunkedInput;
 import static io.servicetalk.http.netty.H2ToStH1Utils.h1HeadersToH2Headers;
 
 abstract class AbstractH2DuplexHandler extends ChannelDuplexHandler {
@@ -72,6 +80,20 @@ abstract class AbstractH2DuplexHandler extends ChannelDuplexHandler {
         }
     }
 
+    final void writeFileRegion(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        // The content of DATA frames is copied into the frame buffers of the HTTP/2 codec, so a FileRegion can not be
+        // used. Instead the file is memory-mapped to avoid copying its content to the Java heap, one chunk at a time as
+        // the stream is writable.
+        final HttpFileRegion region = (HttpFileRegion) msg;
+        if (region.count() == 0) {
+            closeQuietly(region);
+            promise.setSuccess();
+            return;
+        }
+        ensureChunkedWriteHandler(ctx);
+        ctx.write(new DataFrameChunkedInput(toMappedChunkedInput(region)), promise);
+    }
+
     final void writeTrailers(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
         // For H2 we don't need to notify protocolPayloadEndOutboundSuccess(ctx); the codecs takes care of half-closure
         closeHandler.protocolPayloadEndOutbound(ctx);
@@ -95,4 +117,48 @@ abstract class AbstractH2DuplexHandler extends ChannelDuplexHandler {
             ctx.fireChannelRead(headersFactory.newEmptyTrailers());
         }
     }
+
+    /**
+     * Wraps the chunks of a {@link ChunkedInput} in {@link Http2DataFrame}s which do not end the stream.
+     */
+    private static final class DataFrameChunkedInput implements ChunkedInput<Http2DataFrame> {
+        private final ChunkedInput<ByteBuf> input;
+
+        DataFrameChunkedInput(final ChunkedInput<ByteBuf> input) {
+            this.input = input;
+        }
+
+        @Override
+        public boolean isEndOfInput() throws Exception {
+            return input.isEndOfInput();
+        }
+
+        @Override
+        public void close() throws Exception {
+            input.close();
+        }
+
+        @Deprecated
+        @Override
+        public Http2DataFrame readChunk(final ChannelHandlerContext ctx) throws Exception {
+            return readChunk(ctx.alloc());
+        }
+
+        @Nullable
+        @Override
+        public Http2DataFrame readChunk(final ByteBufAllocator allocator) throws Exception {
+            final ByteBuf chunk = input.readChunk(allocator);
+            return chunk == null ? null : new DefaultHttp2DataFrame(chunk, false);
+        }
+
+        @Override
+        public long length() {
+            return input.length();
+        }
+
+        @Override
+        public long progress() {
+            return input.progress();
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.http.api.HttpFileRegion;
+import io.servicetalk.transport.netty.internal.DeferSslHandler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.FileRegion;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedInput;
+import io.netty.handler.stream.ChunkedWriteHandler;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import javax.annotation.Nullable;
+
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.servicetalk.transport.netty.internal.BuilderUtils.useIoUring;
+import static java.lang.Math.min;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+
+/**
+ * Utilities to write an {@link HttpFileRegion}.
+ */
+final class FileRegionUtils {
+    /**
+     * Size of the chunks in which an {@link HttpFileRegion} is memory-mapped if it can not be transferred as a
+     * {@link FileRegion}.
+     */
+    static final int MAPPED_CHUNK_SIZE = 1 << 20;
+
+    private FileRegionUtils() {
+        // no instances
+    }
+
+    /**
+     * Determine if an {@link HttpFileRegion} can be written as a {@link FileRegion}, which allows the operating system
+     * to transfer the content of the file without copying it to user space.
+     *
+     * @param ctx the {@link ChannelHandlerContext} to write to.
+     * @return {@code true} if an {@link HttpFileRegion} can be written as a {@link FileRegion}.
+     */
+    static boolean isFileRegionSupported(final ChannelHandlerContext ctx) {
+        final ChannelPipeline pipeline = ctx.pipeline();
+        // TLS requires the content to be encrypted in user space, and the io_uring transport does not support
+        // FileRegion.
+        return pipeline.get(SslHandler.class) == null && pipeline.get(DeferSslHandler.class) == null &&
+                !useIoUring(ctx.channel().eventLoop());
+    }
+
+    /**
+     * Convert an {@link HttpFileRegion} to a {@link FileRegion}. The returned {@link FileRegion} closes the
+     * {@link FileChannel} when it is released.
+     *
+     * @param region the {@link HttpFileRegion} to convert.
+     * @return a {@link FileRegion} for the passed {@code region}.
+     */
+    static FileRegion toFileRegion(final HttpFileRegion region) {
+        return new DefaultFileRegion(region.fileChannel(), region.position(), region.count());
+    }
+
+    /**
+     * Convert an {@link HttpFileRegion} to a {@link ChunkedInput} which memory-maps the region in chunks of at most
+     * {@link #MAPPED_CHUNK_SIZE} bytes. The mapped content does not reside on the Java heap, and each chunk is only
+     * mapped when it is read. The returned {@link ChunkedInput} closes the {@link FileChannel} when it is closed.
+     * <p>
+     * The returned {@link ChunkedInput} must be written to a pipeline which contains a {@link ChunkedWriteHandler}, see
+     * {@link #ensureChunkedWriteHandler(ChannelHandlerContext)}.
+     *
+     * @param region the {@link HttpFileRegion} to map.
+     * @return a {@link ChunkedInput} for the passed {@code region}.
+     */
+    static ChunkedInput<ByteBuf> toMappedChunkedInput(final HttpFileRegion region) {
+        return new MappedFileChunkedInput(region);
+    }
+
+    /**
+     * Add a {@link ChunkedWriteHandler} right before the passed {@link ChannelHandlerContext} if the pipeline does not
+     * contain one yet. The {@link ChunkedWriteHandler} writes a {@link ChunkedInput} one chunk at a time as the
+     * {@link io.netty.channel.Channel} is writable, and preserves the order of all subsequent writes. It is only added
+     * when needed to avoid queueing every write of connections which never write a {@link ChunkedInput}.
+     *
+     * @param ctx the {@link ChannelHandlerContext} which writes a {@link ChunkedInput}.
+     */
+    static void ensureChunkedWriteHandler(final ChannelHandlerContext ctx) {
+        final ChannelPipeline pipeline = ctx.pipeline();
+        if (pipeline.get(ChunkedWriteHandler.class) == null) {
+            pipeline.addBefore(ctx.name(), null, new ChunkedWriteHandler());
+        }
+    }
+
+    static void closeQuietly(final HttpFileRegion region) {
+        try {
+            region.fileChannel().close();
+        } catch (IOException ignored) {
+            // The region is discarded, nothing else can be done.
+        }
+    }
+
+    private static final class MappedFileChunkedInput implements ChunkedInput<ByteBuf> {
+        private final FileChannel fileChannel;
+        private final long startPosition;
+        private final long endPosition;
+        private long position;
+
+        MappedFileChunkedInput(final HttpFileRegion region) {
+            fileChannel = region.fileChannel();
+            startPosition = region.position();
+            endPosition = startPosition + region.count();
+            position = startPosition;
+        }
+
+        @Override
+        public boolean isEndOfInput() {
+            return position >= endPosition;
+        }
+
+        @Override
+        public void close() throws IOException {
+            fileChannel.close();
+        }
+
+        @Deprecated
+        @Override
+        public ByteBuf readChunk(final ChannelHandlerContext ctx) throws IOException {
+            return readChunk(ctx.alloc());
+        }
+
+        @Nullable
+        @Override
+        public ByteBuf readChunk(final ByteBufAllocator allocator) throws IOException {
+            if (isEndOfInput()) {
+                return null;
+            }
+            final int chunkSize = (int) min(MAPPED_CHUNK_SIZE, endPosition - position);
+            // The mapping stays valid after the FileChannel is closed, and is released when the buffer is garbage
+            // collected.
+            final ByteBuf chunk = wrappedBuffer(fileChannel.map(READ_ONLY, position, chunkSize));
+            position += chunkSize;
+            return chunk;
+        }
+
+        @Override
+        public long length() {
+            return endPosition - startPosition;
+        }
+
+        @Override
+        public long progress() {
+            return position - startPosition;
+        }
+    }
+}
@@ -87,4 +87,17 @@ public interface H1ProtocolConfig extends HttpProtocolConfig {
      * <a href="https://tools.ietf.org/html/rfc7230#section-4.1.2trailers">trailer fields</a>
      */
     int trailersEncodedSizeEstimate();
+
+    /**
+     * Whether flushes are coalesced at the connection level.
+     * <p>
+     * If enabled, flushes requested while the connection is reading are deferred until the read completes and
+     * flushes requested outside of a read are merged into a single flush on the event loop. This merges writes of
+     * multiple pipelined requests or responses into a single flush at the cost of a slightly delayed flush.
+     *
+     * @return {@code true} if flushes are coalesced at the connection level, {@code false} by default
+     */
+    default boolean coalesceFlushes() {
+        return false;
+    }
 }
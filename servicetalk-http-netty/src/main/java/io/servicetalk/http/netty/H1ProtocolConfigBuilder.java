@@ -35,6 +35,7 @@ public final class H1ProtocolConfigBuilder {
     private HttpHeadersFactory headersFactory = DefaultHttpHeadersFactory.INSTANCE;
     private int headersEncodedSizeEstimate = 256;
     private int trailersEncodedSizeEstimate = 256;
+    private boolean coalesceFlushes;
 
     H1ProtocolConfigBuilder() {
     }
@@ -130,6 +131,21 @@ public final class H1ProtocolConfigBuilder {
         return this;
     }
 
+    /**
+     * Sets whether flushes are coalesced at the connection level.
+     * <p>
+     * If enabled, flushes requested while the connection is reading are deferred until the read completes and
+     * flushes requested outside of a read are merged into a single flush on the event loop. This reduces the number of
+     * {@code writev} calls for deep HTTP/1.1 pipelines at the cost of a slightly delayed flush.
+     *
+     * @param coalesceFlushes {@code true} to coalesce flushes at the connection level
+     * @return {@code this}
+     */
+    public H1ProtocolConfigBuilder coalesceFlushes(final boolean coalesceFlushes) {
+        this.coalesceFlushes = coalesceFlushes;
+        return this;
+    }
+
     /**
      * Builds {@link H1ProtocolConfig}.
      *
@@ -137,7 +153,7 @@ public final class H1ProtocolConfigBuilder {
      */
     public H1ProtocolConfig build() {
         return new DefaultH1ProtocolConfig(headersFactory, maxPipelinedRequests, maxStartLineLength,
-                maxHeaderFieldLength, headersEncodedSizeEstimate, trailersEncodedSizeEstimate);
+                maxHeaderFieldLength, headersEncodedSizeEstimate, trailersEncodedSizeEstimate, coalesceFlushes);
     }
 
     private static final class DefaultH1ProtocolConfig implements H1ProtocolConfig {
@@ -148,16 +164,19 @@ public final class H1ProtocolConfigBuilder {
         private final int maxHeaderFieldLength;
         private final int headersEncodedSizeEstimate;
         private final int trailersEncodedSizeEstimate;
+        private final boolean coalesceFlushes;
 
         DefaultH1ProtocolConfig(final HttpHeadersFactory headersFactory, final int maxPipelinedRequests,
                                 final int maxStartLineLength, final int maxHeaderFieldLength,
-                                final int headersEncodedSizeEstimate, final int trailersEncodedSizeEstimate) {
+                                final int headersEncodedSizeEstimate, final int trailersEncodedSizeEstimate,
+                                final boolean coalesceFlushes) {
             this.headersFactory = headersFactory;
             this.maxPipelinedRequests = maxPipelinedRequests;
             this.maxStartLineLength = maxStartLineLength;
             this.maxHeaderFieldLength = maxHeaderFieldLength;
             this.headersEncodedSizeEstimate = headersEncodedSizeEstimate;
             this.trailersEncodedSizeEstimate = trailersEncodedSizeEstimate;
+            this.coalesceFlushes = coalesceFlushes;
         }
 
         @Override
@@ -189,5 +208,10 @@ public final class H1ProtocolConfigBuilder {
         public int trailersEncodedSizeEstimate() {
             return trailersEncodedSizeEstimate;
         }
+
+        @Override
+        public boolean coalesceFlushes() {
+            return coalesceFlushes;
+        }
     }
 }
@@ -17,6 +17,7 @@ package io.servicetalk.http.netty;
 
 import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.http.api.HttpFileRegion;
 import io.servicetalk.http.api.HttpHeaders;
 import io.servicetalk.http.api.HttpHeadersFactory;
 import io.servicetalk.http.api.HttpRequestMetaData;
@@ -90,6 +91,8 @@ final class H2ToStH1ClientDuplexHandler extends AbstractH2DuplexHandler {
             ctx.write(new DefaultHttp2HeadersFrame(h2Headers, false), promise);
         } else if (msg instanceof Buffer) {
             writeBuffer(ctx, msg, promise);
+        } else if (msg instanceof HttpFileRegion) {
+            writeFileRegion(ctx, msg, promise);
         } else if (msg instanceof HttpHeaders) {
             writeTrailers(ctx, msg, promise);
         } else {
@@ -18,6 +18,7 @@ package io.servicetalk.http.netty;
 import io.servicetalk.http.api.HttpRequestMethod;
 import io.servicetalk.transport.netty.internal.ChannelInitializer;
 import io.servicetalk.transport.netty.internal.CloseHandler;
+import io.servicetalk.transport.netty.internal.FlushCoalescingInitializer;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPipeline;
@@ -50,5 +51,8 @@ final class HttpClientChannelInitializer implements ChannelInitializer {
                 config.maxStartLineLength(), config.maxHeaderFieldLength(), closeHandler));
         pipeline.addLast(new HttpRequestEncoder(methodQueue,
                 config.headersEncodedSizeEstimate(), config.trailersEncodedSizeEstimate(), closeHandler));
+        if (config.coalesceFlushes()) {
+            new FlushCoalescingInitializer().init(channel);
+        }
     }
 }
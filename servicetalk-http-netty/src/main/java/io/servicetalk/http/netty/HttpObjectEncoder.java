@@ -31,6 +31,7 @@
 package io.servicetalk.http.netty;
 
 import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.http.api.HttpFileRegion;
 import io.servicetalk.http.api.HttpHeaders;
 import io.servicetalk.http.api.HttpMetaData;
 import io.servicetalk.transport.netty.internal.CloseHandler;
@@ -59,6 +60,11 @@ import static io.servicetalk.buffer.netty.BufferUtils.newBufferFrom;
 import static io.servicetalk.buffer.netty.BufferUtils.toByteBufNoThrow;
 import static io.servicetalk.http.api.CharSequences.unwrapBuffer;
 import static io.servicetalk.http.api.HeaderUtils.isTransferEncodingChunked;
+import static io.servicetalk.http.netty.FileRegionUtils.closeQuietly;
+import static io.servicetalk.http.netty.FileRegionUtils.ensureChunkedWriteHandler;
+import static io.servicetalk.http.netty.FileRegionUtils.isFileRegionSupported;
+import static io.servicetalk.http.netty.FileRegionUtils.toFileRegion;
+import static io.servicetalk.http.netty.FileRegionUtils.toMappedChunkedInput;
 import static io.servicetalk.http.netty.HeaderUtils.calculateContentLength;
 import static io.servicetalk.http.netty.HttpKeepAlive.shouldClose;
 import static io.servicetalk.transport.netty.internal.PooledRecvByteBufAllocatorInitializers.POOLED_ALLOCATOR;
@@ -184,6 +190,8 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
                         throw new Error();
                 }
             }
+        } else if (msg instanceof HttpFileRegion) {
+            writeFileRegion(ctx, (HttpFileRegion) msg, promise);
         } else if (msg instanceof HttpHeaders) {
             closeHandler.protocolPayloadEndOutbound(ctx);
             promise.addListener(f -> {
@@ -204,6 +212,34 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
         }
     }
 
+    private void writeFileRegion(ChannelHandlerContext ctx, HttpFileRegion region, ChannelPromise promise) {
+        if (state == ST_INIT) {
+            closeQuietly(region);
+            throw new IllegalStateException("unexpected message type: " + simpleClassName(region));
+        } else if (region.count() == 0 || state == ST_CONTENT_ALWAYS_EMPTY) {
+            closeQuietly(region);
+            ctx.write(EMPTY_BUFFER, promise);
+            return;
+        }
+        final Object content;
+        if (isFileRegionSupported(ctx)) {
+            content = toFileRegion(region);
+        } else {
+            // Chunks are mapped and written one at a time as the channel is writable.
+            ensureChunkedWriteHandler(ctx);
+            content = toMappedChunkedInput(region);
+        }
+        final PromiseCombiner promiseCombiner = new PromiseCombiner();
+        if (state == ST_CONTENT_CHUNK) {
+            promiseCombiner.add(ctx.write(encodeChunkHeader(region.count())));
+        }
+        promiseCombiner.add(ctx.write(content));
+        if (state == ST_CONTENT_CHUNK) {
+            promiseCombiner.add(ctx.write(CRLF_BUF.duplicate()));
+        }
+        promiseCombiner.finish(promise);
+    }
+
     /**
      * Determine whether a message has a content or not. Some message may have headers indicating
      * a content without having an actual content, e.g the response to an HEAD or CONNECT request.
@@ -255,11 +291,7 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
     private static void encodeChunkedContent(ChannelHandlerContext ctx, Buffer msg, long contentLength,
                                              PromiseCombiner promiseCombiner) {
         if (contentLength > 0) {
-            String lengthHex = toHexString(contentLength);
-            ByteBuf buf = POOLED_ALLOCATOR.buffer(lengthHex.length() + 2);
-            buf.writeCharSequence(lengthHex, US_ASCII);
-            writeShortBE(buf, CRLF_SHORT);
-            promiseCombiner.add(ctx.write(buf));
+            promiseCombiner.add(ctx.write(encodeChunkHeader(contentLength)));
             promiseCombiner.add(ctx.write(encodeAndRetain(msg)));
             promiseCombiner.add(ctx.write(CRLF_BUF.duplicate()));
         } else {
@@ -270,6 +302,14 @@ abstract class HttpObjectEncoder<T extends HttpMetaData> extends ChannelOutbound
         }
     }
 
+    private static ByteBuf encodeChunkHeader(long contentLength) {
+        String lengthHex = toHexString(contentLength);
+        ByteBuf buf = POOLED_ALLOCATOR.buffer(lengthHex.length() + 2);
+        buf.writeCharSequence(lengthHex, US_ASCII);
+        writeShortBE(buf, CRLF_SHORT);
+        return buf;
+    }
+
     private void encodeAndWriteTrailers(ChannelHandlerContext ctx, HttpHeaders headers, ChannelPromise promise) {
         if (headers.isEmpty()) {
             ctx.write(ZERO_CRLF_CRLF_BUF.duplicate(), promise);
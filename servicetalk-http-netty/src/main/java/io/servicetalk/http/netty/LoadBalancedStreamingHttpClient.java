@@ -16,8 +16,10 @@
 package io.servicetalk.http.netty;
 
 import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
 import io.servicetalk.concurrent.api.Completable;
 import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TerminalSignalConsumer;
 import io.servicetalk.http.api.FilterableStreamingHttpClient;
 import io.servicetalk.http.api.HttpExecutionContext;
 import io.servicetalk.http.api.HttpExecutionStrategy;
@@ -33,6 +35,8 @@ import io.servicetalk.http.utils.BeforeFinallyOnHttpResponseOperator;
 import java.util.function.Predicate;
 
 import static io.servicetalk.client.api.internal.RequestConcurrencyController.Result.Accepted;
+import static io.servicetalk.http.api.HttpResponseStatus.StatusClass.SERVER_ERROR_5XX;
+import static java.lang.System.nanoTime;
 import static java.util.Objects.requireNonNull;
 
 final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpClient {
@@ -63,6 +67,20 @@ final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpCl
         // LoadBalancer takes ownership of it (e.g. connection initialization) and in that case they will not be
         // following the LoadBalancer API which this Client depends upon to ensure the concurrent request count state is
         // correct.
+        if (loadBalancer instanceof RequestTrackingLoadBalancer) {
+            @SuppressWarnings("unchecked")
+            final RequestTrackingLoadBalancer<LoadBalancedStreamingHttpConnection> trackingLoadBalancer =
+                    (RequestTrackingLoadBalancer<LoadBalancedStreamingHttpConnection>) loadBalancer;
+            return loadBalancer.selectConnection(SELECTOR_FOR_REQUEST)
+                    .flatMap(c -> {
+                        final TrackedRequest tracked = new TrackedRequest(trackingLoadBalancer, c);
+                        return c.request(strategy, request)
+                                .map(tracked::onResponse)
+                                .liftSync(new BeforeFinallyOnHttpResponseOperator(tracked))
+                                // See comment below for subscribeShareContext.
+                                .subscribeShareContext();
+                    });
+        }
         return loadBalancer.selectConnection(SELECTOR_FOR_REQUEST)
                 .flatMap(c -> c.request(strategy, request)
                         .liftSync(new BeforeFinallyOnHttpResponseOperator(c::requestFinished))
@@ -108,4 +126,48 @@ final class LoadBalancedStreamingHttpClient implements FilterableStreamingHttpCl
     public StreamingHttpRequest newRequest(final HttpRequestMethod method, final String requestTarget) {
         return reqRespFactory.newRequest(method, requestTarget);
     }
+
+    /**
+     * Reports the lifecycle of a request to a {@link RequestTrackingLoadBalancer}, in addition to releasing the
+     * request concurrency of the connection. Responses with a {@code 5xx} status are reported as failed requests.
+     */
+    private static final class TrackedRequest implements TerminalSignalConsumer {
+        private final RequestTrackingLoadBalancer<LoadBalancedStreamingHttpConnection> loadBalancer;
+        private final LoadBalancedStreamingHttpConnection connection;
+        private final long startNanos;
+        private volatile boolean serverError;
+
+        TrackedRequest(final RequestTrackingLoadBalancer<LoadBalancedStreamingHttpConnection> loadBalancer,
+                       final LoadBalancedStreamingHttpConnection connection) {
+            this.loadBalancer = loadBalancer;
+            this.connection = connection;
+            loadBalancer.requestStarted(connection);
+            startNanos = nanoTime();
+        }
+
+        StreamingHttpResponse onResponse(final StreamingHttpResponse response) {
+            serverError = response.status().statusClass() == SERVER_ERROR_5XX;
+            return response;
+        }
+
+        @Override
+        public void onComplete() {
+            finished(serverError);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            finished(true);
+        }
+
+        @Override
+        public void onCancel() {
+            finished(serverError);
+        }
+
+        private void finished(final boolean failed) {
+            connection.requestFinished();
+            loadBalancer.requestFinished(connection, nanoTime() - startNanos, failed);
+        }
+    }
 }
@@ -54,11 +54,13 @@ import io.servicetalk.transport.netty.internal.ChannelInitializer;
 import io.servicetalk.transport.netty.internal.CloseHandler;
 import io.servicetalk.transport.netty.internal.CloseHandler.CloseEventObservedException;
 import io.servicetalk.transport.netty.internal.DefaultNettyConnection;
+import io.servicetalk.transport.netty.internal.FlushCoalescingInitializer;
 import io.servicetalk.transport.netty.internal.FlushStrategy;
 import io.servicetalk.transport.netty.internal.NettyConnection;
 import io.servicetalk.transport.netty.internal.NettyConnection.TerminalPredicate;
 import io.servicetalk.transport.netty.internal.NettyConnectionContext;
 import io.servicetalk.transport.netty.internal.SplittingFlushStrategy;
+import io.servicetalk.transport.netty.internal.WriteDemandMetrics;
 
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelPipeline;
@@ -166,6 +168,9 @@ final class NettyHttpServer {
                     config.maxStartLineLength(), config.maxHeaderFieldLength(), closeHandler));
             pipeline.addLast(new HttpResponseEncoder(methodQueue, config.headersEncodedSizeEstimate(),
                     config.trailersEncodedSizeEstimate(), closeHandler));
+            if (config.coalesceFlushes()) {
+                new FlushCoalescingInitializer().init(channel);
+            }
         };
     }
 
@@ -440,6 +445,11 @@ final class NettyHttpServer {
             return connection.nettyChannel();
         }
 
+        @Override
+        public WriteDemandMetrics writeDemandMetrics() {
+            return connection.writeDemandMetrics();
+        }
+
         @Override
         public String toString() {
             return connection.toString();
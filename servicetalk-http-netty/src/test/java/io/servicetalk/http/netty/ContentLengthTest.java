@@ -17,6 +17,7 @@ package io.servicetalk.http.netty;
 
 import io.servicetalk.concurrent.api.Publisher;
 import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.HttpFileRegion;
 import io.servicetalk.http.api.HttpMetaData;
 import io.servicetalk.http.api.HttpRequest;
 import io.servicetalk.http.api.HttpResponse;
@@ -27,6 +28,7 @@ import io.servicetalk.http.api.StreamingHttpResponse;
 import org.hamcrest.Matcher;
 import org.junit.Test;
 
+import java.nio.channels.FileChannel;
 import java.util.Collection;
 
 import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
@@ -45,6 +47,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
 
 public class ContentLengthTest extends AbstractNettyHttpServerTest {
 
@@ -110,6 +113,14 @@ public class ContentLengthTest extends AbstractNettyHttpServerTest {
         setResponseContentLengthAndVerify(response, is("12"));
     }
 
+    @Test
+    public void shouldCalculateResponseContentLengthFromFileRegionLargerThanIntMax() throws Exception {
+        final long count = Integer.MAX_VALUE + 1L;
+        StreamingHttpResponse response = newAggregatedResponse().toStreamingResponse()
+                .payloadBody(HttpFileRegion.of(mock(FileChannel.class), 0, count));
+        setResponseContentLengthAndVerify(response, is(Long.toString(count)));
+    }
+
     private static HttpRequest newAggregatedRequest() {
         return awaitSingleIndefinitelyNonNull(StreamingHttpRequests.newRequest(GET, "/", HTTP_1_1,
                 headersFactory.newHeaders(), DEFAULT_ALLOCATOR, headersFactory).toRequest());
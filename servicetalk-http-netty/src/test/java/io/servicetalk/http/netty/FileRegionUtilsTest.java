@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.HttpFileRegion;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.stream.ChunkedInput;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+
+import static io.netty.buffer.ByteBufAllocator.DEFAULT;
+import static io.servicetalk.http.netty.FileRegionUtils.MAPPED_CHUNK_SIZE;
+import static io.servicetalk.http.netty.FileRegionUtils.toMappedChunkedInput;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class FileRegionUtilsTest {
+    private static final long OFFSET = 3;
+    private static final long COUNT = MAPPED_CHUNK_SIZE + 5;
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile(getClass().getSimpleName(), ".bin");
+        final byte[] content = new byte[(int) (OFFSET + COUNT)];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(file.toPath(), content);
+    }
+
+    @After
+    public void tearDown() {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void chunksAreMappedOnRead() throws Exception {
+        final HttpFileRegion region = HttpFileRegion.of(FileChannel.open(file.toPath()), OFFSET, COUNT);
+        final ChunkedInput<ByteBuf> input = toMappedChunkedInput(region);
+        assertThat(input.length(), is(COUNT));
+        assertThat(input.progress(), is(0L));
+        assertThat(input.isEndOfInput(), is(false));
+
+        ByteBuf chunk = input.readChunk(DEFAULT);
+        assertThat(chunk.readableBytes(), is(MAPPED_CHUNK_SIZE));
+        assertThat(chunk.getByte(0), is((byte) OFFSET));
+        chunk.release();
+        assertThat(input.progress(), is((long) MAPPED_CHUNK_SIZE));
+        assertThat(input.isEndOfInput(), is(false));
+
+        chunk = input.readChunk(DEFAULT);
+        assertThat(chunk.readableBytes(), is((int) (COUNT - MAPPED_CHUNK_SIZE)));
+        assertThat(chunk.getByte(0), is((byte) (OFFSET + MAPPED_CHUNK_SIZE)));
+        chunk.release();
+        assertThat(input.progress(), is(COUNT));
+        assertThat(input.isEndOfInput(), is(true));
+        assertThat(input.readChunk(DEFAULT), is(nullValue()));
+
+        assertThat(region.fileChannel().isOpen(), is(true));
+        input.close();
+        assertThat(region.fileChannel().isOpen(), is(false));
+    }
+}
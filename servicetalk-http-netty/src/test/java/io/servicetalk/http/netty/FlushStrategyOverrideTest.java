@@ -58,7 +58,9 @@ import static io.servicetalk.http.netty.HttpClients.forSingleAddress;
 import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
 import static io.servicetalk.transport.netty.internal.ExecutionContextRule.immediate;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 
 public class FlushStrategyOverrideTest {
 
@@ -138,6 +140,18 @@ public class FlushStrategyOverrideTest {
         assertThat("Unexpected payload for regular flush.", secondReqChunks, hasSize(1/*last chunk*/));
     }
 
+    @Test
+    public void writeDemandMetricsAreExposed() throws Exception {
+        NettyConnectionContext nctx = (NettyConnectionContext) conn.connectionContext();
+        assertThat(nctx.writeDemandMetrics().writtenBytes(), is(0L));
+
+        conn.request(conn.get("/").payloadBody(from(ctx.bufferAllocator().fromAscii("hello"))))
+                .flatMapPublisher(StreamingHttpResponse::payloadBodyAndTrailers).toFuture().get();
+
+        assertThat(nctx.writeDemandMetrics().writtenBytes(), greaterThan(0L));
+        assertThat(nctx.writeDemandMetrics().requestedBytes(), greaterThan(0L));
+    }
+
     private static final class FlushingService implements StreamingHttpService {
 
         private BlockingQueue<MockFlushStrategy> flushStrategies = new LinkedBlockingQueue<>();
@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.http.api.HttpFileRegion;
+import io.servicetalk.http.api.HttpMetaData;
+import io.servicetalk.http.api.HttpResponse;
+import io.servicetalk.http.api.HttpServerBuilder;
+import io.servicetalk.http.api.SingleAddressHttpClientBuilder;
+import io.servicetalk.test.resources.DefaultTestCerts;
+import io.servicetalk.transport.api.HostAndPort;
+import io.servicetalk.transport.api.ServerContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.TRANSFER_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderValues.CHUNKED;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.netty.FileRegionUtils.MAPPED_CHUNK_SIZE;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h1Default;
+import static io.servicetalk.http.netty.HttpProtocolConfigs.h2Default;
+import static io.servicetalk.transport.netty.internal.AddressUtils.localAddress;
+import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@RunWith(Parameterized.class)
+public class HttpFileRegionTest {
+    // Not a multiple of the chunk size to verify the last mapped chunk is partial.
+    private static final int FILE_SIZE = 2 * MAPPED_CHUNK_SIZE + 4321;
+    private static final long OFFSET = 17;
+
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final boolean secure;
+    private final boolean h2;
+    private final boolean contentLength;
+    private File file;
+    private byte[] content;
+
+    public HttpFileRegionTest(final boolean secure, final boolean h2, final boolean contentLength) {
+        this.secure = secure;
+        this.h2 = h2;
+        this.contentLength = contentLength;
+    }
+
+    @Parameters(name = "secure={0}, h2={1}, contentLength={2}")
+    public static Collection<Boolean[]> data() {
+        return asList(new Boolean[] {false, false, false},
+                new Boolean[] {false, false, true},
+                new Boolean[] {true, false, false},
+                new Boolean[] {true, false, true},
+                new Boolean[] {false, true, false},
+                new Boolean[] {false, true, true});
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile(getClass().getSimpleName(), ".bin");
+        content = new byte[FILE_SIZE];
+        ThreadLocalRandom.current().nextBytes(content);
+        Files.write(file.toPath(), content);
+    }
+
+    @After
+    public void tearDown() {
+        if (file != null && !file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Test
+    public void entireFile() throws Exception {
+        try (ServerContext serverContext = newServerBuilder()
+                .listenStreamingAndAwait((ctx, request, responseFactory) -> {
+                    final HttpFileRegion region = entireFileRegion();
+                    return succeeded(contentLength(responseFactory.ok(), region.count()).payloadBody(region));
+                });
+             BlockingHttpClient client = newClient(serverContext)) {
+            assertResponse(client.request(client.get("/")), 0, FILE_SIZE);
+        }
+    }
+
+    @Test
+    public void region() throws Exception {
+        final long count = MAPPED_CHUNK_SIZE + 1;
+        try (ServerContext serverContext = newServerBuilder()
+                .listenStreamingAndAwait((ctx, request, responseFactory) -> {
+                    final HttpFileRegion region = fileRegion(OFFSET, count);
+                    return succeeded(contentLength(responseFactory.ok(), count).payloadBody(region));
+                });
+             BlockingHttpClient client = newClient(serverContext)) {
+            assertResponse(client.request(client.get("/")), (int) OFFSET, (int) count);
+        }
+    }
+
+    @Test
+    public void emptyRegion() throws Exception {
+        try (ServerContext serverContext = newServerBuilder()
+                .listenStreamingAndAwait((ctx, request, responseFactory) -> succeeded(
+                        contentLength(responseFactory.ok(), 0).payloadBody(fileRegion(OFFSET, 0))));
+             BlockingHttpClient client = newClient(serverContext)) {
+            assertResponse(client.request(client.get("/")), 0, 0);
+        }
+    }
+
+    private HttpFileRegion entireFileRegion() {
+        try {
+            return HttpFileRegion.of(file.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpFileRegion fileRegion(final long position, final long count) {
+        try {
+            return HttpFileRegion.of(FileChannel.open(file.toPath()), position, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T extends HttpMetaData> T contentLength(final T metaData, final long length) {
+        if (contentLength) {
+            metaData.headers().set(CONTENT_LENGTH, Long.toString(length));
+        }
+        return metaData;
+    }
+
+    private void assertResponse(final HttpResponse response, final int offset, final int length) {
+        assertThat(response.status(), is(OK));
+        if (contentLength) {
+            assertThat(response.headers().get(CONTENT_LENGTH).toString(), is(Integer.toString(length)));
+        } else if (!h2) {
+            assertThat(response.headers().contains(TRANSFER_ENCODING, CHUNKED), is(true));
+        } else {
+            assertThat(response.headers().get(CONTENT_LENGTH), nullValue());
+        }
+        final Buffer payload = response.payloadBody();
+        assertThat(payload.readableBytes(), is(length));
+        final byte[] actual = new byte[length];
+        payload.readBytes(actual);
+        final byte[] expected = new byte[length];
+        System.arraycopy(content, offset, expected, 0, length);
+        assertThat(actual, is(expected));
+    }
+
+    private HttpServerBuilder newServerBuilder() {
+        HttpServerBuilder builder = HttpServers.forAddress(localAddress(0)).protocols(h2 ? h2Default() : h1Default());
+        if (secure) {
+            builder = builder.secure().commit(DefaultTestCerts::loadServerPem, DefaultTestCerts::loadServerKey);
+        }
+        return builder;
+    }
+
+    private BlockingHttpClient newClient(final ServerContext serverContext) {
+        SingleAddressHttpClientBuilder<HostAndPort, InetSocketAddress> builder =
+                HttpClients.forSingleAddress(serverHostAndPort(serverContext))
+                        .protocols(h2 ? h2Default() : h1Default());
+        if (secure) {
+            builder = builder.secure()
+                    .disableHostnameVerification()
+                    .trustManager(DefaultTestCerts::loadMutualAuthCaPem)
+                    .commit();
+        }
+        return builder.buildBlocking();
+    }
+}
@@ -18,13 +18,18 @@ package io.servicetalk.http.netty;
 import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.http.api.DefaultHttpHeadersFactory;
 import io.servicetalk.http.api.EmptyHttpHeaders;
+import io.servicetalk.http.api.HttpFileRegion;
 import io.servicetalk.http.api.HttpHeaders;
 import io.servicetalk.http.api.HttpResponseMetaData;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.FileRegion;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.util.ArrayDeque;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -306,6 +311,61 @@ public class HttpResponseEncoderTest {
         }
     }
 
+    @Test
+    public void contentLengthFileRegion() throws Exception {
+        fileRegion(false);
+    }
+
+    @Test
+    public void chunkedFileRegion() throws Exception {
+        fileRegion(true);
+    }
+
+    private static void fileRegion(boolean chunked) throws Exception {
+        EmbeddedChannel channel = newEmbeddedChannel();
+        File file = File.createTempFile(HttpResponseEncoderTest.class.getSimpleName(), ".bin");
+        try {
+            Files.write(file.toPath(), new byte[128]);
+            HttpFileRegion region = HttpFileRegion.of(FileChannel.open(file.toPath()), 16, 100);
+            HttpResponseMetaData response = newResponseMetaData(HTTP_1_1, OK, INSTANCE.newHeaders());
+            if (chunked) {
+                response.headers().add(TRANSFER_ENCODING, CHUNKED);
+            } else {
+                response.headers().add(CONTENT_LENGTH, valueOf(region.count()));
+            }
+            channel.writeOutbound(response);
+            channel.writeOutbound(region);
+            channel.writeOutbound(EmptyHttpHeaders.INSTANCE);
+
+            ByteBuf byteBuf = channel.readOutbound();
+            assertTrue(byteBuf.toString(US_ASCII).startsWith("HTTP/1.1 200 OK\r\n"));
+            byteBuf.release();
+            if (chunked) {
+                byteBuf = channel.readOutbound();
+                assertEquals(toHexString(100) + "\r\n", byteBuf.toString(US_ASCII));
+                byteBuf.release();
+            }
+            FileRegion fileRegion = channel.readOutbound();
+            assertEquals(16, fileRegion.position());
+            assertEquals(100, fileRegion.count());
+            fileRegion.release();
+            assertFalse(region.fileChannel().isOpen());
+            if (chunked) {
+                byteBuf = channel.readOutbound();
+                assertEquals("\r\n", byteBuf.toString(US_ASCII));
+                byteBuf.release();
+                byteBuf = channel.readOutbound();
+                assertEquals("0\r\n\r\n", byteBuf.toString(US_ASCII));
+                byteBuf.release();
+            } else {
+                consumeEmptyBufferFromTrailers(channel);
+            }
+            assertFalse(channel.finishAndReleaseAll());
+        } finally {
+            assertTrue(file.delete());
+        }
+    }
+
     private static void consumeEmptyBufferFromTrailers(EmbeddedChannel channel) {
         // Empty buffer is written when trailers are seen to indicate the end of the request
         ByteBuf byteBuf = channel.readOutbound();
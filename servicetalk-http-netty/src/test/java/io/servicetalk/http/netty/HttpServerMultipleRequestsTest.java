@@ -32,11 +32,14 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.Timeout;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static io.servicetalk.concurrent.api.Single.succeeded;
@@ -123,6 +126,49 @@ public class HttpServerMultipleRequestsTest {
         }
     }
 
+    @Test
+    public void pipelinedRequestsWithCoalescedFlushes() throws Exception {
+        StreamingHttpService service = (ctx, request, responseFactory) -> {
+            StreamingHttpResponse response = responseFactory.ok();
+            CharSequence requestId = request.headers().get(REQUEST_ID_HEADER);
+            if (requestId != null) {
+                response.headers().set(REQUEST_ID_HEADER, requestId);
+            }
+            return succeeded(response.payloadBody(request.payloadBody()));
+        };
+        final int numRequests = 16;
+        CompositeCloseable compositeCloseable = AsyncCloseables.newCompositeCloseable();
+        try {
+            ServerContext ctx = compositeCloseable.append(HttpServers.forAddress(localAddress(0))
+                    .protocols(h1().coalesceFlushes(true).build())
+                    .ioExecutor(serverExecution.ioExecutor())
+                    .executionStrategy(defaultStrategy(serverExecution.executor()))
+                    .listenStreamingAndAwait(service));
+            StreamingHttpClient client = compositeCloseable.append(
+                    HttpClients.forResolvedAddress(serverHostAndPort(ctx))
+                            .protocols(h1().maxPipelinedRequests(numRequests).coalesceFlushes(true).build())
+                            .ioExecutor(clientExecution.ioExecutor())
+                            .executionStrategy(defaultStrategy(clientExecution.executor()))
+                            .buildStreaming());
+            ReservedStreamingHttpConnection connection = compositeCloseable.append(
+                    client.reserveConnection(client.get("/")).toFuture().get());
+            List<Future<StreamingHttpResponse>> responses = new ArrayList<>(numRequests);
+            for (int i = 0; i < numRequests; ++i) {
+                StreamingHttpRequest request = connection.get("/");
+                request.headers().set(REQUEST_ID_HEADER, Integer.toString(i));
+                responses.add(connection.request(request).toFuture());
+            }
+            for (int i = 0; i < numRequests; ++i) {
+                StreamingHttpResponse response = responses.get(i).get();
+                assertEquals(OK, response.status());
+                assertTrue(response.headers().contains(REQUEST_ID_HEADER, Integer.toString(i)));
+                response.payloadBody().ignoreElements().toFuture().get();
+            }
+        } finally {
+            compositeCloseable.close();
+        }
+    }
+
     private static void makeClientRequestWithId(StreamingHttpConnection connection, String requestId)
             throws ExecutionException, InterruptedException {
         StreamingHttpRequest request = connection.get("/");
@@ -0,0 +1,151 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.netty;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.LoadBalancerFactory;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.AsyncCloseables;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.CompositeCloseable;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.BlockingHttpClient;
+import io.servicetalk.transport.api.ServerContext;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static io.servicetalk.http.api.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.netty.HttpClients.forSingleAddress;
+import static io.servicetalk.http.netty.HttpServers.forPort;
+import static io.servicetalk.http.netty.StaticScoreHttpProtocolBinder.provideStaticScoreIfNeeded;
+import static io.servicetalk.loadbalancer.PowerOfTwoChoicesLoadBalancer.newPowerOfTwoChoicesFactory;
+import static io.servicetalk.transport.netty.internal.AddressUtils.serverHostAndPort;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class RequestTrackingLoadBalancerTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final ServerContext serverContext;
+    private final BlockingHttpClient client;
+
+    public RequestTrackingLoadBalancerTest() throws Exception {
+        serverContext = forPort(0).listenBlockingAndAwait((ctx, request, responseFactory) ->
+                "/fail".equals(request.path()) ? responseFactory.internalServerError() : responseFactory.ok());
+        client = forSingleAddress(serverHostAndPort(serverContext))
+                .loadBalancerFactory(new CountingLoadBalancerFactory<>(), provideStaticScoreIfNeeded(1))
+                .buildBlocking();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        CompositeCloseable closeable = AsyncCloseables.newCompositeCloseable();
+        closeable.append(client.asClient());
+        closeable.append(serverContext);
+        closeable.close();
+    }
+
+    @Test
+    public void requestsAreReported() throws Exception {
+        assertThat(client.request(client.get("/")).status(), is(OK));
+        assertThat(client.request(client.get("/fail")).status(), is(INTERNAL_SERVER_ERROR));
+
+        assertThat("Unexpected started requests.", started.get(), is(2));
+        assertThat("Unexpected finished requests.", finished.get(), is(2));
+        assertThat("Unexpected failed requests.", failed.get(), is(1));
+    }
+
+    private final class CountingLoadBalancerFactory<C extends LoadBalancedConnection>
+            implements LoadBalancerFactory<InetSocketAddress, C> {
+
+        private final LoadBalancerFactory<InetSocketAddress, C> p2c = newPowerOfTwoChoicesFactory();
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public LoadBalancer<? extends C> newLoadBalancer(
+                final Publisher<? extends ServiceDiscovererEvent<InetSocketAddress>> eventPublisher,
+                final ConnectionFactory<InetSocketAddress, ? extends C> connectionFactory) {
+            return new CountingLoadBalancer<>((RequestTrackingLoadBalancer<C>)
+                    p2c.newLoadBalancer(eventPublisher, connectionFactory));
+        }
+    }
+
+    private final class CountingLoadBalancer<C extends LoadBalancedConnection>
+            implements RequestTrackingLoadBalancer<C> {
+        private final RequestTrackingLoadBalancer<C> delegate;
+
+        private CountingLoadBalancer(final RequestTrackingLoadBalancer<C> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void requestStarted(final C connection) {
+            started.incrementAndGet();
+            delegate.requestStarted(connection);
+        }
+
+        @Override
+        public void requestFinished(final C connection, final long durationNanos, final boolean failed) {
+            finished.incrementAndGet();
+            if (failed) {
+                RequestTrackingLoadBalancerTest.this.failed.incrementAndGet();
+            }
+            delegate.requestFinished(connection, durationNanos, failed);
+        }
+
+        @Override
+        public Single<C> selectConnection(final Predicate<C> selector) {
+            return delegate.selectConnection(selector);
+        }
+
+        @Override
+        public Publisher<Object> eventStream() {
+            return delegate.eventStream();
+        }
+
+        @Override
+        public Completable onClose() {
+            return delegate.onClose();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return delegate.closeAsync();
+        }
+
+        @Override
+        public Completable closeAsyncGracefully() {
+            return delegate.closeAsyncGracefully();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TerminalSignalConsumer;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+import io.servicetalk.http.api.StreamingHttpService;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.StreamingHttpServiceFilterFactory;
+
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static java.lang.System.nanoTime;
+
+/**
+ * A {@link StreamingHttpServiceFilter} which limits the number of concurrent requests handled by the service, and
+ * adapts this limit to the observed latency of the requests.
+ * <p>
+ * The limit follows the gradient between the long term baseline latency and the recent latency of requests: it grows
+ * while the latency stays within the {@link Builder#rttTolerance(double) tolerated} ratio of the baseline and shrinks
+ * when requests queue up and their latency increases. Requests exceeding the limit are rejected right away with
+ * {@code 503 Service Unavailable}, which keeps the queueing delay of the accepted requests bounded when the load spikes
+ * instead of slowing down every request.
+ * <p>
+ * A request holds its permit until its response payload terminates, but its latency is only measured until the
+ * response meta-data is received, so that long lived streaming responses do not lower the limit. Requests which fail
+ * or are cancelled release their permit without updating the limit. Each {@link StreamingHttpService} created by this
+ * factory has its own limit.
+ */
+public final class AdaptiveConcurrencyLimitHttpServiceFilter implements StreamingHttpServiceFilterFactory,
+                                                                        HttpExecutionStrategyInfluencer {
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final int longWindow;
+
+    private AdaptiveConcurrencyLimitHttpServiceFilter(final Builder builder) {
+        initialLimit = builder.initialLimit;
+        minLimit = builder.minLimit;
+        maxLimit = builder.maxLimit;
+        rttTolerance = builder.rttTolerance;
+        smoothing = builder.smoothing;
+        longWindow = builder.longWindow;
+    }
+
+    @Override
+    public StreamingHttpServiceFilter create(final StreamingHttpService service) {
+        final GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                rttTolerance, smoothing, longWindow);
+        return new StreamingHttpServiceFilter(service) {
+            @Override
+            public Single<StreamingHttpResponse> handle(final HttpServiceContext ctx,
+                                                        final StreamingHttpRequest request,
+                                                        final StreamingHttpResponseFactory responseFactory) {
+                return defer(() -> {
+                    final int inFlight = limiter.tryAcquire();
+                    if (inFlight < 0) {
+                        return succeeded(responseFactory.serviceUnavailable());
+                    }
+                    final Permit permit = new Permit(limiter, inFlight);
+                    return delegate().handle(ctx, request, responseFactory)
+                            .map(permit::onResponseMetaData)
+                            .liftSync(new BeforeFinallyOnHttpResponseOperator(permit))
+                            .subscribeShareContext();
+                });
+            }
+        };
+    }
+
+    /**
+     * A permit acquired from the {@link GradientConcurrencyLimiter}, which is held until the response payload
+     * terminates but only samples the latency until the response meta-data is received. The duration of a streaming
+     * response payload depends on the route rather than on the load of the service, so it must not lower the limit.
+     */
+    private static final class Permit implements TerminalSignalConsumer {
+        private final GradientConcurrencyLimiter limiter;
+        private final int inFlight;
+        private final long startNanos = nanoTime();
+        private volatile long rttNanos = -1;
+
+        Permit(final GradientConcurrencyLimiter limiter, final int inFlight) {
+            this.limiter = limiter;
+            this.inFlight = inFlight;
+        }
+
+        StreamingHttpResponse onResponseMetaData(final StreamingHttpResponse response) {
+            rttNanos = nanoTime() - startNanos;
+            return response;
+        }
+
+        @Override
+        public void onComplete() {
+            final long rttNanos = this.rttNanos;
+            if (rttNanos < 0) {
+                limiter.release();
+            } else {
+                limiter.release(rttNanos, inFlight);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            limiter.release();
+        }
+
+        @Override
+        public void onCancel() {
+            limiter.release();
+        }
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    /**
+     * A builder of {@link AdaptiveConcurrencyLimitHttpServiceFilter}.
+     */
+    public static final class Builder {
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 1000;
+        private double rttTolerance = 1.5;
+        private double smoothing = 0.2;
+        private int longWindow = 600;
+
+        /**
+         * Sets the concurrency limit used until latency samples are available.
+         *
+         * @param initialLimit the initial concurrency limit.
+         * @return {@code this}.
+         */
+        public Builder initialLimit(final int initialLimit) {
+            if (initialLimit <= 0) {
+                throw new IllegalArgumentException("initialLimit: " + initialLimit + " (expected > 0)");
+            }
+            this.initialLimit = initialLimit;
+            return this;
+        }
+
+        /**
+         * Sets the bounds of the concurrency limit.
+         *
+         * @param minLimit the minimum concurrency limit.
+         * @param maxLimit the maximum concurrency limit.
+         * @return {@code this}.
+         */
+        public Builder limitBounds(final int minLimit, final int maxLimit) {
+            if (minLimit <= 0) {
+                throw new IllegalArgumentException("minLimit: " + minLimit + " (expected > 0)");
+            }
+            if (maxLimit < minLimit) {
+                throw new IllegalArgumentException("maxLimit: " + maxLimit + " (expected >= minLimit " + minLimit +
+                        ')');
+            }
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            return this;
+        }
+
+        /**
+         * Sets the tolerated ratio between the recent latency and the baseline latency before the limit is reduced.
+         *
+         * @param rttTolerance the tolerated ratio, e.g. {@code 1.5} to tolerate latencies up to 50% higher than the
+         * baseline.
+         * @return {@code this}.
+         */
+        public Builder rttTolerance(final double rttTolerance) {
+            if (!(rttTolerance >= 1)) {
+                throw new IllegalArgumentException("rttTolerance: " + rttTolerance + " (expected >= 1)");
+            }
+            this.rttTolerance = rttTolerance;
+            return this;
+        }
+
+        /**
+         * Sets the weight of a new limit estimate compared to the current limit, higher values adapt faster.
+         *
+         * @param smoothing the smoothing factor, in {@code (0, 1]}.
+         * @return {@code this}.
+         */
+        public Builder smoothing(final double smoothing) {
+            if (!(smoothing > 0 && smoothing <= 1)) {
+                throw new IllegalArgumentException("smoothing: " + smoothing + " (expected (0, 1])");
+            }
+            this.smoothing = smoothing;
+            return this;
+        }
+
+        /**
+         * Sets the number of requests over which the baseline latency is averaged.
+         *
+         * @param longWindow the number of requests over which the baseline latency is averaged.
+         * @return {@code this}.
+         */
+        public Builder longWindow(final int longWindow) {
+            if (longWindow <= 0) {
+                throw new IllegalArgumentException("longWindow: " + longWindow + " (expected > 0)");
+            }
+            this.longWindow = longWindow;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link AdaptiveConcurrencyLimitHttpServiceFilter}.
+         *
+         * @return a new {@link AdaptiveConcurrencyLimitHttpServiceFilter}.
+         */
+        public AdaptiveConcurrencyLimitHttpServiceFilter build() {
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("initialLimit: " + initialLimit + " (expected in [" + minLimit +
+                        ", " + maxLimit + "])");
+            }
+            return new AdaptiveConcurrencyLimitHttpServiceFilter(this);
+        }
+    }
+}
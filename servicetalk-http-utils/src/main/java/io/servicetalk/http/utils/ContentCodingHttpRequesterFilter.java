@@ -0,0 +1,178 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.http.api.FilterableStreamingHttpClient;
+import io.servicetalk.http.api.FilterableStreamingHttpConnection;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpConnectionFilter;
+import io.servicetalk.http.api.StreamingHttpConnectionFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpRequestMethod.CONNECT;
+import static io.servicetalk.http.utils.ContentCodingHttpServiceFilter.DEFAULT_MIN_COMPRESSION_SIZE;
+import static io.servicetalk.http.utils.ContentCodings.DEFAULT_COMPRESSIBLE_CONTENT_TYPE;
+import static io.servicetalk.http.utils.ContentCodings.SUPPORTED_ENCODINGS;
+import static io.servicetalk.http.utils.ContentCodings.contentEncoding;
+import static io.servicetalk.http.utils.ContentCodings.decode;
+import static io.servicetalk.http.utils.ContentCodings.encode;
+import static io.servicetalk.http.utils.ContentCodings.isSupportedEncoding;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A filter which negotiates <a href="https://tools.ietf.org/html/rfc7231#section-3.1.2.2">content-coding</a> of
+ * HTTP responses.
+ * <p>
+ * Requests without an {@code accept-encoding} header advertise support for {@code gzip} and {@code deflate}, and
+ * responses using either of these encodings are decompressed incrementally, without aggregating the payload. Responses
+ * with any other {@code content-encoding} are passed through unchanged.
+ * <p>
+ * A client can not know whether a server accepts compressed requests, so requests are only compressed if a request
+ * encoding is configured. Requests are then compressed incrementally unless:
+ * <ul>
+ *     <li>the request method is {@code CONNECT} or a safe method like {@code GET}, which have no payload,</li>
+ *     <li>the request already has a {@code content-encoding},</li>
+ *     <li>the request has a {@code content-length} smaller than the configured minimum size, or</li>
+ *     <li>the request {@code content-type} is not compressible, for example an image or an archive.</li>
+ * </ul>
+ */
+public final class ContentCodingHttpRequesterFilter implements StreamingHttpClientFilterFactory,
+                                                               StreamingHttpConnectionFilterFactory,
+                                                               HttpExecutionStrategyInfluencer {
+    @Nullable
+    private final CharSequence requestEncoding;
+    private final int minCompressionSize;
+    private final Predicate<CharSequence> compressibleContentType;
+
+    /**
+     * Creates a new instance which decompresses responses and does not compress requests.
+     */
+    public ContentCodingHttpRequesterFilter() {
+        requestEncoding = null;
+        minCompressionSize = DEFAULT_MIN_COMPRESSION_SIZE;
+        compressibleContentType = DEFAULT_COMPRESSIBLE_CONTENT_TYPE;
+    }
+
+    /**
+     * Creates a new instance which also compresses requests of at least
+     * {@link ContentCodingHttpServiceFilter#DEFAULT_MIN_COMPRESSION_SIZE} bytes.
+     *
+     * @param requestEncoding {@code content-encoding} used to compress requests, {@code gzip} or {@code deflate}.
+     */
+    public ContentCodingHttpRequesterFilter(final CharSequence requestEncoding) {
+        this(requestEncoding, DEFAULT_MIN_COMPRESSION_SIZE, DEFAULT_COMPRESSIBLE_CONTENT_TYPE);
+    }
+
+    /**
+     * Creates a new instance which also compresses requests.
+     *
+     * @param requestEncoding {@code content-encoding} used to compress requests, {@code gzip} or {@code deflate}.
+     * @param minCompressionSize minimum {@code content-length} of a request for it to be compressed. Requests with an
+     * unknown length are always eligible for compression.
+     * @param compressibleContentType {@link Predicate} which returns {@code true} if a request with the passed
+     * {@code content-type} should be compressed. Requests without a {@code content-type} are always eligible for
+     * compression.
+     */
+    public ContentCodingHttpRequesterFilter(final CharSequence requestEncoding, final int minCompressionSize,
+                                            final Predicate<CharSequence> compressibleContentType) {
+        if (!isSupportedEncoding(requestEncoding)) {
+            throw new IllegalArgumentException("requestEncoding: " + requestEncoding +
+                    " (expected " + SUPPORTED_ENCODINGS + ")");
+        }
+        if (minCompressionSize < 0) {
+            throw new IllegalArgumentException("minCompressionSize: " + minCompressionSize + " (expected >= 0)");
+        }
+        this.requestEncoding = requestEncoding;
+        this.minCompressionSize = minCompressionSize;
+        this.compressibleContentType = requireNonNull(compressibleContentType);
+    }
+
+    private Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                  final HttpExecutionStrategy strategy,
+                                                  final StreamingHttpRequest request) {
+        if (!request.headers().contains(ACCEPT_ENCODING)) {
+            request.headers().set(ACCEPT_ENCODING, SUPPORTED_ENCODINGS);
+        }
+        final BufferAllocator allocator = delegate.executionContext().bufferAllocator();
+        final CharSequence requestEncoding = this.requestEncoding;
+        final StreamingHttpRequest encodedRequest;
+        if (requestEncoding != null && isCompressible(request)) {
+            request.headers().remove(CONTENT_LENGTH);
+            request.headers().set(CONTENT_ENCODING, requestEncoding);
+            encodedRequest = request.transformPayloadBody(payload -> encode(payload, requestEncoding, allocator));
+        } else {
+            encodedRequest = request;
+        }
+        return delegate.request(strategy, encodedRequest).map(response -> {
+            final CharSequence encoding = contentEncoding(response.headers());
+            if (encoding == null || !isSupportedEncoding(encoding)) {
+                return response;
+            }
+            response.headers().remove(CONTENT_ENCODING);
+            response.headers().remove(CONTENT_LENGTH);
+            return response.transformPayloadBody(payload -> decode(payload, encoding, allocator));
+        });
+    }
+
+    private boolean isCompressible(final StreamingHttpRequest request) {
+        if (request.method().properties().isSafe() || CONNECT.equals(request.method())) {
+            return false;
+        }
+        return ContentCodings.isCompressible(request.headers(), minCompressionSize, compressibleContentType);
+    }
+
+    @Override
+    public StreamingHttpClientFilter create(final FilterableStreamingHttpClient client) {
+        return new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final HttpExecutionStrategy strategy,
+                                                            final StreamingHttpRequest request) {
+                return ContentCodingHttpRequesterFilter.this.request(delegate, strategy, request);
+            }
+        };
+    }
+
+    @Override
+    public StreamingHttpConnectionFilter create(final FilterableStreamingHttpConnection connection) {
+        return new StreamingHttpConnectionFilter(connection) {
+            @Override
+            public Single<StreamingHttpResponse> request(final HttpExecutionStrategy strategy,
+                                                         final StreamingHttpRequest request) {
+                return ContentCodingHttpRequesterFilter.this.request(delegate(), strategy, request);
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpExecutionStrategyInfluencer;
+import io.servicetalk.http.api.HttpHeaders;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpResponseFactory;
+import io.servicetalk.http.api.StreamingHttpService;
+import io.servicetalk.http.api.StreamingHttpServiceFilter;
+import io.servicetalk.http.api.StreamingHttpServiceFilterFactory;
+
+import java.util.function.Predicate;
+
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.VARY;
+import static io.servicetalk.http.api.HttpRequestMethod.HEAD;
+import static io.servicetalk.http.api.HttpResponseStatus.NOT_MODIFIED;
+import static io.servicetalk.http.api.HttpResponseStatus.NO_CONTENT;
+import static io.servicetalk.http.api.HttpResponseStatus.StatusClass.INFORMATIONAL_1XX;
+import static io.servicetalk.http.utils.ContentCodings.DEFAULT_COMPRESSIBLE_CONTENT_TYPE;
+import static io.servicetalk.http.utils.ContentCodings.SUPPORTED_ENCODINGS;
+import static io.servicetalk.http.utils.ContentCodings.contentEncoding;
+import static io.servicetalk.http.utils.ContentCodings.decode;
+import static io.servicetalk.http.utils.ContentCodings.encode;
+import static io.servicetalk.http.utils.ContentCodings.isIdentityEncoding;
+import static io.servicetalk.http.utils.ContentCodings.isSupportedEncoding;
+import static io.servicetalk.http.utils.ContentCodings.negotiateEncoding;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link StreamingHttpServiceFilter} which applies
+ * <a href="https://tools.ietf.org/html/rfc7231#section-3.1.2.2">content-coding</a> to HTTP payloads.
+ * <p>
+ * Requests with a {@code gzip} or {@code deflate} {@code content-encoding} are decompressed before they reach the
+ * service, other encodings are rejected with {@code 415 Unsupported Media Type}. Responses are compressed with the
+ * {@code gzip} or {@code deflate} encoding preferred by the request's {@code accept-encoding} header unless:
+ * <ul>
+ *     <li>the response already has a {@code content-encoding},</li>
+ *     <li>the response has a {@code content-length} smaller than the configured minimum size, or</li>
+ *     <li>the response {@code content-type} is not compressible, for example an image or an archive.</li>
+ * </ul>
+ * Payloads are compressed and decompressed incrementally, as each {@link io.servicetalk.buffer.api.Buffer} is
+ * received, without aggregating them.
+ * <p>
+ * A {@link io.servicetalk.http.api.HttpFileRegion} payload body can only be written by the transport, so the payload
+ * body of such a response fails if it is selected for compression. Exclude its {@code content-type} from compression or
+ * set its {@code content-encoding} to skip it.
+ */
+public final class ContentCodingHttpServiceFilter implements StreamingHttpServiceFilterFactory,
+                                                             HttpExecutionStrategyInfluencer {
+    /**
+     * Default minimum {@code content-length} of a response for it to be compressed.
+     */
+    public static final int DEFAULT_MIN_COMPRESSION_SIZE = 1024;
+
+    private final int minCompressionSize;
+    private final Predicate<CharSequence> compressibleContentType;
+
+    /**
+     * Creates a new instance which compresses responses of at least {@link #DEFAULT_MIN_COMPRESSION_SIZE} bytes.
+     */
+    public ContentCodingHttpServiceFilter() {
+        this(DEFAULT_MIN_COMPRESSION_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param minCompressionSize minimum {@code content-length} of a response for it to be compressed. Responses with
+     * an unknown length are always eligible for compression.
+     */
+    public ContentCodingHttpServiceFilter(final int minCompressionSize) {
+        this(minCompressionSize, DEFAULT_COMPRESSIBLE_CONTENT_TYPE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param minCompressionSize minimum {@code content-length} of a response for it to be compressed. Responses with
+     * an unknown length are always eligible for compression.
+     * @param compressibleContentType {@link Predicate} which returns {@code true} if a response with the passed
+     * {@code content-type} should be compressed. Responses without a {@code content-type} are always eligible for
+     * compression.
+     */
+    public ContentCodingHttpServiceFilter(final int minCompressionSize,
+                                          final Predicate<CharSequence> compressibleContentType) {
+        if (minCompressionSize < 0) {
+            throw new IllegalArgumentException("minCompressionSize: " + minCompressionSize + " (expected >= 0)");
+        }
+        this.minCompressionSize = minCompressionSize;
+        this.compressibleContentType = requireNonNull(compressibleContentType);
+    }
+
+    @Override
+    public StreamingHttpServiceFilter create(final StreamingHttpService service) {
+        return new StreamingHttpServiceFilter(service) {
+            @Override
+            public Single<StreamingHttpResponse> handle(final HttpServiceContext ctx,
+                                                        final StreamingHttpRequest request,
+                                                        final StreamingHttpResponseFactory responseFactory) {
+                final BufferAllocator allocator = ctx.executionContext().bufferAllocator();
+                final CharSequence requestEncoding = contentEncoding(request.headers());
+                final StreamingHttpRequest decodedRequest;
+                if (isIdentityEncoding(requestEncoding)) {
+                    decodedRequest = request;
+                } else if (isSupportedEncoding(requestEncoding)) {
+                    request.headers().remove(CONTENT_ENCODING);
+                    request.headers().remove(CONTENT_LENGTH);
+                    decodedRequest = request.transformPayloadBody(payload ->
+                            decode(payload, requestEncoding, allocator));
+                } else {
+                    return succeeded(responseFactory.unsupportedMediaType()
+                            .setHeader(ACCEPT_ENCODING, SUPPORTED_ENCODINGS));
+                }
+                final boolean head = HEAD.equals(request.method());
+                final CharSequence responseEncoding = negotiateEncoding(request.headers());
+                return delegate().handle(ctx, decodedRequest, responseFactory).map(response -> {
+                    if (head || !isCompressible(response)) {
+                        return response;
+                    }
+                    final HttpHeaders headers = response.headers();
+                    if (!headers.containsIgnoreCase(VARY, ACCEPT_ENCODING)) {
+                        headers.add(VARY, ACCEPT_ENCODING);
+                    }
+                    if (responseEncoding == null) {
+                        return response;
+                    }
+                    headers.remove(CONTENT_LENGTH);
+                    headers.set(CONTENT_ENCODING, responseEncoding);
+                    return response.transformPayloadBody(payload -> encode(payload, responseEncoding, allocator));
+                });
+            }
+        };
+    }
+
+    @Override
+    public HttpExecutionStrategy influenceStrategy(final HttpExecutionStrategy strategy) {
+        // No influence since we do not block.
+        return strategy;
+    }
+
+    private boolean isCompressible(final StreamingHttpResponse response) {
+        if (response.status().statusClass() == INFORMATIONAL_1XX || NO_CONTENT.equals(response.status()) ||
+                NOT_MODIFIED.equals(response.status())) {
+            return false;
+        }
+        return ContentCodings.isCompressible(response.headers(), minCompressionSize, compressibleContentType);
+    }
+}
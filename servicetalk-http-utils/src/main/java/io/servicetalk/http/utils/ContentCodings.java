@@ -0,0 +1,214 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.http.api.HttpHeaders;
+
+import java.util.Iterator;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Completable.fromRunnable;
+import static io.servicetalk.concurrent.api.Publisher.defer;
+import static io.servicetalk.concurrent.api.Single.fromCallable;
+import static io.servicetalk.http.api.CharSequences.contentEqualsIgnoreCase;
+import static io.servicetalk.http.api.CharSequences.indexOf;
+import static io.servicetalk.http.api.CharSequences.newAsciiString;
+import static io.servicetalk.http.api.CharSequences.regionMatches;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpHeaderValues.DEFLATE;
+import static io.servicetalk.http.api.HttpHeaderValues.GZIP;
+import static io.servicetalk.http.api.HttpHeaderValues.IDENTITY;
+
+final class ContentCodings {
+    private static final String[] INCOMPRESSIBLE_CONTENT_TYPE_PREFIXES = {"image/", "audio/", "video/",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-bzip2",
+            "application/x-7z-compressed", "application/x-rar-compressed", "application/x-compress"};
+
+    static final CharSequence SUPPORTED_ENCODINGS = newAsciiString("gzip, deflate");
+
+    static final Predicate<CharSequence> DEFAULT_COMPRESSIBLE_CONTENT_TYPE = contentType -> {
+        for (String prefix : INCOMPRESSIBLE_CONTENT_TYPE_PREFIXES) {
+            if (regionMatches(contentType, true, 0, prefix, 0, prefix.length())) {
+                // SVG is the only commonly used image format which is not already compressed.
+                return regionMatches(contentType, true, 0, "image/svg", 0, 9);
+            }
+        }
+        return true;
+    };
+
+    private ContentCodings() {
+        // no instances
+    }
+
+    static boolean isSupportedEncoding(final CharSequence encoding) {
+        return contentEqualsIgnoreCase(encoding, GZIP) || contentEqualsIgnoreCase(encoding, DEFLATE);
+    }
+
+    static boolean isIdentityEncoding(@Nullable final CharSequence encoding) {
+        return encoding == null || contentEqualsIgnoreCase(encoding, IDENTITY);
+    }
+
+    /**
+     * Determine if a payload is eligible for compression based on its headers.
+     *
+     * @param headers the headers of the payload.
+     * @param minCompressionSize minimum {@code content-length} of a payload for it to be compressed.
+     * @param compressibleContentType {@link Predicate} which returns {@code true} if a payload with the passed
+     * {@code content-type} should be compressed.
+     * @return {@code true} if the payload has no {@code content-encoding}, a compressible or no {@code content-type}
+     * and an unknown {@code content-length} or one of at least {@code minCompressionSize}.
+     */
+    static boolean isCompressible(final HttpHeaders headers, final int minCompressionSize,
+                                  final Predicate<CharSequence> compressibleContentType) {
+        if (headers.contains(CONTENT_ENCODING)) {
+            return false;
+        }
+        final CharSequence contentType = headers.get(CONTENT_TYPE);
+        if (contentType != null && !compressibleContentType.test(contentType)) {
+            return false;
+        }
+        final long contentLength = contentLength(headers.get(CONTENT_LENGTH));
+        return contentLength < 0 || contentLength >= minCompressionSize;
+    }
+
+    private static long contentLength(@Nullable final CharSequence value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Nullable
+    static CharSequence contentEncoding(final HttpHeaders headers) {
+        final CharSequence encoding = headers.get(CONTENT_ENCODING);
+        return encoding == null ? null : trim(encoding, 0, encoding.length());
+    }
+
+    /**
+     * Selects the preferred supported content-coding from the
+     * <a href="https://tools.ietf.org/html/rfc7231#section-5.3.4">accept-encoding</a> header values.
+     *
+     * @param headers the request headers.
+     * @return {@link io.servicetalk.http.api.HttpHeaderValues#GZIP} or
+     * {@link io.servicetalk.http.api.HttpHeaderValues#DEFLATE}, or {@code null} if neither is acceptable.
+     */
+    @Nullable
+    static CharSequence negotiateEncoding(final HttpHeaders headers) {
+        float gzipQ = -1;
+        float deflateQ = -1;
+        float wildcardQ = -1;
+        final Iterator<? extends CharSequence> values = headers.valuesIterator(ACCEPT_ENCODING);
+        while (values.hasNext()) {
+            final CharSequence value = values.next();
+            int start = 0;
+            while (start < value.length()) {
+                int end = indexOf(value, ',', start);
+                if (end < 0) {
+                    end = value.length();
+                }
+                int paramsStart = indexOf(value, ';', start);
+                if (paramsStart < 0 || paramsStart > end) {
+                    paramsStart = end;
+                }
+                final CharSequence coding = trim(value, start, paramsStart);
+                final float q = qValue(value, paramsStart, end);
+                if (contentEqualsIgnoreCase(coding, GZIP)) {
+                    gzipQ = q;
+                } else if (contentEqualsIgnoreCase(coding, DEFLATE)) {
+                    deflateQ = q;
+                } else if (coding.length() == 1 && coding.charAt(0) == '*') {
+                    wildcardQ = q;
+                }
+                start = end + 1;
+            }
+        }
+        if (gzipQ < 0) {
+            gzipQ = wildcardQ;
+        }
+        if (deflateQ < 0) {
+            deflateQ = wildcardQ;
+        }
+        if (gzipQ <= 0 && deflateQ <= 0) {
+            return null;
+        }
+        return gzipQ >= deflateQ ? GZIP : DEFLATE;
+    }
+
+    static Publisher<Buffer> encode(final Publisher<Buffer> payload, final CharSequence encoding,
+                                    final BufferAllocator allocator) {
+        final boolean gzip = contentEqualsIgnoreCase(encoding, GZIP);
+        return defer(() -> {
+            final ZlibContentEncoder encoder = new ZlibContentEncoder(allocator, gzip);
+            return payload.map(encoder::encode)
+                    .concat(fromCallable(encoder::finish))
+                    .filter(buffer -> buffer.readableBytes() > 0)
+                    .beforeFinally(encoder::end);
+        });
+    }
+
+    static Publisher<Buffer> decode(final Publisher<Buffer> payload, final CharSequence encoding,
+                                    final BufferAllocator allocator) {
+        final boolean gzip = contentEqualsIgnoreCase(encoding, GZIP);
+        return defer(() -> {
+            final ZlibContentDecoder decoder = new ZlibContentDecoder(allocator, gzip);
+            return payload.map(decoder::decode)
+                    .concat(fromRunnable(decoder::finish))
+                    .filter(buffer -> buffer.readableBytes() > 0)
+                    .beforeFinally(decoder::end);
+        });
+    }
+
+    private static float qValue(final CharSequence value, final int paramsStart, final int end) {
+        int index = paramsStart;
+        while (index < end) {
+            int next = indexOf(value, ';', index + 1);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            final CharSequence param = trim(value, index + 1, next);
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Float.parseFloat(param.subSequence(2, param.length()).toString());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+            index = next;
+        }
+        return 1;
+    }
+
+    private static CharSequence trim(final CharSequence value, int start, int end) {
+        while (start < end && value.charAt(start) == ' ') {
+            ++start;
+        }
+        while (end > start && value.charAt(end - 1) == ' ') {
+            --end;
+        }
+        return value.subSequence(start, end);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.Math.sqrt;
+
+/**
+ * A concurrency limit which adapts to the gradient between the long term baseline round trip time of requests and
+ * their recent round trip time.
+ * <p>
+ * While the recent round trip time stays within the tolerated ratio of the baseline, the limit grows by a queue
+ * allowance of {@code sqrt(limit)} so that it can probe for additional capacity. When requests queue up and their round
+ * trip time increases, the limit shrinks proportionally to the gradient, by at most half per sample. Samples taken
+ * while less than half of the limit is in use do not grow the limit since they do not tell whether more concurrency
+ * would be sustained.
+ * <p>
+ * Samples are applied without blocking the threads releasing permits: a sample which is reported while another sample
+ * is being applied is skipped. Under contention this samples a subset of the requests, which is enough to follow the
+ * latency trend.
+ */
+final class GradientConcurrencyLimiter {
+    private static final AtomicIntegerFieldUpdater<GradientConcurrencyLimiter> inFlightUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(GradientConcurrencyLimiter.class, "inFlight");
+    private static final AtomicIntegerFieldUpdater<GradientConcurrencyLimiter> samplingUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(GradientConcurrencyLimiter.class, "sampling");
+    private static final int SHORT_WINDOW = 10;
+    private static final double MIN_GRADIENT = 0.5;
+    /**
+     * When the recent round trip time is less than half of the baseline, the baseline is decayed faster so that the
+     * limit recovers from a past latency increase, e.g. after a slow dependency recovered.
+     */
+    private static final double BASELINE_DRIFT_RATIO = 2;
+    private static final double BASELINE_DRIFT_DECAY = 0.95;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double rttTolerance;
+    private final double smoothing;
+    private final double longAlpha;
+    private final double shortAlpha;
+
+    private volatile int limit;
+    private volatile int inFlight;
+    private volatile int sampling;
+
+    // Guarded by sampling.
+    private double estimatedLimit;
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    GradientConcurrencyLimiter(final int initialLimit, final int minLimit, final int maxLimit,
+                               final double rttTolerance, final double smoothing, final int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.rttTolerance = rttTolerance;
+        this.smoothing = smoothing;
+        longAlpha = 2d / (longWindow + 1);
+        shortAlpha = 2d / (SHORT_WINDOW + 1);
+        limit = initialLimit;
+        estimatedLimit = initialLimit;
+    }
+
+    /**
+     * Tries to acquire a permit for a new request.
+     *
+     * @return the number of requests in flight including the new request, or {@code -1} if the limit is reached and
+     * the request must be rejected.
+     */
+    int tryAcquire() {
+        for (;;) {
+            final int current = inFlight;
+            if (current >= limit) {
+                return -1;
+            }
+            if (inFlightUpdater.compareAndSet(this, current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Releases a permit acquired by {@link #tryAcquire()} without updating the limit, e.g. for a failed request whose
+     * round trip time is not representative.
+     */
+    void release() {
+        inFlightUpdater.decrementAndGet(this);
+    }
+
+    /**
+     * Releases a permit acquired by {@link #tryAcquire()} and updates the limit with the round trip time of the
+     * request.
+     *
+     * @param rttNanos the round trip time of the request.
+     * @param inFlight the number of requests in flight when the request was accepted.
+     */
+    void release(final long rttNanos, final int inFlight) {
+        release();
+        if (samplingUpdater.compareAndSet(this, 0, 1)) {
+            try {
+                onSample(rttNanos, inFlight);
+            } finally {
+                sampling = 0;
+            }
+        }
+    }
+
+    private void onSample(final long rttNanos, final int inFlight) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            shortRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += shortAlpha * (rttNanos - shortRttNanos);
+        longRttNanos += longAlpha * (rttNanos - longRttNanos);
+        if (longRttNanos / shortRttNanos > BASELINE_DRIFT_RATIO) {
+            longRttNanos *= BASELINE_DRIFT_DECAY;
+        }
+
+        final double gradient = max(MIN_GRADIENT, min(1, rttTolerance * longRttNanos / shortRttNanos));
+        if (gradient == 1 && inFlight < estimatedLimit / 2) {
+            // The limit is not the bottleneck, don't grow it.
+            return;
+        }
+        final double newLimit = estimatedLimit * gradient + sqrt(estimatedLimit);
+        estimatedLimit = max(minLimit, min(maxLimit, estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+        limit = (int) estimatedLimit;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{limit=" + limit +
+                ", inFlight=" + inFlight +
+                '}';
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+/**
+ * Incrementally decompresses a stream of {@link Buffer}s encoded in the {@code gzip} or {@code deflate} (zlib)
+ * format.
+ * <p>
+ * Decompressed data is produced as soon as it is available, so streaming payloads are decompressed without
+ * aggregating them. This class is not thread-safe.
+ */
+final class ZlibContentDecoder {
+    private static final int GZIP_TRAILER_LENGTH = 8;
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final BufferAllocator allocator;
+    private final Inflater inflater;
+    @Nullable
+    private final CRC32 crc;
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
+    /**
+     * Accumulates the gzip header until it is complete, and after that the gzip trailer.
+     */
+    @Nullable
+    private byte[] pending;
+    private int pendingLength;
+    private boolean headerParsed;
+
+    ZlibContentDecoder(final BufferAllocator allocator, final boolean gzip) {
+        this.allocator = allocator;
+        inflater = new Inflater(gzip);
+        crc = gzip ? new CRC32() : null;
+        headerParsed = !gzip;
+    }
+
+    Buffer decode(final Buffer in) {
+        final int length = in.readableBytes();
+        byte[] array;
+        int offset;
+        if (in.hasArray()) {
+            array = in.array();
+            offset = in.arrayOffset() + in.readerIndex();
+        } else {
+            array = new byte[length];
+            offset = 0;
+            in.getBytes(in.readerIndex(), array);
+        }
+        int remaining = length;
+        if (!headerParsed) {
+            appendPending(array, offset, remaining);
+            final int headerLength = gzipHeaderLength();
+            if (headerLength < 0) {
+                return allocator.newBuffer(0);
+            }
+            headerParsed = true;
+            array = pending;
+            offset = headerLength;
+            remaining = pendingLength - headerLength;
+            pending = null;
+            pendingLength = 0;
+        }
+        if (inflater.finished()) {
+            appendTrailer(array, offset, remaining);
+            return allocator.newBuffer(0);
+        }
+        final Buffer out = allocator.newBuffer(remaining * 2);
+        inflater.setInput(array, offset, remaining);
+        try {
+            for (;;) {
+                final int read = inflater.inflate(scratch);
+                if (read > 0) {
+                    if (crc != null) {
+                        crc.update(scratch, 0, read);
+                    }
+                    out.writeBytes(scratch, 0, read);
+                } else if (inflater.finished() || inflater.needsInput()) {
+                    break;
+                } else if (inflater.needsDictionary()) {
+                    throw new IllegalStateException("Compressed payload requires a preset dictionary");
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed payload", e);
+        }
+        if (inflater.finished()) {
+            final int trailing = inflater.getRemaining();
+            appendTrailer(array, offset + remaining - trailing, trailing);
+        }
+        return out;
+    }
+
+    void finish() {
+        if (!headerParsed || !inflater.finished()) {
+            throw new IllegalStateException("Compressed payload ended prematurely");
+        }
+        if (crc != null) {
+            if (pendingLength < GZIP_TRAILER_LENGTH) {
+                throw new IllegalStateException("Compressed payload ended prematurely");
+            }
+            assert pending != null;
+            if (readIntLE(pending, 0) != (int) crc.getValue() || readIntLE(pending, 4) != inflater.getTotalOut()) {
+                throw new IllegalStateException("Compressed payload failed the gzip integrity check");
+            }
+        }
+    }
+
+    void end() {
+        inflater.end();
+    }
+
+    private void appendTrailer(final byte[] array, final int offset, final int length) {
+        // Only the gzip trailer is expected after the compressed data, anything else is ignored.
+        if (crc != null && pendingLength < GZIP_TRAILER_LENGTH) {
+            appendPending(array, offset, Math.min(length, GZIP_TRAILER_LENGTH - pendingLength));
+        }
+    }
+
+    private void appendPending(final byte[] array, final int offset, final int length) {
+        if (pending == null) {
+            pending = new byte[Math.max(length, 16)];
+        } else if (pending.length - pendingLength < length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length << 1, pendingLength + length));
+        }
+        System.arraycopy(array, offset, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * Parses the <a href="https://tools.ietf.org/html/rfc1952#section-2.3">gzip header</a> accumulated so far.
+     *
+     * @return the length of the header, or {@code -1} if more data is required.
+     */
+    private int gzipHeaderLength() {
+        final byte[] header = pending;
+        assert header != null;
+        if (pendingLength < 10) {
+            return -1;
+        }
+        if (header[0] != (byte) 0x1f || header[1] != (byte) 0x8b || header[2] != 8) {
+            throw new IllegalStateException("Invalid gzip header");
+        }
+        final int flags = header[3];
+        int index = 10;
+        if ((flags & FEXTRA) != 0) {
+            if (pendingLength < index + 2) {
+                return -1;
+            }
+            index += 2 + ((header[index] & 0xff) | (header[index + 1] & 0xff) << 8);
+        }
+        if ((flags & FNAME) != 0 && (index = skipZeroTerminated(header, index)) < 0) {
+            return -1;
+        }
+        if ((flags & FCOMMENT) != 0 && (index = skipZeroTerminated(header, index)) < 0) {
+            return -1;
+        }
+        if ((flags & FHCRC) != 0) {
+            index += 2;
+        }
+        return index <= pendingLength ? index : -1;
+    }
+
+    private int skipZeroTerminated(final byte[] header, int index) {
+        for (; index < pendingLength; ++index) {
+            if (header[index] == 0) {
+                return index + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static int readIntLE(final byte[] array, final int offset) {
+        return (array[offset] & 0xff) | (array[offset + 1] & 0xff) << 8 | (array[offset + 2] & 0xff) << 16 |
+                (array[offset + 3] & 0xff) << 24;
+    }
+}
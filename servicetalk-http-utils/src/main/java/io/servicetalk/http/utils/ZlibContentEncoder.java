@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+
+import static java.util.zip.Deflater.DEFAULT_COMPRESSION;
+import static java.util.zip.Deflater.SYNC_FLUSH;
+
+/**
+ * Incrementally compresses a stream of {@link Buffer}s using the {@code gzip} or {@code deflate} (zlib) format.
+ * <p>
+ * Each call to {@link #encode(Buffer)} flushes the compressed data for the input so far, which allows streaming
+ * payloads to be compressed without aggregating them. This class is not thread-safe.
+ */
+final class ZlibContentEncoder {
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte[] GZIP_HEADER = {(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED,
+            0, 0, 0, 0, 0, 0, 0};
+    private static final int SCRATCH_SIZE = 8192;
+
+    private final BufferAllocator allocator;
+    private final Deflater deflater;
+    @Nullable
+    private final CRC32 crc;
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
+    private boolean headerWritten;
+
+    ZlibContentEncoder(final BufferAllocator allocator, final boolean gzip) {
+        this.allocator = allocator;
+        // gzip wraps a raw deflate stream with its own header and trailer.
+        deflater = new Deflater(DEFAULT_COMPRESSION, gzip);
+        crc = gzip ? new CRC32() : null;
+    }
+
+    Buffer encode(final Buffer in) {
+        final int length = in.readableBytes();
+        final Buffer out = allocator.newBuffer(length / 2 + GZIP_HEADER.length);
+        writeHeaderIfNeeded(out);
+        if (length == 0) {
+            return out;
+        }
+        final byte[] array;
+        final int offset;
+        if (in.hasArray()) {
+            array = in.array();
+            offset = in.arrayOffset() + in.readerIndex();
+        } else {
+            array = new byte[length];
+            offset = 0;
+            in.getBytes(in.readerIndex(), array);
+        }
+        if (crc != null) {
+            crc.update(array, offset, length);
+        }
+        deflater.setInput(array, offset, length);
+        int written;
+        do {
+            written = deflater.deflate(scratch, 0, scratch.length, SYNC_FLUSH);
+            out.writeBytes(scratch, 0, written);
+        } while (written == scratch.length);
+        return out;
+    }
+
+    Buffer finish() {
+        final Buffer out = allocator.newBuffer(SCRATCH_SIZE / 8);
+        writeHeaderIfNeeded(out);
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.writeBytes(scratch, 0, deflater.deflate(scratch));
+        }
+        if (crc != null) {
+            out.writeIntLE((int) crc.getValue());
+            out.writeIntLE(deflater.getTotalIn());
+        }
+        return out;
+    }
+
+    void end() {
+        deflater.end();
+    }
+
+    private void writeHeaderIfNeeded(final Buffer out) {
+        if (crc != null && !headerWritten) {
+            headerWritten = true;
+            out.writeBytes(GZIP_HEADER);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpService;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.OK;
+import static io.servicetalk.http.api.HttpResponseStatus.SERVICE_UNAVAILABLE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class AdaptiveConcurrencyLimitHttpServiceFilterTest {
+    private static final StreamingHttpRequestResponseFactory reqRespFactory =
+            new DefaultStreamingHttpRequestResponseFactory(DEFAULT_ALLOCATOR, DefaultHttpHeadersFactory.INSTANCE,
+                    HTTP_1_1);
+
+    @Rule
+    public final ServiceTalkTestTimeout timeout = new ServiceTalkTestTimeout();
+
+    private final HttpServiceContext ctx = mock(HttpServiceContext.class);
+    private final Deque<TestPublisher<Buffer>> payloads = new ArrayDeque<>();
+    private final StreamingHttpService service = new AdaptiveConcurrencyLimitHttpServiceFilter.Builder()
+            .initialLimit(2)
+            .limitBounds(1, 10)
+            .build()
+            .create((ctx, request, responseFactory) -> {
+                if (request.path().equals("/fail")) {
+                    return failed(DELIBERATE_EXCEPTION);
+                }
+                final TestPublisher<Buffer> payload = new TestPublisher<>();
+                payloads.add(payload);
+                return succeeded(responseFactory.ok().payloadBody(payload));
+            });
+
+    @Test
+    public void rejectsRequestsAboveLimit() throws Exception {
+        final StreamingHttpResponse first = handle("/");
+        final StreamingHttpResponse second = handle("/");
+        assertThat(first.status(), is(OK));
+        assertThat(second.status(), is(OK));
+        assertThat(handle("/").status(), is(SERVICE_UNAVAILABLE));
+    }
+
+    @Test
+    public void permitIsReleasedWhenResponsePayloadCompletes() throws Exception {
+        final StreamingHttpResponse first = handle("/");
+        handle("/");
+        assertThat(handle("/").status(), is(SERVICE_UNAVAILABLE));
+
+        first.payloadBody().ignoreElements().subscribe();
+        payloads.removeFirst().onComplete();
+        assertThat(handle("/").status(), is(OK));
+    }
+
+    @Test
+    public void permitIsReleasedWhenResponsePayloadIsCancelled() throws Exception {
+        final StreamingHttpResponse first = handle("/");
+        handle("/");
+
+        first.payloadBody().ignoreElements().subscribe().cancel();
+        assertThat(handle("/").status(), is(OK));
+    }
+
+    @Test
+    public void permitIsReleasedWhenServiceFails() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try {
+                handle("/fail");
+                fail("Expected the service to fail.");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), is(DELIBERATE_EXCEPTION));
+            }
+        }
+        handle("/");
+        assertThat(handle("/").status(), is(OK));
+    }
+
+    private StreamingHttpResponse handle(final String path) throws Exception {
+        return service.handle(ctx, reqRespFactory.get(path), reqRespFactory).toFuture().get();
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.buffer.api.BufferAllocator;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+import io.servicetalk.http.api.DefaultHttpHeadersFactory;
+import io.servicetalk.http.api.DefaultStreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.HttpExecutionContext;
+import io.servicetalk.http.api.HttpExecutionStrategy;
+import io.servicetalk.http.api.HttpFileRegion;
+import io.servicetalk.http.api.HttpServiceContext;
+import io.servicetalk.http.api.StreamingHttpClient;
+import io.servicetalk.http.api.StreamingHttpClientFilter;
+import io.servicetalk.http.api.StreamingHttpClientFilterFactory;
+import io.servicetalk.http.api.StreamingHttpRequest;
+import io.servicetalk.http.api.StreamingHttpRequestResponseFactory;
+import io.servicetalk.http.api.StreamingHttpRequester;
+import io.servicetalk.http.api.StreamingHttpResponse;
+import io.servicetalk.http.api.StreamingHttpService;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.http.api.HttpHeaderNames.ACCEPT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_ENCODING;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_LENGTH;
+import static io.servicetalk.http.api.HttpHeaderNames.CONTENT_TYPE;
+import static io.servicetalk.http.api.HttpHeaderNames.VARY;
+import static io.servicetalk.http.api.HttpHeaderValues.APPLICATION_JSON;
+import static io.servicetalk.http.api.HttpHeaderValues.DEFLATE;
+import static io.servicetalk.http.api.HttpHeaderValues.GZIP;
+import static io.servicetalk.http.api.HttpProtocolVersion.HTTP_1_1;
+import static io.servicetalk.http.api.HttpResponseStatus.UNSUPPORTED_MEDIA_TYPE;
+import static io.servicetalk.http.api.TestStreamingHttpClient.from;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContentCodingHttpFilterTest {
+    private static final BufferAllocator allocator = DEFAULT_ALLOCATOR;
+    private static final StreamingHttpRequestResponseFactory reqRespFactory =
+            new DefaultStreamingHttpRequestResponseFactory(allocator, DefaultHttpHeadersFactory.INSTANCE, HTTP_1_1);
+    private static final String PAYLOAD = payload();
+
+    @Rule
+    public final ServiceTalkTestTimeout timeout = new ServiceTalkTestTimeout();
+
+    private final HttpServiceContext ctx = mock(HttpServiceContext.class);
+    private final HttpExecutionContext executionContext = mock(HttpExecutionContext.class);
+    private final AtomicReference<String> receivedRequestBody = new AtomicReference<>();
+    private final AtomicReference<CharSequence> sentRequestEncoding = new AtomicReference<>();
+    private StreamingHttpService service;
+
+    @Before
+    public void setUp() {
+        when(executionContext.bufferAllocator()).thenReturn(allocator);
+        when(ctx.executionContext()).thenReturn(executionContext);
+        service = new ContentCodingHttpServiceFilter(64).create((ctx, request, responseFactory) ->
+                request.payloadBody().collect(StringBuilder::new, (sb, buffer) -> sb.append(buffer.toString(US_ASCII)))
+                        .map(body -> {
+                            receivedRequestBody.set(body.toString());
+                            CharSequence contentType = request.headers().get(CONTENT_TYPE);
+                            StreamingHttpResponse response = responseFactory.ok()
+                                    .setHeader(CONTENT_TYPE, contentType == null ? APPLICATION_JSON : contentType);
+                            CharSequence contentLength = request.headers().get("response-length");
+                            if (contentLength != null) {
+                                response.setHeader(CONTENT_LENGTH, contentLength);
+                            }
+                            return response.payloadBody(chunks(PAYLOAD.getBytes(US_ASCII), 100));
+                        }));
+    }
+
+    @Test
+    public void gzipResponse() throws Exception {
+        StreamingHttpResponse response = handle(reqRespFactory.get("/").setHeader(ACCEPT_ENCODING, "gzip"));
+        assertThat(response.headers().get(CONTENT_ENCODING), is(GZIP));
+        assertThat(response.headers().get(VARY).toString(), is(ACCEPT_ENCODING.toString()));
+        assertThat(new String(readAll(new GZIPInputStream(payload(response))), US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void deflateResponseByQualityValue() throws Exception {
+        StreamingHttpResponse response = handle(reqRespFactory.get("/")
+                .setHeader(ACCEPT_ENCODING, "gzip;q=0.5, deflate, identity;q=0.1"));
+        assertThat(response.headers().get(CONTENT_ENCODING), is(DEFLATE));
+        assertThat(new String(readAll(new InflaterInputStream(payload(response))), US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void noAcceptedEncoding() throws Exception {
+        StreamingHttpResponse response = handle(reqRespFactory.get("/").setHeader(ACCEPT_ENCODING, "br, gzip;q=0"));
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.headers().get(VARY).toString(), is(ACCEPT_ENCODING.toString()));
+        assertThat(new String(readAll(payload(response)), US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void smallResponseNotCompressed() throws Exception {
+        StreamingHttpResponse response = handle(reqRespFactory.get("/").setHeader(ACCEPT_ENCODING, "gzip")
+                .setHeader("response-length", "10"));
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+    }
+
+    @Test
+    public void compressedContentTypeNotCompressed() throws Exception {
+        StreamingHttpResponse response = handle(reqRespFactory.get("/").setHeader(ACCEPT_ENCODING, "gzip")
+                .setHeader(CONTENT_TYPE, "image/png"));
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(response.headers().get(VARY), is(nullValue()));
+    }
+
+    @Test
+    public void gzipRequest() throws Exception {
+        StreamingHttpRequest request = reqRespFactory.post("/").setHeader(CONTENT_ENCODING, "gzip")
+                .payloadBody(chunks(compress(true, PAYLOAD), 1));
+        handle(request);
+        assertThat(receivedRequestBody.get(), is(PAYLOAD));
+    }
+
+    @Test
+    public void deflateRequest() throws Exception {
+        StreamingHttpRequest request = reqRespFactory.post("/").setHeader(CONTENT_ENCODING, "deflate")
+                .payloadBody(chunks(compress(false, PAYLOAD), 7));
+        handle(request);
+        assertThat(receivedRequestBody.get(), is(PAYLOAD));
+    }
+
+    @Test
+    public void unsupportedRequestEncoding() throws Exception {
+        StreamingHttpResponse response = handle(reqRespFactory.post("/").setHeader(CONTENT_ENCODING, "br"));
+        assertThat(response.status(), is(UNSUPPORTED_MEDIA_TYPE));
+    }
+
+    @Test
+    public void requesterFilterDecompressesResponse() throws Exception {
+        StreamingHttpClientFilterFactory serverFilter = client -> new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final HttpExecutionStrategy strategy,
+                                                            final StreamingHttpRequest request) {
+                return service.handle(ctx, request, reqRespFactory);
+            }
+        };
+        StreamingHttpClient client = from(reqRespFactory, executionContext,
+                new ContentCodingHttpRequesterFilter().append(serverFilter));
+        StreamingHttpResponse response = client.request(client.get("/")).toFuture().get();
+        assertThat(response.headers().get(CONTENT_ENCODING), is(nullValue()));
+        assertThat(new String(readAll(payload(response)), US_ASCII), is(PAYLOAD));
+    }
+
+    @Test
+    public void requesterFilterCompressesRequest() throws Exception {
+        StreamingHttpRequest request = reqRespFactory.post("/").setHeader(CONTENT_TYPE, APPLICATION_JSON)
+                .payloadBody(chunks(PAYLOAD.getBytes(US_ASCII), 100));
+        requestThroughFilter(new ContentCodingHttpRequesterFilter(GZIP), request);
+        assertThat(sentRequestEncoding.get(), is(GZIP));
+        assertThat(receivedRequestBody.get(), is(PAYLOAD));
+    }
+
+    @Test
+    public void requesterFilterDoesNotCompressByDefault() throws Exception {
+        StreamingHttpRequest request = reqRespFactory.post("/")
+                .payloadBody(chunks(PAYLOAD.getBytes(US_ASCII), 100));
+        requestThroughFilter(new ContentCodingHttpRequesterFilter(), request);
+        assertThat(sentRequestEncoding.get(), is(nullValue()));
+        assertThat(receivedRequestBody.get(), is(PAYLOAD));
+    }
+
+    @Test
+    public void requesterFilterSkipsSmallRequest() throws Exception {
+        StreamingHttpRequest request = reqRespFactory.post("/").setHeader(CONTENT_LENGTH, "10")
+                .payloadBody(chunks("0123456789".getBytes(US_ASCII), 10));
+        requestThroughFilter(new ContentCodingHttpRequesterFilter(DEFLATE), request);
+        assertThat(sentRequestEncoding.get(), is(nullValue()));
+        assertThat(receivedRequestBody.get(), is("0123456789"));
+    }
+
+    @Test
+    public void requesterFilterSkipsCompressedContentType() throws Exception {
+        StreamingHttpRequest request = reqRespFactory.post("/").setHeader(CONTENT_TYPE, "application/zip")
+                .payloadBody(chunks(PAYLOAD.getBytes(US_ASCII), 100));
+        requestThroughFilter(new ContentCodingHttpRequesterFilter(GZIP), request);
+        assertThat(sentRequestEncoding.get(), is(nullValue()));
+    }
+
+    @Test
+    public void requesterFilterSkipsSafeMethods() throws Exception {
+        requestThroughFilter(new ContentCodingHttpRequesterFilter(GZIP), reqRespFactory.get("/"));
+        assertThat(sentRequestEncoding.get(), is(nullValue()));
+        assertThat(receivedRequestBody.get(), is(""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void requesterFilterRejectsUnsupportedRequestEncoding() {
+        new ContentCodingHttpRequesterFilter("br");
+    }
+
+    @Test
+    public void fileRegionResponseFailsClearly() throws Exception {
+        final File file = File.createTempFile(getClass().getSimpleName(), ".json");
+        try {
+            Files.write(file.toPath(), PAYLOAD.getBytes(US_ASCII));
+            final HttpFileRegion region = HttpFileRegion.of(file.toPath());
+            final StreamingHttpService fileService = new ContentCodingHttpServiceFilter(64).create(
+                    (ctx, request, responseFactory) -> succeeded(responseFactory.ok()
+                            .setHeader(CONTENT_TYPE, APPLICATION_JSON).payloadBody(region)));
+            final StreamingHttpResponse response = fileService.handle(ctx,
+                    reqRespFactory.get("/").setHeader(ACCEPT_ENCODING, "gzip"), reqRespFactory).toFuture().get();
+            try {
+                response.payloadBody().toFuture().get();
+                fail("Expected the payload body to fail.");
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+                assertThat(e.getCause().getMessage(), containsString("file region"));
+            }
+            assertThat(region.fileChannel().isOpen(), is(false));
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    private void requestThroughFilter(final ContentCodingHttpRequesterFilter filter,
+                                      final StreamingHttpRequest request) throws Exception {
+        StreamingHttpClientFilterFactory serverFilter = client -> new StreamingHttpClientFilter(client) {
+            @Override
+            protected Single<StreamingHttpResponse> request(final StreamingHttpRequester delegate,
+                                                            final HttpExecutionStrategy strategy,
+                                                            final StreamingHttpRequest request) {
+                sentRequestEncoding.set(request.headers().get(CONTENT_ENCODING));
+                return service.handle(ctx, request, reqRespFactory);
+            }
+        };
+        StreamingHttpClient client = from(reqRespFactory, executionContext, filter.append(serverFilter));
+        client.request(request).toFuture().get().payloadBody().ignoreElements().toFuture().get();
+    }
+
+    private StreamingHttpResponse handle(final StreamingHttpRequest request) throws Exception {
+        return service.handle(ctx, request, reqRespFactory).toFuture().get();
+    }
+
+    private static InputStream payload(final StreamingHttpResponse response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Buffer buffer : response.payloadBody().toFuture().get()) {
+            byte[] bytes = new byte[buffer.readableBytes()];
+            buffer.readBytes(bytes);
+            out.write(bytes);
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static Publisher<Buffer> chunks(final byte[] bytes, final int chunkSize) {
+        List<Buffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            chunks.add(allocator.wrap(bytes).slice(i, Math.min(chunkSize, bytes.length - i)));
+        }
+        return Publisher.fromIterable(chunks);
+    }
+
+    private static byte[] compress(final boolean gzip, final String value) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream compressing = gzip ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+            compressing.write(value.getBytes(US_ASCII));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(final InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] bytes = new byte[1024];
+        int read;
+        while ((read = in.read(bytes)) > 0) {
+            out.write(bytes, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static String payload() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < 200; ++i) {
+            sb.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i).append("\"},");
+        }
+        return sb.append("{}]").toString();
+    }
+}
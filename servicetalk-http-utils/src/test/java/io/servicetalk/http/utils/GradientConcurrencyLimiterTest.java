@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.http.utils;
+
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class GradientConcurrencyLimiterTest {
+
+    private final GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(10, 2, 100, 1.5, 0.5, 100);
+
+    @Test
+    public void rejectsAboveLimit() {
+        for (int i = 1; i <= 10; i++) {
+            assertThat(limiter.tryAcquire(), is(i));
+        }
+        assertThat(limiter.tryAcquire(), is(-1));
+        limiter.release();
+        assertThat(limiter.tryAcquire(), is(10));
+    }
+
+    @Test
+    public void limitGrowsWithStableLatency() {
+        for (int i = 0; i < 20; i++) {
+            limiter.release(MILLISECONDS.toNanos(10), limiter.limit());
+            limiter.tryAcquire();
+        }
+        assertThat(limiter.limit(), greaterThan(10));
+    }
+
+    @Test
+    public void limitDoesNotGrowWhenUnderutilized() {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLISECONDS.toNanos(10), 1);
+        }
+        assertThat(limiter.limit(), is(10));
+    }
+
+    @Test
+    public void limitShrinksWhenLatencyIncreases() {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLISECONDS.toNanos(10), 1);
+        }
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLISECONDS.toNanos(100), 1);
+        }
+        assertThat(limiter.limit(), lessThan(10));
+        assertThat(limiter.limit(), greaterThan(1));
+    }
+
+    @Test
+    public void limitRecoversWhenLatencyDecreases() {
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLISECONDS.toNanos(10), 1);
+        }
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLISECONDS.toNanos(100), 1);
+        }
+        final int reducedLimit = limiter.limit();
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire();
+            limiter.release(MILLISECONDS.toNanos(10), limiter.limit());
+        }
+        assertThat(limiter.limit(), greaterThan(reducedLimit));
+    }
+}
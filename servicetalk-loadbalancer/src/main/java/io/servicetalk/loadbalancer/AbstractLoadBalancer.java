@@ -0,0 +1,685 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.ConnectionRejectedException;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.NoAvailableHostException;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.PublisherSource.Subscriber;
+import io.servicetalk.concurrent.PublisherSource.Subscription;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.CompositeCloseable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.internal.SpScPublisherProcessor;
+import io.servicetalk.concurrent.internal.SequentialCancellable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_NOT_READY_EVENT;
+import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_READY_EVENT;
+import static io.servicetalk.concurrent.api.AsyncCloseables.newCompositeCloseable;
+import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
+import static io.servicetalk.concurrent.api.Single.defer;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static io.servicetalk.concurrent.internal.ThrowableUtils.unknownStackTrace;
+import static java.lang.Math.min;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Base class for {@link LoadBalancer}s which select a {@link Host} from the addresses provided by a
+ * {@link ServiceDiscovererEvent} stream and then a connection to that {@link Host}.
+ * <ul>
+ * <li>Connections are created lazily, without any concurrency control on their creation unless a
+ * {@link ConnectionPoolConfig} is provided.
+ * This can lead to over-provisioning connections when dealing with a requests surge.</li>
+ * <li>Existing connections are reused unless a selector passed to {@link #selectConnection(Predicate)} suggests
+ * otherwise.
+ * This can lead to situations where connections will be used to their maximum capacity (for example in the context of
+ * pipelining) before new connections are created.</li>
+ * <li>Closed connections are automatically pruned, and replenished in the background if the
+ * {@link ConnectionPoolConfig} requires a minimum number of connections.</li>
+ * </ul>
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+abstract class AbstractLoadBalancer<ResolvedAddress, C extends LoadBalancedConnection> implements LoadBalancer<C> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractLoadBalancer.class);
+    private static final IllegalStateException LB_CLOSED_SELECT_CNX_EXCEPTION =
+            unknownStackTrace(new IllegalStateException("LoadBalancer has closed"), AbstractLoadBalancer.class,
+                    "selectConnection0(...)");
+    private static final NoAvailableHostException NO_ACTIVE_HOSTS_SELECT_CNX_EXCEPTION =
+            unknownStackTrace(new NoAvailableHostException("No hosts are available to connect."),
+                    AbstractLoadBalancer.class, "selectConnection0(...)");
+
+    /**
+     * With a relatively small number of connections we can minimize connection creation under moderate concurrency by
+     * exhausting the full search space without sacrificing too much latency caused by the cost of a CAS operation per
+     * selection attempt.
+     */
+    private static final int MIN_SEARCH_SPACE = 64;
+
+    /**
+     * For larger search spaces, due to the cost of a CAS operation per selection attempt we see diminishing returns for
+     * trying to locate an available connection when most connections are in use. This increases tail latencies, thus
+     * after some number of failed attempts it appears to be more beneficial to open a new connection instead.
+     * <p>
+     * The current heuristics were chosen based on a set of benchmarks under various circumstances, low connection
+     * counts, larger connection counts, low connection churn, high connection churn.
+     */
+    private static final float SEARCH_FACTOR = 0.75f;
+
+    /**
+     * Bounds of the exponential backoff between attempts to open the minimum number of connections to a host.
+     */
+    private static final long MIN_POOL_RETRY_NANOS = MILLISECONDS.toNanos(100);
+    private static final long MAX_POOL_RETRY_NANOS = SECONDS.toNanos(30);
+
+    /**
+     * Maximum number of {@link LoadBalancerHostEvent}s waiting to be delivered from {@link #eventStream()}. Host events
+     * are dropped beyond this bound so that they never overflow the event stream, which would terminate it, and never
+     * fail the request, probe and service discovery paths which emit them.
+     */
+    private static final int MAX_PENDING_HOST_EVENTS = 16;
+    private static final int MAX_EVENT_STREAM_QUEUE_SIZE = 32;
+
+    private static final AtomicIntegerFieldUpdater<AbstractLoadBalancer> pendingHostEventsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractLoadBalancer.class, "pendingHostEvents");
+    private static final AtomicReferenceFieldUpdater<AbstractLoadBalancer, HostsSnapshot> snapshotUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractLoadBalancer.class, HostsSnapshot.class, "snapshot");
+
+    private volatile boolean closed;
+    private volatile int pendingHostEvents;
+    /**
+     * Active hosts ordered by the address comparator. Service discovery events are applied to this index in place,
+     * mutations are serialized by its monitor while selections read it without locking.
+     */
+    private final ConcurrentSkipListMap<ResolvedAddress, Host<ResolvedAddress, C>> hostIndex;
+    /**
+     * Number of entries of {@link #hostIndex}, which does not track its size in constant time. Guarded by
+     * {@link #hostIndex}'s monitor for writes.
+     */
+    private volatile int hostCount;
+    /**
+     * Incremented after every change of the hosts or their metadata in {@link #hostIndex}.
+     */
+    private volatile int hostsVersion;
+    /**
+     * Snapshot of the active hosts used for selection. It is lazily rebuilt by the first selection which observes a
+     * new {@link #hostsVersion}, so a burst of service discovery events costs a single copy of the hosts.
+     */
+    private volatile HostsSnapshot<ResolvedAddress, C> snapshot = new HostsSnapshot<>(0, emptyList());
+
+    private final SpScPublisherProcessor<Object> eventStream =
+            new SpScPublisherProcessor<>(MAX_EVENT_STREAM_QUEUE_SIZE);
+    private final SequentialCancellable discoveryCancellable = new SequentialCancellable();
+    private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
+    private final Map<C, TrackedConnection<ResolvedAddress, C>> trackedConnections = new ConcurrentHashMap<>();
+    private final ListenableAsyncCloseable asyncCloseable;
+    @Nullable
+    private final OutlierDetector<ResolvedAddress, C> outlierDetector;
+    @Nullable
+    private final ConnectionPoolConfig connectionPoolConfig;
+    private final long pendingRequestTimeoutNanos;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param comparator        used to compare addresses for lookup/iteration during the connection attempt phase.
+     * @param outlierDetectorConfig configuration of the passive health checking of hosts, or {@code null} to disable
+     * it.
+     * @param connectionPoolConfig configuration of the connections to each host, or {@code null} to create connections
+     * without any concurrency control.
+     */
+    AbstractLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                         final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                         final Comparator<ResolvedAddress> comparator,
+                         @Nullable final OutlierDetectorConfig outlierDetectorConfig,
+                         @Nullable final ConnectionPoolConfig connectionPoolConfig) {
+
+        this.connectionFactory = requireNonNull(connectionFactory);
+        this.connectionPoolConfig = connectionPoolConfig;
+        pendingRequestTimeoutNanos = connectionPoolConfig == null ? 0 :
+                connectionPoolConfig.pendingRequestTimeout().toNanos();
+        outlierDetector = outlierDetectorConfig == null ? null :
+                new OutlierDetector<>(outlierDetectorConfig, this::probe, this::sendHostEvent,
+                        () -> hostCount);
+        hostIndex = new ConcurrentSkipListMap<>(comparator);
+
+        toSource(eventPublisher).subscribe(new Subscriber<ServiceDiscovererEvent<ResolvedAddress>>() {
+
+            @Override
+            public void onSubscribe(final Subscription s) {
+                // We request max value here to make sure we do not access Subscription concurrently
+                // (requestN here and cancel from discoveryCancellable). If we request-1 in onNext we would have to wrap
+                // the Subscription in a ConcurrentSubscription which is costly.
+                // Since, we synchronously process onNexts we do not really care about flow control.
+                s.request(Long.MAX_VALUE);
+                discoveryCancellable.nextCancellable(s);
+            }
+
+            @Override
+            public void onNext(final ServiceDiscovererEvent<ResolvedAddress> event) {
+                LOGGER.debug("Load balancer {}, received new ServiceDiscoverer event {}.", AbstractLoadBalancer.this,
+                        event);
+                final ResolvedAddress address = event.address();
+                Host<ResolvedAddress, C> host;
+                final int activeCount;
+                synchronized (hostIndex) {
+                    if (closed) {
+                        return;
+                    }
+                    boolean hostsChanged = false;
+                    if (event.isAvailable()) {
+                        host = hostIndex.get(address);
+                        if (host == null) {
+                            host = new Host<>(address, event.zone(), event.weight());
+                            hostIndex.put(address, host);
+                            ++hostCount;
+                            hostsChanged = true;
+                        } else if (host.updateMetadata(event.zone(), event.weight())) {
+                            // Selection state derived from the snapshot, e.g. weights and zones, must be recomputed.
+                            hostsChanged = true;
+                        }
+                    } else {
+                        host = hostIndex.remove(address);
+                        if (host != null) {
+                            --hostCount;
+                            hostsChanged = true;
+                        }
+                    }
+                    if (hostsChanged) {
+                        // Published after the index is updated, so that a snapshot built after observing the new
+                        // version contains the change.
+                        ++hostsVersion;
+                    }
+                    activeCount = hostCount;
+                }
+
+                LOGGER.debug("Load balancer {} now using {} addresses.", AbstractLoadBalancer.this, activeCount);
+
+                if (event.isAvailable()) {
+                    if (activeCount == 1) {
+                        sendEvent(LOAD_BALANCER_READY_EVENT);
+                    }
+                    if (connectionPoolConfig != null && connectionPoolConfig.minConnections() > 0) {
+                        // Open the minimum number of connections eagerly.
+                        fillPool(host, connectionPoolConfig);
+                    }
+                } else {
+                    if (host != null) {
+                        host.markInactive();
+                    }
+                    if (outlierDetector != null) {
+                        sendHostEvent(LoadBalancerHostEvent.removed(address));
+                    }
+                    if (activeCount == 0) {
+                        sendEvent(LOAD_BALANCER_NOT_READY_EVENT);
+                    }
+                }
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                List<Host<ResolvedAddress, C>> hosts = activeHosts();
+                synchronized (eventStream) {
+                    eventStream.sendOnError(t);
+                }
+                LOGGER.error(
+                        "Load balancer {}. Service discoverer {} emitted an error. Last seen addresses (size {}) {}",
+                        AbstractLoadBalancer.this, eventPublisher, hosts.size(), hosts, t);
+            }
+
+            @Override
+            public void onComplete() {
+                List<Host<ResolvedAddress, C>> hosts = activeHosts();
+                synchronized (eventStream) {
+                    eventStream.sendOnComplete();
+                }
+                LOGGER.error("Load balancer {}. Service discoverer {} completed. Last seen addresses (size {}) {}",
+                        AbstractLoadBalancer.this, eventPublisher, hosts.size(), hosts);
+            }
+        });
+        asyncCloseable = toAsyncCloseable(graceful -> {
+            closed = true;
+            if (outlierDetector != null) {
+                outlierDetector.close();
+            }
+            discoveryCancellable.cancel();
+            synchronized (eventStream) {
+                eventStream.sendOnComplete();
+            }
+            final List<Host<ResolvedAddress, C>> currentList = new ArrayList<>();
+            synchronized (hostIndex) {
+                // Hosts are moved out of the index, they must all be closed exactly once.
+                for (Entry<ResolvedAddress, Host<ResolvedAddress, C>> entry = hostIndex.pollFirstEntry(); entry != null;
+                     entry = hostIndex.pollFirstEntry()) {
+                    currentList.add(entry.getValue());
+                }
+                hostCount = 0;
+                ++hostsVersion;
+            }
+            for (Host<ResolvedAddress, C> host : currentList) {
+                host.pendingRequests.failAll(LB_CLOSED_SELECT_CNX_EXCEPTION);
+            }
+            // Close hosts concurrently, a chain of sequential closures does not scale with the number of hosts.
+            CompositeCloseable cc = newCompositeCloseable().mergeAll(currentList).appendAll(connectionFactory);
+            return graceful ? cc.closeAsyncGracefully() : cc.closeAsync();
+        });
+    }
+
+    @Override
+    public Single<C> selectConnection(Predicate<C> selector) {
+        return defer(() -> selectConnection0(selector).subscribeShareContext());
+    }
+
+    @Override
+    public Publisher<Object> eventStream() {
+        return eventStream.beforeOnNext(event -> {
+            if (event instanceof LoadBalancerHostEvent) {
+                pendingHostEventsUpdater.decrementAndGet(this);
+            }
+        });
+    }
+
+    /**
+     * Selects the {@link Host} to which a connection should be selected or created.
+     *
+     * @param activeHosts the currently active hosts, never empty.
+     * @return the selected {@link Host}.
+     */
+    abstract Host<ResolvedAddress, C> selectHost(List<Host<ResolvedAddress, C>> activeHosts);
+
+    /**
+     * Records the start of a request on the passed {@code connection}.
+     *
+     * @param connection a connection created by this {@link LoadBalancer}.
+     */
+    final void onRequestStarted(final C connection) {
+        final TrackedConnection<ResolvedAddress, C> tracked = trackedConnections.get(connection);
+        if (tracked != null) {
+            tracked.requestStarted();
+        }
+    }
+
+    /**
+     * Records the end of a request previously passed to {@link #onRequestStarted(LoadBalancedConnection)}.
+     *
+     * @param connection a connection created by this {@link LoadBalancer}.
+     * @param failed {@code true} if the request failed.
+     * @return the {@link Host} of the passed {@code connection}, or {@code null} if the connection has closed in the
+     * meantime or was not created by this {@link LoadBalancer}.
+     */
+    @Nullable
+    final Host<ResolvedAddress, C> onRequestFinished(final C connection, final boolean failed) {
+        final TrackedConnection<ResolvedAddress, C> tracked = trackedConnections.get(connection);
+        if (tracked == null) {
+            return null;
+        }
+        // The connection may be available again for pending requests.
+        tracked.host.pendingRequests.drain(connection);
+        if (!tracked.requestFinished()) {
+            return null;
+        }
+        if (outlierDetector != null) {
+            outlierDetector.onRequestFinished(tracked.host, failed);
+        }
+        return tracked.host;
+    }
+
+    /**
+     * Returns {@code true} if the requests need to be reported through
+     * {@link #onRequestStarted(LoadBalancedConnection)} and
+     * {@link #onRequestFinished(LoadBalancedConnection, boolean)}, either because hosts are passively health checked or
+     * because requests may wait for a connection to become available.
+     *
+     * @return {@code true} if the requests need to be reported.
+     */
+    final boolean isRequestTrackingEnabled() {
+        return outlierDetector != null || connectionPoolConfig != null;
+    }
+
+    private Single<C> selectConnection0(Predicate<C> selector) {
+        if (closed) {
+            return failed(LB_CLOSED_SELECT_CNX_EXCEPTION);
+        }
+
+        final List<Host<ResolvedAddress, C>> activeHosts = activeHosts();
+        if (activeHosts.isEmpty()) {
+            // This is the case when SD has emitted some items but none of the hosts are active.
+            return failed(NO_ACTIVE_HOSTS_SELECT_CNX_EXCEPTION);
+        }
+
+        final Host<ResolvedAddress, C> host = selectHost(activeHosts);
+        assert host != null : "Host can't be null.";
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+
+        // Try first to see if an existing connection can be used
+        final List<C> connections = host.connections;
+        final int size = connections.size();
+        // With small enough search space, attempt all connections.
+        // Back off after exploring most of the search space, it gives diminishing returns.
+        final int attempts = size < MIN_SEARCH_SPACE ? size : (int) (size * SEARCH_FACTOR);
+        for (int i = 0; i < attempts; i++) {
+            final C connection = connections.get(rnd.nextInt(size));
+            if (selector.test(connection)) {
+                return succeeded(connection);
+            }
+        }
+
+        if (connectionPoolConfig != null) {
+            return selectPooledConnection(host, selector, connectionPoolConfig);
+        }
+
+        // No connection was selected: create a new one
+        return newConnection(host)
+                .flatMap(newCnx -> {
+                    // Invoke the selector before adding the connection to the pool, otherwise, connection can be used
+                    // concurrently and hence a new connection can be rejected by the selector.
+                    if (!selector.test(newCnx)) {
+                        newCnx.closeAsync().subscribe();
+                        // Failure in selection could be temporary, hence add it to the queue and be consistent with the
+                        // fact that select failure does not close a connection.
+                        return failed(new ConnectionRejectedException("Newly created connection " + newCnx +
+                                " rejected by the selection filter."));
+                    }
+                    return addConnection(host, newCnx);
+                });
+    }
+
+    private Single<C> selectPooledConnection(final Host<ResolvedAddress, C> host, final Predicate<C> selector,
+                                             final ConnectionPoolConfig config) {
+        // Requests wait for a connection, either one being created on their behalf or one becoming available, so that
+        // connection attempts are not tied to (and cancelled with) a single request.
+        final Single<C> pending = host.pendingRequests.offer(selector, config.maxPendingRequests(),
+                config.executor(), pendingRequestTimeoutNanos);
+        if (pending == null) {
+            return failed(new PendingRequestsLimitExceededException("Maximum number of pending requests (" +
+                    config.maxPendingRequests() + ") reached for host: " + host.address));
+        }
+        // A connection may have become available since the search, make sure the request doesn't miss it.
+        for (C connection : host.connections) {
+            if (host.pendingRequests.isEmpty()) {
+                break;
+            }
+            host.pendingRequests.drain(connection);
+        }
+        fillPool(host, config);
+        return pending;
+    }
+
+    /**
+     * Starts connection attempts to the passed {@link Host}, within the limits of the {@link ConnectionPoolConfig}, for
+     * the pending requests which are not already waiting for a connection attempt and to maintain the minimum number of
+     * connections.
+     */
+    private void fillPool(final Host<ResolvedAddress, C> host, final ConnectionPoolConfig config) {
+        while (!closed && needsConnection(host, config) &&
+                host.tryReserveConnect(config.maxConcurrentConnects(), config.maxConnections())) {
+            toSource(newConnection(host).flatMap(newCnx -> addConnection(host, newCnx)))
+                    .subscribe(new SingleSource.Subscriber<C>() {
+                        @Override
+                        public void onSubscribe(final Cancellable cancellable) {
+                        }
+
+                        @Override
+                        public void onSuccess(@Nullable final C connection) {
+                            assert connection != null;
+                            host.connectFinished();
+                            host.poolConnectSucceeded();
+                            host.pendingRequests.drain(connection);
+                            fillPool(host, config);
+                        }
+
+                        @Override
+                        public void onError(final Throwable t) {
+                            host.connectFinished();
+                            final int failures = host.poolConnectFailed();
+                            // Pending requests can still be served by existing connections becoming available,
+                            // otherwise fail them instead of retrying to connect to an unreachable host.
+                            if (closed || host.connections.isEmpty()) {
+                                host.pendingRequests.failAll(t);
+                            }
+                            if (!closed && host.isActive() && config.minConnections() > 0) {
+                                final long delayNanos = failures > Long.numberOfLeadingZeros(MIN_POOL_RETRY_NANOS) ?
+                                        MAX_POOL_RETRY_NANOS :
+                                        min(MAX_POOL_RETRY_NANOS, MIN_POOL_RETRY_NANOS << (failures - 1));
+                                LOGGER.debug("Load balancer {}, failed to connect to {}, retrying in {}ms.",
+                                        AbstractLoadBalancer.this, host, NANOSECONDS.toMillis(delayNanos), t);
+                                try {
+                                    config.executor().schedule(() -> fillPool(host, config), delayNanos, NANOSECONDS);
+                                } catch (RejectedExecutionException e) {
+                                    LOGGER.warn("Load balancer {}, failed to schedule connecting to {}.",
+                                            AbstractLoadBalancer.this, host, e);
+                                }
+                            }
+                        }
+                    });
+        }
+    }
+
+    private static boolean needsConnection(final Host<?, ?> host, final ConnectionPoolConfig config) {
+        final int connectsInProgress = host.connectsInProgress();
+        return connectsInProgress < host.pendingRequests.size() || (host.isActive() &&
+                connectsInProgress + host.connections.size() < config.minConnections());
+    }
+
+    private Single<C> newConnection(final Host<ResolvedAddress, C> host) {
+        // Single is a producer of C, hence it is safe to narrow the type.
+        @SuppressWarnings("unchecked")
+        final Single<C> newConnection = (Single<C>) connectionFactory.newConnection(host.address);
+        final OutlierDetector<ResolvedAddress, C> outlierDetector = this.outlierDetector;
+        if (outlierDetector == null) {
+            return newConnection;
+        }
+        return newConnection.beforeOnSuccess(__ -> outlierDetector.onConnectSucceeded(host))
+                .beforeOnError(__ -> outlierDetector.onConnectFailed(host));
+    }
+
+    private Single<C> addConnection(final Host<ResolvedAddress, C> host, final C newCnx) {
+        if (host.addConnection(newCnx)) {
+            // If the LB has closed, we attempt to remove the connection, if the removal succeeds, close it.
+            // If we can't remove it, it means it's been removed concurrently and we assume that whoever
+            // removed it also closed it or that it has been removed as a consequence of closing.
+            if (closed) {
+                if (host.removeConnection(newCnx)) {
+                    newCnx.closeAsync().subscribe();
+                }
+                return failed(LB_CLOSED_SELECT_CNX_EXCEPTION);
+            }
+            final TrackedConnection<ResolvedAddress, C> tracked = new TrackedConnection<>(host);
+            trackedConnections.put(newCnx, tracked);
+            newCnx.onClose().beforeFinally(() -> {
+                trackedConnections.remove(newCnx);
+                tracked.closed();
+                final ConnectionPoolConfig config = connectionPoolConfig;
+                if (config != null) {
+                    fillPool(host, config);
+                }
+            }).subscribe();
+            return succeeded(newCnx);
+        }
+        return failed(new ConnectionRejectedException("Failed to add newly created connection for host: " +
+                host.address + ", host inactive? " + !host.isActive()));
+    }
+
+    /**
+     * Probes an ejected {@link Host} by establishing a new connection to it, which is added to the host if the probe
+     * succeeds.
+     */
+    private Completable probe(final Host<ResolvedAddress, C> host) {
+        return newConnection(host).flatMapCompletable(newCnx -> addConnection(host, newCnx).ignoreElement());
+    }
+
+    private void sendHostEvent(final LoadBalancerHostEvent<ResolvedAddress> event) {
+        if (pendingHostEventsUpdater.incrementAndGet(this) > MAX_PENDING_HOST_EVENTS) {
+            pendingHostEventsUpdater.decrementAndGet(this);
+            LOGGER.debug("Load balancer {}, dropping {}, {} host events are already waiting to be consumed.", this,
+                    event, MAX_PENDING_HOST_EVENTS);
+            return;
+        }
+        try {
+            sendEvent(event);
+        } catch (Throwable t) {
+            pendingHostEventsUpdater.decrementAndGet(this);
+            LOGGER.warn("Load balancer {}, failed to emit {}.", this, event, t);
+        }
+    }
+
+    private void sendEvent(final Object event) {
+        // Events are sent from the service discovery, request and probe threads, the processor only supports a single
+        // producer.
+        synchronized (eventStream) {
+            eventStream.sendOnNext(event);
+        }
+    }
+
+    @Override
+    public Completable onClose() {
+        return asyncCloseable.onClose();
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return asyncCloseable.closeAsync();
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return asyncCloseable.closeAsyncGracefully();
+    }
+
+    // Visible for testing
+    List<Entry<ResolvedAddress, List<C>>> activeAddresses() {
+        return activeHosts().stream().map(Host::asEntry).collect(toList());
+    }
+
+    /**
+     * Returns the current snapshot of the active hosts, rebuilding it without locking if service discovery changed
+     * the hosts since it was built.
+     *
+     * @return the current snapshot of the active hosts.
+     */
+    private List<Host<ResolvedAddress, C>> activeHosts() {
+        final HostsSnapshot<ResolvedAddress, C> current = snapshot;
+        // The version is read before copying the index, a copy which is concurrently modified is tagged with the
+        // older version and rebuilt by a later selection.
+        final int version = hostsVersion;
+        if (current.version == version) {
+            return current.hosts;
+        }
+        final HostsSnapshot<ResolvedAddress, C> next = new HostsSnapshot<>(version,
+                new ArrayList<>(hostIndex.values()));
+        // Don't replace a snapshot built concurrently, it may be more recent.
+        snapshotUpdater.compareAndSet(this, current, next);
+        return next.hosts;
+    }
+
+    /**
+     * An immutable list of the active hosts and the {@link #hostsVersion} it was built from.
+     */
+    private static final class HostsSnapshot<Addr, C extends ListenableAsyncCloseable> {
+        final int version;
+        final List<Host<Addr, C>> hosts;
+
+        HostsSnapshot(final int version, final List<Host<Addr, C>> hosts) {
+            this.version = version;
+            this.hosts = hosts;
+        }
+    }
+
+    /**
+     * Tracks the requests in flight on a connection, so that they can be discounted from its {@link Host} when the
+     * connection closes before the requests are reported as finished.
+     */
+    private static final class TrackedConnection<Addr, C extends ListenableAsyncCloseable> {
+        private static final AtomicIntegerFieldUpdater<TrackedConnection> inFlightUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(TrackedConnection.class, "inFlight");
+        private static final int CLOSED = -1;
+
+        final Host<Addr, C> host;
+        private volatile int inFlight;
+
+        TrackedConnection(final Host<Addr, C> host) {
+            this.host = host;
+        }
+
+        void requestStarted() {
+            for (;;) {
+                final int current = inFlight;
+                if (current == CLOSED) {
+                    return;
+                }
+                if (inFlightUpdater.compareAndSet(this, current, current + 1)) {
+                    host.requestStarted();
+                    return;
+                }
+            }
+        }
+
+        boolean requestFinished() {
+            for (;;) {
+                final int current = inFlight;
+                if (current <= 0) {
+                    return false;
+                }
+                if (inFlightUpdater.compareAndSet(this, current, current - 1)) {
+                    host.requestFinished(1);
+                    return true;
+                }
+            }
+        }
+
+        void closed() {
+            final int abandoned = inFlightUpdater.getAndSet(this, CLOSED);
+            if (abandoned > 0) {
+                host.requestFinished(abandoned);
+            }
+        }
+    }
+}
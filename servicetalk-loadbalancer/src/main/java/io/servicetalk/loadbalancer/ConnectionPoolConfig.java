@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.concurrent.api.Executor;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration of the connections which a {@link LoadBalancer} creates to each host.
+ * <p>
+ * The number of concurrent connection attempts and the number of connections to a host are bounded. A request that
+ * can not be served by an existing connection, and can not create a new connection because one of these limits has
+ * been reached, waits in a bounded queue until a connection becomes available or its deadline expires. A minimum number
+ * of connections can be maintained to each host to avoid paying the cost of establishing connections on the request
+ * path.
+ */
+public final class ConnectionPoolConfig {
+    private final Executor executor;
+    private final int maxConcurrentConnects;
+    private final int minConnections;
+    private final int maxConnections;
+    private final int maxPendingRequests;
+    private final Duration pendingRequestTimeout;
+
+    private ConnectionPoolConfig(final Executor executor, final int maxConcurrentConnects, final int minConnections,
+                                 final int maxConnections, final int maxPendingRequests,
+                                 final Duration pendingRequestTimeout) {
+        this.executor = executor;
+        this.maxConcurrentConnects = maxConcurrentConnects;
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.maxPendingRequests = maxPendingRequests;
+        this.pendingRequestTimeout = pendingRequestTimeout;
+    }
+
+    /**
+     * Returns the {@link Executor} used to enforce the {@link #pendingRequestTimeout()}.
+     *
+     * @return the {@link Executor} used to enforce the {@link #pendingRequestTimeout()}.
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Returns the maximum number of concurrent connection attempts to a host.
+     *
+     * @return the maximum number of concurrent connection attempts to a host.
+     */
+    public int maxConcurrentConnects() {
+        return maxConcurrentConnects;
+    }
+
+    /**
+     * Returns the minimum number of connections to a host, which are opened eagerly when the host becomes available
+     * and replenished in the background when they close.
+     *
+     * @return the minimum number of connections to a host.
+     */
+    public int minConnections() {
+        return minConnections;
+    }
+
+    /**
+     * Returns the maximum number of connections to a host, including connection attempts in progress.
+     *
+     * @return the maximum number of connections to a host.
+     */
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Returns the maximum number of requests waiting for a connection to a host.
+     *
+     * @return the maximum number of requests waiting for a connection to a host.
+     */
+    public int maxPendingRequests() {
+        return maxPendingRequests;
+    }
+
+    /**
+     * Returns the maximum duration a request waits for a connection.
+     *
+     * @return the maximum duration a request waits for a connection.
+     */
+    public Duration pendingRequestTimeout() {
+        return pendingRequestTimeout;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{maxConcurrentConnects=" + maxConcurrentConnects +
+                ", minConnections=" + minConnections +
+                ", maxConnections=" + maxConnections +
+                ", maxPendingRequests=" + maxPendingRequests +
+                ", pendingRequestTimeout=" + pendingRequestTimeout +
+                '}';
+    }
+
+    /**
+     * A builder for {@link ConnectionPoolConfig}.
+     */
+    public static final class Builder {
+        private final Executor executor;
+        private int maxConcurrentConnects = 4;
+        private int minConnections;
+        private int maxConnections = Integer.MAX_VALUE;
+        private int maxPendingRequests = 1024;
+        private Duration pendingRequestTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Creates a new instance.
+         *
+         * @param executor {@link Executor} used to enforce the pending request timeout.
+         */
+        public Builder(final Executor executor) {
+            this.executor = requireNonNull(executor);
+        }
+
+        /**
+         * Sets the maximum number of concurrent connection attempts to a host.
+         *
+         * @param maxConcurrentConnects the maximum number of concurrent connection attempts to a host.
+         * @return {@code this}.
+         */
+        public Builder maxConcurrentConnects(final int maxConcurrentConnects) {
+            if (maxConcurrentConnects <= 0) {
+                throw new IllegalArgumentException("maxConcurrentConnects: " + maxConcurrentConnects +
+                        " (expected >0)");
+            }
+            this.maxConcurrentConnects = maxConcurrentConnects;
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of connections to a host. These connections are opened eagerly when the host becomes
+         * available and replenished in the background when they close, so that requests do not pay the cost of
+         * establishing a connection.
+         *
+         * @param minConnections the minimum number of connections to a host.
+         * @return {@code this}.
+         */
+        public Builder minConnections(final int minConnections) {
+            if (minConnections < 0) {
+                throw new IllegalArgumentException("minConnections: " + minConnections + " (expected >=0)");
+            }
+            this.minConnections = minConnections;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of connections to a host, including connection attempts in progress.
+         *
+         * @param maxConnections the maximum number of connections to a host.
+         * @return {@code this}.
+         */
+        public Builder maxConnections(final int maxConnections) {
+            if (maxConnections <= 0) {
+                throw new IllegalArgumentException("maxConnections: " + maxConnections + " (expected >0)");
+            }
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests waiting for a connection to a host, including requests waiting for a
+         * connection attempt in progress. Requests exceeding this limit fail with a
+         * {@link PendingRequestsLimitExceededException}.
+         *
+         * @param maxPendingRequests the maximum number of requests waiting for a connection to a host.
+         * @return {@code this}.
+         */
+        public Builder maxPendingRequests(final int maxPendingRequests) {
+            if (maxPendingRequests <= 0) {
+                throw new IllegalArgumentException("maxPendingRequests: " + maxPendingRequests + " (expected >0)");
+            }
+            this.maxPendingRequests = maxPendingRequests;
+            return this;
+        }
+
+        /**
+         * Sets the maximum duration a request waits for a connection. Requests exceeding this duration fail with a
+         * {@link java.util.concurrent.TimeoutException}.
+         *
+         * @param pendingRequestTimeout the maximum duration a request waits for a connection.
+         * @return {@code this}.
+         */
+        public Builder pendingRequestTimeout(final Duration pendingRequestTimeout) {
+            if (pendingRequestTimeout.isNegative() || pendingRequestTimeout.isZero()) {
+                throw new IllegalArgumentException("pendingRequestTimeout: " + pendingRequestTimeout +
+                        " (expected >0)");
+            }
+            this.pendingRequestTimeout = pendingRequestTimeout;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link ConnectionPoolConfig}.
+         *
+         * @return a new {@link ConnectionPoolConfig}.
+         */
+        public ConnectionPoolConfig build() {
+            if (minConnections > maxConnections) {
+                throw new IllegalArgumentException("minConnections: " + minConnections + " (expected <=" +
+                        maxConnections + ')');
+            }
+            return new ConnectionPoolConfig(executor, maxConcurrentConnects, minConnections, maxConnections,
+                    maxPendingRequests, pendingRequestTimeout);
+        }
+    }
+}
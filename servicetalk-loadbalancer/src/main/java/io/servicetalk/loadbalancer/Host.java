@@ -0,0 +1,359 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionRejectedException;
+import io.servicetalk.concurrent.api.AsyncCloseable;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Completable.mergeAllDelayError;
+import static java.lang.Math.exp;
+import static java.lang.Math.max;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+
+/**
+ * A host managed by a load balancer, which keeps track of the connections to its address and of the requests issued
+ * on these connections.
+ *
+ * @param <Addr> The resolved address type.
+ * @param <C> The type of connection.
+ */
+class Host<Addr, C extends ListenableAsyncCloseable> implements AsyncCloseable {
+    static final AtomicReferenceFieldUpdater<Host, List> connectionsUpdater =
+            AtomicReferenceFieldUpdater.newUpdater(Host.class, List.class, "connections");
+    private static final AtomicIntegerFieldUpdater<Host> inFlightUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "inFlight");
+    private static final AtomicIntegerFieldUpdater<Host> connectFailuresUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "connectFailures");
+    private static final AtomicLongFieldUpdater<Host> requestWindowUpdater =
+            AtomicLongFieldUpdater.newUpdater(Host.class, "requestWindow");
+    private static final AtomicIntegerFieldUpdater<Host> ejectedUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "ejected");
+    private static final AtomicIntegerFieldUpdater<Host> ejectionCountUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "ejectionCount");
+    private static final AtomicIntegerFieldUpdater<Host> connectsInProgressUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(Host.class, "connectsInProgress");
+
+    static final List INACTIVE = emptyList();
+    private static final List NO_CONNECTIONS = new ArrayList(0);
+
+    final Addr address;
+    @Nullable
+    private volatile String zone;
+    private volatile int weight = 1;
+    @SuppressWarnings("unchecked")
+    volatile List<C> connections = NO_CONNECTIONS;
+    final PendingRequestQueue<C> pendingRequests = new PendingRequestQueue<>();
+    private volatile int inFlight;
+    private volatile double latencyEwma;
+    private volatile long lastLatencyNanos;
+    private volatile int connectFailures;
+    /**
+     * Number of requests in the current failure rate window in the upper 32 bits, failed requests in the lower 32 bits.
+     */
+    private volatile long requestWindow;
+    private volatile int ejected;
+    private volatile int ejectionCount;
+    private volatile int connectsInProgress;
+    private volatile int poolConnectFailures;
+
+    Host(Addr address, @Nullable String zone, int weight) {
+        this.address = address;
+        this.zone = zone;
+        this.weight = validWeight(weight);
+    }
+
+    /**
+     * Updates the metadata of this host from a subsequent service discovery event.
+     *
+     * @param zone the zone of this host, or {@code null} if unknown.
+     * @param weight the relative weight of this host, values lower than {@code 1} are treated as {@code 1}.
+     * @return {@code true} if the metadata of this host changed.
+     */
+    boolean updateMetadata(@Nullable final String zone, final int weight) {
+        final int newWeight = validWeight(weight);
+        if (Objects.equals(this.zone, zone) && this.weight == newWeight) {
+            return false;
+        }
+        this.zone = zone;
+        this.weight = newWeight;
+        return true;
+    }
+
+    /**
+     * {@link io.servicetalk.client.api.ServiceDiscovererEvent#weight()} is expected to be positive, but custom events
+     * may not enforce it. Treat non-positive weights as the minimum weight rather than failing host selection.
+     */
+    private static int validWeight(final int weight) {
+        return max(1, weight);
+    }
+
+    @Nullable
+    String zone() {
+        return zone;
+    }
+
+    int weight() {
+        return weight;
+    }
+
+    void markInactive() {
+        @SuppressWarnings("unchecked")
+        List<C> toRemove = connectionsUpdater.getAndSet(this, INACTIVE);
+        for (C conn : toRemove) {
+            conn.closeAsync().subscribe();
+        }
+        pendingRequests.failAll(new ConnectionRejectedException("Host " + address + " has been removed."));
+    }
+
+    boolean addConnection(C connection) {
+
+        for (;;) {
+            List<C> existing = this.connections;
+            if (existing == INACTIVE) {
+                connection.closeAsync().subscribe();
+                return false;
+            }
+            ArrayList<C> connectionAdded = new ArrayList<>(existing);
+            connectionAdded.add(connection);
+            if (connectionsUpdater.compareAndSet(this, existing, connectionAdded)) {
+                break;
+            }
+        }
+
+        // Instrument the new connection so we prune it on close
+        connection.onClose().beforeFinally(() -> removeConnection(connection)).subscribe();
+        return true;
+    }
+
+    boolean removeConnection(C connection) {
+        List<C> existing = connections;
+        for (;;) {
+            if (existing == INACTIVE) {
+                return false;
+            }
+            ArrayList<C> connectionRemoved = new ArrayList<>(existing);
+            if (!connectionRemoved.remove(connection)) {
+                return false;
+            }
+            if (connectionsUpdater.compareAndSet(this, existing, connectionRemoved)) {
+                return true;
+            }
+            existing = connections;
+        }
+    }
+
+    boolean isActive() {
+        return connections != INACTIVE;
+    }
+
+    void requestStarted() {
+        inFlightUpdater.incrementAndGet(this);
+    }
+
+    void requestFinished(final int count) {
+        inFlightUpdater.addAndGet(this, -count);
+    }
+
+    /**
+     * Updates the latency EWMA of this host with the duration of a finished request.
+     * <p>
+     * The EWMA reacts to latency peaks immediately and decays towards the latency of subsequent requests with the
+     * passed decay time. Concurrent updates are not coordinated, a racing update may be lost which is acceptable for
+     * a load balancing heuristic.
+     *
+     * @param durationNanos the duration of the request.
+     * @param decayNanos the time constant of the EWMA decay.
+     */
+    void updateLatency(final long durationNanos, final long decayNanos) {
+        final long now = nanoTime();
+        final double current = latencyEwma;
+        if (durationNanos >= current) {
+            latencyEwma = durationNanos;
+        } else {
+            final double weight = exp(-(now - lastLatencyNanos) / (double) decayNanos);
+            latencyEwma = current * weight + durationNanos * (1 - weight);
+        }
+        lastLatencyNanos = now;
+    }
+
+    int inFlight() {
+        return inFlight;
+    }
+
+    double latencyEwma() {
+        return latencyEwma;
+    }
+
+    /**
+     * Records a failed connection attempt.
+     *
+     * @return the number of consecutive connection failures.
+     */
+    int connectFailed() {
+        return connectFailuresUpdater.incrementAndGet(this);
+    }
+
+    void connectSucceeded() {
+        if (connectFailures != 0) {
+            connectFailures = 0;
+        }
+    }
+
+    /**
+     * Records the outcome of a request in the current failure rate window.
+     *
+     * @param failed {@code true} if the request failed.
+     * @param windowSize the number of requests in a failure rate window.
+     * @return the number of failed requests if this request completed the current window, which is then reset,
+     * {@code -1} otherwise.
+     */
+    int recordRequest(final boolean failed, final int windowSize) {
+        for (;;) {
+            final long current = requestWindow;
+            final int requests = (int) (current >>> 32) + 1;
+            final int failures = (int) current + (failed ? 1 : 0);
+            if (requests >= windowSize) {
+                if (requestWindowUpdater.compareAndSet(this, current, 0)) {
+                    return failures;
+                }
+            } else if (requestWindowUpdater.compareAndSet(this, current, ((long) requests << 32) | failures)) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Marks this host as ejected.
+     *
+     * @return {@code true} if this host was not already ejected.
+     */
+    boolean tryEject() {
+        return ejectedUpdater.compareAndSet(this, 0, 1);
+    }
+
+    void revive() {
+        connectFailures = 0;
+        requestWindow = 0;
+        ejected = 0;
+    }
+
+    boolean isEjected() {
+        return ejected != 0;
+    }
+
+    /**
+     * Increments the number of times this host has been ejected without serving a healthy failure rate window since.
+     *
+     * @return the incremented count.
+     */
+    int incrementEjectionCount() {
+        return ejectionCountUpdater.incrementAndGet(this);
+    }
+
+    void decrementEjectionCount() {
+        for (;;) {
+            final int current = ejectionCount;
+            if (current == 0 || ejectionCountUpdater.compareAndSet(this, current, current - 1)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reserves a connection attempt, if the number of connection attempts in progress and the number of connections
+     * allow it.
+     *
+     * @param maxConcurrentConnects the maximum number of connection attempts in progress.
+     * @param maxConnections the maximum number of connections, including connection attempts in progress.
+     * @return {@code true} if the connection attempt has been reserved and must be released with
+     * {@link #connectFinished()}.
+     */
+    boolean tryReserveConnect(final int maxConcurrentConnects, final int maxConnections) {
+        for (;;) {
+            final int current = connectsInProgress;
+            if (current >= maxConcurrentConnects || current + connections.size() >= maxConnections) {
+                return false;
+            }
+            if (connectsInProgressUpdater.compareAndSet(this, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void connectFinished() {
+        connectsInProgressUpdater.decrementAndGet(this);
+    }
+
+    int connectsInProgress() {
+        return connectsInProgress;
+    }
+
+    /**
+     * Records a failed connection attempt made to fill the pool of connections of this host.
+     *
+     * @return the number of consecutive failures, used to back off further attempts.
+     */
+    int poolConnectFailed() {
+        return ++poolConnectFailures; // Racy increments only affect the backoff delay.
+    }
+
+    void poolConnectSucceeded() {
+        if (poolConnectFailures != 0) {
+            poolConnectFailures = 0;
+        }
+    }
+
+    // Used for testing only
+    Entry<Addr, List<C>> asEntry() {
+        return new SimpleImmutableEntry<>(address, new ArrayList<>(connections));
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return mergeAllDelayError(connections.stream()
+                .map(AsyncCloseable::closeAsync)::iterator);
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return mergeAllDelayError(connections.stream()
+                .map(AsyncCloseable::closeAsyncGracefully)::iterator);
+    }
+
+    @Override
+    public String toString() {
+        return "Host{" +
+                "address=" + address +
+                ", zone=" + zone +
+                ", weight=" + weight +
+                ", removed=" + (connections == INACTIVE) +
+                ", ejected=" + isEjected() +
+                '}';
+    }
+}
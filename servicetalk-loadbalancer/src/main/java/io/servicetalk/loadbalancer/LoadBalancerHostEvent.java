@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancer;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An event from {@link LoadBalancer#eventStream()} that notifies about a change in the status of a host which is
+ * managed by a {@link LoadBalancer}.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ */
+public final class LoadBalancerHostEvent<ResolvedAddress> {
+
+    /**
+     * Type of a {@link LoadBalancerHostEvent}.
+     */
+    public enum Type {
+        /**
+         * The host has been removed by service discovery.
+         */
+        REMOVED,
+        /**
+         * The host has been ejected by outlier detection and will not be selected for the duration of the ejection.
+         */
+        EJECTED,
+        /**
+         * A previously ejected host has been successfully probed and is selected again.
+         */
+        REVIVED
+    }
+
+    private final ResolvedAddress address;
+    private final Type type;
+    private final Duration ejectionDuration;
+
+    private LoadBalancerHostEvent(final ResolvedAddress address, final Type type, final Duration ejectionDuration) {
+        this.address = requireNonNull(address);
+        this.type = type;
+        this.ejectionDuration = ejectionDuration;
+    }
+
+    static <ResolvedAddress> LoadBalancerHostEvent<ResolvedAddress> removed(final ResolvedAddress address) {
+        return new LoadBalancerHostEvent<>(address, Type.REMOVED, Duration.ZERO);
+    }
+
+    static <ResolvedAddress> LoadBalancerHostEvent<ResolvedAddress> ejected(final ResolvedAddress address,
+                                                                            final Duration ejectionDuration) {
+        return new LoadBalancerHostEvent<>(address, Type.EJECTED, ejectionDuration);
+    }
+
+    static <ResolvedAddress> LoadBalancerHostEvent<ResolvedAddress> revived(final ResolvedAddress address) {
+        return new LoadBalancerHostEvent<>(address, Type.REVIVED, Duration.ZERO);
+    }
+
+    /**
+     * Returns the address of the host.
+     *
+     * @return the address of the host.
+     */
+    public ResolvedAddress address() {
+        return address;
+    }
+
+    /**
+     * Returns the {@link Type} of this event.
+     *
+     * @return the {@link Type} of this event.
+     */
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * Returns the duration after which an {@link Type#EJECTED} host is probed, {@link Duration#ZERO} for other types.
+     *
+     * @return the duration after which an {@link Type#EJECTED} host is probed, {@link Duration#ZERO} for other types.
+     */
+    public Duration ejectionDuration() {
+        return ejectionDuration;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final LoadBalancerHostEvent<?> that = (LoadBalancerHostEvent<?>) o;
+        return address.equals(that.address) && type == that.type && ejectionDuration.equals(that.ejectionDuration);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = address.hashCode();
+        result = 31 * result + type.hashCode();
+        result = 31 * result + ejectionDuration.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{address=" + address +
+                ", type=" + type +
+                ", ejectionDuration=" + ejectionDuration +
+                '}';
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.CompletableSource;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Passive health checking of {@link Host}s as configured by an {@link OutlierDetectorConfig}.
+ *
+ * @param <Addr> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class OutlierDetector<Addr, C extends ListenableAsyncCloseable> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutlierDetector.class);
+    private static final AtomicIntegerFieldUpdater<OutlierDetector> ejectedHostsUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(OutlierDetector.class, "ejectedHosts");
+
+    private final OutlierDetectorConfig config;
+    private final Function<Host<Addr, C>, Completable> prober;
+    private final Consumer<LoadBalancerHostEvent<Addr>> eventSink;
+    private final IntSupplier activeHostsCount;
+    private final int failuresThreshold;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private volatile int ejectedHosts;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param config the {@link OutlierDetectorConfig}.
+     * @param prober probes an ejected {@link Host}, the returned {@link Completable} completes if the host can be
+     * revived.
+     * @param eventSink receives the {@link LoadBalancerHostEvent}s.
+     * @param activeHostsCount provides the current number of active hosts.
+     */
+    OutlierDetector(final OutlierDetectorConfig config, final Function<Host<Addr, C>, Completable> prober,
+                    final Consumer<LoadBalancerHostEvent<Addr>> eventSink, final IntSupplier activeHostsCount) {
+        this.config = config;
+        this.prober = prober;
+        this.eventSink = eventSink;
+        this.activeHostsCount = activeHostsCount;
+        failuresThreshold = (int) Math.ceil(config.failureRateThreshold() * config.failureRateRequestVolume());
+        baseEjectionNanos = config.baseEjectionTime().toNanos();
+        maxEjectionNanos = config.maxEjectionTime().toNanos();
+    }
+
+    void onConnectFailed(final Host<Addr, C> host) {
+        if (host.connectFailed() >= config.consecutiveConnectFailures()) {
+            eject(host);
+        }
+    }
+
+    void onConnectSucceeded(final Host<Addr, C> host) {
+        host.connectSucceeded();
+    }
+
+    void onRequestFinished(final Host<Addr, C> host, final boolean failed) {
+        final int failures = host.recordRequest(failed, config.failureRateRequestVolume());
+        if (failures < 0) {
+            return;
+        }
+        if (failures >= failuresThreshold) {
+            eject(host);
+        } else {
+            host.decrementEjectionCount();
+        }
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    private void eject(final Host<Addr, C> host) {
+        if (closed || !host.isActive() || host.isEjected()) {
+            return;
+        }
+        final int maxEjectedHosts = activeHostsCount.getAsInt() * config.maxEjectionPercent() / 100;
+        for (;;) {
+            final int current = ejectedHosts;
+            if (current >= maxEjectedHosts) {
+                LOGGER.debug("Not ejecting {}, {} hosts out of {} are already ejected.", host, current,
+                        activeHostsCount.getAsInt());
+                return;
+            }
+            if (ejectedHostsUpdater.compareAndSet(this, current, current + 1)) {
+                break;
+            }
+        }
+        if (!host.tryEject()) {
+            ejectedHostsUpdater.decrementAndGet(this);
+            return;
+        }
+        scheduleProbe(host);
+    }
+
+    private void scheduleProbe(final Host<Addr, C> host) {
+        final int ejectionCount = host.incrementEjectionCount();
+        final long ejectionNanos = ejectionCount > Long.numberOfLeadingZeros(baseEjectionNanos) ? maxEjectionNanos :
+                min(maxEjectionNanos, baseEjectionNanos << (ejectionCount - 1));
+        LOGGER.info("Ejecting {} for {}ms.", host, NANOSECONDS.toMillis(ejectionNanos));
+        // Schedule the probe before emitting the event, so that the host is probed whatever the event sink does.
+        boolean scheduled;
+        try {
+            config.executor().schedule(() -> probe(host), ejectionNanos, NANOSECONDS);
+            scheduled = true;
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Failed to schedule probe of {}, reviving it.", host, e);
+            scheduled = false;
+        }
+        eventSink.accept(LoadBalancerHostEvent.ejected(host.address, Duration.ofNanos(ejectionNanos)));
+        if (!scheduled) {
+            revive(host);
+        }
+    }
+
+    private void probe(final Host<Addr, C> host) {
+        if (closed || !host.isActive()) {
+            ejectedHostsUpdater.decrementAndGet(this);
+            return;
+        }
+        toSource(prober.apply(host)).subscribe(new CompletableSource.Subscriber() {
+            @Override
+            public void onSubscribe(final Cancellable cancellable) {
+            }
+
+            @Override
+            public void onComplete() {
+                revive(host);
+            }
+
+            @Override
+            public void onError(final Throwable t) {
+                LOGGER.debug("Probe of {} failed.", host, t);
+                if (closed || !host.isActive()) {
+                    ejectedHostsUpdater.decrementAndGet(OutlierDetector.this);
+                } else {
+                    scheduleProbe(host);
+                }
+            }
+        });
+    }
+
+    private void revive(final Host<Addr, C> host) {
+        host.revive();
+        ejectedHostsUpdater.decrementAndGet(this);
+        if (!closed) {
+            LOGGER.info("Reviving {}.", host);
+            eventSink.accept(LoadBalancerHostEvent.revived(host.address));
+        }
+    }
+}
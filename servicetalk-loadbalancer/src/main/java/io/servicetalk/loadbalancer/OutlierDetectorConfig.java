@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.concurrent.api.Executor;
+
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Configuration of the passive health checking performed by a {@link LoadBalancer}.
+ * <p>
+ * A host is ejected when it fails to establish a number of consecutive connections, or when the ratio of failed
+ * requests within a window of requests exceeds a threshold. An ejected host is not selected until it has been probed
+ * successfully in the background by establishing a new connection. The ejection duration grows exponentially each
+ * time a host is ejected again, and shrinks back for every window of requests that the host serves successfully.
+ */
+public final class OutlierDetectorConfig {
+    private final Executor executor;
+    private final int consecutiveConnectFailures;
+    private final double failureRateThreshold;
+    private final int failureRateRequestVolume;
+    private final Duration baseEjectionTime;
+    private final Duration maxEjectionTime;
+    private final int maxEjectionPercent;
+
+    private OutlierDetectorConfig(final Executor executor, final int consecutiveConnectFailures,
+                                  final double failureRateThreshold, final int failureRateRequestVolume,
+                                  final Duration baseEjectionTime, final Duration maxEjectionTime,
+                                  final int maxEjectionPercent) {
+        this.executor = executor;
+        this.consecutiveConnectFailures = consecutiveConnectFailures;
+        this.failureRateThreshold = failureRateThreshold;
+        this.failureRateRequestVolume = failureRateRequestVolume;
+        this.baseEjectionTime = baseEjectionTime;
+        this.maxEjectionTime = maxEjectionTime;
+        this.maxEjectionPercent = maxEjectionPercent;
+    }
+
+    /**
+     * Returns the {@link Executor} used to schedule probes of ejected hosts.
+     *
+     * @return the {@link Executor} used to schedule probes of ejected hosts.
+     */
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Returns the number of consecutive connection failures after which a host is ejected.
+     *
+     * @return the number of consecutive connection failures after which a host is ejected.
+     */
+    public int consecutiveConnectFailures() {
+        return consecutiveConnectFailures;
+    }
+
+    /**
+     * Returns the ratio of failed requests within a window of {@link #failureRateRequestVolume()} requests above which
+     * a host is ejected.
+     *
+     * @return the ratio of failed requests above which a host is ejected.
+     */
+    public double failureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Returns the number of requests over which the {@link #failureRateThreshold()} is evaluated.
+     *
+     * @return the number of requests over which the {@link #failureRateThreshold()} is evaluated.
+     */
+    public int failureRateRequestVolume() {
+        return failureRateRequestVolume;
+    }
+
+    /**
+     * Returns the duration of the first ejection of a host.
+     *
+     * @return the duration of the first ejection of a host.
+     */
+    public Duration baseEjectionTime() {
+        return baseEjectionTime;
+    }
+
+    /**
+     * Returns the maximum duration of an ejection.
+     *
+     * @return the maximum duration of an ejection.
+     */
+    public Duration maxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    /**
+     * Returns the maximum percentage of hosts which can be ejected at the same time.
+     *
+     * @return the maximum percentage of hosts which can be ejected at the same time.
+     */
+    public int maxEjectionPercent() {
+        return maxEjectionPercent;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{consecutiveConnectFailures=" + consecutiveConnectFailures +
+                ", failureRateThreshold=" + failureRateThreshold +
+                ", failureRateRequestVolume=" + failureRateRequestVolume +
+                ", baseEjectionTime=" + baseEjectionTime +
+                ", maxEjectionTime=" + maxEjectionTime +
+                ", maxEjectionPercent=" + maxEjectionPercent +
+                '}';
+    }
+
+    /**
+     * A builder for {@link OutlierDetectorConfig}.
+     */
+    public static final class Builder {
+        private final Executor executor;
+        private int consecutiveConnectFailures = 5;
+        private double failureRateThreshold = 0.5;
+        private int failureRateRequestVolume = 20;
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+        private Duration maxEjectionTime = Duration.ofMinutes(5);
+        private int maxEjectionPercent = 50;
+
+        /**
+         * Creates a new instance.
+         *
+         * @param executor {@link Executor} used to schedule probes of ejected hosts.
+         */
+        public Builder(final Executor executor) {
+            this.executor = requireNonNull(executor);
+        }
+
+        /**
+         * Sets the number of consecutive connection failures after which a host is ejected.
+         *
+         * @param consecutiveConnectFailures the number of consecutive connection failures after which a host is
+         * ejected.
+         * @return {@code this}.
+         */
+        public Builder consecutiveConnectFailures(final int consecutiveConnectFailures) {
+            if (consecutiveConnectFailures <= 0) {
+                throw new IllegalArgumentException("consecutiveConnectFailures: " + consecutiveConnectFailures +
+                        " (expected >0)");
+            }
+            this.consecutiveConnectFailures = consecutiveConnectFailures;
+            return this;
+        }
+
+        /**
+         * Sets the ratio of failed requests within a window of {@code requestVolume} requests above which a host is
+         * ejected.
+         *
+         * @param threshold the ratio of failed requests, in the range {@code (0, 1]}.
+         * @param requestVolume the number of requests over which the {@code threshold} is evaluated.
+         * @return {@code this}.
+         */
+        public Builder failureRate(final double threshold, final int requestVolume) {
+            if (!(threshold > 0 && threshold <= 1)) {
+                throw new IllegalArgumentException("threshold: " + threshold + " (expected (0, 1])");
+            }
+            if (requestVolume <= 0) {
+                throw new IllegalArgumentException("requestVolume: " + requestVolume + " (expected >0)");
+            }
+            this.failureRateThreshold = threshold;
+            this.failureRateRequestVolume = requestVolume;
+            return this;
+        }
+
+        /**
+         * Sets the duration of the first ejection of a host and the maximum duration of an ejection.
+         *
+         * @param base the duration of the first ejection of a host, doubled on every subsequent ejection.
+         * @param max the maximum duration of an ejection.
+         * @return {@code this}.
+         */
+        public Builder ejectionTime(final Duration base, final Duration max) {
+            if (base.isNegative() || base.isZero()) {
+                throw new IllegalArgumentException("base: " + base + " (expected >0)");
+            }
+            if (max.compareTo(base) < 0) {
+                throw new IllegalArgumentException("max: " + max + " (expected >=" + base + ')');
+            }
+            this.baseEjectionTime = base;
+            this.maxEjectionTime = max;
+            return this;
+        }
+
+        /**
+         * Sets the maximum percentage of hosts which can be ejected at the same time.
+         *
+         * @param maxEjectionPercent the maximum percentage of hosts which can be ejected at the same time.
+         * @return {@code this}.
+         */
+        public Builder maxEjectionPercent(final int maxEjectionPercent) {
+            if (maxEjectionPercent < 0 || maxEjectionPercent > 100) {
+                throw new IllegalArgumentException("maxEjectionPercent: " + maxEjectionPercent +
+                        " (expected [0, 100])");
+            }
+            this.maxEjectionPercent = maxEjectionPercent;
+            return this;
+        }
+
+        /**
+         * Builds a new {@link OutlierDetectorConfig}.
+         *
+         * @return a new {@link OutlierDetectorConfig}.
+         */
+        public OutlierDetectorConfig build() {
+            return new OutlierDetectorConfig(executor, consecutiveConnectFailures, failureRateThreshold,
+                    failureRateRequestVolume, baseEjectionTime, maxEjectionTime, maxEjectionPercent);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.SingleSource.Processor;
+import io.servicetalk.concurrent.SingleSource.Subscriber;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Single;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Processors.newSingleProcessor;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * A bounded FIFO queue of requests waiting for a connection to a {@link Host}.
+ * <p>
+ * Requests are assigned a connection when one is created for the {@link Host}, or when an existing connection
+ * becomes available again, which is only detected when the end of a request is reported through
+ * {@link io.servicetalk.client.api.RequestTrackingLoadBalancer#requestFinished(
+ * io.servicetalk.client.api.LoadBalancedConnection, long, boolean)}. Users of the load balancer which do not report
+ * requests only get connections created on their behalf, so once the maximum number of connections is reached their
+ * requests wait until they time out.
+ *
+ * @param <C> The type of connection.
+ */
+final class PendingRequestQueue<C> {
+    @Nullable
+    private ArrayDeque<PendingRequest<C>> queue; // guarded by this
+    /**
+     * Connections reserved by the selector of a request which was cancelled before the connection was delivered, and
+     * which no other waiting request could take over. They are handed to the next requests without invoking their
+     * selector.
+     */
+    @Nullable
+    private ArrayDeque<C> reservedConnections; // guarded by this
+    private volatile int size;
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a request to this queue.
+     *
+     * @param selector the selector of the request, a connection is only assigned to the request if it is accepted by
+     * the selector.
+     * @param maxPendingRequests the maximum size of this queue.
+     * @param executor the {@link Executor} used to enforce the {@code timeoutNanos}.
+     * @param timeoutNanos the maximum duration the request waits for a connection.
+     * @return a {@link Single} which completes with the connection assigned to the request, or {@code null} if this
+     * queue is full.
+     */
+    @Nullable
+    Single<C> offer(final Predicate<C> selector, final int maxPendingRequests, final Executor executor,
+                    final long timeoutNanos) {
+        final PendingRequest<C> request = new PendingRequest<>(selector);
+        synchronized (this) {
+            if (reservedConnections != null) {
+                final C reserved = reservedConnections.poll();
+                if (reserved != null) {
+                    return succeeded(reserved);
+                }
+            }
+            if (size >= maxPendingRequests) {
+                return null;
+            }
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+            }
+            queue.add(request);
+            size = queue.size();
+        }
+        request.timer = executor.schedule(() -> {
+            if (request.tryFail()) {
+                remove(request);
+                request.processor.onError(new TimeoutException("No connection available after " +
+                        NANOSECONDS.toMillis(timeoutNanos) + "ms"));
+            }
+        }, timeoutNanos, NANOSECONDS);
+        // The cancellation is not propagated to the processor: once a connection is assigned to the request it is
+        // delivered even if the subscriber cancels concurrently, otherwise the selector's reservation is lost.
+        final Cancellable cancellable = () -> cancel(request);
+        final SingleSource<C> source = subscriber ->
+                request.processor.subscribe(new CancelOnlyRequestSubscriber<>(subscriber, cancellable));
+        return fromSource(source);
+    }
+
+    /**
+     * Assigns the passed {@code connection} to the requests at the head of this queue, for as long as their selector
+     * accepts it.
+     *
+     * @param connection the available connection.
+     * @return {@code true} if the connection was assigned to at least one request.
+     */
+    boolean drain(final C connection) {
+        return size != 0 && drain(connection, false);
+    }
+
+    /**
+     * Assigns the passed {@code connection} to the requests at the head of this queue.
+     * <p>
+     * Selectors typically reserve capacity on the connection they accept, and there is no way to release such a
+     * reservation. If a request is cancelled after its selector accepted the connection, the reservation is handed to
+     * the next request without invoking its selector, or kept for the next request if none is waiting.
+     *
+     * @param connection the available connection.
+     * @param reserved {@code true} if the {@code connection} was accepted by the selector of a cancelled request.
+     * @return {@code true} if the connection was assigned to at least one request.
+     */
+    private boolean drain(final C connection, boolean reserved) {
+        PendingRequest<C> first = null;
+        List<PendingRequest<C>> others = null;
+        synchronized (this) {
+            if (queue != null) {
+                for (;;) {
+                    // Poll before invoking the selector, which may cancel the request and remove it from the queue.
+                    final PendingRequest<C> request = queue.poll();
+                    if (request == null) {
+                        break;
+                    }
+                    if (!request.isWaiting()) {
+                        // Cancelled or timed out, and about to be removed.
+                        continue;
+                    }
+                    if (!reserved && !request.selector.test(connection)) {
+                        queue.addFirst(request);
+                        break;
+                    }
+                    if (!request.tryAssign()) {
+                        // Cancelled concurrently, after its selector accepted the connection.
+                        reserved = true;
+                        continue;
+                    }
+                    reserved = false;
+                    if (first == null) {
+                        first = request;
+                    } else {
+                        if (others == null) {
+                            others = new ArrayList<>(2);
+                        }
+                        others.add(request);
+                    }
+                }
+                size = queue.size();
+            }
+            if (reserved) {
+                if (reservedConnections == null) {
+                    reservedConnections = new ArrayDeque<>(2);
+                }
+                reservedConnections.add(connection);
+            }
+        }
+        // Complete outside of the lock, the assigned connection is used synchronously by the subscribers.
+        if (first == null) {
+            return false;
+        }
+        complete(first, connection);
+        if (others != null) {
+            for (PendingRequest<C> request : others) {
+                complete(request, connection);
+            }
+        }
+        return true;
+    }
+
+    private void complete(final PendingRequest<C> request, final C connection) {
+        request.cancelTimer();
+        if (request.tryComplete()) {
+            request.processor.onSuccess(connection);
+        } else {
+            // Cancelled after the connection was assigned, hand the reservation to the next request.
+            drain(connection, true);
+        }
+    }
+
+    /**
+     * Fails all requests in this queue.
+     *
+     * @param cause the cause of the failure.
+     */
+    void failAll(final Throwable cause) {
+        final PendingRequest<C>[] requests;
+        synchronized (this) {
+            reservedConnections = null;
+            if (queue == null || queue.isEmpty()) {
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            final PendingRequest<C>[] drained = queue.toArray(new PendingRequest[0]);
+            requests = drained;
+            queue.clear();
+            size = 0;
+        }
+        for (PendingRequest<C> request : requests) {
+            request.cancelTimer();
+            if (request.tryFail()) {
+                request.processor.onError(cause);
+            }
+        }
+    }
+
+    private void cancel(final PendingRequest<C> request) {
+        if (request.cancel()) {
+            remove(request);
+        }
+    }
+
+    private void remove(final PendingRequest<C> request) {
+        synchronized (this) {
+            if (queue == null || !queue.remove(request)) {
+                return;
+            }
+            size = queue.size();
+        }
+        request.cancelTimer();
+    }
+
+    private static final class CancelOnlyRequestSubscriber<C> implements Subscriber<C> {
+        private final Subscriber<? super C> target;
+        private final Cancellable cancellable;
+
+        CancelOnlyRequestSubscriber(final Subscriber<? super C> target, final Cancellable cancellable) {
+            this.target = target;
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public void onSubscribe(final Cancellable processorCancellable) {
+            target.onSubscribe(cancellable);
+        }
+
+        @Override
+        public void onSuccess(@Nullable final C result) {
+            target.onSuccess(result);
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+            target.onError(t);
+        }
+    }
+
+    private static final class PendingRequest<C> {
+        private static final AtomicIntegerFieldUpdater<PendingRequest> stateUpdater =
+                AtomicIntegerFieldUpdater.newUpdater(PendingRequest.class, "state");
+        /**
+         * Waiting in the queue for a connection.
+         */
+        private static final int WAITING = 0;
+        /**
+         * Removed from the queue with a connection accepted by its selector, but not completed yet.
+         */
+        private static final int ASSIGNED = 1;
+        private static final int CANCELLED = 2;
+        private static final int TERMINATED = 3;
+
+        final Predicate<C> selector;
+        final Processor<C, C> processor = newSingleProcessor();
+        @Nullable
+        volatile Cancellable timer;
+        private volatile int state;
+
+        PendingRequest(final Predicate<C> selector) {
+            this.selector = selector;
+        }
+
+        boolean isWaiting() {
+            return state == WAITING;
+        }
+
+        boolean tryAssign() {
+            return stateUpdater.compareAndSet(this, WAITING, ASSIGNED);
+        }
+
+        boolean tryComplete() {
+            return stateUpdater.compareAndSet(this, ASSIGNED, TERMINATED);
+        }
+
+        /**
+         * Terminates this request while it is waiting in the queue. Once a connection is assigned, the request can only
+         * be completed with that connection or cancelled.
+         *
+         * @return {@code true} if this request was waiting in the queue.
+         */
+        boolean tryFail() {
+            return stateUpdater.compareAndSet(this, WAITING, TERMINATED);
+        }
+
+        /**
+         * Cancels this request.
+         *
+         * @return {@code true} if this request was waiting in the queue and needs to be removed from it.
+         */
+        boolean cancel() {
+            for (;;) {
+                final int state = this.state;
+                if (state == CANCELLED || state == TERMINATED) {
+                    return false;
+                }
+                if (stateUpdater.compareAndSet(this, state, CANCELLED)) {
+                    return state == WAITING;
+                }
+            }
+        }
+
+        void cancelTimer() {
+            final Cancellable timer = this.timer;
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+    }
+}
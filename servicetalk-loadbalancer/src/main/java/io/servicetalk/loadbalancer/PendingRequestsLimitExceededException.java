@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancer;
+
+/**
+ * Thrown when a {@link LoadBalancer} can not select a connection to a host because the number of requests waiting
+ * for a connection to that host has reached its limit.
+ *
+ * @see ConnectionPoolConfig#maxPendingRequests()
+ */
+public final class PendingRequestsLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = -3613478347934208427L;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param message the detail message.
+     */
+    public PendingRequestsLimitExceededException(final String message) {
+        super(message);
+    }
+}
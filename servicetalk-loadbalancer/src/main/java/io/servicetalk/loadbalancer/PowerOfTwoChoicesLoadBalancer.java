@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.LoadBalancerFactory;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.api.Publisher;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import static java.util.Comparator.comparingInt;
+
+/**
+ * A {@link LoadBalancer} that uses the power of two choices strategy for selecting addresses. It has the following
+ * behaviour:
+ * <ul>
+ * <li>Two distinct addresses are picked at random and the one with the lowest load is selected. The load of an address
+ * is its latency <a href="https://en.wikipedia.org/wiki/Moving_average#Exponential_moving_average">EWMA</a> multiplied
+ * by the number of requests in flight to it. Latency peaks are reflected immediately and decay over time, so a slow
+ * address quickly stops receiving its full share of requests.</li>
+ * <li>Load is only tracked for requests that are reported through the {@link RequestTrackingLoadBalancer} contract.
+ * Without it all addresses have the same load and this {@link LoadBalancer} picks addresses at random.</li>
+ * <li>Connections are created lazily, without any concurrency control on their creation.
+ * This can lead to over-provisioning connections when dealing with a requests surge.</li>
+ * <li>Existing connections are reused unless a selector passed to {@link #selectConnection(Predicate)} suggests
+ * otherwise.</li>
+ * <li>Closed connections are automatically pruned.</li>
+ * </ul>
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+public final class PowerOfTwoChoicesLoadBalancer<ResolvedAddress, C extends LoadBalancedConnection>
+        extends AbstractLoadBalancer<ResolvedAddress, C> implements RequestTrackingLoadBalancer<C> {
+
+    /**
+     * Default time constant of the latency EWMA decay.
+     */
+    public static final Duration DEFAULT_LATENCY_DECAY = Duration.ofSeconds(10);
+
+    /**
+     * Cost of an address which has requests in flight but no latency measurement yet, so that a new address does not
+     * attract all requests until the first one completes.
+     */
+    private static final double UNKNOWN_LATENCY_PENALTY = Long.MAX_VALUE >> 16;
+
+    private final long latencyDecayNanos;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param comparator        used to compare addresses for lookup/iteration during the connection attempt phase.
+     */
+    public PowerOfTwoChoicesLoadBalancer(
+            final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+            final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+            final Comparator<ResolvedAddress> comparator) {
+        this(eventPublisher, connectionFactory, comparator, DEFAULT_LATENCY_DECAY);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param comparator        used to compare addresses for lookup/iteration during the connection attempt phase.
+     * @param latencyDecay      time constant of the latency EWMA decay.
+     */
+    public PowerOfTwoChoicesLoadBalancer(
+            final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+            final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+            final Comparator<ResolvedAddress> comparator, final Duration latencyDecay) {
+        super(eventPublisher, connectionFactory, comparator, null, null);
+        latencyDecayNanos = latencyDecay.toNanos();
+        if (latencyDecayNanos <= 0) {
+            throw new IllegalArgumentException("latencyDecay: " + latencyDecay + " (expected > 0)");
+        }
+    }
+
+    /**
+     * Create a {@link LoadBalancerFactory} that creates instances of {@link PowerOfTwoChoicesLoadBalancer}.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return a {@link LoadBalancerFactory} that creates instances of {@link PowerOfTwoChoicesLoadBalancer}.
+     */
+    public static <ResolvedAddress, C extends LoadBalancedConnection>
+    LoadBalancerFactory<ResolvedAddress, C> newPowerOfTwoChoicesFactory() {
+        return newPowerOfTwoChoicesFactory(DEFAULT_LATENCY_DECAY);
+    }
+
+    /**
+     * Create a {@link LoadBalancerFactory} that creates instances of {@link PowerOfTwoChoicesLoadBalancer}.
+     * @param latencyDecay time constant of the latency EWMA decay.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return a {@link LoadBalancerFactory} that creates instances of {@link PowerOfTwoChoicesLoadBalancer}.
+     */
+    public static <ResolvedAddress, C extends LoadBalancedConnection>
+    LoadBalancerFactory<ResolvedAddress, C> newPowerOfTwoChoicesFactory(final Duration latencyDecay) {
+        return (eventPublisher, connectionFactory) -> new PowerOfTwoChoicesLoadBalancer<>(eventPublisher,
+                connectionFactory, comparingInt(Object::hashCode), latencyDecay);
+    }
+
+    @Override
+    public void requestStarted(final C connection) {
+        onRequestStarted(connection);
+    }
+
+    @Override
+    public void requestFinished(final C connection, final long durationNanos, final boolean failed) {
+        final Host<ResolvedAddress, C> host = onRequestFinished(connection, failed);
+        if (host != null) {
+            host.updateLatency(durationNanos, latencyDecayNanos);
+        }
+    }
+
+    @Override
+    Host<ResolvedAddress, C> selectHost(final List<Host<ResolvedAddress, C>> activeHosts) {
+        final int size = activeHosts.size();
+        if (size == 1) {
+            return activeHosts.get(0);
+        }
+        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        final int first = rnd.nextInt(size);
+        int second = rnd.nextInt(size - 1);
+        if (second >= first) {
+            ++second;
+        }
+        final Host<ResolvedAddress, C> firstHost = activeHosts.get(first);
+        final Host<ResolvedAddress, C> secondHost = activeHosts.get(second);
+        return cost(firstHost) <= cost(secondHost) ? firstHost : secondHost;
+    }
+
+    private static double cost(final Host<?, ?> host) {
+        final int inFlight = host.inFlight();
+        final double latency = host.latencyEwma();
+        if (latency == 0) {
+            return inFlight == 0 ? 0 : UNKNOWN_LATENCY_PENALTY + inFlight;
+        }
+        return latency * (inFlight + 1);
+    }
+}
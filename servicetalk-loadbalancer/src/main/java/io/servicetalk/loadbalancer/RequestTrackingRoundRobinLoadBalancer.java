@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.api.Single;
+
+import java.util.function.Predicate;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link RequestTrackingLoadBalancer} which reports requests to a {@link RoundRobinLoadBalancer}. It is only used
+ * when requests need to be reported, so that clients of a {@link RoundRobinLoadBalancer} that neither passively
+ * health checks hosts nor bounds their connections do not pay for tracking requests.
+ *
+ * @param <ResolvedAddress> The resolved address type.
+ * @param <C> The type of connection.
+ */
+final class RequestTrackingRoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnection>
+        implements RequestTrackingLoadBalancer<C> {
+
+    private final RoundRobinLoadBalancer<ResolvedAddress, C> delegate;
+
+    RequestTrackingRoundRobinLoadBalancer(final RoundRobinLoadBalancer<ResolvedAddress, C> delegate) {
+        this.delegate = requireNonNull(delegate);
+    }
+
+    @Override
+    public void requestStarted(final C connection) {
+        delegate.onRequestStarted(connection);
+    }
+
+    @Override
+    public void requestFinished(final C connection, final long durationNanos, final boolean failed) {
+        delegate.onRequestFinished(connection, failed);
+    }
+
+    @Override
+    public Single<C> selectConnection(final Predicate<C> selector) {
+        return delegate.selectConnection(selector);
+    }
+
+    @Override
+    public Publisher<Object> eventStream() {
+        return delegate.eventStream();
+    }
+
+    @Override
+    public Completable onClose() {
+        return delegate.onClose();
+    }
+
+    @Override
+    public Completable closeAsync() {
+        return delegate.closeAsync();
+    }
+
+    @Override
+    public Completable closeAsyncGracefully() {
+        return delegate.closeAsyncGracefully();
+    }
+}
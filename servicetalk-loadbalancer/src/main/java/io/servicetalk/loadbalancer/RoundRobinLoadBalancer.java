@@ -16,115 +16,66 @@
 package io.servicetalk.loadbalancer;
 
 import io.servicetalk.client.api.ConnectionFactory;
-import io.servicetalk.client.api.ConnectionRejectedException;
 import io.servicetalk.client.api.LoadBalancedConnection;
 import io.servicetalk.client.api.LoadBalancer;
 import io.servicetalk.client.api.LoadBalancerFactory;
-import io.servicetalk.client.api.NoAvailableHostException;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
 import io.servicetalk.client.api.ServiceDiscovererEvent;
-import io.servicetalk.concurrent.PublisherSource.Subscriber;
-import io.servicetalk.concurrent.PublisherSource.Subscription;
-import io.servicetalk.concurrent.api.AsyncCloseable;
-import io.servicetalk.concurrent.api.Completable;
-import io.servicetalk.concurrent.api.CompositeCloseable;
-import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
 import io.servicetalk.concurrent.api.Publisher;
-import io.servicetalk.concurrent.api.Single;
-import io.servicetalk.concurrent.api.internal.SpScPublisherProcessor;
-import io.servicetalk.concurrent.internal.SequentialCancellable;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
-import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
-import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_NOT_READY_EVENT;
-import static io.servicetalk.client.api.LoadBalancerReadyEvent.LOAD_BALANCER_READY_EVENT;
-import static io.servicetalk.concurrent.api.AsyncCloseables.newCompositeCloseable;
-import static io.servicetalk.concurrent.api.AsyncCloseables.toAsyncCloseable;
-import static io.servicetalk.concurrent.api.Completable.mergeAllDelayError;
-import static io.servicetalk.concurrent.api.Single.defer;
-import static io.servicetalk.concurrent.api.Single.failed;
-import static io.servicetalk.concurrent.api.Single.succeeded;
-import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
-import static io.servicetalk.concurrent.internal.ThrowableUtils.unknownStackTrace;
-import static java.util.Collections.binarySearch;
-import static java.util.Collections.emptyList;
-import static java.util.Comparator.comparing;
+import static java.util.Arrays.binarySearch;
 import static java.util.Comparator.comparingInt;
-import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.atomic.AtomicIntegerFieldUpdater.newUpdater;
-import static java.util.concurrent.atomic.AtomicReferenceFieldUpdater.newUpdater;
-import static java.util.stream.Collectors.toList;
 
 /**
  * A {@link LoadBalancer} that uses a round robin strategy for selecting addresses. It has the following behaviour:
  * <ul>
- * <li>Round robining is done at address level.</li>
+ * <li>Round robining is done at address level. Addresses are selected in proportion to the
+ * {@link ServiceDiscovererEvent#weight() weight} provided by service discovery.</li>
+ * <li>When configured with a local zone, only addresses in the same {@link ServiceDiscovererEvent#zone() zone} are
+ * selected, unless the ratio of healthy addresses in that zone drops below a threshold, in which case all addresses are
+ * selected.</li>
  * <li>Connections are created lazily, without any concurrency control on their creation.
- * This can lead to over-provisioning connections when dealing with a requests surge.</li>
+ * This can lead to over-provisioning connections when dealing with a requests surge.
+ * When configured with a {@link ConnectionPoolConfig}, the number of concurrent connection attempts and of connections
+ * to each host are bounded, and requests wait in a bounded queue for a connection to become available instead. A
+ * minimum number of connections to each host can also be opened eagerly and maintained in the background.</li>
  * <li>Existing connections are reused unless a selector passed to {@link #selectConnection(Predicate)} suggests
  * otherwise.
  * This can lead to situations where connections will be used to their maximum capacity (for example in the context of
  * pipelining) before new connections are created.</li>
  * <li>Closed connections are automatically pruned.</li>
+ * <li>When configured with an {@link OutlierDetectorConfig}, hosts which repeatedly fail to connect or fail too many
+ * requests are ejected from the rotation until a background probe succeeds. Ejections, revivals and hosts removed by
+ * service discovery are emitted as {@link LoadBalancerHostEvent}s from {@link #eventStream()}.</li>
+ * <li>Requests are only tracked when outlier detection or a {@link ConnectionPoolConfig} is configured, in which case
+ * the {@link LoadBalancerFactory}s created by {@link RoundRobinLoadBalancerFactoryBuilder} return a
+ * {@link RequestTrackingLoadBalancer} to which requests are reported.</li>
  * </ul>
  *
  * @param <ResolvedAddress> The resolved address type.
  * @param <C> The type of connection.
  */
 public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalancedConnection>
-        implements LoadBalancer<C> {
-
-    private static final Logger LOGGER = LoggerFactory.getLogger(RoundRobinLoadBalancer.class);
-    private static final IllegalStateException LB_CLOSED_SELECT_CNX_EXCEPTION =
-            unknownStackTrace(new IllegalStateException("LoadBalancer has closed"), RoundRobinLoadBalancer.class,
-                    "selectConnection0(...)");
-    private static final NoAvailableHostException NO_ACTIVE_HOSTS_SELECT_CNX_EXCEPTION =
-            unknownStackTrace(new NoAvailableHostException("No hosts are available to connect."),
-                    RoundRobinLoadBalancer.class, "selectConnection0(...)");
+        extends AbstractLoadBalancer<ResolvedAddress, C> {
 
-    private static final AtomicReferenceFieldUpdater<RoundRobinLoadBalancer, List> activeHostsUpdater =
-            newUpdater(RoundRobinLoadBalancer.class, List.class, "activeHosts");
     private static final AtomicIntegerFieldUpdater<RoundRobinLoadBalancer> indexUpdater =
             newUpdater(RoundRobinLoadBalancer.class, "index");
 
-    /**
-     * With a relatively small number of connections we can minimize connection creation under moderate concurrency by
-     * exhausting the full search space without sacrificing too much latency caused by the cost of a CAS operation per
-     * selection attempt.
-     */
-    private static final int MIN_SEARCH_SPACE = 64;
-
-    /**
-     * For larger search spaces, due to the cost of a CAS operation per selection attempt we see diminishing returns for
-     * trying to locate an available connection when most connections are in use. This increases tail latencies, thus
-     * after some number of failed attempts it appears to be more beneficial to open a new connection instead.
-     * <p>
-     * The current heuristics were chosen based on a set of benchmarks under various circumstances, low connection
-     * counts, larger connection counts, low connection churn, high connection churn.
-     */
-    private static final float SEARCH_FACTOR = 0.75f;
-
-    private volatile boolean closed;
     @SuppressWarnings("unused")
     private volatile int index;
-    private volatile List<Host<ResolvedAddress, C>> activeHosts = emptyList();
-
-    private final SpScPublisherProcessor<Object> eventStream = new SpScPublisherProcessor<>(32);
-    private final SequentialCancellable discoveryCancellable = new SequentialCancellable();
-    private final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory;
-    private final ListenableAsyncCloseable asyncCloseable;
+    @Nullable
+    private volatile HostSelection<ResolvedAddress, C> selection;
+    @Nullable
+    private final String localZone;
+    private final double minHealthyLocalRatio;
 
     /**
      * Creates a new instance.
@@ -136,93 +87,67 @@ public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalance
     public RoundRobinLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
                                   final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
                                   final Comparator<ResolvedAddress> comparator) {
+        this(eventPublisher, connectionFactory, comparator, null);
+    }
 
-        this.connectionFactory = requireNonNull(connectionFactory);
-
-        final Comparator<Host<ResolvedAddress, C>> activeAddressComparator =
-                comparing(host -> host instanceof MutableAddressHost ?
-                        ((MutableAddressHost<ResolvedAddress, C>) host).mutableAddress : host.address, comparator);
-
-        toSource(eventPublisher).subscribe(new Subscriber<ServiceDiscovererEvent<ResolvedAddress>>() {
-
-            @Override
-            public void onSubscribe(final Subscription s) {
-                // We request max value here to make sure we do not access Subscription concurrently
-                // (requestN here and cancel from discoveryCancellable). If we request-1 in onNext we would have to wrap
-                // the Subscription in a ConcurrentSubscription which is costly.
-                // Since, we synchronously process onNexts we do not really care about flow control.
-                s.request(Long.MAX_VALUE);
-                discoveryCancellable.nextCancellable(s);
-            }
-
-            @SuppressWarnings("unchecked")
-            @Override
-            public void onNext(final ServiceDiscovererEvent<ResolvedAddress> event) {
-                LOGGER.debug("Load balancer {}, received new ServiceDiscoverer event {}.", RoundRobinLoadBalancer.this,
-                        event);
-                final List<Host<ResolvedAddress, C>> activeAddresses =
-                        activeHostsUpdater.updateAndGet(RoundRobinLoadBalancer.this, currentAddresses -> {
-                            final List<Host<ResolvedAddress, C>> refreshedAddresses = new ArrayList<>(currentAddresses);
-                            final MutableAddressHost<ResolvedAddress, C> searchHost = new MutableAddressHost();
-
-                            searchHost.mutableAddress = event.address();
-                            // Binary search because any insertion is performed at the index returned by the search,
-                            // which is consistent with the ordering defined by the comparator
-                            final int i = binarySearch(refreshedAddresses, searchHost, activeAddressComparator);
-
-                            if (event.isAvailable()) {
-                                if (i < 0) {
-                                    refreshedAddresses.add(-i - 1, new Host(event.address()));
-                                }
-                            } else if (i >= 0) {
-                                Host<ResolvedAddress, C> removed = refreshedAddresses.remove(i);
-                                if (removed != null) {
-                                    removed.markInactive();
-                                }
-                            }
-
-                            return refreshedAddresses;
-                        });
-
-                LOGGER.debug("Load balancer {} now using {} addresses: {}", RoundRobinLoadBalancer.this,
-                        activeAddresses.size(), activeAddresses);
-
-                if (event.isAvailable()) {
-                    if (activeAddresses.size() == 1) {
-                        eventStream.sendOnNext(LOAD_BALANCER_READY_EVENT);
-                    }
-                } else if (activeAddresses.isEmpty()) {
-                    eventStream.sendOnNext(LOAD_BALANCER_NOT_READY_EVENT);
-                }
-            }
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param comparator        used to compare addresses for lookup/iteration during the connection attempt phase.
+     * @param outlierDetectorConfig configuration of the passive health checking of hosts, or {@code null} to disable
+     * it.
+     */
+    RoundRobinLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                           final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                           final Comparator<ResolvedAddress> comparator,
+                           @Nullable final OutlierDetectorConfig outlierDetectorConfig) {
+        this(eventPublisher, connectionFactory, comparator, outlierDetectorConfig, null);
+    }
 
-            @Override
-            public void onError(final Throwable t) {
-                List<Host<ResolvedAddress, C>> hosts = activeHosts;
-                eventStream.sendOnError(t);
-                LOGGER.error(
-                        "Load balancer {}. Service discoverer {} emitted an error. Last seen addresses (size {}) {}",
-                        RoundRobinLoadBalancer.this, eventPublisher, hosts.size(), hosts, t);
-            }
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param comparator        used to compare addresses for lookup/iteration during the connection attempt phase.
+     * @param outlierDetectorConfig configuration of the passive health checking of hosts, or {@code null} to disable
+     * it.
+     * @param connectionPoolConfig configuration of the connections to each host, or {@code null} to create connections
+     * without any concurrency control.
+     */
+    RoundRobinLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                           final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                           final Comparator<ResolvedAddress> comparator,
+                           @Nullable final OutlierDetectorConfig outlierDetectorConfig,
+                           @Nullable final ConnectionPoolConfig connectionPoolConfig) {
+        this(eventPublisher, connectionFactory, comparator, outlierDetectorConfig, connectionPoolConfig, null, 1);
+    }
 
-            @Override
-            public void onComplete() {
-                List<Host<ResolvedAddress, C>> hosts = activeHosts;
-                eventStream.sendOnComplete();
-                LOGGER.error("Load balancer {}. Service discoverer {} completed. Last seen addresses (size {}) {}",
-                        RoundRobinLoadBalancer.this, eventPublisher, hosts.size(), hosts);
-            }
-        });
-        asyncCloseable = toAsyncCloseable(graceful -> {
-            closed = true;
-            discoveryCancellable.cancel();
-            eventStream.sendOnComplete();
-            @SuppressWarnings("unchecked")
-            List<Host<ResolvedAddress, C>> currentList = activeHostsUpdater
-                    .getAndSet(RoundRobinLoadBalancer.this, Collections.<Host<ResolvedAddress, C>>emptyList());
-            CompositeCloseable cc = newCompositeCloseable().appendAll(currentList).appendAll(connectionFactory);
-            return graceful ? cc.closeAsyncGracefully() : cc.closeAsync();
-        });
+    /**
+     * Creates a new instance.
+     *
+     * @param eventPublisher    provides a stream of addresses to connect to.
+     * @param connectionFactory a function which creates new connections.
+     * @param comparator        used to compare addresses for lookup/iteration during the connection attempt phase.
+     * @param outlierDetectorConfig configuration of the passive health checking of hosts, or {@code null} to disable
+     * it.
+     * @param connectionPoolConfig configuration of the connections to each host, or {@code null} to create connections
+     * without any concurrency control.
+     * @param localZone the zone in which addresses are preferred, or {@code null} to select addresses in all zones.
+     * @param minHealthyLocalRatio the minimum ratio of addresses in the {@code localZone} which are not ejected for
+     * addresses in other zones to not be selected.
+     */
+    RoundRobinLoadBalancer(final Publisher<? extends ServiceDiscovererEvent<ResolvedAddress>> eventPublisher,
+                           final ConnectionFactory<ResolvedAddress, ? extends C> connectionFactory,
+                           final Comparator<ResolvedAddress> comparator,
+                           @Nullable final OutlierDetectorConfig outlierDetectorConfig,
+                           @Nullable final ConnectionPoolConfig connectionPoolConfig,
+                           @Nullable final String localZone, final double minHealthyLocalRatio) {
+        super(eventPublisher, connectionFactory, comparator, outlierDetectorConfig, connectionPoolConfig);
+        this.localZone = localZone;
+        this.minHealthyLocalRatio = minHealthyLocalRatio;
     }
 
     /**
@@ -238,199 +163,118 @@ public final class RoundRobinLoadBalancer<ResolvedAddress, C extends LoadBalance
                 comparingInt(Object::hashCode));
     }
 
-    @Override
-    public Single<C> selectConnection(Predicate<C> selector) {
-        return defer(() -> selectConnection0(selector).subscribeShareContext());
+    /**
+     * Create a {@link LoadBalancerFactory} that creates instances of {@link RoundRobinLoadBalancer} which passively
+     * health check hosts.
+     * @param outlierDetectorConfig configuration of the passive health checking of hosts.
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return a {@link LoadBalancerFactory} that creates instances of {@link RoundRobinLoadBalancer}.
+     */
+    public static <ResolvedAddress, C extends LoadBalancedConnection>
+    LoadBalancerFactory<ResolvedAddress, C> newRoundRobinFactory(final OutlierDetectorConfig outlierDetectorConfig) {
+        return new RoundRobinLoadBalancerFactoryBuilder().outlierDetector(outlierDetectorConfig).build();
     }
 
     @Override
-    public Publisher<Object> eventStream() {
-        return eventStream;
-    }
-
-    private Single<C> selectConnection0(Predicate<C> selector) {
-        if (closed) {
-            return failed(LB_CLOSED_SELECT_CNX_EXCEPTION);
+    Host<ResolvedAddress, C> selectHost(final List<Host<ResolvedAddress, C>> activeHosts) {
+        HostSelection<ResolvedAddress, C> selection = this.selection;
+        if (selection == null || selection.activeHosts != activeHosts) {
+            // The list of active hosts is copied on every change, so it can be used to invalidate the selection.
+            selection = new HostSelection<>(activeHosts, localZone);
+            this.selection = selection;
         }
-
-        final List<Host<ResolvedAddress, C>> activeHosts = this.activeHosts;
-        if (activeHosts.isEmpty()) {
-            // This is the case when SD has emitted some items but none of the hosts are active.
-            return failed(NO_ACTIVE_HOSTS_SELECT_CNX_EXCEPTION);
+        final WeightedHosts<ResolvedAddress, C> local = selection.local;
+        final WeightedHosts<ResolvedAddress, C> candidates = local != null &&
+                hasHealthyRatio(local.hosts, minHealthyLocalRatio) ? local : selection.all;
+        final List<Host<ResolvedAddress, C>> hosts = candidates.hosts;
+        final int size = hosts.size();
+        final int cursor = candidates.indexOf(indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE);
+        final Host<ResolvedAddress, C> host = hosts.get(cursor);
+        if (!host.isEjected()) {
+            return host;
         }
-
-        final int cursor = (indexUpdater.getAndIncrement(this) & Integer.MAX_VALUE) % activeHosts.size();
-        final Host<ResolvedAddress, C> host = activeHosts.get(cursor);
-        assert host != null : "Host can't be null.";
-        assert host.address != null : "Host address can't be null.";
-        final ThreadLocalRandom rnd = ThreadLocalRandom.current();
-
-        // Try first to see if an existing connection can be used
-        final List<C> connections = host.connections;
-        final int size = connections.size();
-        // With small enough search space, attempt all connections.
-        // Back off after exploring most of the search space, it gives diminishing returns.
-        final int attempts = size < MIN_SEARCH_SPACE ? size : (int) (size * SEARCH_FACTOR);
-        for (int i = 0; i < attempts; i++) {
-            final C connection = connections.get(rnd.nextInt(size));
-            if (selector.test(connection)) {
-                return succeeded(connection);
+        for (int i = 1; i < size; ++i) {
+            final Host<ResolvedAddress, C> next = hosts.get((cursor + i) % size);
+            if (!next.isEjected()) {
+                return next;
             }
         }
-
-        // No connection was selected: create a new one
-        return connectionFactory.newConnection(host.address)
-                .flatMap(newCnx -> {
-                    // Invoke the selector before adding the connection to the pool, otherwise, connection can be used
-                    // concurrently and hence a new connection can be rejected by the selector.
-                    if (!selector.test(newCnx)) {
-                        newCnx.closeAsync().subscribe();
-                        // Failure in selection could be temporary, hence add it to the queue and be consistent with the
-                        // fact that select failure does not close a connection.
-                        return failed(new ConnectionRejectedException("Newly created connection " + newCnx +
-                                " rejected by the selection filter."));
-                    }
-                    if (host.addConnection(newCnx)) {
-                        // If the LB has closed, we attempt to remove the connection, if the removal succeeds, close it.
-                        // If we can't remove it, it means it's been removed concurrently and we assume that whoever
-                        // removed it also closed it or that it has been removed as a consequence of closing.
-                        if (closed) {
-
-                            List<C> existing = connections;
-                            for (;;) {
-                                if (existing == Host.INACTIVE) {
-                                    break;
-                                }
-                                ArrayList<C> connectionRemoved = new ArrayList<>(existing);
-                                if (!connectionRemoved.remove(newCnx)) {
-                                    break;
-                                }
-                                if (Host.connectionsUpdater.compareAndSet(host, existing, connectionRemoved)) {
-                                    newCnx.closeAsync().subscribe();
-                                    break;
-                                }
-                                existing = connections;
-                            }
-
-                            return failed(LB_CLOSED_SELECT_CNX_EXCEPTION);
-                        }
-                        return succeeded(newCnx);
-                    }
-                    return failed(new ConnectionRejectedException("Failed to add newly created connection for host: " +
-                            host.address + ", host inactive? " + (host.connections == Host.INACTIVE)));
-                });
-    }
-
-    @Override
-    public Completable onClose() {
-        return asyncCloseable.onClose();
+        // All hosts are ejected, prefer an ejected host over failing the selection.
+        return host;
     }
 
-    @Override
-    public Completable closeAsync() {
-        return asyncCloseable.closeAsync();
-    }
-
-    @Override
-    public Completable closeAsyncGracefully() {
-        return asyncCloseable.closeAsyncGracefully();
-    }
-
-    // Visible for testing
-    List<Entry<ResolvedAddress, List<C>>> activeAddresses() {
-        return activeHosts.stream().map(Host::asEntry).collect(toList());
-    }
-
-    private static class Host<Addr, C extends ListenableAsyncCloseable> implements AsyncCloseable {
-        private static final AtomicReferenceFieldUpdater<Host, List> connectionsUpdater =
-                AtomicReferenceFieldUpdater.newUpdater(Host.class, List.class, "connections");
-
-        static final List INACTIVE = emptyList();
-        private static final List NO_CONNECTIONS = new ArrayList(0);
-
-        @Nullable
-        final Addr address;
-        @SuppressWarnings("unchecked")
-        private volatile List<C> connections = NO_CONNECTIONS;
-
-        Host() {
-            address = null;
-        }
-
-        Host(Addr address) {
-            this.address = address;
-        }
-
-        void markInactive() {
-            @SuppressWarnings("unchecked")
-            List<C> toRemove = connectionsUpdater.getAndSet(this, INACTIVE);
-            for (C conn : toRemove) {
-                conn.closeAsync().subscribe();
+    private static boolean hasHealthyRatio(final List<? extends Host<?, ?>> hosts, final double minHealthyRatio) {
+        final int required = (int) Math.ceil(hosts.size() * minHealthyRatio);
+        int healthy = 0;
+        for (Host<?, ?> host : hosts) {
+            if (!host.isEjected() && ++healthy >= required) {
+                return true;
             }
         }
+        return false;
+    }
 
-        boolean addConnection(C connection) {
-
-            for (;;) {
-                List<C> existing = this.connections;
-                if (existing == INACTIVE) {
-                    connection.closeAsync().subscribe();
-                    return false;
-                }
-                ArrayList<C> connectionAdded = new ArrayList<>(existing);
-                connectionAdded.add(connection);
-                if (connectionsUpdater.compareAndSet(this, existing, connectionAdded)) {
-                    break;
-                }
-            }
-
-            // Instrument the new connection so we prune it on close
-            connection.onClose().beforeFinally(() -> {
-                List<C> existing = connections;
-                for (;;) {
-                    if (existing == INACTIVE) {
-                        break;
-                    }
-                    ArrayList<C> connectionRemoved = new ArrayList<>(existing);
-                    if (!connectionRemoved.remove(connection) ||
-                            connectionsUpdater.compareAndSet(this, existing, connectionRemoved)) {
-                        break;
+    /**
+     * The hosts to select from for a given list of active hosts.
+     */
+    private static final class HostSelection<ResolvedAddress, C extends LoadBalancedConnection> {
+        final List<Host<ResolvedAddress, C>> activeHosts;
+        final WeightedHosts<ResolvedAddress, C> all;
+        @Nullable
+        final WeightedHosts<ResolvedAddress, C> local;
+
+        HostSelection(final List<Host<ResolvedAddress, C>> activeHosts, @Nullable final String localZone) {
+            this.activeHosts = activeHosts;
+            all = new WeightedHosts<>(activeHosts);
+            if (localZone == null) {
+                local = null;
+            } else {
+                final List<Host<ResolvedAddress, C>> localHosts = new ArrayList<>();
+                for (Host<ResolvedAddress, C> host : activeHosts) {
+                    if (localZone.equals(host.zone())) {
+                        localHosts.add(host);
                     }
-                    existing = connections;
                 }
-            }).subscribe();
-            return true;
-        }
-
-        // Used for testing only
-        Entry<Addr, List<C>> asEntry() {
-            assert address != null;
-            return new SimpleImmutableEntry<>(address, new ArrayList<>(connections));
-        }
-
-        @Override
-        public Completable closeAsync() {
-            return mergeAllDelayError(connections.stream()
-                    .map(AsyncCloseable::closeAsync)::iterator);
+                local = localHosts.isEmpty() ? null : new WeightedHosts<>(localHosts);
+            }
         }
+    }
 
-        @Override
-        public Completable closeAsyncGracefully() {
-            return mergeAllDelayError(connections.stream()
-                    .map(AsyncCloseable::closeAsyncGracefully)::iterator);
+    /**
+     * Maps the round robin cursor to hosts in proportion to their weight.
+     */
+    private static final class WeightedHosts<ResolvedAddress, C extends LoadBalancedConnection> {
+        final List<Host<ResolvedAddress, C>> hosts;
+        /**
+         * Cumulative weights of the hosts, or {@code null} if all hosts have the same weight.
+         */
+        @Nullable
+        private final int[] cumulativeWeights;
+
+        WeightedHosts(final List<Host<ResolvedAddress, C>> hosts) {
+            this.hosts = hosts;
+            final int size = hosts.size();
+            final int[] cumulativeWeights = new int[size];
+            boolean uniform = true;
+            long total = 0;
+            for (int i = 0; i < size; ++i) {
+                final int weight = hosts.get(i).weight();
+                uniform &= weight == hosts.get(0).weight();
+                total += weight;
+                cumulativeWeights[i] = (int) total;
+            }
+            this.cumulativeWeights = uniform || total > Integer.MAX_VALUE ? null : cumulativeWeights;
         }
 
-        @Override
-        public String toString() {
-            return "Host{" +
-                    "address=" + address +
-                    ", removed=" + (connections == INACTIVE) +
-                    '}';
+        int indexOf(final int cursor) {
+            final int[] cumulativeWeights = this.cumulativeWeights;
+            if (cumulativeWeights == null) {
+                return cursor % hosts.size();
+            }
+            final int position = cursor % cumulativeWeights[cumulativeWeights.length - 1];
+            final int i = binarySearch(cumulativeWeights, position);
+            return i >= 0 ? i + 1 : -i - 1;
         }
     }
-
-    private static final class MutableAddressHost<Addr, C extends ListenableAsyncCloseable> extends Host<Addr, C> {
-        @Nullable
-        Addr mutableAddress;
-    }
 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancerFactory;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+
+import javax.annotation.Nullable;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A builder for {@link LoadBalancerFactory}s that create instances of {@link RoundRobinLoadBalancer}.
+ */
+public final class RoundRobinLoadBalancerFactoryBuilder {
+    @Nullable
+    private OutlierDetectorConfig outlierDetectorConfig;
+    @Nullable
+    private ConnectionPoolConfig connectionPoolConfig;
+    @Nullable
+    private String localZone;
+    private double minHealthyLocalRatio = 1;
+
+    /**
+     * Enables the passive health checking of hosts.
+     *
+     * @param outlierDetectorConfig configuration of the passive health checking of hosts.
+     * @return {@code this}.
+     */
+    public RoundRobinLoadBalancerFactoryBuilder outlierDetector(final OutlierDetectorConfig outlierDetectorConfig) {
+        this.outlierDetectorConfig = requireNonNull(outlierDetectorConfig);
+        return this;
+    }
+
+    /**
+     * Bounds the connections created to each host.
+     *
+     * @param connectionPoolConfig configuration of the connections to each host.
+     * @return {@code this}.
+     */
+    public RoundRobinLoadBalancerFactoryBuilder connectionPool(final ConnectionPoolConfig connectionPoolConfig) {
+        this.connectionPoolConfig = requireNonNull(connectionPoolConfig);
+        return this;
+    }
+
+    /**
+     * Prefers addresses in the passed {@code localZone}, as reported by {@link ServiceDiscovererEvent#zone()}, and
+     * only selects addresses in other zones if there are no addresses in the {@code localZone} or if the ratio of its
+     * addresses that are not ejected by outlier detection drops below {@code minHealthyLocalRatio}.
+     *
+     * @param localZone the zone in which addresses are preferred.
+     * @param minHealthyLocalRatio the minimum ratio of healthy addresses in the {@code localZone}, in the range
+     * {@code (0, 1]}.
+     * @return {@code this}.
+     * @see #outlierDetector(OutlierDetectorConfig)
+     */
+    public RoundRobinLoadBalancerFactoryBuilder zoneAffinity(final String localZone,
+                                                             final double minHealthyLocalRatio) {
+        if (!(minHealthyLocalRatio > 0 && minHealthyLocalRatio <= 1)) {
+            throw new IllegalArgumentException("minHealthyLocalRatio: " + minHealthyLocalRatio +
+                    " (expected (0, 1])");
+        }
+        this.localZone = requireNonNull(localZone);
+        this.minHealthyLocalRatio = minHealthyLocalRatio;
+        return this;
+    }
+
+    /**
+     * Builds a new {@link LoadBalancerFactory} that creates instances of {@link RoundRobinLoadBalancer}. The created
+     * load balancers implement {@link RequestTrackingLoadBalancer} if and only if
+     * {@link #outlierDetector(OutlierDetectorConfig)} or {@link #connectionPool(ConnectionPoolConfig)} is configured.
+     *
+     * @param <ResolvedAddress> The resolved address type.
+     * @param <C> The type of connection.
+     * @return a new {@link LoadBalancerFactory} that creates instances of {@link RoundRobinLoadBalancer}.
+     */
+    public <ResolvedAddress, C extends LoadBalancedConnection> LoadBalancerFactory<ResolvedAddress, C> build() {
+        final OutlierDetectorConfig outlierDetectorConfig = this.outlierDetectorConfig;
+        final ConnectionPoolConfig connectionPoolConfig = this.connectionPoolConfig;
+        final String localZone = this.localZone;
+        final double minHealthyLocalRatio = this.minHealthyLocalRatio;
+        return (eventPublisher, connectionFactory) -> {
+            final RoundRobinLoadBalancer<ResolvedAddress, C> loadBalancer = new RoundRobinLoadBalancer<>(eventPublisher,
+                    connectionFactory, comparingInt(Object::hashCode), outlierDetectorConfig, connectionPoolConfig,
+                    localZone, minHealthyLocalRatio);
+            // Only pay for reporting requests when hosts are health checked or requests wait for connections.
+            return loadBalancer.isRequestTrackingEnabled() ?
+                    new RequestTrackingRoundRobinLoadBalancer<>(loadBalancer) : loadBalancer;
+        };
+    }
+}
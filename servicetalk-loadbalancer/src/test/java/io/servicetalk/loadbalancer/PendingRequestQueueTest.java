@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.SingleSource;
+import io.servicetalk.concurrent.api.Executor;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.Executors.newCachedThreadExecutor;
+import static io.servicetalk.concurrent.api.SourceAdapters.toSource;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+
+public class PendingRequestQueueTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    // Timers are cancelled concurrently, which TestExecutor does not support.
+    private final Executor executor = newCachedThreadExecutor();
+    private final ExecutorService cancelExecutor = newSingleThreadExecutor();
+    private final PendingRequestQueue<String> queue = new PendingRequestQueue<>();
+    private final AtomicInteger reservations = new AtomicInteger();
+    private final Predicate<String> reservingSelector = __ -> {
+        reservations.incrementAndGet();
+        return true;
+    };
+
+    @After
+    public void tearDown() throws Exception {
+        cancelExecutor.shutdownNow();
+        executor.closeAsync().toFuture().get();
+    }
+
+    @Test
+    public void cancelAfterSelectorAcceptedHandsConnectionToNextRequest() {
+        final CountingSubscriber first = new CountingSubscriber();
+        subscribe(offer(connection -> {
+            reservations.incrementAndGet();
+            // The request is cancelled concurrently, after its selector reserved the connection.
+            first.cancel();
+            return true;
+        }), first);
+        final CountingSubscriber second = new CountingSubscriber();
+        subscribe(offer(reservingSelector), second);
+
+        assertThat(queue.drain("connection"), is(true));
+        assertThat(first.successes.get(), is(0));
+        assertThat(second.successes.get(), is(1));
+        // The reservation of the cancelled request is handed over without invoking the selector of the next request.
+        assertThat(reservations.get(), is(1));
+        assertThat(queue.isEmpty(), is(true));
+    }
+
+    @Test
+    public void reservationOfCancelledRequestIsKeptForNextRequest() {
+        final CountingSubscriber first = new CountingSubscriber();
+        subscribe(offer(connection -> {
+            reservations.incrementAndGet();
+            first.cancel();
+            return true;
+        }), first);
+
+        assertThat(queue.drain("connection"), is(false));
+        assertThat(first.successes.get(), is(0));
+
+        final CountingSubscriber second = new CountingSubscriber();
+        subscribe(offer(reservingSelector), second);
+        assertThat(second.successes.get(), is(1));
+        assertThat(reservations.get(), is(1));
+    }
+
+    @Test
+    public void cancelledRequestIsNotAssigned() {
+        final CountingSubscriber first = new CountingSubscriber();
+        subscribe(offer(reservingSelector), first);
+        first.cancel();
+
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.drain("connection"), is(false));
+        assertThat(reservations.get(), is(0));
+        assertThat(first.successes.get(), is(0));
+    }
+
+    @Test
+    public void concurrentCancelAndDrainDoNotLoseReservations() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            reservations.set(0);
+            final CountingSubscriber first = new CountingSubscriber();
+            subscribe(offer(reservingSelector), first);
+            final CountingSubscriber second = new CountingSubscriber();
+            subscribe(offer(reservingSelector), second);
+
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            final Future<?> cancel = cancelExecutor.submit(() -> {
+                barrier.await();
+                first.cancel();
+                return null;
+            });
+            barrier.await();
+            queue.drain("connection");
+            cancel.get();
+
+            assertThat(second.successes.get(), is(1));
+            assertThat(queue.isEmpty(), is(true));
+            // A reservation which could not be handed to a waiting request is kept for the next request.
+            final CountingSubscriber third = new CountingSubscriber();
+            subscribe(offer(reservingSelector), third);
+            if (third.successes.get() == 0) {
+                third.cancel();
+            }
+            // Every reservation made by a selector results in exactly one delivered connection.
+            assertThat(first.successes.get() + second.successes.get() + third.successes.get(),
+                    is(reservations.get()));
+        }
+    }
+
+    private Single<String> offer(final Predicate<String> selector) {
+        final Single<String> pending = queue.offer(selector, 16, executor, SECONDS.toNanos(10));
+        assertThat(pending, is(notNullValue()));
+        return pending;
+    }
+
+    private static void subscribe(final Single<String> single, final CountingSubscriber subscriber) {
+        toSource(single).subscribe(subscriber);
+    }
+
+    private static final class CountingSubscriber implements SingleSource.Subscriber<String> {
+        final AtomicInteger successes = new AtomicInteger();
+        @Nullable
+        private volatile Cancellable cancellable;
+
+        @Override
+        public void onSubscribe(final Cancellable cancellable) {
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        public void onSuccess(@Nullable final String result) {
+            successes.incrementAndGet();
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+        }
+
+        void cancel() {
+            final Cancellable cancellable = this.cancellable;
+            assert cancellable != null;
+            cancellable.cancel();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.CompletableSource.Processor;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static io.servicetalk.concurrent.api.BlockingTestUtils.awaitIndefinitely;
+import static io.servicetalk.concurrent.api.Processors.newCompletableProcessor;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PowerOfTwoChoicesLoadBalancerTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final TestPublisher<ServiceDiscovererEvent<String>> serviceDiscoveryPublisher = new TestPublisher<>();
+    private PowerOfTwoChoicesLoadBalancer<String, TestLoadBalancedConnection> lb;
+
+    private static <T> Predicate<T> any() {
+        return __ -> true;
+    }
+
+    @Before
+    public void initialize() {
+        lb = new PowerOfTwoChoicesLoadBalancer<>(serviceDiscoveryPublisher, new TestConnectionFactory(),
+                String::compareTo);
+    }
+
+    @After
+    public void closeLoadBalancer() throws Exception {
+        awaitIndefinitely(lb.closeAsync());
+    }
+
+    @Test
+    public void singleHostIsAlwaysSelected() throws Exception {
+        sendServiceDiscoveryEvents("address-1");
+        for (int i = 0; i < 10; i++) {
+            assertThat(select().address(), is("address-1"));
+        }
+    }
+
+    @Test
+    public void prefersLowerLatency() throws Exception {
+        Map<String, TestLoadBalancedConnection> connections = connectToAll("address-1", "address-2");
+        recordRequest(connections.get("address-1"), MILLISECONDS.toNanos(500));
+        recordRequest(connections.get("address-2"), MILLISECONDS.toNanos(5));
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(select().address(), is("address-2"));
+        }
+    }
+
+    @Test
+    public void prefersFewerRequestsInFlight() throws Exception {
+        Map<String, TestLoadBalancedConnection> connections = connectToAll("address-1", "address-2");
+        recordRequest(connections.get("address-1"), MILLISECONDS.toNanos(10));
+        recordRequest(connections.get("address-2"), MILLISECONDS.toNanos(10));
+        for (int i = 0; i < 5; i++) {
+            lb.requestStarted(connections.get("address-1"));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(select().address(), is("address-2"));
+        }
+    }
+
+    @Test
+    public void closedConnectionReleasesRequestsInFlight() throws Exception {
+        Map<String, TestLoadBalancedConnection> connections = connectToAll("address-1", "address-2");
+        recordRequest(connections.get("address-1"), MILLISECONDS.toNanos(10));
+        recordRequest(connections.get("address-2"), MILLISECONDS.toNanos(20));
+        TestLoadBalancedConnection connection = connections.get("address-1");
+        for (int i = 0; i < 5; i++) {
+            lb.requestStarted(connection);
+        }
+        assertThat(select().address(), is("address-2"));
+
+        awaitIndefinitely(connection.closeAsync());
+        // Finishing a request after the connection closed must not be double counted.
+        lb.requestFinished(connection, MILLISECONDS.toNanos(10), false);
+
+        // address-1 now has no connection, selecting it creates a new one.
+        assertThat(select().address(), is("address-1"));
+    }
+
+    private Map<String, TestLoadBalancedConnection> connectToAll(final String... addresses) throws Exception {
+        sendServiceDiscoveryEvents(addresses);
+        Map<String, TestLoadBalancedConnection> connections = new HashMap<>();
+        while (connections.size() < addresses.length) {
+            TestLoadBalancedConnection connection = select();
+            connections.put(connection.address(), connection);
+        }
+        return connections;
+    }
+
+    private void recordRequest(final TestLoadBalancedConnection connection, final long durationNanos) {
+        lb.requestStarted(connection);
+        lb.requestFinished(connection, durationNanos, false);
+    }
+
+    private TestLoadBalancedConnection select() throws Exception {
+        TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+        assert connection != null;
+        return connection;
+    }
+
+    private void sendServiceDiscoveryEvents(final String... addresses) {
+        for (String address : addresses) {
+            serviceDiscoveryPublisher.onNext(upEvent(address));
+        }
+    }
+
+    private static ServiceDiscovererEvent<String> upEvent(final String address) {
+        return new DefaultServiceDiscovererEvent<>(address, true);
+    }
+
+    private interface TestLoadBalancedConnection extends ListenableAsyncCloseable, LoadBalancedConnection {
+        String address();
+    }
+
+    private static final class TestConnectionFactory implements ConnectionFactory<String, TestLoadBalancedConnection> {
+        @Override
+        public Single<TestLoadBalancedConnection> newConnection(final String address) {
+            final TestLoadBalancedConnection cnx = mock(TestLoadBalancedConnection.class);
+            final Processor closeCompletable = newCompletableProcessor();
+            when(cnx.closeAsync()).thenAnswer(__ -> {
+                closeCompletable.onComplete();
+                return fromSource(closeCompletable);
+            });
+            when(cnx.onClose()).thenReturn(fromSource(closeCompletable));
+            when(cnx.address()).thenReturn(address);
+            return succeeded(cnx);
+        }
+
+        @Override
+        public Completable onClose() {
+            return Completable.completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.completed();
+        }
+    }
+}
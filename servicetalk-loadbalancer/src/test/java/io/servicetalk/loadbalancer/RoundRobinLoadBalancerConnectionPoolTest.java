@@ -0,0 +1,278 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.CompletableSource;
+import io.servicetalk.concurrent.SingleSource.Processor;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.servicetalk.concurrent.api.BlockingTestUtils.awaitIndefinitely;
+import static io.servicetalk.concurrent.api.Processors.newCompletableProcessor;
+import static io.servicetalk.concurrent.api.Processors.newSingleProcessor;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class RoundRobinLoadBalancerConnectionPoolTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final TestPublisher<ServiceDiscovererEvent<String>> serviceDiscoveryPublisher = new TestPublisher<>();
+    private final TestExecutor executor = new TestExecutor();
+    private final List<Processor<TestConnection, TestConnection>> connectAttempts = new CopyOnWriteArrayList<>();
+    private final List<TestConnection> connections = new CopyOnWriteArrayList<>();
+    private RoundRobinLoadBalancer<String, TestConnection> lb;
+
+    @After
+    public void closeLoadBalancer() throws Exception {
+        awaitIndefinitely(lb.closeAsync());
+        awaitIndefinitely(executor.closeAsync());
+    }
+
+    @Test
+    public void concurrentConnectsAreBounded() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).maxConcurrentConnects(2));
+        List<Future<TestConnection>> requests = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            requests.add(select());
+        }
+        assertThat(connectAttempts, hasSize(2));
+
+        connect(0);
+        assertThat(requests.get(0).get(), is(sameInstance(connections.get(0))));
+        assertThat(connectAttempts, hasSize(3));
+        connect(1);
+        connect(2);
+        assertThat(connectAttempts, hasSize(5));
+        connect(3);
+        connect(4);
+        assertThat(connectAttempts, hasSize(5));
+        for (int i = 0; i < requests.size(); i++) {
+            assertThat(requests.get(i).get(), is(sameInstance(connections.get(i))));
+        }
+    }
+
+    @Test
+    public void pendingRequestIsServedByReleasedConnection() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).maxConnections(1));
+        Future<TestConnection> first = select();
+        connect(0);
+        TestConnection connection = first.get();
+
+        Future<TestConnection> second = select();
+        assertThat(connectAttempts, hasSize(1));
+        assertFalse(second.isDone());
+
+        release(connection);
+        assertThat(second.get(), is(sameInstance(connection)));
+    }
+
+    @Test
+    public void pendingRequestsAreBounded() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).maxConnections(1).maxPendingRequests(1));
+        Future<TestConnection> first = select();
+        Future<TestConnection> second = select();
+        assertThat(connectAttempts, hasSize(1));
+        assertFailedWith(second, PendingRequestsLimitExceededException.class);
+
+        connect(0);
+        assertThat(first.get(), is(sameInstance(connections.get(0))));
+    }
+
+    @Test
+    public void pendingRequestTimesOut() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).maxConnections(1)
+                .pendingRequestTimeout(Duration.ofSeconds(1)));
+        Future<TestConnection> first = select();
+        connect(0);
+        first.get();
+
+        Future<TestConnection> second = select();
+        executor.advanceTimeBy(1, SECONDS);
+        assertFailedWith(second, TimeoutException.class);
+    }
+
+    @Test
+    public void connectFailureFailsPendingRequests() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).maxConcurrentConnects(1));
+        Future<TestConnection> first = select();
+        Future<TestConnection> second = select();
+        assertThat(connectAttempts, hasSize(1));
+
+        connectAttempts.get(0).onError(DELIBERATE_EXCEPTION);
+        assertThat(assertFailedWith(first, DELIBERATE_EXCEPTION.getClass()), is(DELIBERATE_EXCEPTION));
+        assertThat(assertFailedWith(second, DELIBERATE_EXCEPTION.getClass()), is(DELIBERATE_EXCEPTION));
+    }
+
+    @Test
+    public void cancelledRequestDoesNotCancelConnect() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor));
+        select().cancel(true);
+        Future<TestConnection> second = select();
+        // The connect attempt of the cancelled request is used by the next one.
+        assertThat(connectAttempts, hasSize(1));
+
+        connect(0);
+        assertThat(second.get(), is(sameInstance(connections.get(0))));
+    }
+
+    @Test
+    public void minConnectionsAreOpenedEagerly() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).maxConcurrentConnects(1).minConnections(2));
+        assertThat(connectAttempts, hasSize(1));
+        connect(0);
+        assertThat(connectAttempts, hasSize(2));
+        connect(1);
+        assertThat(connectAttempts, hasSize(2));
+
+        select().get();
+        select().get();
+        assertThat(connectAttempts, hasSize(2));
+    }
+
+    @Test
+    public void closedConnectionIsReplenished() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).minConnections(1));
+        connect(0);
+        assertThat(connectAttempts, hasSize(1));
+
+        awaitIndefinitely(connections.get(0).closeAsync());
+        assertThat(connectAttempts, hasSize(2));
+    }
+
+    @Test
+    public void failedMinConnectionIsRetriedWithBackoff() throws Exception {
+        newLoadBalancer(new ConnectionPoolConfig.Builder(executor).minConnections(1));
+        connectAttempts.get(0).onError(DELIBERATE_EXCEPTION);
+        assertThat(connectAttempts, hasSize(1));
+
+        executor.advanceTimeBy(100, MILLISECONDS);
+        assertThat(connectAttempts, hasSize(2));
+        connectAttempts.get(1).onError(DELIBERATE_EXCEPTION);
+        executor.advanceTimeBy(100, MILLISECONDS);
+        assertThat(connectAttempts, hasSize(2));
+        executor.advanceTimeBy(100, MILLISECONDS);
+        assertThat(connectAttempts, hasSize(3));
+    }
+
+    private void newLoadBalancer(final ConnectionPoolConfig.Builder configBuilder) {
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, new TestConnectionFactory(), String::compareTo,
+                null, configBuilder.build());
+        serviceDiscoveryPublisher.onNext(new DefaultServiceDiscovererEvent<>("address-1", true));
+    }
+
+    private Future<TestConnection> select() {
+        return lb.selectConnection(TestConnection::tryReserve).toFuture();
+    }
+
+    private void connect(final int index) {
+        TestConnection connection = new TestConnection();
+        connections.add(connection);
+        connectAttempts.get(index).onSuccess(connection);
+    }
+
+    private void release(final TestConnection connection) {
+        lb.onRequestStarted(connection);
+        connection.reserved.set(false);
+        lb.onRequestFinished(connection, false);
+    }
+
+    private static Throwable assertFailedWith(final Future<?> future, final Class<? extends Throwable> type)
+            throws InterruptedException {
+        try {
+            future.get();
+            fail("Expected " + type.getSimpleName());
+            throw new AssertionError();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(type));
+            return e.getCause();
+        }
+    }
+
+    private static final class TestConnection implements LoadBalancedConnection {
+        final AtomicBoolean reserved = new AtomicBoolean();
+        private final CompletableSource.Processor closeCompletable = newCompletableProcessor();
+
+        boolean tryReserve() {
+            return reserved.compareAndSet(false, true);
+        }
+
+        @Override
+        public float score() {
+            return 1;
+        }
+
+        @Override
+        public Completable onClose() {
+            return fromSource(closeCompletable);
+        }
+
+        @Override
+        public Completable closeAsync() {
+            closeCompletable.onComplete();
+            return onClose();
+        }
+    }
+
+    private final class TestConnectionFactory implements ConnectionFactory<String, TestConnection> {
+        @Override
+        public Single<TestConnection> newConnection(final String address) {
+            Processor<TestConnection, TestConnection> processor = newSingleProcessor();
+            connectAttempts.add(processor);
+            return fromSource(processor);
+        }
+
+        @Override
+        public Completable onClose() {
+            return Completable.completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.completed();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.CompletableSource.Processor;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+import javax.annotation.Nullable;
+
+import static io.servicetalk.concurrent.api.BlockingTestUtils.awaitIndefinitely;
+import static io.servicetalk.concurrent.api.Processors.newCompletableProcessor;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RoundRobinLoadBalancerHostSelectionTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final TestPublisher<ServiceDiscovererEvent<String>> serviceDiscoveryPublisher = new TestPublisher<>();
+    private final TestExecutor executor = new TestExecutor();
+    private RoundRobinLoadBalancer<String, TestLoadBalancedConnection> lb;
+
+    private static <T> Predicate<T> any() {
+        return __ -> true;
+    }
+
+    @After
+    public void closeLoadBalancer() throws Exception {
+        awaitIndefinitely(lb.closeAsync());
+        awaitIndefinitely(executor.closeAsync());
+    }
+
+    @Test
+    public void selectionIsProportionalToWeight() throws Exception {
+        newLoadBalancer(null);
+        sendServiceDiscoveryEvent("address-1", null, 1);
+        sendServiceDiscoveryEvent("address-2", null, 3);
+
+        Map<String, Integer> selections = select(40);
+        assertThat(selections.get("address-1"), is(10));
+        assertThat(selections.get("address-2"), is(30));
+    }
+
+    @Test
+    public void weightUpdateIsApplied() throws Exception {
+        newLoadBalancer(null);
+        sendServiceDiscoveryEvent("address-1", null, 1);
+        sendServiceDiscoveryEvent("address-2", null, 1);
+        sendServiceDiscoveryEvent("address-2", null, 4);
+
+        Map<String, Integer> selections = select(50);
+        assertThat(selections.get("address-1"), is(10));
+        assertThat(selections.get("address-2"), is(40));
+    }
+
+    @Test
+    public void weightUpdateAfterSelectionIsApplied() throws Exception {
+        newLoadBalancer(null);
+        sendServiceDiscoveryEvent("address-1", null, 1);
+        sendServiceDiscoveryEvent("address-2", null, 1);
+
+        Map<String, Integer> selections = select(10);
+        assertThat(selections.get("address-1"), is(5));
+        assertThat(selections.get("address-2"), is(5));
+
+        sendServiceDiscoveryEvent("address-2", null, 4);
+        selections = select(50);
+        assertThat(selections.get("address-1"), is(10));
+        assertThat(selections.get("address-2"), is(40));
+    }
+
+    @Test
+    public void zoneUpdateAfterSelectionIsApplied() throws Exception {
+        newLoadBalancer("zone-a");
+        sendServiceDiscoveryEvent("address-1", "zone-a", 1);
+        sendServiceDiscoveryEvent("address-2", "zone-b", 1);
+
+        Map<String, Integer> selections = select(4);
+        assertThat(selections.get("address-1"), is(4));
+
+        sendServiceDiscoveryEvent("address-2", "zone-a", 1);
+        selections = select(4);
+        assertThat(selections.get("address-1"), is(2));
+        assertThat(selections.get("address-2"), is(2));
+    }
+
+    @Test
+    public void nonPositiveWeightIsTreatedAsMinimumWeight() throws Exception {
+        newLoadBalancer(null);
+        sendServiceDiscoveryEvent("address-1", null, 2);
+        serviceDiscoveryPublisher.onNext(new ServiceDiscovererEvent<String>() {
+            @Override
+            public String address() {
+                return "address-2";
+            }
+
+            @Override
+            public boolean isAvailable() {
+                return true;
+            }
+
+            @Override
+            public int weight() {
+                return 0;
+            }
+        });
+
+        Map<String, Integer> selections = select(30);
+        assertThat(selections.get("address-1"), is(20));
+        assertThat(selections.get("address-2"), is(10));
+    }
+
+    @Test
+    public void localZoneIsPreferred() throws Exception {
+        newLoadBalancer("zone-a");
+        sendServiceDiscoveryEvent("address-1", "zone-a", 1);
+        sendServiceDiscoveryEvent("address-2", "zone-b", 1);
+        sendServiceDiscoveryEvent("address-3", "zone-a", 1);
+
+        Map<String, Integer> selections = select(10);
+        assertThat(selections.get("address-1"), is(5));
+        assertThat(selections.get("address-3"), is(5));
+        assertThat(selections.containsKey("address-2"), is(false));
+    }
+
+    @Test
+    public void otherZonesAreSelectedWithoutLocalHosts() throws Exception {
+        newLoadBalancer("zone-a");
+        sendServiceDiscoveryEvent("address-1", "zone-b", 1);
+        sendServiceDiscoveryEvent("address-2", "zone-c", 1);
+
+        Map<String, Integer> selections = select(10);
+        assertThat(selections.get("address-1"), is(5));
+        assertThat(selections.get("address-2"), is(5));
+    }
+
+    @Test
+    public void otherZonesAreSelectedWhenLocalHealthDrops() throws Exception {
+        newLoadBalancer("zone-a");
+        sendServiceDiscoveryEvent("address-1", "zone-a", 1);
+        sendServiceDiscoveryEvent("address-2", "zone-a", 1);
+        sendServiceDiscoveryEvent("address-3", "zone-b", 1);
+
+        TestLoadBalancedConnection connection = selectAddress("address-1");
+        lb.onRequestStarted(connection);
+        lb.onRequestFinished(connection, true);
+
+        // Only half of the local hosts are healthy, below the threshold of 0.75.
+        Map<String, Integer> selections = select(9);
+        assertThat(selections.containsKey("address-1"), is(false));
+        assertThat(selections.get("address-3"), is(3));
+    }
+
+    private void newLoadBalancer(@Nullable final String localZone) {
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, new TestConnectionFactory(), String::compareTo,
+                new OutlierDetectorConfig.Builder(executor).failureRate(1, 1).maxEjectionPercent(100).build(), null,
+                localZone, 0.75);
+    }
+
+    private Map<String, Integer> select(final int count) throws Exception {
+        Map<String, Integer> selections = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+            assert connection != null;
+            selections.merge(connection.address(), 1, Integer::sum);
+        }
+        return selections;
+    }
+
+    private TestLoadBalancedConnection selectAddress(final String address) throws Exception {
+        for (;;) {
+            TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+            assert connection != null;
+            if (address.equals(connection.address())) {
+                return connection;
+            }
+        }
+    }
+
+    private void sendServiceDiscoveryEvent(final String address, @Nullable final String zone, final int weight) {
+        serviceDiscoveryPublisher.onNext(new DefaultServiceDiscovererEvent<>(address, true, zone, weight));
+    }
+
+    private interface TestLoadBalancedConnection extends ListenableAsyncCloseable, LoadBalancedConnection {
+        String address();
+    }
+
+    private static final class TestConnectionFactory implements ConnectionFactory<String, TestLoadBalancedConnection> {
+        @Override
+        public Single<TestLoadBalancedConnection> newConnection(final String address) {
+            final TestLoadBalancedConnection cnx = mock(TestLoadBalancedConnection.class);
+            final Processor closeCompletable = newCompletableProcessor();
+            when(cnx.closeAsync()).thenAnswer(__ -> {
+                closeCompletable.onComplete();
+                return fromSource(closeCompletable);
+            });
+            when(cnx.onClose()).thenReturn(fromSource(closeCompletable));
+            when(cnx.address()).thenReturn(address);
+            return succeeded(cnx);
+        }
+
+        @Override
+        public Completable onClose() {
+            return Completable.completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.completed();
+        }
+    }
+}
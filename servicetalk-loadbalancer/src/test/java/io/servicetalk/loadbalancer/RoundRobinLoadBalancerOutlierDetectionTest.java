@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.loadbalancer;
+
+import io.servicetalk.client.api.ConnectionFactory;
+import io.servicetalk.client.api.DefaultServiceDiscovererEvent;
+import io.servicetalk.client.api.LoadBalancedConnection;
+import io.servicetalk.client.api.LoadBalancer;
+import io.servicetalk.client.api.RequestTrackingLoadBalancer;
+import io.servicetalk.client.api.ServiceDiscovererEvent;
+import io.servicetalk.concurrent.CompletableSource.Processor;
+import io.servicetalk.concurrent.api.Completable;
+import io.servicetalk.concurrent.api.ListenableAsyncCloseable;
+import io.servicetalk.concurrent.api.Single;
+import io.servicetalk.concurrent.api.TestExecutor;
+import io.servicetalk.concurrent.api.TestPublisher;
+import io.servicetalk.concurrent.internal.ServiceTalkTestTimeout;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.Timeout;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static io.servicetalk.concurrent.api.BlockingTestUtils.awaitIndefinitely;
+import static io.servicetalk.concurrent.api.Processors.newCompletableProcessor;
+import static io.servicetalk.concurrent.api.Single.failed;
+import static io.servicetalk.concurrent.api.Single.succeeded;
+import static io.servicetalk.concurrent.api.SourceAdapters.fromSource;
+import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.loadbalancer.LoadBalancerHostEvent.Type.EJECTED;
+import static io.servicetalk.loadbalancer.LoadBalancerHostEvent.Type.REMOVED;
+import static io.servicetalk.loadbalancer.LoadBalancerHostEvent.Type.REVIVED;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RoundRobinLoadBalancerOutlierDetectionTest {
+    @Rule
+    public final Timeout timeout = new ServiceTalkTestTimeout();
+
+    private final TestPublisher<ServiceDiscovererEvent<String>> serviceDiscoveryPublisher = new TestPublisher<>();
+    private final TestExecutor executor = new TestExecutor();
+    private final Set<String> unreachableAddresses = new HashSet<>();
+    private final List<LoadBalancerHostEvent<?>> hostEvents = new CopyOnWriteArrayList<>();
+    private RoundRobinLoadBalancer<String, TestLoadBalancedConnection> lb;
+
+    private static <T> Predicate<T> any() {
+        return __ -> true;
+    }
+
+    @After
+    public void closeLoadBalancer() throws Exception {
+        if (lb != null) {
+            awaitIndefinitely(lb.closeAsync());
+        }
+        awaitIndefinitely(executor.closeAsync());
+    }
+
+    @Test
+    public void requestFailuresEjectHost() throws Exception {
+        newLoadBalancer(new OutlierDetectorConfig.Builder(executor).failureRate(0.5, 4));
+        Map<String, TestLoadBalancedConnection> connections = connectToAll("address-1", "address-2");
+        TestLoadBalancedConnection connection = connections.get("address-1");
+        for (int i = 0; i < 4; i++) {
+            recordRequest(connection, i % 2 == 0);
+        }
+        assertThat(hostEvents, contains(event("address-1", EJECTED, Duration.ofSeconds(30))));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(select().address(), is("address-2"));
+        }
+
+        executor.advanceTimeBy(30, SECONDS);
+        assertThat(hostEvents, contains(event("address-1", EJECTED, Duration.ofSeconds(30)),
+                event("address-1", REVIVED, Duration.ZERO)));
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            selected.add(select().address());
+        }
+        assertThat(selected, is(new HashSet<>(asList("address-1", "address-2"))));
+    }
+
+    @Test
+    public void healthyRequestsDoNotEjectHost() throws Exception {
+        newLoadBalancer(new OutlierDetectorConfig.Builder(executor).failureRate(0.5, 4));
+        Map<String, TestLoadBalancedConnection> connections = connectToAll("address-1", "address-2");
+        for (int i = 0; i < 8; i++) {
+            recordRequest(connections.get("address-1"), i % 4 == 0);
+        }
+        assertThat(hostEvents, is(empty()));
+    }
+
+    @Test
+    public void connectFailuresEjectHostAndProbeBacksOff() throws Exception {
+        newLoadBalancer(new OutlierDetectorConfig.Builder(executor).consecutiveConnectFailures(2));
+        unreachableAddresses.add("address-1");
+        sendServiceDiscoveryEvents("address-1", "address-2");
+        int failures = 0;
+        for (int i = 0; i < 6; i++) {
+            try {
+                assertThat(select().address(), is("address-2"));
+            } catch (Exception e) {
+                ++failures;
+            }
+        }
+        assertThat(failures, is(2));
+        assertThat(hostEvents, contains(event("address-1", EJECTED, Duration.ofSeconds(30))));
+
+        executor.advanceTimeBy(30, SECONDS);
+        assertThat(hostEvents, contains(event("address-1", EJECTED, Duration.ofSeconds(30)),
+                event("address-1", EJECTED, Duration.ofSeconds(60))));
+
+        unreachableAddresses.clear();
+        executor.advanceTimeBy(60, SECONDS);
+        assertThat(hostEvents, contains(event("address-1", EJECTED, Duration.ofSeconds(30)),
+                event("address-1", EJECTED, Duration.ofSeconds(60)),
+                event("address-1", REVIVED, Duration.ZERO)));
+    }
+
+    @Test
+    public void hostIsRevivedAfterManyEjectionsWithoutEventSubscriber() throws Exception {
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, new TestConnectionFactory(), String::compareTo,
+                new OutlierDetectorConfig.Builder(executor).consecutiveConnectFailures(1)
+                        .ejectionTime(Duration.ofSeconds(1), Duration.ofSeconds(1)).build());
+        unreachableAddresses.add("address-1");
+        sendServiceDiscoveryEvents("address-1", "address-2");
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 2; i++) {
+            try {
+                selected.add(select().address());
+            } catch (Exception e) {
+                // The connect failure ejects address-1.
+            }
+        }
+        assertThat(selected, contains("address-2"));
+
+        // Every failed probe ejects the host again, which emits more events than the event stream can queue.
+        for (int i = 0; i < 40; i++) {
+            executor.advanceTimeBy(1, SECONDS);
+        }
+        unreachableAddresses.clear();
+        executor.advanceTimeBy(1, SECONDS);
+        for (int i = 0; i < 2; i++) {
+            selected.add(select().address());
+        }
+        assertThat(selected, is(new HashSet<>(asList("address-1", "address-2"))));
+    }
+
+    @Test
+    public void maxEjectionPercentIsEnforced() throws Exception {
+        newLoadBalancer(new OutlierDetectorConfig.Builder(executor).failureRate(1, 2).maxEjectionPercent(50));
+        Map<String, TestLoadBalancedConnection> connections = connectToAll("address-1", "address-2");
+        for (int i = 0; i < 2; i++) {
+            recordRequest(connections.get("address-1"), true);
+            recordRequest(connections.get("address-2"), true);
+        }
+        assertThat(hostEvents, contains(event("address-1", EJECTED, Duration.ofSeconds(30))));
+    }
+
+    @Test
+    public void removedHostEmitsEvent() throws Exception {
+        newLoadBalancer(new OutlierDetectorConfig.Builder(executor));
+        sendServiceDiscoveryEvents("address-1");
+        serviceDiscoveryPublisher.onNext(new DefaultServiceDiscovererEvent<>("address-1", false));
+        assertThat(hostEvents, contains(event("address-1", REMOVED, Duration.ZERO)));
+    }
+
+    @Test
+    public void requestsAreOnlyTrackedWithOutlierDetection() throws Exception {
+        LoadBalancer<? extends TestLoadBalancedConnection> plain = RoundRobinLoadBalancer
+                .<String, TestLoadBalancedConnection>newRoundRobinFactory()
+                .newLoadBalancer(new TestPublisher<>(), new TestConnectionFactory());
+        LoadBalancer<? extends TestLoadBalancedConnection> tracking = RoundRobinLoadBalancer
+                .<String, TestLoadBalancedConnection>newRoundRobinFactory(new OutlierDetectorConfig.Builder(executor)
+                        .build())
+                .newLoadBalancer(new TestPublisher<>(), new TestConnectionFactory());
+        try {
+            assertThat(plain, is(not(instanceOf(RequestTrackingLoadBalancer.class))));
+            assertThat(tracking, is(instanceOf(RequestTrackingLoadBalancer.class)));
+        } finally {
+            awaitIndefinitely(plain.closeAsync());
+            awaitIndefinitely(tracking.closeAsync());
+        }
+    }
+
+    private void newLoadBalancer(final OutlierDetectorConfig.Builder configBuilder) {
+        lb = new RoundRobinLoadBalancer<>(serviceDiscoveryPublisher, new TestConnectionFactory(), String::compareTo,
+                configBuilder.build());
+        lb.eventStream().filter(LoadBalancerHostEvent.class::isInstance)
+                .forEach(event -> hostEvents.add((LoadBalancerHostEvent<?>) event));
+    }
+
+    private Map<String, TestLoadBalancedConnection> connectToAll(final String... addresses) throws Exception {
+        sendServiceDiscoveryEvents(addresses);
+        Map<String, TestLoadBalancedConnection> connections = new HashMap<>();
+        while (connections.size() < addresses.length) {
+            TestLoadBalancedConnection connection = select();
+            connections.put(connection.address(), connection);
+        }
+        return connections;
+    }
+
+    private void recordRequest(final TestLoadBalancedConnection connection, final boolean failed) {
+        lb.onRequestStarted(connection);
+        lb.onRequestFinished(connection, failed);
+    }
+
+    private TestLoadBalancedConnection select() throws Exception {
+        TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+        assert connection != null;
+        return connection;
+    }
+
+    private void sendServiceDiscoveryEvents(final String... addresses) {
+        for (String address : addresses) {
+            serviceDiscoveryPublisher.onNext(new DefaultServiceDiscovererEvent<>(address, true));
+        }
+    }
+
+    private static LoadBalancerHostEvent<String> event(final String address, final LoadBalancerHostEvent.Type type,
+                                                       final Duration ejectionDuration) {
+        switch (type) {
+            case REMOVED:
+                return LoadBalancerHostEvent.removed(address);
+            case EJECTED:
+                return LoadBalancerHostEvent.ejected(address, ejectionDuration);
+            case REVIVED:
+                return LoadBalancerHostEvent.revived(address);
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    private interface TestLoadBalancedConnection extends ListenableAsyncCloseable, LoadBalancedConnection {
+        String address();
+    }
+
+    private final class TestConnectionFactory implements ConnectionFactory<String, TestLoadBalancedConnection> {
+        @Override
+        public Single<TestLoadBalancedConnection> newConnection(final String address) {
+            if (unreachableAddresses.contains(address)) {
+                return failed(DELIBERATE_EXCEPTION);
+            }
+            final TestLoadBalancedConnection cnx = mock(TestLoadBalancedConnection.class);
+            final Processor closeCompletable = newCompletableProcessor();
+            when(cnx.closeAsync()).thenAnswer(__ -> {
+                closeCompletable.onComplete();
+                return fromSource(closeCompletable);
+            });
+            when(cnx.onClose()).thenReturn(fromSource(closeCompletable));
+            when(cnx.address()).thenReturn(address);
+            return succeeded(cnx);
+        }
+
+        @Override
+        public Completable onClose() {
+            return Completable.completed();
+        }
+
+        @Override
+        public Completable closeAsync() {
+            return Completable.completed();
+        }
+    }
+}
@@ -71,16 +71,19 @@ import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_
 import static io.servicetalk.concurrent.internal.ServiceTalkTestTimeout.DEFAULT_TIMEOUT_SECONDS;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.hamcrest.Matchers.both;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -386,6 +389,32 @@ public class RoundRobinLoadBalancerTest {
         assertTrue("ConnectionFactory not closed.", connectionFactory.isClosed());
     }
 
+    @Test
+    public void handleBurstOfDiscoveryEvents() throws Exception {
+        final int count = 2000;
+        final ServiceDiscovererEvent[] upEvents = new ServiceDiscovererEvent[count];
+        for (int i = 0; i < count; i++) {
+            upEvents[i] = upEvent(String.format("address-%04d", count - i - 1));
+        }
+        sendServiceDiscoveryEvents(upEvents);
+
+        final ServiceDiscovererEvent[] downEvents = new ServiceDiscovererEvent[count / 2];
+        for (int i = 0; i < count / 2; i++) {
+            downEvents[i] = downEvent(String.format("address-%04d", 2 * i + 1));
+        }
+        sendServiceDiscoveryEvents(downEvents);
+
+        final List<String> addresses = lb.activeAddresses().stream().map(Map.Entry::getKey).collect(toList());
+        assertThat(addresses, hasSize(count / 2));
+        for (int i = 0; i < count / 2; i++) {
+            assertThat(addresses.get(i), is(String.format("address-%04d", 2 * i)));
+        }
+
+        final TestLoadBalancedConnection connection = awaitIndefinitely(lb.selectConnection(any()));
+        assertThat(connection, is(notNullValue()));
+        assertThat(addresses, hasItem(connection.address()));
+    }
+
     @SuppressWarnings("unchecked")
     private void sendServiceDiscoveryEvents(final ServiceDiscovererEvent... events) {
         serviceDiscoveryPublisher.onNext((ServiceDiscovererEvent<String>[]) events);
@@ -18,6 +18,7 @@ package io.servicetalk.opentracing.zipkin.publisher;
 import io.servicetalk.opentracing.inmemory.api.InMemorySpan;
 import io.servicetalk.opentracing.inmemory.api.InMemorySpanEventListener;
 import io.servicetalk.opentracing.inmemory.api.InMemorySpanLog;
+import io.servicetalk.transport.netty.internal.IoThreadFactory;
 
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.Unpooled;
@@ -29,7 +30,6 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.MaxMessagesRecvByteBufAllocator;
 import io.netty.channel.socket.DatagramPacket;
-import io.netty.util.concurrent.DefaultThreadFactory;
 import io.opentracing.tag.Tags;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -211,7 +211,7 @@ public final class ZipkinPublisher implements InMemorySpanEventListener, Closeab
 
         endpoint = buildEndpoint(serviceName, localAddress);
 
-        group = createEventLoopGroup(1, new DefaultThreadFactory("zipkin-publisher", true));
+        group = createEventLoopGroup(1, new IoThreadFactory("zipkin-publisher", true));
         try {
             final Bootstrap bootstrap = transport.buildBootstrap(group, encoder, collectorAddress);
             channel = bootstrap.bind(0).sync().channel();
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.servicetalk.buffer.api.Buffer;
+import io.servicetalk.concurrent.Cancellable;
+import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.concurrent.internal.DelayedCancellable;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link FlushStrategy} which flushes each item while writes are sparse and switches to batched flushes while writes
+ * arrive faster than {@code busyIntervalNanos} on average or the connection is not writable.
+ * <p>
+ * A batch is flushed when it reaches {@code maxBatchSize} items or {@code maxBatchBytes} bytes, when an item is emitted
+ * from the duration boundaries or when the write terminates.
+ */
+final class AdaptiveFlush implements FlushStrategy {
+
+    private final Publisher<?> boundaries;
+    private final int maxBatchSize;
+    private final int maxBatchBytes;
+    private final long busyIntervalNanos;
+    private final LongSupplier nanoTimeSource;
+
+    AdaptiveFlush(Publisher<?> durationBoundaries, int maxBatchSize, int maxBatchBytes, long busyIntervalNanos) {
+        this(durationBoundaries, maxBatchSize, maxBatchBytes, busyIntervalNanos, System::nanoTime);
+    }
+
+    AdaptiveFlush(Publisher<?> durationBoundaries, int maxBatchSize, int maxBatchBytes, long busyIntervalNanos,
+                  LongSupplier nanoTimeSource) {
+        this.boundaries = requireNonNull(durationBoundaries);
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize: " + maxBatchSize + " (expected > 0)");
+        }
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("maxBatchBytes: " + maxBatchBytes + " (expected > 0)");
+        }
+        if (busyIntervalNanos <= 0) {
+            throw new IllegalArgumentException("busyIntervalNanos: " + busyIntervalNanos + " (expected > 0)");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.busyIntervalNanos = busyIntervalNanos;
+        this.nanoTimeSource = requireNonNull(nanoTimeSource);
+    }
+
+    @Override
+    public WriteEventsListener apply(final FlushSender sender) {
+        return new AdaptiveFlushListener(this, sender);
+    }
+
+    private static final class AdaptiveFlushListener implements WriteEventsListener {
+
+        private final AdaptiveFlush strategy;
+        private final FlushSender sender;
+        /**
+         * This field is accessed from {@link #writeCancelled()} as well as {@link #writeTerminated()} which can be
+         * concurrent, so we use {@link DelayedCancellable} to avoid concurrent invocation of the actual
+         * {@link Cancellable}.
+         */
+        private final DelayedCancellable boundariesCancellable = new DelayedCancellable();
+        private boolean itemsSeen;
+        private long lastWrittenNanos;
+        /**
+         * Exponential moving average of the interval between written items, {@code 0} until two items are written.
+         */
+        private long avgIntervalNanos;
+        private int unflushedCount;
+        private long unflushedBytes;
+
+        AdaptiveFlushListener(final AdaptiveFlush strategy, final FlushSender sender) {
+            this.strategy = strategy;
+            this.sender = sender;
+        }
+
+        @Override
+        public void writeStarted() {
+            boundariesCancellable.delayedCancellable(strategy.boundaries.forEach(__ -> sender.flush()));
+        }
+
+        @Override
+        public void itemWritten(@Nullable final Object written) {
+            final long now = strategy.nanoTimeSource.getAsLong();
+            if (itemsSeen) {
+                // EWMA with a weight of 1/4 for the latest sample, reacts within a few items to a change in load.
+                final long interval = max(1, now - lastWrittenNanos);
+                avgIntervalNanos = avgIntervalNanos == 0 ? interval :
+                        avgIntervalNanos + (interval - avgIntervalNanos) / 4;
+            } else {
+                itemsSeen = true;
+            }
+            lastWrittenNanos = now;
+            ++unflushedCount;
+            unflushedBytes += sizeOf(written);
+
+            if (!isBusy() || unflushedCount >= strategy.maxBatchSize || unflushedBytes >= strategy.maxBatchBytes) {
+                unflushedCount = 0;
+                unflushedBytes = 0;
+                sender.flush();
+            }
+        }
+
+        private boolean isBusy() {
+            // Flushing an unwritable connection only adds syscalls, the connection is flushed when it becomes
+            // unwritable anyways if the strategy requires so.
+            return (avgIntervalNanos > 0 && avgIntervalNanos < strategy.busyIntervalNanos) || !sender.isWritable();
+        }
+
+        @Override
+        public void writeTerminated() {
+            boundariesCancellable.cancel();
+            if (unflushedCount > 0) {
+                // Since this is a terminal call and no other method apart from writeCancelled can be called, do not
+                // reset state.
+                sender.flush();
+            }
+        }
+
+        @Override
+        public void writeCancelled() {
+            boundariesCancellable.cancel();
+        }
+
+        private static long sizeOf(@Nullable final Object written) {
+            if (written instanceof Buffer) {
+                return ((Buffer) written).readableBytes();
+            }
+            if (written instanceof ByteBuf) {
+                return ((ByteBuf) written).readableBytes();
+            }
+            if (written instanceof ByteBufHolder) {
+                return ((ByteBufHolder) written).content().readableBytes();
+            }
+            return 0;
+        }
+    }
+}
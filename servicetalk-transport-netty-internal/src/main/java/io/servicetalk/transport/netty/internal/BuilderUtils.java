@@ -63,6 +63,16 @@ public final class BuilderUtils {
         // Utility methods only
     }
 
+    /**
+     * Returns {@code true} if native io_uring transport should be used.
+     *
+     * @param group the used {@link EventLoopGroup}
+     * @return {@code true} if native transport should be used
+     */
+    public static boolean useIoUring(EventLoopGroup group) {
+        return IoUring.isIoUring(group);
+    }
+
     /**
      * Returns {@code true} if native epoll transport should be used.
      *
@@ -98,7 +108,10 @@ public final class BuilderUtils {
      */
     public static Class<? extends ServerChannel> serverChannel(EventLoopGroup group,
                                                                Class<? extends SocketAddress> addressClass) {
-        if (useEpoll(group)) {
+        if (useIoUring(group)) {
+            // io_uring does not support domain sockets, NativeTransportUtils reports them as unsupported.
+            return IoUring.serverSocketChannel();
+        } else if (useEpoll(group)) {
             return DomainSocketAddress.class.isAssignableFrom(addressClass) ? EpollServerDomainSocketChannel.class :
                     EpollServerSocketChannel.class;
         } else if (useKQueue(group)) {
@@ -118,7 +131,10 @@ public final class BuilderUtils {
      */
     public static Class<? extends Channel> socketChannel(EventLoopGroup group,
                                                          Class<? extends SocketAddress> addressClass) {
-        if (useEpoll(group)) {
+        if (useIoUring(group)) {
+            // io_uring does not support domain sockets, NativeTransportUtils reports them as unsupported.
+            return IoUring.socketChannel();
+        } else if (useEpoll(group)) {
             return DomainSocketAddress.class.isAssignableFrom(addressClass) ? EpollDomainSocketChannel.class :
                     EpollSocketChannel.class;
         } else if (useKQueue(group)) {
@@ -177,7 +193,9 @@ public final class BuilderUtils {
      * @return the class that should be used for bootstrapping
      */
     public static Class<? extends DatagramChannel> datagramChannel(EventLoopGroup group) {
-        if (useEpoll(group)) {
+        if (useIoUring(group)) {
+            return IoUring.datagramChannel();
+        } else if (useEpoll(group)) {
             return EpollDatagramChannel.class;
         } else if (useKQueue(group)) {
             return KQueueDatagramChannel.class;
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.servicetalk.transport.netty.internal.NettyConnection.RequestNSupplier;
+import io.servicetalk.transport.netty.internal.OverlappingCapacityAwareSupplier.SizeEstimator;
+
+import javax.annotation.Nullable;
+
+import static io.servicetalk.transport.netty.internal.OverlappingCapacityAwareSupplier.SizeEstimator.exactSizeEstimator;
+import static java.lang.Math.max;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An implementation of {@link RequestNSupplier} which accounts for the bytes in flight: the write buffer capacity is
+ * only filled with items that are not already accounted for by outstanding demand.
+ * <p>
+ * The bytes in flight are an estimate rather than an exact tracking of the requested items: they are computed as the
+ * number of requested but not yet written items multiplied by the average item size, i.e.
+ * {@code outstandingRequested * avgSizeInBytes}. The average is a moving average of the actual sizes of written items
+ * which follows increases in size immediately and decays slowly afterwards, so a stream mixing small and large items
+ * does not request more large items than the write buffer can hold. Since {@link #requestNFor(long)} is invoked after
+ * every write with the actual write buffer capacity, any estimation error is corrected on the next write.
+ */
+final class BytesInFlightRequestNSupplier implements RequestNSupplier {
+
+    private final SizeEstimator sizeEstimator;
+    @Nullable
+    private final WriteDemandMetrics metrics;
+    private long avgSizeInBytes;
+    private long outstandingRequested;
+
+    BytesInFlightRequestNSupplier() {
+        this(null);
+    }
+
+    BytesInFlightRequestNSupplier(@Nullable WriteDemandMetrics metrics) {
+        this(exactSizeEstimator(), 8, metrics);
+    }
+
+    BytesInFlightRequestNSupplier(SizeEstimator sizeEstimator, long defaultSizeInBytes,
+                                  @Nullable WriteDemandMetrics metrics) {
+        if (defaultSizeInBytes <= 0) {
+            throw new IllegalArgumentException("defaultSizeInBytes: " + defaultSizeInBytes + " (expected > 0)");
+        }
+        this.sizeEstimator = requireNonNull(sizeEstimator);
+        this.avgSizeInBytes = defaultSizeInBytes;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onItemWrite(Object written, long writeBufferCapacityBeforeWrite, long writeBufferCapacityAfterWrite) {
+        if (outstandingRequested > 0) {
+            outstandingRequested--;
+        }
+        long size = sizeEstimator.estimateSize(written, writeBufferCapacityBeforeWrite, writeBufferCapacityAfterWrite);
+        if (size <= 0) {
+            return;
+        }
+        avgSizeInBytes = size >= avgSizeInBytes ? size : max(1, avgSizeInBytes - (avgSizeInBytes - size) / 4);
+        if (metrics != null) {
+            metrics.bytesWritten(size);
+        }
+    }
+
+    @Override
+    public long requestNFor(long writeBufferCapacityInBytes) {
+        assert writeBufferCapacityInBytes >= 0 : "Write buffer capacity must be non-negative.";
+        // Estimated bytes of items requested but not yet written, capped to the capacity to avoid overflow.
+        final long outstandingBytes = outstandingRequested == 0 ? 0 :
+                outstandingRequested >= writeBufferCapacityInBytes / avgSizeInBytes ? writeBufferCapacityInBytes :
+                        outstandingRequested * avgSizeInBytes;
+        final long capacityToFill = writeBufferCapacityInBytes - outstandingBytes;
+        if (capacityToFill <= 0) {
+            return 0;
+        }
+        long toRequest = capacityToFill / avgSizeInBytes;
+        if (toRequest == 0) {
+            if (outstandingRequested > 0) {
+                return 0;
+            }
+            // If we have capacity but the next item is estimated to be larger, then at least request 1 otherwise we
+            // may never get any more data and we may never request again.
+            toRequest = 1;
+        }
+        outstandingRequested += toRequest;
+        if (metrics != null) {
+            metrics.bytesRequested(toRequest * avgSizeInBytes);
+        }
+        return toRequest;
+    }
+}
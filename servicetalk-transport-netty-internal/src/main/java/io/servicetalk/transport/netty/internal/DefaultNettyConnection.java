@@ -102,6 +102,7 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
     private final CompletableSource.Processor onClosing;
     private final SingleSource.Processor<Throwable, Throwable> transportError = newSingleProcessor();
     private final FlushStrategyHolder flushStrategyHolder;
+    private final WriteDemandMetrics writeDemandMetrics = new WriteDemandMetrics();
     private volatile WritableListener writableListener = PLACE_HOLDER_WRITABLE_LISTENER;
     /**
      * Potentially contains more information when a protocol or channel level close event was observed.
@@ -310,7 +311,17 @@ public final class DefaultNettyConnection<Read, Write> extends NettyChannelListe
 
     @Override
     public Completable write(Publisher<Write> write) {
-        return write(write, RequestNSupplier::newDefaultSupplier);
+        return write(write, () -> new BytesInFlightRequestNSupplier(writeDemandMetrics));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Metrics are accumulated over all writes which use the default {@link RequestNSupplier}.
+     */
+    @Override
+    public WriteDemandMetrics writeDemandMetrics() {
+        return writeDemandMetrics;
     }
 
     @Override
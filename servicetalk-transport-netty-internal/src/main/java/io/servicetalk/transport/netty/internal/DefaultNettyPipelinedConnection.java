@@ -224,6 +224,11 @@ public final class DefaultNettyPipelinedConnection<Req, Resp> implements NettyPi
         return connection.defaultFlushStrategy();
     }
 
+    @Override
+    public WriteDemandMetrics writeDemandMetrics() {
+        return connection.writeDemandMetrics();
+    }
+
     private static final class WriteQueue<Resp> extends SequentialTaskQueue<Task<Resp>> {
 
         private final ResponseQueue<Resp> responseQueue;
@@ -18,6 +18,7 @@ package io.servicetalk.transport.netty.internal;
 import io.servicetalk.concurrent.PublisherSource.Subscriber;
 import io.servicetalk.concurrent.PublisherSource.Subscription;
 import io.servicetalk.concurrent.api.Publisher;
+import io.servicetalk.transport.netty.internal.FlushStrategy.FlushSender;
 import io.servicetalk.transport.netty.internal.FlushStrategy.WriteEventsListener;
 
 import io.netty.channel.Channel;
@@ -61,11 +62,19 @@ final class Flush {
         FlushSubscriber(FlushStrategy flushStrategy, Subscriber<? super T> subscriber, Channel channel) {
             this.eventLoop = requireNonNull(channel.eventLoop());
             this.subscriber = requireNonNull(subscriber);
-            this.writeEventsListener = flushStrategy.apply(() -> {
-                if (enqueueFlush) {
-                    eventLoop.execute(channel::flush);
-                } else {
-                    channel.flush();
+            this.writeEventsListener = flushStrategy.apply(new FlushSender() {
+                @Override
+                public void flush() {
+                    if (enqueueFlush) {
+                        eventLoop.execute(channel::flush);
+                    } else {
+                        channel.flush();
+                    }
+                }
+
+                @Override
+                public boolean isWritable() {
+                    return channel.isWritable();
                 }
             });
         }
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.netty.channel.Channel;
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+import static io.netty.handler.flush.FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+
+/**
+ * Initializes the channel with a connection level flush coalescer.
+ * <p>
+ * Flushes requested while a read is in progress are deferred until the read completes, and flushes requested outside
+ * of a read are merged into a single flush executed when the {@link Channel#eventLoop() event loop} gets to it. This
+ * merges pending writes of multiple pipelined requests or responses into a single flush (and hence a single
+ * {@code writev}) independent of the {@link FlushStrategy} used for each write.
+ */
+public final class FlushCoalescingInitializer implements ChannelInitializer {
+
+    private final int explicitFlushAfterFlushes;
+
+    /**
+     * New instance which forces a flush after {@link FlushConsolidationHandler#DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES}
+     * coalesced flushes.
+     */
+    public FlushCoalescingInitializer() {
+        this(DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES);
+    }
+
+    /**
+     * New instance.
+     *
+     * @param explicitFlushAfterFlushes the maximum number of flushes to coalesce before a flush is forced.
+     */
+    public FlushCoalescingInitializer(final int explicitFlushAfterFlushes) {
+        if (explicitFlushAfterFlushes <= 0) {
+            throw new IllegalArgumentException("explicitFlushAfterFlushes: " + explicitFlushAfterFlushes +
+                    " (expected > 0)");
+        }
+        this.explicitFlushAfterFlushes = explicitFlushAfterFlushes;
+    }
+
+    @Override
+    public void init(final Channel channel) {
+        // Added first so that it observes reads before any decoder and coalesces flushes of all outbound handlers,
+        // including the ones generated by TLS.
+        channel.pipeline().addFirst(new FlushConsolidationHandler(explicitFlushAfterFlushes, true));
+    }
+}
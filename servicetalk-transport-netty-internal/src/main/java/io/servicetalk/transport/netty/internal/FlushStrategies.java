@@ -22,12 +22,24 @@ import io.servicetalk.transport.netty.internal.FlushStrategy.WriteEventsListener
 import static io.servicetalk.transport.netty.internal.FlushOnEach.FLUSH_ON_EACH;
 import static io.servicetalk.transport.netty.internal.FlushOnEnd.FLUSH_ON_END;
 import static java.lang.Integer.MAX_VALUE;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
 
 /**
  * A factory for creating {@link FlushStrategy}.
  */
 public final class FlushStrategies {
 
+    /**
+     * Default maximum number of bytes in a batch of an {@link #adaptiveFlush(int, Publisher) adaptive flush}.
+     */
+    public static final int DEFAULT_ADAPTIVE_MAX_BATCH_BYTES = 64 * 1024;
+
+    /**
+     * Default average interval between written items, in nanoseconds, below which an
+     * {@link #adaptiveFlush(int, Publisher) adaptive flush} flushes in batches.
+     */
+    public static final long DEFAULT_ADAPTIVE_BUSY_INTERVAL_NANOS = MICROSECONDS.toNanos(50);
+
     private FlushStrategies() {
         // No instances.
     }
@@ -68,6 +80,49 @@ public final class FlushStrategies {
         return new BatchFlush(durationBoundaries, batchSize);
     }
 
+    /**
+     * Creates a {@link FlushStrategy} that adapts to the write load: it will {@link FlushSender#flush() flush writes}
+     * on each item while writes are sparse and switches to flushing in batches while writes arrive faster than
+     * {@link #DEFAULT_ADAPTIVE_BUSY_INTERVAL_NANOS} on average or the connection is not
+     * {@link FlushSender#isWritable() writable}.
+     * <p>
+     * A batch is flushed when it reaches {@code maxBatchSize} items or {@link #DEFAULT_ADAPTIVE_MAX_BATCH_BYTES} bytes,
+     * or on expiration of a batch duration i.e. when an item is emitted from {@code durationBoundaries}.
+     *
+     * @param maxBatchSize Maximum number of items in a batch before it is flushed.
+     * @param durationBoundaries Batch durations. Every time an item is emitted on this {@link Publisher}, the returned
+     * {@link FlushStrategy} will {@link FlushSender#flush() flush writes}.
+     * @return A {@link FlushStrategy} that adapts to the write load, flushing on each item while writes are sparse and
+     * in batches while they are frequent.
+     */
+    public static FlushStrategy adaptiveFlush(int maxBatchSize, Publisher<?> durationBoundaries) {
+        return adaptiveFlush(maxBatchSize, DEFAULT_ADAPTIVE_MAX_BATCH_BYTES, DEFAULT_ADAPTIVE_BUSY_INTERVAL_NANOS,
+                durationBoundaries);
+    }
+
+    /**
+     * Creates a {@link FlushStrategy} that adapts to the write load: it will {@link FlushSender#flush() flush writes}
+     * on each item while writes are sparse and switches to flushing in batches while writes arrive faster than
+     * {@code busyIntervalNanos} on average or the connection is not {@link FlushSender#isWritable() writable}.
+     * <p>
+     * A batch is flushed when it reaches {@code maxBatchSize} items or {@code maxBatchBytes} bytes, or on expiration
+     * of a batch duration i.e. when an item is emitted from {@code durationBoundaries}.
+     *
+     * @param maxBatchSize Maximum number of items in a batch before it is flushed.
+     * @param maxBatchBytes Maximum number of bytes in a batch before it is flushed. Only items which are
+     * {@link io.servicetalk.buffer.api.Buffer}s or {@link io.netty.buffer.ByteBuf}s contribute to the size of a batch.
+     * @param busyIntervalNanos Average interval between written items, in nanoseconds, below which writes are
+     * considered frequent enough to be flushed in batches.
+     * @param durationBoundaries Batch durations. Every time an item is emitted on this {@link Publisher}, the returned
+     * {@link FlushStrategy} will {@link FlushSender#flush() flush writes}.
+     * @return A {@link FlushStrategy} that adapts to the write load, flushing on each item while writes are sparse and
+     * in batches while they are frequent.
+     */
+    public static FlushStrategy adaptiveFlush(int maxBatchSize, int maxBatchBytes, long busyIntervalNanos,
+                                              Publisher<?> durationBoundaries) {
+        return new AdaptiveFlush(durationBoundaries, maxBatchSize, maxBatchBytes, busyIntervalNanos);
+    }
+
     /**
      * Creates a {@link FlushStrategy} that will {@link FlushSender#flush() flush writes} when an item is emitted from
      * {@code flushBoundaries}.
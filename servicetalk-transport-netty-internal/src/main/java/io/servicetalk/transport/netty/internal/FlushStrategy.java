@@ -56,6 +56,16 @@ public interface FlushStrategy {
          * {@link WriteEventsListener}.
          */
         void flush();
+
+        /**
+         * Returns {@code true} if the associated connection is writable, i.e. data written to it can be sent without
+         * queueing beyond the configured write buffer high water mark.
+         *
+         * @return {@code true} if the associated connection is writable.
+         */
+        default boolean isWritable() {
+            return true;
+        }
     }
 
     /**
@@ -17,6 +17,7 @@ package io.servicetalk.transport.netty.internal;
 
 import io.servicetalk.concurrent.api.AsyncContextMap;
 import io.servicetalk.concurrent.api.AsyncContextMapHolder;
+import io.servicetalk.concurrent.api.IndexedThread;
 
 import io.netty.util.concurrent.FastThreadLocalThread;
 
@@ -62,7 +63,8 @@ public final class IoThreadFactory implements ThreadFactory {
 
     @Override
     public Thread newThread(Runnable r) {
-        Thread t = new AsyncContextHolderNettyThread(threadGroup, r, namePrefix + threadCount.incrementAndGet());
+        final int index = threadCount.getAndIncrement();
+        Thread t = new AsyncContextHolderNettyThread(threadGroup, r, namePrefix + (index + 1), index);
         if (t.isDaemon() != daemon) {
             t.setDaemon(daemon);
         }
@@ -73,12 +75,19 @@ public final class IoThreadFactory implements ThreadFactory {
     }
 
     private static final class AsyncContextHolderNettyThread extends FastThreadLocalThread
-            implements AsyncContextMapHolder {
+            implements AsyncContextMapHolder, IndexedThread {
+        private final int index;
         @Nullable
         private AsyncContextMap asyncContextMap;
 
-        AsyncContextHolderNettyThread(ThreadGroup group, Runnable target, String name) {
+        AsyncContextHolderNettyThread(ThreadGroup group, Runnable target, String name, int index) {
             super(group, target, name);
+            this.index = index;
+        }
+
+        @Override
+        public int threadIndex() {
+            return index;
         }
 
         @Override
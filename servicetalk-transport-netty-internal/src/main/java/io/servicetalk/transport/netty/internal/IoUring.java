@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.socket.DatagramChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+import javax.annotation.Nullable;
+
+/**
+ * Provides access to the <a href="https://github.com/netty/netty-incubator-transport-io_uring">io_uring transport</a>,
+ * if it is available.
+ * <p>
+ * The io_uring transport is not part of the netty version ServiceTalk is built against, so it is accessed reflectively
+ * and only used if it is on the classpath and supported by the running kernel.
+ */
+final class IoUring {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IoUring.class);
+    private static final String PACKAGE = "io.netty.incubator.channel.uring.";
+
+    @Nullable
+    private static final Class<?> EVENT_LOOP_GROUP_CLASS;
+    @Nullable
+    private static final Constructor<?> EVENT_LOOP_GROUP_CONSTRUCTOR;
+    @Nullable
+    private static final Class<? extends Channel> SOCKET_CHANNEL_CLASS;
+    @Nullable
+    private static final Class<? extends ServerChannel> SERVER_SOCKET_CHANNEL_CLASS;
+    @Nullable
+    private static final Class<? extends DatagramChannel> DATAGRAM_CHANNEL_CLASS;
+    @Nullable
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Class<?> eventLoopGroupClass = null;
+        Constructor<?> eventLoopGroupConstructor = null;
+        Class<? extends Channel> socketChannelClass = null;
+        Class<? extends ServerChannel> serverSocketChannelClass = null;
+        Class<? extends DatagramChannel> datagramChannelClass = null;
+        Throwable cause = null;
+        try {
+            final ClassLoader classLoader = IoUring.class.getClassLoader();
+            final Class<?> ioUringClass = Class.forName(PACKAGE + "IOUring", true, classLoader);
+            if ((Boolean) ioUringClass.getMethod("isAvailable").invoke(null)) {
+                eventLoopGroupClass = Class.forName(PACKAGE + "IOUringEventLoopGroup", true, classLoader);
+                eventLoopGroupConstructor = eventLoopGroupClass.getConstructor(int.class, ThreadFactory.class);
+                socketChannelClass = Class.forName(PACKAGE + "IOUringSocketChannel", true, classLoader)
+                        .asSubclass(Channel.class);
+                serverSocketChannelClass = Class.forName(PACKAGE + "IOUringServerSocketChannel", true, classLoader)
+                        .asSubclass(ServerChannel.class);
+                datagramChannelClass = Class.forName(PACKAGE + "IOUringDatagramChannel", true, classLoader)
+                        .asSubclass(DatagramChannel.class);
+            } else {
+                cause = (Throwable) ioUringClass.getMethod("unavailabilityCause").invoke(null);
+            }
+        } catch (Throwable t) {
+            cause = t instanceof InvocationTargetException ? t.getCause() : t;
+        }
+        if (cause == null) {
+            EVENT_LOOP_GROUP_CLASS = eventLoopGroupClass;
+            EVENT_LOOP_GROUP_CONSTRUCTOR = eventLoopGroupConstructor;
+            SOCKET_CHANNEL_CLASS = socketChannelClass;
+            SERVER_SOCKET_CHANNEL_CLASS = serverSocketChannelClass;
+            DATAGRAM_CHANNEL_CLASS = datagramChannelClass;
+            UNAVAILABILITY_CAUSE = null;
+        } else {
+            LOGGER.debug("io_uring transport is not available", cause);
+            EVENT_LOOP_GROUP_CLASS = null;
+            EVENT_LOOP_GROUP_CONSTRUCTOR = null;
+            SOCKET_CHANNEL_CLASS = null;
+            SERVER_SOCKET_CHANNEL_CLASS = null;
+            DATAGRAM_CHANNEL_CLASS = null;
+            UNAVAILABILITY_CAUSE = cause;
+        }
+    }
+
+    private IoUring() {
+        // no instances
+    }
+
+    /**
+     * Determine if the io_uring transport is available.
+     *
+     * @return {@code true} if the io_uring transport is available.
+     */
+    static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Determine if the {@code group} uses the io_uring transport.
+     *
+     * @param group the group to test.
+     * @return {@code true} if the {@code group} is, or belongs to, an io_uring event loop group.
+     */
+    static boolean isIoUring(EventLoopGroup group) {
+        final Class<?> groupClass = EVENT_LOOP_GROUP_CLASS;
+        return groupClass != null && (groupClass.isInstance(group) ||
+                (group instanceof EventLoop && groupClass.isInstance(((EventLoop) group).parent())));
+    }
+
+    /**
+     * Create a new io_uring {@link EventLoopGroup}.
+     *
+     * @param ioThreads number of threads.
+     * @param threadFactory the {@link ThreadFactory} to use.
+     * @return a new io_uring {@link EventLoopGroup}.
+     * @throws UnsupportedOperationException if the io_uring transport is not available.
+     */
+    static EventLoopGroup newEventLoopGroup(int ioThreads, ThreadFactory threadFactory) {
+        final Constructor<?> constructor = EVENT_LOOP_GROUP_CONSTRUCTOR;
+        if (constructor == null) {
+            throw new UnsupportedOperationException("io_uring transport is not available", UNAVAILABILITY_CAUSE);
+        }
+        try {
+            return (EventLoopGroup) constructor.newInstance(ioThreads, threadFactory);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException("Failed to create an io_uring event loop group", e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create an io_uring event loop group", e);
+        }
+    }
+
+    static Class<? extends Channel> socketChannel() {
+        assert SOCKET_CHANNEL_CLASS != null;
+        return SOCKET_CHANNEL_CLASS;
+    }
+
+    static Class<? extends ServerChannel> serverSocketChannel() {
+        assert SERVER_SOCKET_CHANNEL_CLASS != null;
+        return SERVER_SOCKET_CHANNEL_CLASS;
+    }
+
+    static Class<? extends DatagramChannel> datagramChannel() {
+        assert DATAGRAM_CHANNEL_CLASS != null;
+        return DATAGRAM_CHANNEL_CLASS;
+    }
+}
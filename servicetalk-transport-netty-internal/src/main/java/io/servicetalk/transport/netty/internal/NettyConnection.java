@@ -159,7 +159,7 @@ public interface NettyConnection<Read, Write> extends NettyConnectionContext {
          * @return A new instance of a default implementation of {@link RequestNSupplier}.
          */
         static RequestNSupplier newDefaultSupplier() {
-            return new MaxSizeBasedRequestNSupplier();
+            return new BytesInFlightRequestNSupplier();
         }
     }
 
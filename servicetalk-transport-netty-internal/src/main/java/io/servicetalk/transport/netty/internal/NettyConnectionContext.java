@@ -71,6 +71,16 @@ public interface NettyConnectionContext extends ConnectionContext {
      */
     Channel nettyChannel();
 
+    /**
+     * Returns the {@link WriteDemandMetrics} of this connection.
+     *
+     * @return the {@link WriteDemandMetrics} of this connection. Implementations which do not track write demand
+     * return metrics which always report {@code 0}.
+     */
+    default WriteDemandMetrics writeDemandMetrics() {
+        return WriteDemandMetrics.NO_METRICS;
+    }
+
     /**
      * A provider of {@link FlushStrategy} to update the {@link FlushStrategy} for a {@link NettyConnectionContext}.
      */
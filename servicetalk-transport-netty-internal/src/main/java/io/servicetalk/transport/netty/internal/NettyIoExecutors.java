@@ -57,8 +57,22 @@ public final class NettyIoExecutors {
      * @return The created {@link IoExecutor}
      */
     public static NettyIoExecutor createIoExecutor(int ioThreads, ThreadFactory threadFactory) {
+        return createIoExecutor(ioThreads, threadFactory, false);
+    }
+
+    /**
+     * Create a new {@link NettyIoExecutor}.
+     *
+     * @param ioThreads number of threads.
+     * @param threadFactory the {@link ThreadFactory} to use.
+     * @param preferIoUring {@code true} to use the io_uring transport if it is available, falling back to the same
+     * transports as {@link #createIoExecutor(int, ThreadFactory)} otherwise.
+     * @return The created {@link IoExecutor}
+     */
+    public static NettyIoExecutor createIoExecutor(int ioThreads, ThreadFactory threadFactory,
+                                                   boolean preferIoUring) {
         validateIoThreads(ioThreads);
-        return new EventLoopGroupIoExecutor(createEventLoopGroup(ioThreads, threadFactory), true);
+        return new EventLoopGroupIoExecutor(createEventLoopGroup(ioThreads, threadFactory, preferIoUring), true);
     }
 
     /**
@@ -69,7 +83,24 @@ public final class NettyIoExecutors {
      * @return The created {@link IoExecutor}
      */
     public static EventLoopGroup createEventLoopGroup(int ioThreads, ThreadFactory threadFactory) {
+        return createEventLoopGroup(ioThreads, threadFactory, false);
+    }
+
+    /**
+     * Create a new {@link EventLoopGroup}.
+     *
+     * @param ioThreads number of threads
+     * @param threadFactory the {@link ThreadFactory} to use.
+     * @param preferIoUring {@code true} to use the io_uring transport if it is available, falling back to the same
+     * transports as {@link #createEventLoopGroup(int, ThreadFactory)} otherwise.
+     * @return The created {@link IoExecutor}
+     */
+    public static EventLoopGroup createEventLoopGroup(int ioThreads, ThreadFactory threadFactory,
+                                                      boolean preferIoUring) {
         validateIoThreads(ioThreads);
+        if (preferIoUring && IoUring.isAvailable()) {
+            return IoUring.newEventLoopGroup(ioThreads, threadFactory);
+        }
         return Epoll.isAvailable() ? new EpollEventLoopGroup(ioThreads, threadFactory) :
                 KQueue.isAvailable() ? new KQueueEventLoopGroup(ioThreads, threadFactory) :
                         new NioEventLoopGroup(ioThreads, threadFactory);
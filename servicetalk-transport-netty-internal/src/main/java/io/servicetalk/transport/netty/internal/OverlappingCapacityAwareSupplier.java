@@ -15,8 +15,11 @@
  */
 package io.servicetalk.transport.netty.internal;
 
+import io.servicetalk.buffer.api.Buffer;
 import io.servicetalk.transport.netty.internal.NettyConnection.RequestNSupplier;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.FileRegion;
 
 import static io.servicetalk.concurrent.internal.FlowControlUtils.addWithOverflowProtection;
@@ -112,5 +115,27 @@ abstract class OverlappingCapacityAwareSupplier implements RequestNSupplier {
                 return before > after ? before - after : 0;
             };
         }
+
+        /**
+         * Returns a {@link SizeEstimator} which uses the exact size of {@link Buffer}, {@link ByteBuf},
+         * {@link ByteBufHolder} and {@link FileRegion} items and falls back to {@link #defaultEstimator()} for other
+         * items.
+         *
+         * @return A {@link SizeEstimator} which uses the exact size of known item types.
+         */
+        static SizeEstimator exactSizeEstimator() {
+            return (written, before, after) -> {
+                if (written instanceof Buffer) {
+                    return ((Buffer) written).readableBytes();
+                }
+                if (written instanceof ByteBuf) {
+                    return ((ByteBuf) written).readableBytes();
+                }
+                if (written instanceof ByteBufHolder) {
+                    return ((ByteBufHolder) written).content().readableBytes();
+                }
+                return defaultEstimator().estimateSize(written, before, after);
+            };
+        }
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Metrics of the write demand of a connection, i.e. how many bytes were requested from the written
+ * {@link io.servicetalk.concurrent.api.Publisher}s to fill the write buffer and how many bytes were actually written.
+ * <p>
+ * Requested bytes are the estimated size of the requested items at the time they are requested, i.e. the number of
+ * requested items multiplied by the average item size observed so far, so the difference between
+ * {@link #requestedBytes()} and {@link #writtenBytes()} indicates how accurately the write buffer capacity is being
+ * filled.
+ */
+public final class WriteDemandMetrics {
+
+    /**
+     * Metrics which are never updated, used by connections which do not track write demand.
+     */
+    static final WriteDemandMetrics NO_METRICS = new WriteDemandMetrics();
+
+    private static final AtomicLongFieldUpdater<WriteDemandMetrics> requestedBytesUpdater =
+            AtomicLongFieldUpdater.newUpdater(WriteDemandMetrics.class, "requestedBytes");
+    private static final AtomicLongFieldUpdater<WriteDemandMetrics> writtenBytesUpdater =
+            AtomicLongFieldUpdater.newUpdater(WriteDemandMetrics.class, "writtenBytes");
+
+    @SuppressWarnings("unused")
+    private volatile long requestedBytes;
+    @SuppressWarnings("unused")
+    private volatile long writtenBytes;
+
+    WriteDemandMetrics() {
+    }
+
+    /**
+     * Returns the total estimated number of bytes requested from the written
+     * {@link io.servicetalk.concurrent.api.Publisher}s.
+     *
+     * @return the total estimated number of bytes requested.
+     */
+    public long requestedBytes() {
+        return requestedBytes;
+    }
+
+    /**
+     * Returns the total number of bytes written.
+     *
+     * @return the total number of bytes written.
+     */
+    public long writtenBytes() {
+        return writtenBytes;
+    }
+
+    void bytesRequested(final long bytes) {
+        requestedBytesUpdater.addAndGet(this, bytes);
+    }
+
+    void bytesWritten(final long bytes) {
+        writtenBytesUpdater.addAndGet(this, bytes);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() +
+                "{requestedBytes=" + requestedBytes +
+                ", writtenBytes=" + writtenBytes +
+                '}';
+    }
+}
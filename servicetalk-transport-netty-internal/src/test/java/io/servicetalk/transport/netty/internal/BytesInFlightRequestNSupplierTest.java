@@ -0,0 +1,108 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import org.junit.Test;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
+import static io.servicetalk.transport.netty.internal.OverlappingCapacityAwareSupplier.SizeEstimator.defaultEstimator;
+import static io.servicetalk.transport.netty.internal.OverlappingCapacityAwareSupplier.SizeEstimator.exactSizeEstimator;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class BytesInFlightRequestNSupplierTest {
+
+    private final WriteDemandMetrics metrics = new WriteDemandMetrics();
+    private final BytesInFlightRequestNSupplier supplier =
+            new BytesInFlightRequestNSupplier(exactSizeEstimator(), 8, metrics);
+
+    @Test
+    public void testRequestNNoRecord() {
+        assertThat("Unexpected requestN.", supplier.requestNFor(64), is(8L));
+        assertThat("Unexpected requested bytes.", metrics.requestedBytes(), is(64L));
+    }
+
+    @Test
+    public void testRequestAtLeastOneIfNothingOutstanding() {
+        assertThat("Unexpected requestN.", supplier.requestNFor(2), is(1L));
+        assertThat("Unexpected requestN.", supplier.requestNFor(2), is(0L));
+    }
+
+    @Test
+    public void testNoRequestIfNoCapacity() {
+        assertThat("Unexpected requestN.", supplier.requestNFor(0), is(0L));
+    }
+
+    @Test
+    public void testOutstandingDemandAccountedFor() {
+        assertThat("Unexpected requestN.", supplier.requestNFor(64), is(8L));
+        // Same capacity is reported again before any item is written, everything is already requested.
+        assertThat("Unexpected requestN.", supplier.requestNFor(64), is(0L));
+        supplier.onItemWrite(buffer(8), 64, 56);
+        assertThat("Unexpected requestN.", supplier.requestNFor(56), is(0L));
+        // Write buffer got flushed, only the capacity not covered by the 7 outstanding items is filled.
+        assertThat("Unexpected requestN.", supplier.requestNFor(64), is(1L));
+    }
+
+    @Test
+    public void testLargeItemLimitsDemandImmediately() {
+        assertThat("Unexpected requestN.", supplier.requestNFor(1024), is(128L));
+        supplier.onItemWrite(buffer(1024), 1024, 0);
+        for (int i = 0; i < 127; ++i) {
+            supplier.onItemWrite(buffer(1024), 0, 0);
+        }
+        assertThat("Unexpected requestN.", supplier.requestNFor(4096), is(4L));
+    }
+
+    @Test
+    public void testSmallItemsRecoverDemand() {
+        assertThat("Unexpected requestN.", supplier.requestNFor(8), is(1L));
+        supplier.onItemWrite(buffer(1024), 8, 0);
+        assertThat("Unexpected requestN.", supplier.requestNFor(1024), is(1L));
+        for (int i = 0; i < 40; ++i) {
+            supplier.onItemWrite(buffer(8), 1024, 1016);
+        }
+        assertThat("Unexpected requestN.", supplier.requestNFor(1024), greaterThan(64L));
+    }
+
+    @Test
+    public void testWrittenBytesAreExact() {
+        supplier.requestNFor(64);
+        supplier.onItemWrite(buffer(5), 64, 64);
+        supplier.onItemWrite(DEFAULT_ALLOCATOR.wrap(new byte[3]), 64, 10);
+        assertThat("Unexpected written bytes.", metrics.writtenBytes(), is(8L));
+    }
+
+    @Test
+    public void testFallbackToCapacityDifference() {
+        BytesInFlightRequestNSupplier supplier = new BytesInFlightRequestNSupplier(defaultEstimator(), 8, metrics);
+        supplier.requestNFor(64);
+        supplier.onItemWrite(new Object(), 64, 32);
+        assertThat("Unexpected written bytes.", metrics.writtenBytes(), is(32L));
+        // 7 outstanding items estimated at 32 bytes each already exceed the capacity.
+        assertThat("Unexpected requestN.", supplier.requestNFor(64), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDefaultSize() {
+        new BytesInFlightRequestNSupplier(exactSizeEstimator(), 0, null);
+    }
+
+    private static Object buffer(int size) {
+        return DEFAULT_ALLOCATOR.newBuffer(size).writerIndex(size);
+    }
+}
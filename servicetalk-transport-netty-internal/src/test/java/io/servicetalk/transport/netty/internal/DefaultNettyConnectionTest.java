@@ -67,6 +67,7 @@ import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -146,6 +147,14 @@ public class DefaultNettyConnectionTest {
         pollChannelAndVerifyWrites("Hello1", "Hello2", TRAILER_MSG);
     }
 
+    @Test
+    public void testWriteDemandMetrics() {
+        testWritePublisher();
+        assertThat(conn.writeDemandMetrics().writtenBytes(),
+                is((long) ("Hello1".length() + "Hello2".length() + TRAILER_MSG.length())));
+        assertThat(conn.writeDemandMetrics().requestedBytes(), greaterThan(0L));
+    }
+
     @Test
     public void testWriteSingle() {
         writeListener.listen(conn.writeAndFlush(Single.succeeded(newBuffer("Hello"))))
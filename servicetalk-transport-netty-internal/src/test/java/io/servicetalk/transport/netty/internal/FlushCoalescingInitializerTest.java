@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class FlushCoalescingInitializerTest {
+
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        channel = new EmbeddedChannel();
+        new FlushCoalescingInitializer(4).init(channel);
+        // Echo every read and flush it, similar to pipelined responses written as requests are decoded.
+        channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+                ctx.writeAndFlush(msg);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void flushesDeferredUntilReadComplete() {
+        channel.pipeline().fireChannelRead(1);
+        channel.pipeline().fireChannelRead(2);
+        channel.pipeline().fireChannelRead(3);
+        assertThat(channel.outboundMessages().size(), is(0));
+
+        channel.pipeline().fireChannelReadComplete();
+        assertThat(channel.outboundMessages().size(), is(3));
+    }
+
+    @Test
+    public void explicitFlushAfterMaxFlushes() {
+        for (int i = 0; i < 4; ++i) {
+            channel.pipeline().fireChannelRead(i);
+        }
+        assertThat(channel.outboundMessages().size(), is(4));
+    }
+
+    @Test
+    public void flushOutsideReadDeferredToEventLoop() {
+        // EmbeddedChannel runs pending tasks as part of outbound operations, so only a single flush through the
+        // pipeline can be observed as pending.
+        channel.pipeline().writeAndFlush(1);
+        assertThat(channel.outboundMessages().size(), is(0));
+
+        channel.runPendingTasks();
+        assertThat(channel.outboundMessages().size(), is(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidExplicitFlushAfterFlushes() {
+        new FlushCoalescingInitializer(0);
+    }
+}
@@ -24,14 +24,22 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.servicetalk.buffer.netty.BufferAllocators.DEFAULT_ALLOCATOR;
 import static io.servicetalk.concurrent.internal.DeliberateException.DELIBERATE_EXCEPTION;
+import static io.servicetalk.transport.netty.internal.FlushStrategies.adaptiveFlush;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEach;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushOnEnd;
 import static io.servicetalk.transport.netty.internal.FlushStrategies.flushWith;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 public class FlushStrategiesTest {
 
@@ -39,6 +47,7 @@ public class FlushStrategiesTest {
     private TestPublisher<String> durationSource;
     private WriteEventsListener listener;
     private TestSubscription subscription = new TestSubscription();
+    private final AtomicLong nanoTime = new AtomicLong();
 
     @Before
     public void setUp() {
@@ -164,6 +173,69 @@ public class FlushStrategiesTest {
         assertTrue(subscription.isCancelled());
     }
 
+    @Test
+    public void testAdaptiveFlushSparseWritesFlushEach() {
+        setupForAdaptive(4, 1024);
+        writeEvery(MICROSECONDS.toNanos(100), 3);
+        verifyFlush(3);
+    }
+
+    @Test
+    public void testAdaptiveFlushFrequentWritesBatch() {
+        setupForAdaptive(4, 1024);
+        // First item is flushed as there is no history yet.
+        writeEvery(MICROSECONDS.toNanos(10), 5);
+        verifyFlush(2);
+        listener.writeTerminated();
+        verifyFlush(2);
+    }
+
+    @Test
+    public void testAdaptiveFlushSwitchesBackWhenSparse() {
+        setupForAdaptive(100, 1024);
+        writeEvery(MICROSECONDS.toNanos(10), 3);
+        verifyFlush(1);
+        writeEvery(MILLISECONDS.toNanos(1), 1);
+        verifyFlush(2);
+    }
+
+    @Test
+    public void testAdaptiveFlushMaxBatchBytes() {
+        setupForAdaptive(100, 10);
+        writeEvery(MICROSECONDS.toNanos(10), 2);
+        verifyFlush(1);
+        nanoTime.addAndGet(MICROSECONDS.toNanos(10));
+        listener.itemWritten(DEFAULT_ALLOCATOR.wrap(new byte[10]));
+        verifyFlush(2);
+    }
+
+    @Test
+    public void testAdaptiveFlushBatchesWhenNotWritable() {
+        setupForAdaptive(3, 1024);
+        when(flushSender.isWritable()).thenReturn(false);
+        writeEvery(MILLISECONDS.toNanos(1), 2);
+        verify(flushSender, never()).flush();
+        listener.writeTerminated();
+        verifyFlush(1);
+    }
+
+    @Test
+    public void testAdaptiveFlushOnDuration() {
+        setupForAdaptive(100, 1024);
+        durationSource.onSubscribe(subscription);
+        writeEvery(MICROSECONDS.toNanos(10), 3);
+        verifyFlush(1);
+        durationSource.onNext("Flush");
+        verifyFlush(2);
+        listener.writeCancelled();
+        assertTrue(subscription.isCancelled());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAdaptiveFlushInvalidBatchSize() {
+        adaptiveFlush(0, durationSource);
+    }
+
     private void setupFor(FlushStrategy strategy) {
         listener = strategy.apply(flushSender);
         listener.writeStarted();
@@ -173,6 +245,19 @@ public class FlushStrategiesTest {
         setupFor(FlushStrategies.batchFlush(batchSize, durationSource.map(s -> 1L)));
     }
 
+    private void setupForAdaptive(int maxBatchSize, int maxBatchBytes) {
+        when(flushSender.isWritable()).thenReturn(true);
+        setupFor(new AdaptiveFlush(durationSource, maxBatchSize, maxBatchBytes, MICROSECONDS.toNanos(50),
+                nanoTime::get));
+    }
+
+    private void writeEvery(long intervalNanos, int itemCount) {
+        for (int i = 0; i < itemCount; i++) {
+            nanoTime.addAndGet(intervalNanos);
+            listener.itemWritten(i);
+        }
+    }
+
     private void testBatch(int batchSize, int sendItemCount) {
         for (int i = 0; i < sendItemCount; i++) {
             listener.itemWritten(i);
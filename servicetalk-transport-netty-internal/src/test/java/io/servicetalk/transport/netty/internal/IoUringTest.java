@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2020 Apple Inc. and the ServiceTalk project authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.servicetalk.transport.netty.internal;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static io.servicetalk.transport.netty.internal.BuilderUtils.datagramChannel;
+import static io.servicetalk.transport.netty.internal.BuilderUtils.serverChannel;
+import static io.servicetalk.transport.netty.internal.BuilderUtils.socketChannel;
+import static io.servicetalk.transport.netty.internal.BuilderUtils.useEpoll;
+import static io.servicetalk.transport.netty.internal.BuilderUtils.useIoUring;
+import static io.servicetalk.transport.netty.internal.NettyIoExecutors.createEventLoopGroup;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class IoUringTest {
+
+    private EventLoopGroup group;
+
+    @After
+    public void tearDown() {
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void notPreferredDoesNotUseIoUring() {
+        group = createEventLoopGroup(1, new IoThreadFactory("io-uring-test"), false);
+        assertThat(useIoUring(group), is(false));
+        assertThat(useIoUring(group.next()), is(false));
+    }
+
+    @Test
+    public void unavailableFallsBack() {
+        assumeFalse("io_uring is available", IoUring.isAvailable());
+        group = createEventLoopGroup(1, new IoThreadFactory("io-uring-test"), true);
+        assertThat(useIoUring(group), is(false));
+        assertThat(useEpoll(group), is(Epoll.isAvailable()));
+    }
+
+    @Test
+    public void availableResolvesIoUringChannels() {
+        assumeTrue("io_uring is not available", IoUring.isAvailable());
+        group = createEventLoopGroup(1, new IoThreadFactory("io-uring-test"), true);
+        assertThat(useIoUring(group), is(true));
+        assertThat(useIoUring(group.next()), is(true));
+        assertThat(useEpoll(group), is(false));
+        assertThat(socketChannel(group, InetSocketAddress.class).getSimpleName(), startsWith("IOUring"));
+        assertThat(serverChannel(group, InetSocketAddress.class).getSimpleName(), startsWith("IOUring"));
+        assertThat(datagramChannel(group).getSimpleName(), startsWith("IOUring"));
+    }
+}
@@ -42,6 +42,24 @@ public final class NettyIoExecutors {
         return io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor(ioThreads, threadFactory);
     }
 
+    /**
+     * Creates a new {@link IoExecutor} with the specified number of {@code ioThreads}, which optionally uses the
+     * <a href="https://github.com/netty/netty-incubator-transport-io_uring">io_uring transport</a>.
+     * <p>
+     * The io_uring transport is only used if it is on the classpath and supported by the running kernel, otherwise
+     * the same transport as {@link #createIoExecutor(int, ThreadFactory)} is used.
+     *
+     * @param ioThreads number of threads.
+     * @param threadFactory the {@link ThreadFactory} to use. If possible you should use an instance
+     * of {@link IoThreadFactory} as it allows internal optimizations.
+     * @param preferIoUring {@code true} to use the io_uring transport if it is available.
+     * @return The created {@link IoExecutor}
+     */
+    public static IoExecutor createIoExecutor(int ioThreads, ThreadFactory threadFactory, boolean preferIoUring) {
+        return io.servicetalk.transport.netty.internal.NettyIoExecutors.createIoExecutor(ioThreads, threadFactory,
+                preferIoUring);
+    }
+
     /**
      * Creates a new {@link IoExecutor} with the specified number of {@code ioThreads}.
      *